@@ -32,6 +32,7 @@ import org.uberfire.mvp.Command;
 import org.uberfire.mvp.ParameterizedCommand;
 import org.uberfire.rpc.SessionInfo;
 import org.uberfire.workbench.events.ResourceBatchChangesEvent;
+import org.uberfire.workbench.events.ResourceBatchChangesSummaryEvent;
 import org.uberfire.workbench.events.ResourceChange;
 import org.uberfire.workbench.events.ResourceCopied;
 import org.uberfire.workbench.events.ResourceCopiedEvent;
@@ -233,6 +234,19 @@ public class ObservablePathImpl implements ObservablePath,
         }
     }
 
+    void onResourceBatchSummaryEvent(@Observes final ResourceBatchChangesSummaryEvent summaryEvent) {
+        // the summary doesn't tell which resources changed: the path may have been updated
+        if (path != null && summaryEvent.containPath(path)) {
+            if (sessionInfo.getId().equals(summaryEvent.getSessionInfo().getId())) {
+                executeUpdateCommands();
+            } else {
+                executeConcurrentUpdateCommand(path,
+                                               summaryEvent.getSessionInfo().getId(),
+                                               summaryEvent.getSessionInfo().getIdentity());
+            }
+        }
+    }
+
     void onResourceBatchEvent(@Observes final ResourceBatchChangesEvent batchEvent) {
         if (path != null && batchEvent.containPath(path)) {
             if (sessionInfo.getId().equals(batchEvent.getSessionInfo().getId())) {
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.workbench.events;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jboss.errai.common.client.api.annotations.MapsTo;
+import org.jboss.errai.common.client.api.annotations.Portable;
+import org.uberfire.backend.vfs.Path;
+import org.uberfire.rpc.SessionInfo;
+
+import static org.kie.soup.commons.validation.PortablePreconditions.checkNotNull;
+
+/**
+ * An Event sent instead of a {@link ResourceBatchChangesEvent} too large to be shipped, holding only the number of
+ * changes of each type. Any Resource under the root may have changed and should be read again.
+ */
+@Portable
+public class ResourceBatchChangesSummaryEvent implements UberFireEvent {
+
+    private Path root;
+    private String message;
+    private SessionInfo sessionInfo;
+    private Map<ResourceChangeType, Integer> counts = new HashMap<ResourceChangeType, Integer>();
+
+    public ResourceBatchChangesSummaryEvent(@MapsTo("root") final Path root,
+                                            @MapsTo("counts") final Map<ResourceChangeType, Integer> counts,
+                                            @MapsTo("message") final String message,
+                                            @MapsTo("sessionInfo") final SessionInfo sessionInfo) {
+        this.root = checkNotNull("root",
+                                 root);
+        this.counts.putAll(checkNotNull("counts",
+                                        counts));
+        this.message = message;
+        this.sessionInfo = checkNotNull("sessionInfo",
+                                        sessionInfo);
+    }
+
+    /**
+     * @return Root of the changed Resources, to be read again.
+     */
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * @return true if the given Resource is under the root, so it may have changed.
+     */
+    public boolean containPath(final Path path) {
+        final String rootUri = root.toURI().endsWith("/") ? root.toURI() : root.toURI() + "/";
+        return path.toURI().startsWith(rootUri) || path.toURI().equals(root.toURI());
+    }
+
+    public Map<ResourceChangeType, Integer> getCounts() {
+        return counts;
+    }
+
+    public int getCount(final ResourceChangeType type) {
+        final Integer count = counts.get(type);
+        return count == null ? 0 : count;
+    }
+
+    public int getTotalCount() {
+        int total = 0;
+        for (final Integer count : counts.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    public SessionInfo getSessionInfo() {
+        return sessionInfo;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceBatchChangesSummaryEvent [sessionInfo=" + sessionInfo + ", root=" + root
+                + ", counts=" + counts + "]";
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.backend.vfs;
+
+import org.jboss.errai.bus.server.annotations.Remote;
+
+/**
+ * Lets a client session tell which parts of UberFire's virtual file system it follows, so changes to other
+ * Resources don't need to be shipped to clients.
+ */
+@Remote
+public interface ResourceChangeSubscriptionService {
+
+    /**
+     * Subscribes the current session to the changes of every Resource under the specified {@link Path}: the root of
+     * a branch to follow a whole repository branch, or any directory.
+     * @param path the path of the file or directory to follow.
+     * @throws IllegalArgumentException If the provided path is invalid or null.
+     */
+    void subscribe(Path path)
+            throws IllegalArgumentException;
+
+    /**
+     * Removes a subscription of the current session.
+     * @param path the path passed when subscribing.
+     * @throws IllegalArgumentException If the provided path is invalid or null.
+     */
+    void unsubscribe(Path path)
+            throws IllegalArgumentException;
+
+    /**
+     * Removes all the subscriptions of the current session.
+     */
+    void unsubscribeAll();
+}
@@ -54,29 +54,37 @@ public class LockCleanupSessionListener implements HttpSessionListener {
         final Set<LockInfo> locks = (Set<LockInfo>) se.getSession()
                 .getAttribute(VFSLockServiceImpl.LOCK_SESSION_ATTRIBUTE_NAME);
 
-        if (locks != null) {
-            try {
-                ioService.startBatch(fileSystem);
-                for (LockInfo lock : locks) {
-                    try {
-                        final Path lockPath = Paths.convert(PathFactory.newLock(lock.getFile()));
-                        // Lock could have change ownership due to a forced lock release
-                        if (ioService.readAllString(lockPath).equals(lock.lockedBy())) {
-                            ioService.delete(lockPath);
-                        }
-                    } catch (NoSuchFileException e) {
-                        // Logging this with a lower level as it can happen when a user triggers 
-                        // a forced lock release or when the locked file itself was deleted.
-                        logger.debug("Problem when releasing lock on session end (lock no longer exists): " + lock,
-                                     e);
-                    } catch (Throwable t) {
-                        logger.warn("Problem when releasing lock on session end: " + lock,
-                                    t);
+        if (locks == null) {
+            return;
+        }
+
+        final VFSLockServiceImpl journaledLockService = VFSLockServiceImpl.getJournaledInstance();
+        if (journaledLockService != null) {
+            journaledLockService.releaseSessionLocks(locks);
+            return;
+        }
+
+        try {
+            ioService.startBatch(fileSystem);
+            for (LockInfo lock : locks) {
+                try {
+                    final Path lockPath = Paths.convert(PathFactory.newLock(lock.getFile()));
+                    // Lock could have change ownership due to a forced lock release
+                    if (ioService.readAllString(lockPath).equals(lock.lockedBy())) {
+                        ioService.delete(lockPath);
                     }
+                } catch (NoSuchFileException e) {
+                    // Logging this with a lower level as it can happen when a user triggers 
+                    // a forced lock release or when the locked file itself was deleted.
+                    logger.debug("Problem when releasing lock on session end (lock no longer exists): " + lock,
+                                 e);
+                } catch (Throwable t) {
+                    logger.warn("Problem when releasing lock on session end: " + lock,
+                                t);
                 }
-            } finally {
-                ioService.endBatch();
             }
+        } finally {
+            ioService.endBatch();
         }
     }
 }
\ No newline at end of file
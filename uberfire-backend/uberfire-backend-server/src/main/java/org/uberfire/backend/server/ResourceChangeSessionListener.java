@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.backend.server;
+
+import javax.inject.Inject;
+import javax.servlet.annotation.WebListener;
+import javax.servlet.http.HttpSessionEvent;
+import javax.servlet.http.HttpSessionListener;
+
+import org.uberfire.backend.server.io.watch.ResourceChangeSubscriptions;
+
+/**
+ * Registers the sessions in the {@link ResourceChangeSubscriptions}, so the sessions that never subscribe still
+ * receive every change.
+ */
+@WebListener
+public class ResourceChangeSessionListener implements HttpSessionListener {
+
+    @Inject
+    private ResourceChangeSubscriptions subscriptions;
+
+    public ResourceChangeSessionListener() {
+    }
+
+    ResourceChangeSessionListener(final ResourceChangeSubscriptions subscriptions) {
+        this.subscriptions = subscriptions;
+    }
+
+    @Override
+    public void sessionCreated(final HttpSessionEvent se) {
+        subscriptions.connect(se.getSession().getId());
+    }
+
+    @Override
+    public void sessionDestroyed(final HttpSessionEvent se) {
+        subscriptions.disconnect(se.getSession().getId());
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.backend.server;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionBindingEvent;
+import javax.servlet.http.HttpSessionBindingListener;
+
+import org.jboss.errai.bus.server.annotations.Service;
+import org.jboss.errai.bus.server.api.RpcContext;
+import org.uberfire.backend.server.io.watch.ResourceChangeSubscriptions;
+import org.uberfire.backend.vfs.Path;
+import org.uberfire.backend.vfs.ResourceChangeSubscriptionService;
+
+import static org.kie.soup.commons.validation.PortablePreconditions.checkNotNull;
+
+/**
+ * Errai RPC endpoint exposing a {@link ResourceChangeSubscriptionService}. Subscriptions are kept per HTTP session,
+ * and removed when the session ends.
+ */
+@Service
+@ApplicationScoped
+public class ResourceChangeSubscriptionServiceImpl implements ResourceChangeSubscriptionService {
+
+    public static final String SUBSCRIPTIONS_SESSION_ATTRIBUTE_NAME = "uf-resource-subscriptions";
+
+    private ResourceChangeSubscriptions subscriptions;
+
+    public ResourceChangeSubscriptionServiceImpl() {
+    }
+
+    @Inject
+    public ResourceChangeSubscriptionServiceImpl(final ResourceChangeSubscriptions subscriptions) {
+        this.subscriptions = subscriptions;
+    }
+
+    @Override
+    public void subscribe(final Path path) throws IllegalArgumentException {
+        checkNotNull("path",
+                     path);
+        subscriptions.subscribe(sessionId(),
+                                path.toURI());
+    }
+
+    @Override
+    public void unsubscribe(final Path path) throws IllegalArgumentException {
+        checkNotNull("path",
+                     path);
+        subscriptions.unsubscribe(sessionId(),
+                                  path.toURI());
+    }
+
+    @Override
+    public void unsubscribeAll() {
+        subscriptions.unsubscribeAll(sessionId());
+    }
+
+    private String sessionId() {
+        final HttpSession session = RpcContext.getHttpSession();
+        if (session.getAttribute(SUBSCRIPTIONS_SESSION_ATTRIBUTE_NAME) == null) {
+            session.setAttribute(SUBSCRIPTIONS_SESSION_ATTRIBUTE_NAME,
+                                 new SessionSubscriptions(subscriptions));
+        }
+        return session.getId();
+    }
+
+    /**
+     * Removes the subscriptions of a session when it ends.
+     */
+    static class SessionSubscriptions implements HttpSessionBindingListener {
+
+        private final ResourceChangeSubscriptions subscriptions;
+
+        SessionSubscriptions(final ResourceChangeSubscriptions subscriptions) {
+            this.subscriptions = subscriptions;
+        }
+
+        @Override
+        public void valueBound(final HttpSessionBindingEvent event) {
+        }
+
+        @Override
+        public void valueUnbound(final HttpSessionBindingEvent event) {
+            subscriptions.unsubscribeAll(event.getSession().getId());
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.uberfire.backend.server;
 
+import java.io.File;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -23,8 +24,14 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -34,32 +41,60 @@ import org.jboss.errai.bus.server.annotations.Service;
 import org.jboss.errai.bus.server.api.RpcContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.uberfire.backend.server.lock.LockJournal;
+import org.uberfire.backend.server.lock.LockTable;
 import org.uberfire.backend.server.util.Paths;
 import org.uberfire.backend.vfs.Path;
 import org.uberfire.backend.vfs.PathFactory;
 import org.uberfire.backend.vfs.VFSLockService;
 import org.uberfire.backend.vfs.impl.LockInfo;
 import org.uberfire.backend.vfs.impl.LockResult;
+import org.uberfire.commons.concurrent.Managed;
 import org.uberfire.io.IOService;
+import org.uberfire.io.impl.cluster.IOServiceClusterImpl;
 import org.uberfire.java.nio.IOException;
+import org.uberfire.java.nio.base.WatchContext;
 import org.uberfire.java.nio.file.DirectoryStream.Filter;
 import org.uberfire.java.nio.file.FileSystem;
 import org.uberfire.java.nio.file.Files;
 import org.uberfire.java.nio.file.NoSuchFileException;
+import org.uberfire.java.nio.file.StandardWatchEventKind;
+import org.uberfire.java.nio.file.WatchEvent;
+import org.uberfire.java.nio.file.WatchKey;
+import org.uberfire.java.nio.file.WatchService;
 import org.uberfire.rpc.SessionInfo;
 import org.uberfire.workbench.events.ResourceDeletedEvent;
 import org.uberfire.workbench.events.ResourceRenamedEvent;
 
 /**
  * Errai RPC endpoint exposing a {@link VFSLockService}.
+ * <p>
+ * Lock lookups are answered by an in-memory {@link LockTable}. How locks are persisted depends on the
+ * {@value #LOCK_PERSISTENCE_PROPERTY} system property:
+ * <ul>
+ * <li>{@value #GIT_PERSISTENCE} (default): every lock is a file of the system file system, written in a batch so
+ * the cluster sees it. The table is loaded once at startup and kept in sync by watching the lock files.</li>
+ * <li>{@value #JOURNAL_PERSISTENCE}: the table is authoritative and every change is appended to a local
+ * {@link LockJournal}, so acquiring or releasing a lock doesn't cost a commit. Locks aren't shared with other nodes,
+ * so this mode is ignored on clustered setups.</li>
+ * </ul>
  */
 @Service
 @ApplicationScoped
 public class VFSLockServiceImpl implements VFSLockService {
 
     public static final String LOCK_SESSION_ATTRIBUTE_NAME = "uf-locks";
+    public static final String LOCK_PERSISTENCE_PROPERTY = "org.uberfire.lock.persistence";
+    public static final String LOCK_JOURNAL_PROPERTY = "org.uberfire.lock.journal";
+    public static final String LOCK_JOURNAL_COMPACTION_PROPERTY = "org.uberfire.lock.journal.compaction";
+    public static final String GIT_PERSISTENCE = "git";
+    public static final String JOURNAL_PERSISTENCE = "journal";
+    public static final int DEFAULT_JOURNAL_COMPACTION = 10000;
+
     private static final Logger logger = LoggerFactory.getLogger(VFSLockServiceImpl.class);
 
+    private static volatile VFSLockServiceImpl journaledInstance;
+
     @Inject
     @Named("configIO")
     private IOService ioService;
@@ -71,21 +106,87 @@ public class VFSLockServiceImpl implements VFSLockService {
     @Inject
     private SessionInfo sessionInfo;
 
+    @Inject
+    private Event<LockInfo> lockEvent;
+
+    @Inject
+    @Managed
+    private ExecutorService executorService;
+
+    // null until loaded, or when it can't be kept in sync with the lock files
+    private volatile LockTable lockTable;
+    private LockJournal lockJournal;
+    private WatchService watchService;
+    private Future<?> watchTask;
+    private volatile boolean active = false;
+
+    @PostConstruct
+    public void init() {
+        boolean journaled = JOURNAL_PERSISTENCE.equals(System.getProperty(LOCK_PERSISTENCE_PROPERTY,
+                                                                          GIT_PERSISTENCE));
+        if (journaled && ioService instanceof IOServiceClusterImpl) {
+            logger.warn("Lock journal can't be shared by the nodes of a cluster, persisting locks in git");
+            journaled = false;
+        }
+
+        if (journaled) {
+            final File journalFile = new File(System.getProperty(LOCK_JOURNAL_PROPERTY,
+                                                                 defaultJournalPath()));
+            lockJournal = new LockJournal(journalFile,
+                                          Integer.getInteger(LOCK_JOURNAL_COMPACTION_PROPERTY,
+                                                             DEFAULT_JOURNAL_COMPACTION));
+            lockTable = new LockTable(lockJournal.getLocks());
+            journaledInstance = this;
+            logger.info("Persisting locks in journal " + journalFile.getAbsolutePath());
+        } else {
+            loadLockTable();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        active = false;
+        if (watchTask != null) {
+            watchTask.cancel(true);
+        }
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (lockJournal != null) {
+            lockJournal.close();
+        }
+        if (journaledInstance == this) {
+            journaledInstance = null;
+        }
+    }
+
+    /**
+     * @return The lock service persisting locks in a journal, or null if locks are persisted in git.
+     */
+    static VFSLockServiceImpl getJournaledInstance() {
+        return journaledInstance;
+    }
+
     @Override
     public LockResult acquireLock(final Path path)
             throws IllegalArgumentException, IOException, UnsupportedOperationException {
 
+        if (isJournaled()) {
+            return acquireJournaledLock(path);
+        }
+
         try {
             ioService.startBatch(fileSystem);
 
             final String userId = sessionInfo.getIdentity().getIdentifier();
-            final LockInfo lockInfo = retrieveLockInfo(path);
+            final LockInfo lockInfo = readLockInfo(path);
             final LockResult result;
             if (lockInfo.isLocked() && !lockInfo.lockedBy().equals(userId)) {
                 result = LockResult.failed(lockInfo);
             } else {
                 ioService.write(Paths.convert(lockInfo.getLock()),
                                 userId);
+                syncLockTable(lockInfo.getLock());
                 result = LockResult.acquired(path,
                                              userId);
                 updateSession(result.getLockInfo());
@@ -119,14 +220,20 @@ public class VFSLockServiceImpl implements VFSLockService {
                                    final boolean force)
             throws IllegalArgumentException, IOException {
 
+        if (isJournaled()) {
+            return releaseJournaledLock(path,
+                                        force);
+        }
+
         try {
             ioService.startBatch(fileSystem);
 
-            final LockInfo lockInfo = retrieveLockInfo(path);
+            final LockInfo lockInfo = readLockInfo(path);
             final LockResult result;
             if (lockInfo.isLocked()) {
                 if (sessionInfo.getIdentity().getIdentifier().equals(lockInfo.lockedBy()) || force) {
                     ioService.delete(Paths.convert(lockInfo.getLock()));
+                    syncLockTable(lockInfo.getLock());
                     updateSession(lockInfo,
                                   true);
                     result = LockResult.released(path);
@@ -143,31 +250,98 @@ public class VFSLockServiceImpl implements VFSLockService {
         }
     }
 
+    private LockResult acquireJournaledLock(final Path path) {
+        final String userId = sessionInfo.getIdentity().getIdentifier();
+        final String lockedBy;
+        synchronized (lockJournal) {
+            lockedBy = lockTable.lockedBy(path.toURI());
+            if (lockedBy == null) {
+                lockJournal.locked(path.toURI(),
+                                   userId);
+                lockTable.set(path.toURI(),
+                              userId);
+            }
+        }
+        if (lockedBy != null && !lockedBy.equals(userId)) {
+            return LockResult.failed(new LockInfo(true,
+                                                  lockedBy,
+                                                  path,
+                                                  PathFactory.newLock(path)));
+        }
+
+        final LockResult result = LockResult.acquired(path,
+                                                      userId);
+        updateSession(result.getLockInfo());
+        if (lockedBy == null) {
+            lockEvent.fire(result.getLockInfo());
+        }
+        return result;
+    }
+
+    private LockResult releaseJournaledLock(final Path path,
+                                            final boolean force) {
+        final String userId = sessionInfo.getIdentity().getIdentifier();
+        final String lockedBy;
+        synchronized (lockJournal) {
+            lockedBy = lockTable.lockedBy(path.toURI());
+            if (lockedBy != null && (userId.equals(lockedBy) || force)) {
+                lockJournal.released(path.toURI());
+                lockTable.release(path.toURI());
+            }
+        }
+        final LockInfo lockInfo = new LockInfo(lockedBy != null,
+                                               lockedBy,
+                                               path,
+                                               PathFactory.newLock(path));
+        if (lockedBy == null) {
+            return LockResult.failed(lockInfo);
+        }
+        if (!userId.equals(lockedBy) && !force) {
+            logger.error("Client requested to release a lock it doesn't hold: " + path.toURI());
+            throw new IOException("Not allowed");
+        }
+
+        updateSession(lockInfo,
+                      true);
+        fireReleased(path);
+        return LockResult.released(path);
+    }
+
+    /**
+     * Releases the given locks of an ended session, unless they changed ownership since. Only used when locks are
+     * persisted in a journal.
+     */
+    void releaseSessionLocks(final Set<LockInfo> locks) {
+        for (final LockInfo lock : locks) {
+            final String uri = lock.getFile().toURI();
+            final boolean released;
+            synchronized (lockJournal) {
+                released = lock.lockedBy() != null && lock.lockedBy().equals(lockTable.lockedBy(uri));
+                if (released) {
+                    lockJournal.released(uri);
+                    lockTable.release(uri);
+                }
+            }
+            if (released) {
+                fireReleased(lock.getFile());
+            }
+        }
+    }
+
     @Override
     public LockInfo retrieveLockInfo(Path path)
             throws IllegalArgumentException, IOException {
 
-        final Path vfsLock = PathFactory.newLock(path);
-        final org.uberfire.java.nio.file.Path realLock = Paths.convert(vfsLock);
-
-        if (ioService.exists(realLock)) {
-            try {
-                final String lockedBy = ioService.readAllString(realLock);
-                return new LockInfo(true,
-                                    lockedBy,
-                                    path,
-                                    vfsLock);
-            } catch (NoSuchFileException nsfe) {
-                // We want to avoid starting a batch (to ensure cluster-wide consistent reads) here since 
-                // this method is invoked very frequently. Therefore it's possible that the lock file
-                // was deleted after the check to exists but before readAllString was invoked. There's
-                // no need for special exception handling as it simply means that file is no longer locked.
-            }
+        final LockTable table = lockTable;
+        if (table == null) {
+            return readLockInfo(path);
         }
-        return new LockInfo(false,
-                            null,
+
+        final String lockedBy = table.lockedBy(path.toURI());
+        return new LockInfo(lockedBy != null,
+                            lockedBy,
                             path,
-                            vfsLock);
+                            PathFactory.newLock(path));
     }
 
     @Override
@@ -179,16 +353,8 @@ public class VFSLockServiceImpl implements VFSLockService {
             return Collections.emptyList();
         }
 
-        final Path lockPath = PathFactory.newLockPath(path);
-
-        final List<Path> locks = new ArrayList<Path>();
-        retrieveLocks(ioService.get(URI.create(lockPath.toURI())),
-                      locks);
-
         final List<LockInfo> lockInfos = new LinkedList<LockInfo>();
-        for (Path lock : locks) {
-            final LockInfo lockInfo = retrieveLockInfo(PathFactory.fromLock(lock));
-
+        for (LockInfo lockInfo : findLockInfos(path)) {
             if (!excludeOwnedLocks || !sessionInfo.getIdentity().getIdentifier().equals(lockInfo.lockedBy())) {
                 if (Files.exists(Paths.convert(lockInfo.getFile()))) {
                     lockInfos.add(lockInfo);
@@ -199,6 +365,59 @@ public class VFSLockServiceImpl implements VFSLockService {
         return lockInfos;
     }
 
+    private List<LockInfo> findLockInfos(final Path directory) {
+        final List<LockInfo> lockInfos = new ArrayList<LockInfo>();
+        final LockTable table = lockTable;
+        if (table != null) {
+            for (Map.Entry<String, String> lock : table.locksUnder(directory.toURI()).entrySet()) {
+                final String uri = lock.getKey();
+                final Path file = PathFactory.newPath(uri.substring(uri.lastIndexOf('/') + 1),
+                                                      uri);
+                lockInfos.add(new LockInfo(true,
+                                           lock.getValue(),
+                                           file,
+                                           PathFactory.newLock(file)));
+            }
+            return lockInfos;
+        }
+
+        final Path lockPath = PathFactory.newLockPath(directory);
+        final List<Path> locks = new ArrayList<Path>();
+        retrieveLocks(ioService.get(URI.create(lockPath.toURI())),
+                      locks);
+        for (Path lock : locks) {
+            lockInfos.add(readLockInfo(PathFactory.fromLock(lock)));
+        }
+        return lockInfos;
+    }
+
+    /**
+     * Reads the lock of the file from the file system.
+     */
+    private LockInfo readLockInfo(final Path path) {
+        final Path vfsLock = PathFactory.newLock(path);
+        final org.uberfire.java.nio.file.Path realLock = Paths.convert(vfsLock);
+
+        if (ioService.exists(realLock)) {
+            try {
+                final String lockedBy = ioService.readAllString(realLock);
+                return new LockInfo(true,
+                                    lockedBy,
+                                    path,
+                                    vfsLock);
+            } catch (NoSuchFileException nsfe) {
+                // We want to avoid starting a batch (to ensure cluster-wide consistent reads) here since 
+                // this method is invoked very frequently. Therefore it's possible that the lock file
+                // was deleted after the check to exists but before readAllString was invoked. There's
+                // no need for special exception handling as it simply means that file is no longer locked.
+            }
+        }
+        return new LockInfo(false,
+                            null,
+                            path,
+                            vfsLock);
+    }
+
     private void retrieveLocks(final org.uberfire.java.nio.file.Path path,
                                final List<Path> accu) {
 
@@ -227,6 +446,148 @@ public class VFSLockServiceImpl implements VFSLockService {
         }
     }
 
+    /**
+     * Loads the lock table from the lock files, watching them first so no change made while loading is missed.
+     * If the lock files can't be watched the table isn't used and locks are always read from the file system.
+     */
+    private void loadLockTable() {
+        final LockTable table = new LockTable();
+        try {
+            watchService = fileSystem.newWatchService();
+            active = true;
+            watchTask = executorService.submit(() -> watchLocks(table));
+
+            readLocks(table);
+            publishLockTable(table,
+                             false);
+        } catch (final Exception ex) {
+            logger.warn("Can't load lock table, locks will be read from the file system",
+                        ex);
+            destroy();
+        }
+    }
+
+    /**
+     * Fills the table with the lock files of every repository, which live under the root of the lock file system.
+     */
+    private void readLocks(final LockTable table) {
+        final org.uberfire.java.nio.file.Path root = fileSystem.getRootDirectories().iterator().next();
+        final Path lockPath = PathFactory.newLockPath(Paths.convert(root));
+        final List<Path> locks = new ArrayList<Path>();
+        retrieveLocks(ioService.get(URI.create(lockPath.toURI())).getRoot(),
+                      locks);
+        for (Path lock : locks) {
+            syncLockTable(table,
+                          lock);
+        }
+    }
+
+    /**
+     * @param reloaded true if the table replaces the published one, false if it's only published if there's none;
+     * a table reloaded while the first one was being loaded is more recent than it.
+     */
+    private synchronized void publishLockTable(final LockTable table,
+                                               final boolean reloaded) {
+        if (active && (reloaded || lockTable == null)) {
+            lockTable = table;
+        }
+    }
+
+    private void watchLocks(final LockTable loadedTable) {
+        LockTable table = loadedTable;
+        while (active) {
+            final WatchKey wk;
+            try {
+                wk = watchService.take();
+            } catch (final Exception ex) {
+                break;
+            }
+            try {
+                boolean overflow = false;
+                for (final WatchEvent<?> event : wk.pollEvents()) {
+                    if (StandardWatchEventKind.OVERFLOW.equals(event.kind())) {
+                        overflow = true;
+                        break;
+                    }
+                    if (!(event.context() instanceof WatchContext)) {
+                        continue;
+                    }
+                    final WatchContext context = (WatchContext) event.context();
+                    syncLockTable(table,
+                                  context.getPath());
+                    syncLockTable(table,
+                                  context.getOldPath());
+                }
+                if (overflow) {
+                    // the dropped changes are unknown, so the whole table is read again
+                    logger.warn("Lock file changes were dropped, reloading the lock table");
+                    table = new LockTable();
+                    readLocks(table);
+                    publishLockTable(table,
+                                     true);
+                }
+            } catch (final Exception ex) {
+                logger.error("Can't update lock table, locks will be read from the file system",
+                             ex);
+                break;
+            }
+            if (!wk.reset()) {
+                break;
+            }
+        }
+        // out of sync from now on
+        active = false;
+        lockTable = null;
+    }
+
+    private void syncLockTable(final LockTable table,
+                               final org.uberfire.java.nio.file.Path lock) {
+        if (lock != null && lock.getFileName() != null
+                && lock.getFileName().toString().endsWith(PathFactory.LOCK_FILE_EXTENSION)) {
+            syncLockTable(table,
+                          Paths.convert(lock));
+        }
+    }
+
+    private void syncLockTable(final Path lock) {
+        final LockTable table = lockTable;
+        if (table != null) {
+            syncLockTable(table,
+                          lock);
+        }
+    }
+
+    /**
+     * Updates the table with the current state of the lock file. Every update reads the lock file under the same
+     * monitor, so the last update always leaves the table as the file is.
+     */
+    private void syncLockTable(final LockTable table,
+                               final Path lock) {
+        synchronized (table) {
+            final LockInfo lockInfo = readLockInfo(PathFactory.fromLock(lock));
+            table.set(lockInfo.getFile().toURI(),
+                      lockInfo.lockedBy());
+        }
+    }
+
+    private boolean isJournaled() {
+        return lockJournal != null;
+    }
+
+    private void fireReleased(final Path path) {
+        lockEvent.fire(new LockInfo(false,
+                                    null,
+                                    path,
+                                    PathFactory.newLock(path)));
+    }
+
+    private static String defaultJournalPath() {
+        final String gitDir = System.getProperty("org.uberfire.nio.git.dir",
+                                                 System.getProperty("user.dir"));
+        return new File(gitDir,
+                        "locks.journal").getAbsolutePath();
+    }
+
     /**
      * Updates the user's session to track all currently held locks so we can
      * release locks on session expiry.
@@ -270,12 +631,28 @@ public class VFSLockServiceImpl implements VFSLockService {
     }
 
     private void maybeDeleteLock(final Path path) {
+        if (isJournaled()) {
+            final boolean released;
+            synchronized (lockJournal) {
+                released = lockTable.lockedBy(path.toURI()) != null;
+                if (released) {
+                    lockJournal.released(path.toURI());
+                    lockTable.release(path.toURI());
+                }
+            }
+            if (released) {
+                fireReleased(path);
+            }
+            return;
+        }
+
         try {
             ioService.startBatch(fileSystem);
 
-            final LockInfo lockInfo = retrieveLockInfo(path);
+            final LockInfo lockInfo = readLockInfo(path);
             if (lockInfo.isLocked()) {
                 ioService.delete(Paths.convert(lockInfo.getLock()));
+                syncLockTable(lockInfo.getLock());
             }
         } finally {
             ioService.endBatch();
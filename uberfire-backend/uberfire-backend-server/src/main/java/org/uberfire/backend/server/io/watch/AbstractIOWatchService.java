@@ -39,12 +39,15 @@ import org.uberfire.commons.concurrent.Managed;
 import org.uberfire.commons.concurrent.Unmanaged;
 import org.uberfire.commons.services.cdi.ApplicationStarted;
 import org.uberfire.io.IOWatchService;
+import org.uberfire.io.impl.watch.WatchKeyDispatcher;
+import org.uberfire.java.nio.base.ListenableWatchService;
 import org.uberfire.java.nio.file.FileSystem;
 import org.uberfire.java.nio.file.WatchEvent;
 import org.uberfire.java.nio.file.WatchKey;
 import org.uberfire.java.nio.file.WatchService;
 import org.uberfire.workbench.events.ResourceAddedEvent;
 import org.uberfire.workbench.events.ResourceBatchChangesEvent;
+import org.uberfire.workbench.events.ResourceBatchChangesSummaryEvent;
 import org.uberfire.workbench.events.ResourceDeletedEvent;
 import org.uberfire.workbench.events.ResourceRenamedEvent;
 import org.uberfire.workbench.events.ResourceUpdatedEvent;
@@ -68,7 +71,11 @@ public abstract class AbstractIOWatchService implements IOWatchService,
     private Event<ResourceRenamedEvent> resourceRenamedEvent;
     private Event<ResourceDeletedEvent> resourceDeletedEvent;
     private Event<ResourceAddedEvent> resourceAddedEvent;
+    private Event<ResourceBatchChangesSummaryEvent> resourceBatchChangesSummary;
+    private ResourceChangeSubscriptions subscriptions;
     private ExecutorService executorService;
+    // watch services telling about their new keys share its workers, instead of a thread blocked on each of them
+    private WatchKeyDispatcher dispatcher;
 
     private IOWatchServiceExecutor executor = null;
 
@@ -91,6 +98,16 @@ public abstract class AbstractIOWatchService implements IOWatchService,
         this.resourceDeletedEvent = resourceDeletedEvent;
         this.resourceAddedEvent = resourceAddedEvent;
         this.executorService = executorService;
+        this.dispatcher = new WatchKeyDispatcher(getClass().getName(),
+                                                 executorService,
+                                                 WatchKeyDispatcher.DEFAULT_THREADS);
+    }
+
+    @Inject
+    public void setSubscriptions(final ResourceChangeSubscriptions subscriptions,
+                                 final Event<ResourceBatchChangesSummaryEvent> resourceBatchChangesSummary) {
+        this.subscriptions = subscriptions;
+        this.resourceBatchChangesSummary = resourceBatchChangesSummary;
     }
 
     @PostConstruct
@@ -105,8 +122,11 @@ public abstract class AbstractIOWatchService implements IOWatchService,
     public synchronized void start() {
         if (!started) {
             this.started = true;
+            final IOWatchServiceExecutor watchServiceExecutor = getWatchServiceExecutor();
+            if (dispatcher != null) {
+                dispatcher.start();
+            }
             for (final AsyncWatchService watchThread : watchThreads) {
-                final IOWatchServiceExecutor watchServiceExecutor = getWatchServiceExecutor();
                 jobs.add(executorService.submit(new DescriptiveRunnable() {
                     @Override
                     public String getDescription() {
@@ -126,6 +146,9 @@ public abstract class AbstractIOWatchService implements IOWatchService,
     @PreDestroy
     protected void dispose() {
         isDisposed = true;
+        if (dispatcher != null) {
+            dispatcher.dispose();
+        }
         for (final WatchService watchService : watchServices) {
             watchService.close();
         }
@@ -165,6 +188,24 @@ public abstract class AbstractIOWatchService implements IOWatchService,
         fileSystems.add(fs);
         watchServices.add(ws);
 
+        if (dispatcher != null && ws instanceof ListenableWatchService) {
+            dispatcher.register((ListenableWatchService) ws,
+                                wk -> {
+                                    if (isDisposed) {
+                                        return false;
+                                    }
+                                    try {
+                                        getWatchServiceExecutor().execute(wk,
+                                                                          AbstractIOWatchService.this);
+                                    } catch (final Exception ex) {
+                                        LOG.error("Unexpected error during WatchService execution",
+                                                  ex);
+                                    }
+                                    return wk.reset();
+                                });
+            return;
+        }
+
         final AsyncWatchService asyncWatchService = new AsyncWatchService() {
             @Override
             public void execute(final IOWatchServiceExecutor wsExecutor) {
@@ -237,6 +278,8 @@ public abstract class AbstractIOWatchService implements IOWatchService,
                                                                    resourceRenamedEvent,
                                                                    resourceDeletedEvent,
                                                                    resourceAddedEvent);
+                ((IOWatchServiceExecutorImpl) _executor).setSubscriptions(subscriptions,
+                                                                          resourceBatchChangesSummary);
             }
             executor = _executor;
         }
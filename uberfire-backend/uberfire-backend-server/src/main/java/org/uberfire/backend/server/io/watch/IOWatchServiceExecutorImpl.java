@@ -42,7 +42,9 @@ import org.uberfire.rpc.impl.SessionInfoImpl;
 import org.uberfire.workbench.events.ResourceAdded;
 import org.uberfire.workbench.events.ResourceAddedEvent;
 import org.uberfire.workbench.events.ResourceBatchChangesEvent;
+import org.uberfire.workbench.events.ResourceBatchChangesSummaryEvent;
 import org.uberfire.workbench.events.ResourceChange;
+import org.uberfire.workbench.events.ResourceChangeType;
 import org.uberfire.workbench.events.ResourceDeleted;
 import org.uberfire.workbench.events.ResourceDeletedEvent;
 import org.uberfire.workbench.events.ResourceEvent;
@@ -54,13 +56,35 @@ import org.uberfire.workbench.events.ResourceUpdatedEvent;
 import static javax.ejb.TransactionAttributeType.NOT_SUPPORTED;
 import static org.uberfire.backend.server.util.Paths.convert;
 
+/**
+ * Fires the resource events of the watch keys.
+ * <p>
+ * Batches of changes can be cut down before being shipped to the clients:
+ * <ul>
+ * <li>when the {@value #SUBSCRIPTIONS_PROPERTY} system property is true, only the changes followed by some client
+ * session, as registered in the {@link ResourceChangeSubscriptions}, are fired; batches are fired whole while a
+ * connected session has no subscription;</li>
+ * <li>when the {@value #SUMMARY_THRESHOLD_PROPERTY} system property is positive, batches of more changes are fired as
+ * a {@link ResourceBatchChangesSummaryEvent}, holding just the number of changes of each type.</li>
+ * </ul>
+ * Keys whose events were dropped by an overflowing watch service are fired as a
+ * {@link ResourceBatchChangesSummaryEvent} without changes, so the clients read again everything under the root.
+ */
 @Singleton
 @Startup
 @TransactionAttribute(NOT_SUPPORTED)
 public class IOWatchServiceExecutorImpl implements IOWatchServiceExecutor {
 
+    public static final String SUBSCRIPTIONS_PROPERTY = "org.uberfire.watcher.subscriptions";
+    public static final String SUMMARY_THRESHOLD_PROPERTY = "org.uberfire.watcher.batch.summary.threshold";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(IOWatchServiceExecutorImpl.class);
 
+    private final boolean filterBySubscriptions = Boolean.parseBoolean(System.getProperty(SUBSCRIPTIONS_PROPERTY,
+                                                                                          "false"));
+    private final int summaryThreshold = Integer.parseInt(System.getProperty(SUMMARY_THRESHOLD_PROPERTY,
+                                                                             "0"));
+
     @Inject
     private Event<ResourceBatchChangesEvent> resourceBatchChanges;
 
@@ -76,6 +100,12 @@ public class IOWatchServiceExecutorImpl implements IOWatchServiceExecutor {
     @Inject
     private Event<ResourceAddedEvent> resourceAddedEvent;
 
+    @Inject
+    private Event<ResourceBatchChangesSummaryEvent> resourceBatchChangesSummary;
+
+    @Inject
+    private ResourceChangeSubscriptions subscriptions;
+
     public void setEvents(final Event<ResourceBatchChangesEvent> resourceBatchChanges,
                           final Event<ResourceUpdatedEvent> resourceUpdatedEvent,
                           final Event<ResourceRenamedEvent> resourceRenamedEvent,
@@ -88,11 +118,25 @@ public class IOWatchServiceExecutorImpl implements IOWatchServiceExecutor {
         this.resourceAddedEvent = resourceAddedEvent;
     }
 
+    public void setSubscriptions(final ResourceChangeSubscriptions subscriptions,
+                                 final Event<ResourceBatchChangesSummaryEvent> resourceBatchChangesSummary) {
+        this.subscriptions = subscriptions;
+        this.resourceBatchChangesSummary = resourceBatchChangesSummary;
+    }
+
     @Override
     public void execute(final WatchKey wk,
                         final Filter<WatchEvent<?>> filter) {
         final List<WatchEvent<?>> events = wk.pollEvents();
+        for (final WatchEvent<?> event : events) {
+            if (event.kind().equals(StandardWatchEventKind.OVERFLOW)) {
+                fireOverflow(wk,
+                             (WatchContext) event.context());
+                return;
+            }
+        }
         WatchContext firstContext = null;
+        org.uberfire.java.nio.file.Path root = null;
 
         if (events.size() > 1) {
             final Map<Path, Collection<ResourceChange>> changes = new HashMap<Path, Collection<ResourceChange>>();
@@ -103,6 +147,9 @@ public class IOWatchServiceExecutorImpl implements IOWatchServiceExecutor {
                     }
                     final Pair<Path, ResourceChange> result = buildChange(event);
                     if (result != null) {
+                        if (root == null) {
+                            root = changedPath((WatchContext) event.context()).getRoot();
+                        }
                         if (!changes.containsKey(result.getK1())) {
                             changes.put(result.getK1(),
                                         new ArrayList<ResourceChange>());
@@ -131,9 +178,9 @@ public class IOWatchServiceExecutorImpl implements IOWatchServiceExecutor {
                                                                              firstContext));
                 }
             } else if (changes.size() > 1) {
-                resourceBatchChanges.fire(new ResourceBatchChangesEvent(changes,
-                                                                        message(firstContext),
-                                                                        sessionInfo(firstContext)));
+                fireBatch(changes,
+                          root,
+                          firstContext);
             }
         } else if (events.size() == 1) {
             final WatchEvent<?> event = events.get(0);
@@ -155,6 +202,61 @@ public class IOWatchServiceExecutorImpl implements IOWatchServiceExecutor {
         }
     }
 
+    private void fireBatch(final Map<Path, Collection<ResourceChange>> changes,
+                           final org.uberfire.java.nio.file.Path root,
+                           final WatchContext context) {
+        final Map<Path, Collection<ResourceChange>> batch;
+        if (filterBySubscriptions && subscriptions != null) {
+            batch = subscriptions.filter(changes);
+            if (batch.isEmpty()) {
+                return;
+            }
+        } else {
+            batch = changes;
+        }
+
+        if (summaryThreshold > 0 && resourceBatchChangesSummary != null) {
+            final Map<ResourceChangeType, Integer> counts = new HashMap<ResourceChangeType, Integer>();
+            int total = 0;
+            for (final Collection<ResourceChange> pathChanges : batch.values()) {
+                for (final ResourceChange change : pathChanges) {
+                    counts.merge(change.getType(),
+                                 1,
+                                 Integer::sum);
+                    total++;
+                }
+            }
+            if (total > summaryThreshold) {
+                resourceBatchChangesSummary.fire(new ResourceBatchChangesSummaryEvent(convert(root),
+                                                                                      counts,
+                                                                                      message(context),
+                                                                                      sessionInfo(context)));
+                return;
+            }
+        }
+
+        resourceBatchChanges.fire(new ResourceBatchChangesEvent(batch,
+                                                                message(context),
+                                                                sessionInfo(context)));
+    }
+
+    private void fireOverflow(final WatchKey wk,
+                              final WatchContext context) {
+        if (resourceBatchChangesSummary == null || !(wk.watchable() instanceof org.uberfire.java.nio.file.Path)) {
+            LOGGER.warn("Watch events were dropped and can't be reported to the clients.");
+            return;
+        }
+        final org.uberfire.java.nio.file.Path root = ((org.uberfire.java.nio.file.Path) wk.watchable()).getRoot();
+        resourceBatchChangesSummary.fire(new ResourceBatchChangesSummaryEvent(convert(root),
+                                                                              new HashMap<ResourceChangeType, Integer>(),
+                                                                              message(context),
+                                                                              sessionInfo(context)));
+    }
+
+    private org.uberfire.java.nio.file.Path changedPath(final WatchContext context) {
+        return context.getPath() != null ? context.getPath() : context.getOldPath();
+    }
+
     private String message(final WatchContext context) {
         if (context == null) {
             return null;
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.backend.server.io.watch;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.uberfire.backend.vfs.Path;
+import org.uberfire.workbench.events.ResourceChange;
+import org.uberfire.workbench.events.ResourceRenamed;
+
+import static org.kie.soup.commons.validation.PortablePreconditions.checkNotNull;
+
+/**
+ * Registry of the parts of the file systems followed by the client sessions, as URI prefixes: the root of a branch
+ * follows the whole branch of the repository, any other directory follows the files under it.
+ * <p>
+ * Matching a URI only looks up its parent directories, so it doesn't depend on the number of subscriptions.
+ * <p>
+ * A connected session that has no subscription follows everything: changes are only filtered while every connected
+ * session has subscribed.
+ */
+@ApplicationScoped
+public class ResourceChangeSubscriptions {
+
+    private final Set<String> connectedSessions = new HashSet<>();
+    private final Map<String, Set<String>> prefixesBySession = new HashMap<>();
+    // sessions following each prefix
+    private final Map<String, Integer> prefixes = new HashMap<>();
+
+    public synchronized void connect(final String sessionId) {
+        connectedSessions.add(checkNotNull("sessionId",
+                                           sessionId));
+    }
+
+    public synchronized void disconnect(final String sessionId) {
+        unsubscribeAll(sessionId);
+        connectedSessions.remove(sessionId);
+    }
+
+    public synchronized void subscribe(final String sessionId,
+                                       final String uri) {
+        connect(sessionId);
+        final String prefix = normalize(uri);
+        if (prefixesBySession.computeIfAbsent(sessionId,
+                                              id -> new HashSet<>()).add(prefix)) {
+            prefixes.merge(prefix,
+                           1,
+                           Integer::sum);
+        }
+    }
+
+    public synchronized void unsubscribe(final String sessionId,
+                                         final String uri) {
+        final Set<String> sessionPrefixes = prefixesBySession.get(sessionId);
+        final String prefix = normalize(uri);
+        if (sessionPrefixes != null && sessionPrefixes.remove(prefix)) {
+            release(prefix);
+            if (sessionPrefixes.isEmpty()) {
+                prefixesBySession.remove(sessionId);
+            }
+        }
+    }
+
+    public synchronized void unsubscribeAll(final String sessionId) {
+        final Set<String> sessionPrefixes = prefixesBySession.remove(sessionId);
+        if (sessionPrefixes != null) {
+            sessionPrefixes.forEach(this::release);
+        }
+    }
+
+    /**
+     * @return true if a session follows the given URI.
+     */
+    public synchronized boolean isSubscribed(final String uri) {
+        if (prefixes.isEmpty()) {
+            return false;
+        }
+        if (prefixes.containsKey(uri)) {
+            return true;
+        }
+        // parent directories start after the authority, e.g. after "default://master@repo"
+        final int authorityStart = uri.indexOf("://");
+        for (int i = uri.indexOf('/',
+                                 authorityStart < 0 ? 0 : authorityStart + 3);
+             i > 0;
+             i = uri.indexOf('/',
+                             i + 1)) {
+            if (prefixes.containsKey(uri.substring(0,
+                                                   i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if some connected session has no subscription, or no session is connected.
+     */
+    public synchronized boolean isFollowingEverything() {
+        return prefixesBySession.isEmpty() || prefixesBySession.size() < connectedSessions.size();
+    }
+
+    /**
+     * @return The changes some session follows: changes to a followed path, or renames to a followed path; all the
+     * changes while {@link #isFollowingEverything() a session follows everything}.
+     */
+    public synchronized Map<Path, Collection<ResourceChange>> filter(
+            final Map<Path, Collection<ResourceChange>> changes) {
+        if (isFollowingEverything()) {
+            return changes;
+        }
+        final Map<Path, Collection<ResourceChange>> result = new HashMap<>();
+        for (final Map.Entry<Path, Collection<ResourceChange>> entry : changes.entrySet()) {
+            if (isSubscribed(entry.getKey().toURI()) || isRenamedToSubscribed(entry.getValue())) {
+                result.put(entry.getKey(),
+                           entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    public synchronized int getSessionCount() {
+        return prefixesBySession.size();
+    }
+
+    private boolean isRenamedToSubscribed(final Collection<ResourceChange> changes) {
+        for (final ResourceChange change : changes) {
+            if (change instanceof ResourceRenamed
+                    && isSubscribed(((ResourceRenamed) change).getDestinationPath().toURI())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void release(final String prefix) {
+        prefixes.computeIfPresent(prefix,
+                                  (p, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private static String normalize(final String uri) {
+        checkNotNull("uri",
+                     uri);
+        return uri.endsWith("/") ? uri.substring(0,
+                                                 uri.length() - 1) : uri;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.backend.server.lock;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.kie.soup.commons.validation.PortablePreconditions.checkNotNull;
+
+/**
+ * Append-only file persisting a {@link LockTable}.
+ * <p>
+ * Every lock change appends a small record instead of writing a lock file, synced to disk before the change is
+ * applied, and the journal is replayed at startup to rebuild the table. Once it holds more than the compaction threshold of records and most of them are stale, the
+ * journal is rewritten with just the locks still held, through a temporary file atomically renamed over it. A record
+ * left incomplete by a crash is dropped on the next load.
+ */
+public class LockJournal {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LockJournal.class);
+
+    private static final int MAGIC = 0x55464c4b;
+    private static final int VERSION = 1;
+
+    private static final byte LOCKED = 0;
+    private static final byte RELEASED = 1;
+
+    private final File file;
+    private final int compactionThreshold;
+    private final Map<String, String> locks = new HashMap<>();
+    private int recordCount = 0;
+    private FileOutputStream fileOut;
+    private DataOutputStream out;
+
+    /**
+     * @param file The journal file, created if it doesn't exist.
+     * @param compactionThreshold Min number of records before compacting the journal.
+     */
+    public LockJournal(final File file,
+                       final int compactionThreshold) {
+        this.file = checkNotNull("file",
+                                 file);
+        this.compactionThreshold = compactionThreshold;
+        try {
+            load();
+            open();
+        } catch (final IOException ex) {
+            throw new org.uberfire.java.nio.IOException("Can't open lock journal [" + file.getAbsolutePath() + "]",
+                                                        ex);
+        }
+    }
+
+    /**
+     * @return The locks held according to the journal, keyed by file URI.
+     */
+    public synchronized Map<String, String> getLocks() {
+        return new HashMap<>(locks);
+    }
+
+    public synchronized void locked(final String uri,
+                                    final String userId) {
+        checkNotNull("userId",
+                     userId);
+        append(LOCKED,
+               uri,
+               userId);
+        locks.put(uri,
+                  userId);
+        maybeCompact();
+    }
+
+    public synchronized void released(final String uri) {
+        if (!locks.containsKey(uri)) {
+            return;
+        }
+        append(RELEASED,
+               uri,
+               "");
+        locks.remove(uri);
+        maybeCompact();
+    }
+
+    /**
+     * Rewrites the journal with only the locks still held.
+     */
+    public synchronized void compact() {
+        if (out == null) {
+            return;
+        }
+        final File compacted = new File(file.getAbsoluteFile().getParentFile(),
+                                        file.getName() + ".compact");
+        try {
+            try (final FileOutputStream fileOut = new FileOutputStream(compacted);
+                 final DataOutputStream compactedOut = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+                compactedOut.writeInt(MAGIC);
+                compactedOut.writeInt(VERSION);
+                for (final Map.Entry<String, String> lock : locks.entrySet()) {
+                    compactedOut.writeByte(LOCKED);
+                    compactedOut.writeUTF(lock.getKey());
+                    compactedOut.writeUTF(lock.getValue());
+                }
+                compactedOut.flush();
+                fileOut.getFD().sync();
+            }
+            closeQuietly();
+            Files.move(compacted.toPath(),
+                       file.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+            recordCount = locks.size();
+        } catch (final IOException ex) {
+            LOGGER.error("Can't compact lock journal [" + file.getAbsolutePath() + "]",
+                         ex);
+            compacted.delete();
+        } finally {
+            if (out == null) {
+                try {
+                    open();
+                } catch (final IOException ex) {
+                    LOGGER.error("Can't reopen lock journal [" + file.getAbsolutePath() + "]",
+                                 ex);
+                }
+            }
+        }
+    }
+
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    public synchronized void close() {
+        closeQuietly();
+    }
+
+    private void append(final byte kind,
+                        final String uri,
+                        final String userId) {
+        if (out == null) {
+            throw new org.uberfire.java.nio.IOException("Lock journal [" + file.getAbsolutePath() + "] is closed");
+        }
+        try {
+            out.writeByte(kind);
+            out.writeUTF(uri);
+            out.writeUTF(userId);
+            out.flush();
+            fileOut.getFD().sync();
+            recordCount++;
+        } catch (final IOException ex) {
+            throw new org.uberfire.java.nio.IOException("Can't write lock journal [" + file.getAbsolutePath() + "]",
+                                                        ex);
+        }
+    }
+
+    private void maybeCompact() {
+        if (recordCount > compactionThreshold && recordCount > 2 * locks.size()) {
+            compact();
+        }
+    }
+
+    private void load() throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            return;
+        }
+        final byte[] content = Files.readAllBytes(file.toPath());
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(content));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Unknown lock journal format");
+        }
+
+        long validLength = content.length - in.available();
+        try {
+            while (in.available() > 0) {
+                final byte kind = in.readByte();
+                final String uri = in.readUTF();
+                final String userId = in.readUTF();
+                validLength = content.length - in.available();
+
+                recordCount++;
+                if (kind == LOCKED) {
+                    locks.put(uri,
+                              userId);
+                } else {
+                    locks.remove(uri);
+                }
+            }
+        } catch (final EOFException | UTFDataFormatException ex) {
+            LOGGER.warn("Dropping incomplete record at the end of lock journal [" + file.getAbsolutePath() + "]");
+            try (final RandomAccessFile truncate = new RandomAccessFile(file,
+                                                                        "rw")) {
+                truncate.setLength(validLength);
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Can't create directory [" + parent.getAbsolutePath() + "]");
+        }
+        final boolean isNew = !file.exists() || file.length() == 0;
+        fileOut = new FileOutputStream(file,
+                                       true);
+        out = new DataOutputStream(new BufferedOutputStream(fileOut));
+        if (isNew) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.flush();
+            fileOut.getFD().sync();
+        }
+    }
+
+    private void closeQuietly() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (final IOException ex) {
+            LOGGER.warn("Can't close lock journal [" + file.getAbsolutePath() + "]",
+                        ex);
+        } finally {
+            out = null;
+            fileOut = null;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.backend.server.lock;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static org.kie.soup.commons.validation.PortablePreconditions.checkNotNull;
+
+/**
+ * In-memory table of the locked files, mapping the URI of every locked file to the identifier of the user holding
+ * its lock.
+ * <p>
+ * URIs are kept sorted, so the locks of all the files under a directory are a single range of the table and are
+ * found without walking anything.
+ */
+public class LockTable {
+
+    private final ConcurrentNavigableMap<String, String> locks = new ConcurrentSkipListMap<>();
+
+    public LockTable() {
+    }
+
+    public LockTable(final Map<String, String> locks) {
+        this.locks.putAll(checkNotNull("locks",
+                                       locks));
+    }
+
+    /**
+     * @return The user holding the lock of the file, or null if the file isn't locked.
+     */
+    public String lockedBy(final String uri) {
+        return locks.get(uri);
+    }
+
+    /**
+     * Locks the file for the given user, unless another user holds its lock already.
+     * @return The user holding the lock after the call: the given user if the lock was acquired.
+     */
+    public String lock(final String uri,
+                       final String userId) {
+        checkNotNull("userId",
+                     userId);
+        final String lockedBy = locks.putIfAbsent(uri,
+                                                  userId);
+        return lockedBy == null ? userId : lockedBy;
+    }
+
+    /**
+     * Sets the user holding the lock of the file, whoever held it before.
+     * @param userId The user holding the lock, or null to release it.
+     */
+    public void set(final String uri,
+                    final String userId) {
+        if (userId == null) {
+            locks.remove(uri);
+        } else {
+            locks.put(uri,
+                      userId);
+        }
+    }
+
+    /**
+     * Releases the lock of the file, whoever holds it.
+     * @return The user that held the lock, or null if the file wasn't locked.
+     */
+    public String release(final String uri) {
+        return locks.remove(uri);
+    }
+
+    /**
+     * Releases the lock of the file only if the given user holds it.
+     * @return true if the lock was released.
+     */
+    public boolean release(final String uri,
+                           final String userId) {
+        return locks.remove(uri,
+                            userId);
+    }
+
+    /**
+     * @param directoryUri URI of a directory.
+     * @return The locks of all the files under the directory, at any depth, keyed by file URI.
+     */
+    public Map<String, String> locksUnder(final String directoryUri) {
+        final String prefix = directoryUri.endsWith("/") ? directoryUri : directoryUri + "/";
+        return Collections.unmodifiableMap(locks.subMap(prefix,
+                                                        true,
+                                                        prefix + Character.MAX_VALUE,
+                                                        false));
+    }
+
+    /**
+     * @return A copy of the whole table, keyed by file URI.
+     */
+    public Map<String, String> snapshot() {
+        return new TreeMap<>(locks);
+    }
+
+    public int size() {
+        return locks.size();
+    }
+}
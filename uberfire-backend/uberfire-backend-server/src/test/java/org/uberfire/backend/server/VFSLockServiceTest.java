@@ -16,7 +16,10 @@
 
 package org.uberfire.backend.server;
 
+import java.io.File;
+import java.util.Collections;
 import java.util.Set;
+import javax.enterprise.event.Event;
 import javax.servlet.http.HttpSession;
 
 import org.jboss.errai.bus.client.api.QueueSession;
@@ -25,8 +28,11 @@ import org.jboss.errai.bus.client.api.messaging.Message;
 import org.jboss.errai.bus.server.api.RpcContext;
 import org.jboss.errai.security.shared.api.identity.User;
 import org.jboss.errai.security.shared.api.identity.UserImpl;
+import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.InOrder;
 import org.mockito.InjectMocks;
@@ -49,6 +55,9 @@ import static org.mockito.Mockito.*;
 @RunWith(MockitoJUnitRunner.class)
 public class VFSLockServiceTest {
 
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     @InjectMocks
     private VFSLockServiceImpl lockService;
 
@@ -67,6 +76,9 @@ public class VFSLockServiceTest {
     @Mock
     private HttpSession httpSession;
 
+    @Mock
+    private Event<LockInfo> lockEvent;
+
     private Path path = PathFactory.newPath("file-to-lock.txt",
                                             "default://file-to-lock.txt");
 
@@ -80,6 +92,11 @@ public class VFSLockServiceTest {
                                        HttpSession.class.getName())).thenReturn(httpSession);
     }
 
+    @After
+    public void cleanup() {
+        lockService.destroy();
+    }
+
     @Test
     public void acquireLockSucceedsIfFileUnlocked() {
         when(ioService.exists(any(org.uberfire.java.nio.file.Path.class))).thenReturn(false);
@@ -264,6 +281,98 @@ public class VFSLockServiceTest {
         assertNull(info.lockedBy());
     }
 
+    @Test
+    public void journaledLocksDontWriteLockFiles() {
+        initJournal();
+
+        final LockResult result = lockService.acquireLock(path);
+        assertTrue(result.isSuccess());
+        assertEquals("testUser",
+                     lockService.retrieveLockInfo(path).lockedBy());
+        verify(lockEvent).fire(result.getLockInfo());
+
+        assertTrue(lockService.releaseLock(path).isSuccess());
+        assertFalse(lockService.retrieveLockInfo(path).isLocked());
+        verify(lockEvent,
+               times(2)).fire(any(LockInfo.class));
+
+        verify(ioService,
+               never()).startBatch(any(FileSystem.class));
+        verify(ioService,
+               never()).write(any(org.uberfire.java.nio.file.Path.class),
+                              any(String.class));
+        verify(ioService,
+               never()).exists(any(org.uberfire.java.nio.file.Path.class));
+    }
+
+    @Test
+    public void journaledLocksSurviveRestart() {
+        final Path other = PathFactory.newPath("other-file.txt",
+                                               "default://other-file.txt");
+        initJournal();
+        lockService.acquireLock(path);
+        lockService.acquireLock(other);
+        lockService.releaseLock(other);
+        lockService.destroy();
+
+        initJournal();
+        assertTrue(lockService.retrieveLockInfo(path).isLocked());
+        assertEquals("testUser",
+                     lockService.retrieveLockInfo(path).lockedBy());
+        assertFalse(lockService.retrieveLockInfo(other).isLocked());
+    }
+
+    @Test
+    public void journaledLockHeldByOtherUser() {
+        initJournal();
+        lockService.acquireLock(path);
+
+        when(sessionInfo.getIdentity()).thenReturn(new UserImpl("some-other-user"));
+        final LockResult result = lockService.acquireLock(path);
+        assertFalse(result.isSuccess());
+        assertEquals("testUser",
+                     result.getLockInfo().lockedBy());
+
+        try {
+            lockService.releaseLock(path);
+            fail("Expected exception on attempt to release lock not owned by user");
+        } catch (Exception ioe) {
+            // expected
+        }
+        assertTrue(lockService.retrieveLockInfo(path).isLocked());
+
+        assertTrue(lockService.forceReleaseLock(path).isSuccess());
+        assertFalse(lockService.retrieveLockInfo(path).isLocked());
+    }
+
+    @Test
+    public void journaledSessionLocksAreReleasedUnlessReacquired() {
+        initJournal();
+        final LockInfo lock = lockService.acquireLock(path).getLockInfo();
+
+        lockService.releaseSessionLocks(Collections.singleton(new LockInfo(true,
+                                                                           "some-other-user",
+                                                                           path)));
+        assertTrue(lockService.retrieveLockInfo(path).isLocked());
+
+        lockService.releaseSessionLocks(Collections.singleton(lock));
+        assertFalse(lockService.retrieveLockInfo(path).isLocked());
+    }
+
+    private void initJournal() {
+        System.setProperty(VFSLockServiceImpl.LOCK_PERSISTENCE_PROPERTY,
+                           VFSLockServiceImpl.JOURNAL_PERSISTENCE);
+        System.setProperty(VFSLockServiceImpl.LOCK_JOURNAL_PROPERTY,
+                           new File(tempFolder.getRoot(),
+                                    "locks.journal").getAbsolutePath());
+        try {
+            lockService.init();
+        } finally {
+            System.clearProperty(VFSLockServiceImpl.LOCK_PERSISTENCE_PROPERTY);
+            System.clearProperty(VFSLockServiceImpl.LOCK_JOURNAL_PROPERTY);
+        }
+    }
+
     private void setupRpcContext() {
         final Message message = MessageBuilder.createMessage("for testing").signalling().done().getMessage();
         message.setResource("Session",
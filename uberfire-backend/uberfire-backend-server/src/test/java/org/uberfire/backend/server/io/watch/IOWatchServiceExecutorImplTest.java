@@ -0,0 +1,238 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.backend.server.io.watch;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.enterprise.event.Event;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.uberfire.java.nio.base.WatchContext;
+import org.uberfire.java.nio.file.FileSystem;
+import org.uberfire.java.nio.file.Path;
+import org.uberfire.java.nio.file.StandardWatchEventKind;
+import org.uberfire.java.nio.file.WatchEvent;
+import org.uberfire.java.nio.file.WatchKey;
+import org.uberfire.workbench.events.ResourceBatchChangesEvent;
+import org.uberfire.workbench.events.ResourceBatchChangesSummaryEvent;
+import org.uberfire.workbench.events.ResourceChangeType;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class IOWatchServiceExecutorImplTest {
+
+    private final Event<ResourceBatchChangesEvent> resourceBatchChanges = mock(Event.class);
+    private final Event<ResourceBatchChangesSummaryEvent> resourceBatchChangesSummary = mock(Event.class);
+    private final ResourceChangeSubscriptions subscriptions = new ResourceChangeSubscriptions();
+
+    @After
+    public void tearDown() {
+        System.clearProperty(IOWatchServiceExecutorImpl.SUBSCRIPTIONS_PROPERTY);
+        System.clearProperty(IOWatchServiceExecutorImpl.SUMMARY_THRESHOLD_PROPERTY);
+    }
+
+    @Test
+    public void testBatchIsShippedWholeByDefault() {
+        newExecutor().execute(watchKey("default://master@repo/src/a.txt",
+                                       "default://master@repo/b.txt"),
+                              event -> false);
+
+        final ArgumentCaptor<ResourceBatchChangesEvent> batch = ArgumentCaptor.forClass(ResourceBatchChangesEvent.class);
+        verify(resourceBatchChanges).fire(batch.capture());
+        assertEquals(2,
+                     batch.getValue().getAffectedPaths().size());
+        verify(resourceBatchChangesSummary,
+               never()).fire(any(ResourceBatchChangesSummaryEvent.class));
+    }
+
+    @Test
+    public void testBatchIsFilteredBySubscriptions() {
+        System.setProperty(IOWatchServiceExecutorImpl.SUBSCRIPTIONS_PROPERTY,
+                           "true");
+        final IOWatchServiceExecutorImpl executor = newExecutor();
+
+        // nobody subscribed yet
+        executor.execute(watchKey("default://master@repo/src/a.txt",
+                                  "default://master@repo/b.txt"),
+                         event -> false);
+        final ArgumentCaptor<ResourceBatchChangesEvent> batch = ArgumentCaptor.forClass(ResourceBatchChangesEvent.class);
+        verify(resourceBatchChanges).fire(batch.capture());
+        assertEquals(2,
+                     batch.getValue().getAffectedPaths().size());
+
+        subscriptions.subscribe("session",
+                                "default://master@repo/src");
+        executor.execute(watchKey("default://master@repo/src/a.txt",
+                                  "default://master@repo/b.txt"),
+                         event -> false);
+        verify(resourceBatchChanges,
+               times(2)).fire(batch.capture());
+        assertEquals(1,
+                     batch.getValue().getAffectedPaths().size());
+        assertEquals("default://master@repo/src/a.txt",
+                     batch.getValue().getAffectedPaths().iterator().next().toURI());
+
+        subscriptions.subscribe("session",
+                                "default://master@other");
+        executor.execute(watchKey("default://master@repo/b.txt",
+                                  "default://master@repo/c.txt"),
+                         event -> false);
+        verify(resourceBatchChanges,
+               times(2)).fire(any(ResourceBatchChangesEvent.class));
+
+        // a session without subscriptions follows everything
+        subscriptions.connect("other session");
+        executor.execute(watchKey("default://master@repo/b.txt",
+                                  "default://master@repo/c.txt"),
+                         event -> false);
+        verify(resourceBatchChanges,
+               times(3)).fire(batch.capture());
+        assertEquals(2,
+                     batch.getValue().getAffectedPaths().size());
+    }
+
+    @Test
+    public void testLargeBatchIsSummarized() {
+        System.setProperty(IOWatchServiceExecutorImpl.SUMMARY_THRESHOLD_PROPERTY,
+                           "2");
+        final IOWatchServiceExecutorImpl executor = newExecutor();
+
+        executor.execute(watchKey("default://master@repo/a.txt",
+                                  "default://master@repo/b.txt"),
+                         event -> false);
+        verify(resourceBatchChanges).fire(any(ResourceBatchChangesEvent.class));
+
+        executor.execute(watchKey("default://master@repo/a.txt",
+                                  "default://master@repo/b.txt",
+                                  "default://master@repo/c.txt"),
+                         event -> false);
+        final ArgumentCaptor<ResourceBatchChangesSummaryEvent> summary = ArgumentCaptor.forClass(ResourceBatchChangesSummaryEvent.class);
+        verify(resourceBatchChangesSummary).fire(summary.capture());
+        verify(resourceBatchChanges,
+               times(1)).fire(any(ResourceBatchChangesEvent.class));
+        assertEquals(3,
+                     summary.getValue().getCount(ResourceChangeType.UPDATE));
+        assertEquals(3,
+                     summary.getValue().getTotalCount());
+        assertEquals("default://master@repo/",
+                     summary.getValue().getRoot().toURI());
+    }
+
+    @Test
+    public void testSummaryRootSkipsEventsWithoutPath() {
+        System.setProperty(IOWatchServiceExecutorImpl.SUMMARY_THRESHOLD_PROPERTY,
+                           "1");
+        final WatchKey wk = watchKey("default://master@repo/a.txt",
+                                     "default://master@repo/b.txt");
+        final WatchEvent event = mock(WatchEvent.class);
+        when(event.kind()).thenReturn(StandardWatchEventKind.ENTRY_MODIFY);
+        when(event.context()).thenReturn(mock(WatchContext.class));
+        final List<WatchEvent<?>> events = new ArrayList<>(wk.pollEvents());
+        events.add(0,
+                   event);
+        when(wk.pollEvents()).thenReturn(events);
+
+        newExecutor().execute(wk,
+                              e -> false);
+
+        final ArgumentCaptor<ResourceBatchChangesSummaryEvent> summary = ArgumentCaptor.forClass(ResourceBatchChangesSummaryEvent.class);
+        verify(resourceBatchChangesSummary).fire(summary.capture());
+        assertEquals(2,
+                     summary.getValue().getTotalCount());
+        assertEquals("default://master@repo/",
+                     summary.getValue().getRoot().toURI());
+    }
+
+    @Test
+    public void testOverflowIsFiredAsSummaryOfTheRoot() {
+        final WatchContext context = mock(WatchContext.class);
+        final WatchEvent event = mock(WatchEvent.class);
+        when(event.kind()).thenReturn(StandardWatchEventKind.OVERFLOW);
+        when(event.context()).thenReturn(context);
+        final Path root = path("default://master@repo/");
+        final WatchKey wk = mock(WatchKey.class);
+        when(wk.pollEvents()).thenReturn(Collections.<WatchEvent<?>>singletonList(event));
+        when(wk.watchable()).thenReturn(root);
+
+        newExecutor().execute(wk,
+                              e -> false);
+
+        final ArgumentCaptor<ResourceBatchChangesSummaryEvent> summary = ArgumentCaptor.forClass(ResourceBatchChangesSummaryEvent.class);
+        verify(resourceBatchChangesSummary).fire(summary.capture());
+        verify(resourceBatchChanges,
+               never()).fire(any(ResourceBatchChangesEvent.class));
+        assertEquals(0,
+                     summary.getValue().getTotalCount());
+        assertEquals("default://master@repo/",
+                     summary.getValue().getRoot().toURI());
+    }
+
+    private IOWatchServiceExecutorImpl newExecutor() {
+        final IOWatchServiceExecutorImpl executor = new IOWatchServiceExecutorImpl();
+        executor.setEvents(resourceBatchChanges,
+                           mock(Event.class),
+                           mock(Event.class),
+                           mock(Event.class),
+                           mock(Event.class));
+        executor.setSubscriptions(subscriptions,
+                                  resourceBatchChangesSummary);
+        return executor;
+    }
+
+    private static WatchKey watchKey(final String... updatedUris) {
+        final List<WatchEvent<?>> events = new ArrayList<>();
+        for (final String uri : updatedUris) {
+            final Path path = path(uri);
+            final WatchContext context = mock(WatchContext.class);
+            when(context.getPath()).thenReturn(path);
+            when(context.getOldPath()).thenReturn(path);
+            final WatchEvent event = mock(WatchEvent.class);
+            when(event.kind()).thenReturn(StandardWatchEventKind.ENTRY_MODIFY);
+            when(event.context()).thenReturn(context);
+            events.add(event);
+        }
+        final WatchKey wk = mock(WatchKey.class);
+        when(wk.pollEvents()).thenReturn(events);
+        return wk;
+    }
+
+    private static Path path(final String uri) {
+        final FileSystem fs = mock(FileSystem.class);
+        when(fs.supportedFileAttributeViews()).thenReturn(Collections.singleton("basic"));
+        final Path path = mock(Path.class);
+        when(path.getFileSystem()).thenReturn(fs);
+        when(path.toUri()).thenReturn(URI.create(uri));
+        final String fileName = uri.substring(uri.lastIndexOf('/') + 1);
+        if (fileName.isEmpty()) {
+            when(path.getRoot()).thenReturn(path);
+        } else {
+            final Path name = mock(Path.class);
+            when(name.toString()).thenReturn(fileName);
+            when(path.getFileName()).thenReturn(name);
+            final Path root = path(uri.substring(0,
+                                                 uri.indexOf('/',
+                                                             uri.indexOf("://") + 3) + 1));
+            when(path.getRoot()).thenReturn(root);
+        }
+        return path;
+    }
+}
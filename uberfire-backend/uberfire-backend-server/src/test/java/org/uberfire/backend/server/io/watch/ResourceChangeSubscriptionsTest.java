@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.backend.server.io.watch;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.uberfire.backend.vfs.Path;
+import org.uberfire.backend.vfs.PathFactory;
+import org.uberfire.workbench.events.ResourceChange;
+import org.uberfire.workbench.events.ResourceRenamed;
+import org.uberfire.workbench.events.ResourceUpdated;
+
+import static org.junit.Assert.*;
+
+public class ResourceChangeSubscriptionsTest {
+
+    private final ResourceChangeSubscriptions subscriptions = new ResourceChangeSubscriptions();
+
+    @Test
+    public void testBranchAndDirectorySubscriptions() {
+        assertFalse(subscriptions.isSubscribed("default://master@repo/file.txt"));
+
+        subscriptions.subscribe("session1",
+                                "default://master@repo/");
+        subscriptions.subscribe("session2",
+                                "default://dev@repo/src");
+
+        assertTrue(subscriptions.isSubscribed("default://master@repo/file.txt"));
+        assertTrue(subscriptions.isSubscribed("default://master@repo/src/main/file.txt"));
+        assertTrue(subscriptions.isSubscribed("default://dev@repo/src"));
+        assertTrue(subscriptions.isSubscribed("default://dev@repo/src/file.txt"));
+        assertFalse(subscriptions.isSubscribed("default://dev@repo/src2/file.txt"));
+        assertFalse(subscriptions.isSubscribed("default://dev@repo/file.txt"));
+        assertFalse(subscriptions.isSubscribed("default://master@repo2/file.txt"));
+    }
+
+    @Test
+    public void testSubscriptionsSharedBySessions() {
+        subscriptions.subscribe("session1",
+                                "default://master@repo/src");
+        subscriptions.subscribe("session2",
+                                "default://master@repo/src/");
+        assertEquals(2,
+                     subscriptions.getSessionCount());
+
+        subscriptions.unsubscribe("session1",
+                                  "default://master@repo/src");
+        assertTrue(subscriptions.isSubscribed("default://master@repo/src/file.txt"));
+
+        subscriptions.unsubscribeAll("session2");
+        assertFalse(subscriptions.isSubscribed("default://master@repo/src/file.txt"));
+        assertEquals(0,
+                     subscriptions.getSessionCount());
+    }
+
+    @Test
+    public void testFilter() {
+        subscriptions.subscribe("session1",
+                                "default://master@repo/src");
+
+        final Path followed = path("default://master@repo/src/a.txt");
+        final Path movedIn = path("default://master@repo/b.txt");
+        final Path other = path("default://master@repo/c.txt");
+        final Map<Path, Collection<ResourceChange>> changes = new HashMap<>();
+        changes.put(followed,
+                    Collections.singletonList(new ResourceUpdated("")));
+        changes.put(movedIn,
+                    Collections.singletonList(new ResourceRenamed(path("default://master@repo/src/b.txt"),
+                                                                  "")));
+        changes.put(other,
+                    Arrays.asList(new ResourceUpdated(""),
+                                  new ResourceUpdated("")));
+
+        final Map<Path, Collection<ResourceChange>> filtered = subscriptions.filter(changes);
+        assertEquals(2,
+                     filtered.size());
+        assertTrue(filtered.containsKey(followed));
+        assertTrue(filtered.containsKey(movedIn));
+    }
+
+    @Test
+    public void testSessionsWithoutSubscriptionsFollowEverything() {
+        assertTrue(subscriptions.isFollowingEverything());
+
+        subscriptions.connect("session1");
+        subscriptions.connect("session2");
+        subscriptions.subscribe("session1",
+                                "default://master@repo/src");
+        assertTrue(subscriptions.isFollowingEverything());
+
+        final Map<Path, Collection<ResourceChange>> changes = new HashMap<>();
+        changes.put(path("default://master@repo/c.txt"),
+                    Collections.singletonList(new ResourceUpdated("")));
+        assertEquals(1,
+                     subscriptions.filter(changes).size());
+
+        subscriptions.subscribe("session2",
+                                "default://master@repo/src");
+        assertFalse(subscriptions.isFollowingEverything());
+        assertTrue(subscriptions.filter(changes).isEmpty());
+
+        subscriptions.unsubscribeAll("session2");
+        assertTrue(subscriptions.isFollowingEverything());
+
+        subscriptions.disconnect("session2");
+        assertFalse(subscriptions.isFollowingEverything());
+    }
+
+    private static Path path(final String uri) {
+        return PathFactory.newPath(uri.substring(uri.lastIndexOf('/') + 1),
+                                   uri);
+    }
+}
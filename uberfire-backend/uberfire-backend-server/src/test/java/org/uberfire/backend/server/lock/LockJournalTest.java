@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.backend.server.lock;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class LockJournalTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setup() {
+        file = new File(tempFolder.getRoot(),
+                        "locks/locks.journal");
+    }
+
+    @Test
+    public void locksAreReplayed() {
+        final LockJournal journal = new LockJournal(file,
+                                                    100);
+        journal.locked("default://master@repo/a.txt",
+                       "one");
+        journal.locked("default://master@repo/b.txt",
+                       "other");
+        journal.released("default://master@repo/a.txt");
+        journal.released("default://master@repo/c.txt");
+        journal.close();
+
+        final LockJournal reopened = new LockJournal(file,
+                                                     100);
+        assertEquals(1,
+                     reopened.getLocks().size());
+        assertEquals("other",
+                     reopened.getLocks().get("default://master@repo/b.txt"));
+        assertEquals(3,
+                     reopened.getRecordCount());
+        reopened.close();
+    }
+
+    @Test
+    public void staleRecordsAreCompacted() {
+        final LockJournal journal = new LockJournal(file,
+                                                    10);
+        for (int i = 0; i < 10; i++) {
+            journal.locked("default://master@repo/" + i + ".txt",
+                           "one");
+            journal.released("default://master@repo/" + i + ".txt");
+        }
+        journal.locked("default://master@repo/held.txt",
+                       "one");
+        assertTrue(journal.getRecordCount() <= 10);
+        journal.close();
+
+        final LockJournal reopened = new LockJournal(file,
+                                                     10);
+        assertEquals(1,
+                     reopened.getLocks().size());
+        assertEquals("one",
+                     reopened.getLocks().get("default://master@repo/held.txt"));
+        reopened.close();
+    }
+
+    @Test
+    public void incompleteRecordIsDropped() throws Exception {
+        final LockJournal journal = new LockJournal(file,
+                                                    100);
+        journal.locked("default://master@repo/a.txt",
+                       "one");
+        journal.locked("default://master@repo/b.txt",
+                       "one");
+        journal.close();
+
+        try (final RandomAccessFile truncate = new RandomAccessFile(file,
+                                                                    "rw")) {
+            truncate.setLength(file.length() - 2);
+        }
+
+        final LockJournal reopened = new LockJournal(file,
+                                                     100);
+        assertEquals(1,
+                     reopened.getLocks().size());
+        reopened.locked("default://master@repo/c.txt",
+                        "one");
+        reopened.close();
+
+        final LockJournal recovered = new LockJournal(file,
+                                                      100);
+        assertEquals(2,
+                     recovered.getLocks().size());
+        assertTrue(recovered.getLocks().containsKey("default://master@repo/c.txt"));
+        recovered.close();
+    }
+}
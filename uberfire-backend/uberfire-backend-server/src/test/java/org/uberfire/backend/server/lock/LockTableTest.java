@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.backend.server.lock;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LockTableTest {
+
+    private final LockTable table = new LockTable();
+
+    @Test
+    public void lockIsHeldByFirstUser() {
+        assertEquals("one",
+                     table.lock("default://master@repo/file.txt",
+                                "one"));
+        assertEquals("one",
+                     table.lock("default://master@repo/file.txt",
+                                "one"));
+        assertEquals("one",
+                     table.lock("default://master@repo/file.txt",
+                                "other"));
+        assertEquals("one",
+                     table.lockedBy("default://master@repo/file.txt"));
+
+        assertFalse(table.release("default://master@repo/file.txt",
+                                  "other"));
+        assertTrue(table.release("default://master@repo/file.txt",
+                                 "one"));
+        assertNull(table.lockedBy("default://master@repo/file.txt"));
+    }
+
+    @Test
+    public void locksUnderDirectory() {
+        table.set("default://master@repo/dir/a.txt",
+                  "one");
+        table.set("default://master@repo/dir/sub/b.txt",
+                  "other");
+        table.set("default://master@repo/dir2/c.txt",
+                  "one");
+        table.set("default://master@repo/dir.txt",
+                  "one");
+        table.set("default://master@other/dir/d.txt",
+                  "one");
+
+        final Map<String, String> locks = table.locksUnder("default://master@repo/dir");
+        assertEquals(2,
+                     locks.size());
+        assertEquals("one",
+                     locks.get("default://master@repo/dir/a.txt"));
+        assertEquals("other",
+                     locks.get("default://master@repo/dir/sub/b.txt"));
+        assertEquals(locks,
+                     table.locksUnder("default://master@repo/dir/"));
+        assertEquals(4,
+                     table.locksUnder("default://master@repo/").size());
+
+        table.set("default://master@repo/dir/a.txt",
+                  null);
+        assertEquals(1,
+                     table.locksUnder("default://master@repo/dir").size());
+        assertEquals(4,
+                     table.size());
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.uberfire.commons.cluster;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.RunnableFuture;
@@ -30,8 +31,15 @@ abstract class BaseLockExecuteNotifyReleaseTemplate<V> {
 
     public V execute(final ClusterService clusterService,
                      final RunnableFuture<V> task) {
+        final Collection<String> fileSystemIds = getFileSystemIds();
         try {
-            clusterService.lock();
+            if (fileSystemIds == null) {
+                clusterService.lock();
+            } else {
+                clusterService.lock(fileSystemIds);
+            }
+
+            beforeTask();
 
             task.run();
 
@@ -45,7 +53,11 @@ abstract class BaseLockExecuteNotifyReleaseTemplate<V> {
         } catch (final Exception e) {
             throwException(e);
         } finally {
-            clusterService.unlock();
+            if (fileSystemIds == null) {
+                clusterService.unlock();
+            } else {
+                clusterService.unlock(fileSystemIds);
+            }
         }
         return null;
     }
@@ -64,4 +76,18 @@ abstract class BaseLockExecuteNotifyReleaseTemplate<V> {
     public abstract String getServiceId();
 
     public abstract Map<String, String> buildContent();
+
+    /**
+     * Called once the cluster is locked, right before the task runs.
+     */
+    public void beforeTask() {
+    }
+
+    /**
+     * Ids of the file systems changed by the task, so the cluster is only locked for them.
+     * @return null if the task may change any file system.
+     */
+    public Collection<String> getFileSystemIds() {
+        return null;
+    }
 }
@@ -16,6 +16,8 @@
 
 package org.uberfire.commons.cluster;
 
+import java.util.Collection;
+
 import org.uberfire.commons.lifecycle.PriorityDisposable;
 import org.uberfire.commons.lock.LockService;
 import org.uberfire.commons.message.MessageHandlerResolver;
@@ -30,4 +32,20 @@ public interface ClusterService extends MessageService,
     void onStart(Runnable runnable);
 
     int getHoldCount();
+
+    /**
+     * Locks the cluster for changes to the given file systems only, so nodes changing other file systems don't have
+     * to wait. {@link #lock()} locks the cluster for changes to any file system.
+     * @param fileSystemIds Ids of the file systems to change.
+     */
+    default void lock(final Collection<String> fileSystemIds) {
+        lock();
+    }
+
+    /**
+     * Releases a lock taken by {@link #lock(Collection)} for the same file systems.
+     */
+    default void unlock(final Collection<String> fileSystemIds) {
+        unlock();
+    }
 }
@@ -16,6 +16,8 @@
 
 package org.uberfire.ext.metadata.engine;
 
+import java.util.Map;
+
 import org.uberfire.commons.lifecycle.PriorityDisposable;
 import org.uberfire.ext.metadata.model.KCluster;
 import org.uberfire.ext.metadata.model.KObject;
@@ -44,5 +46,17 @@ public interface MetaIndexEngine extends PriorityDisposable {
 
     void commit(final KCluster cluster);
 
+    /**
+     * Durably commits everything indexed so far in the cluster, even in batch mode, along with the
+     * given checkpoint entries; a null value removes its entry. Checkpoint entries survive restarts.
+     */
+    void checkpoint(final KCluster cluster,
+                    final Map<String, String> entries);
+
+    /**
+     * Checkpoint entries of the last durable commit of the cluster, empty if there are none.
+     */
+    Map<String, String> getCheckpoint(final KCluster cluster);
+
     void beforeDispose(final Runnable callback);
 }
@@ -32,6 +32,24 @@ public interface IOSearchService {
                               final Filter filter,
                               final Path... roots);
 
+    /**
+     * Returns a single page of the paths matching the attributes, along with the total number of
+     * hits, in one pass over the index.
+     */
+    SearchResults<Path> searchByAttrs(final Map<String, ?> attrs,
+                                      final Filter filter,
+                                      final SearchPage page,
+                                      final Path... roots);
+
+    /**
+     * Returns a single page of the paths matching the full text term, along with the total number
+     * of hits, in one pass over the index.
+     */
+    SearchResults<Path> fullTextSearch(final String term,
+                                       final Filter filter,
+                                       final SearchPage page,
+                                       final Path... roots);
+
     int searchByAttrsHits(final Map<String, ?> attrs,
                           final Path... roots);
 
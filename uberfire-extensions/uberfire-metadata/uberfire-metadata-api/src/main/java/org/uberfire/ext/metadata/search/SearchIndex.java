@@ -34,6 +34,22 @@ public interface SearchIndex {
                                  final IOSearchService.Filter filter,
                                  final ClusterSegment... clusterSegments);
 
+    /**
+     * Single pass search of a page of objects matching the attributes.
+     */
+    SearchResults<KObject> searchByAttrs(final Map<String, ?> attrs,
+                                         final IOSearchService.Filter filter,
+                                         final SearchPage page,
+                                         final ClusterSegment... clusterSegments);
+
+    /**
+     * Single pass search of a page of objects matching the full text term.
+     */
+    SearchResults<KObject> fullTextSearch(final String term,
+                                          final IOSearchService.Filter filter,
+                                          final SearchPage page,
+                                          final ClusterSegment... clusterSegments);
+
     int searchByAttrsHits(final Map<String, ?> attrs,
                           final ClusterSegment... clusterSegments);
 
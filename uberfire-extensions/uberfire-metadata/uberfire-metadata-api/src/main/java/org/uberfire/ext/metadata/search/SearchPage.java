@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.ext.metadata.search;
+
+import static org.kie.soup.commons.validation.PortablePreconditions.checkCondition;
+
+/**
+ * A page of search results: where it starts, how many hits it holds and how they are sorted.
+ * <p>
+ * Pages returned by {@link SearchResults#getNextPage()} also carry a cursor into the previous
+ * results, so the next page is read from there instead of collecting every hit before it again.
+ * Cursors are only meaningful for the query that produced them; once the index changed, the page
+ * is read from its offset instead.
+ */
+public class SearchPage {
+
+    private final int offset;
+    private final int pageSize;
+    private final String sortField;
+    private final boolean reverse;
+    private final SearchCursor cursor;
+
+    /**
+     * Page sorted by relevance.
+     */
+    public SearchPage(final int offset,
+                      final int pageSize) {
+        this(offset,
+             pageSize,
+             null,
+             false);
+    }
+
+    /**
+     * Page sorted by the given sortable field, or by relevance if the field is null.
+     */
+    public SearchPage(final int offset,
+                      final int pageSize,
+                      final String sortField,
+                      final boolean reverse) {
+        this(offset,
+             pageSize,
+             sortField,
+             reverse,
+             null);
+    }
+
+    public SearchPage(final int offset,
+                      final int pageSize,
+                      final String sortField,
+                      final boolean reverse,
+                      final SearchCursor cursor) {
+        checkCondition("offset must not be negative",
+                       offset >= 0);
+        checkCondition("pageSize must be positive",
+                       pageSize > 0);
+        this.offset = offset;
+        this.pageSize = pageSize;
+        this.sortField = sortField;
+        this.reverse = reverse;
+        this.cursor = cursor;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public String getSortField() {
+        return sortField;
+    }
+
+    public boolean isReverse() {
+        return reverse;
+    }
+
+    /**
+     * Search index specific position of the last hit before this page, if known.
+     */
+    public SearchCursor getCursor() {
+        return cursor;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.ext.metadata.search;
+
+import java.util.List;
+
+/**
+ * A page of search results along with the total number of hits of the query.
+ */
+public class SearchResults<T> {
+
+    private final List<T> results;
+    private final int totalHits;
+    private final SearchPage nextPage;
+
+    public SearchResults(final List<T> results,
+                         final int totalHits,
+                         final SearchPage nextPage) {
+        this.results = results;
+        this.totalHits = totalHits;
+        this.nextPage = nextPage;
+    }
+
+    public List<T> getResults() {
+        return results;
+    }
+
+    /**
+     * Number of hits of the query, before any {@link IOSearchService.Filter} is applied.
+     */
+    public int getTotalHits() {
+        return totalHits;
+    }
+
+    /**
+     * The page following this one, or null if there are no more hits.
+     */
+    public SearchPage getNextPage() {
+        return nextPage;
+    }
+}
@@ -42,6 +42,20 @@ public class LuceneConfig implements MetadataConfig {
                         final FieldFactory fieldFactory,
                         final LuceneIndexFactory indexFactory,
                         final Analyzer analyzer) {
+        this(metaModelStore,
+             fieldFactory,
+             indexFactory,
+             analyzer,
+             0,
+             1);
+    }
+
+    public LuceneConfig(final MetaModelStore metaModelStore,
+                        final FieldFactory fieldFactory,
+                        final LuceneIndexFactory indexFactory,
+                        final Analyzer analyzer,
+                        final long commitInterval,
+                        final int maxPendingChanges) {
         this.metaModelStore = metaModelStore;
         this.fieldFactory = fieldFactory;
         this.indexManager = new LuceneIndexManager(indexFactory);
@@ -50,7 +64,9 @@ public class LuceneConfig implements MetadataConfig {
                                                  this.analyzer);
         this.indexEngine = new LuceneIndexEngine(this.fieldFactory,
                                                  this.metaModelStore,
-                                                 this.indexManager);
+                                                 this.indexManager,
+                                                 commitInterval,
+                                                 maxPendingChanges);
         PriorityDisposableRegistry.register(this);
     }
 
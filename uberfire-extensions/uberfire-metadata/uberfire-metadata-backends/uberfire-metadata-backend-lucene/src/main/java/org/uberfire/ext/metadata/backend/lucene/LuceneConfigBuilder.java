@@ -16,6 +16,7 @@
 
 package org.uberfire.ext.metadata.backend.lucene;
 
+import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -32,16 +33,23 @@ import org.uberfire.ext.metadata.backend.lucene.index.directory.DirectoryFactory
 import org.uberfire.ext.metadata.backend.lucene.index.directory.DirectoryType;
 import org.uberfire.ext.metadata.backend.lucene.metamodel.InMemoryMetaModelStore;
 import org.uberfire.ext.metadata.backend.lucene.metamodel.NullMetaModelStore;
+import org.uberfire.ext.metadata.backend.lucene.metamodel.PersistentMetaModelStore;
 import org.uberfire.ext.metadata.engine.MetaModelStore;
 
 public final class LuceneConfigBuilder {
 
+    public static final String DEFAULT_COMMIT_INTERVAL = "0";
+    public static final String DEFAULT_MAX_PENDING_CHANGES = "1000";
+    public static final String DEFAULT_META_MODEL_FILE = "metamodel.dat";
+
     private MetaModelStore metaModelStore;
     private FieldFactory fieldFactory;
     private DirectoryType type;
     private Analyzer analyzer;
     private CustomAnalyzerWrapperFactory customAnalyzerWrapperFactory;
     private Map<String, Analyzer> analyzers;
+    private Long commitInterval;
+    private Integer maxPendingChanges;
 
     public LuceneConfigBuilder() {
     }
@@ -51,6 +59,19 @@ public final class LuceneConfigBuilder {
         return this;
     }
 
+    /**
+     * Keeps the meta model in a file next to the cluster indexes, so it survives restarts.
+     */
+    public LuceneConfigBuilder withPersistentMetaModelStore() {
+        return withPersistentMetaModelStore(new File(DirectoryFactory.defaultHostingDir(),
+                                                     DEFAULT_META_MODEL_FILE));
+    }
+
+    public LuceneConfigBuilder withPersistentMetaModelStore(final File file) {
+        this.metaModelStore = new PersistentMetaModelStore(file);
+        return this;
+    }
+
     public LuceneConfigBuilder withoutMemoryMetaModel() {
         this.metaModelStore = new NullMetaModelStore();
         return this;
@@ -76,6 +97,27 @@ public final class LuceneConfigBuilder {
         return this;
     }
 
+    /**
+     * Commits index changes made outside batch mode in the background, at most the given number
+     * of milliseconds after they happened; changes are searchable right away. 0 (the default,
+     * unless set by the org.uberfire.metadata.index.commit.interval system property) commits
+     * every change.
+     */
+    public LuceneConfigBuilder withCommitInterval(final long commitInterval) {
+        this.commitInterval = commitInterval;
+        return this;
+    }
+
+    /**
+     * Number of pending changes of a cluster that triggers its background commit before the
+     * commit interval elapsed (default 1000, or the org.uberfire.metadata.index.commit.max.pending
+     * system property).
+     */
+    public LuceneConfigBuilder withMaxPendingChanges(final int maxPendingChanges) {
+        this.maxPendingChanges = maxPendingChanges;
+        return this;
+    }
+
     public LuceneConfigBuilder useDirectoryBasedIndex() {
         return this;
     }
@@ -111,12 +153,22 @@ public final class LuceneConfigBuilder {
         if (analyzer == null) {
             withDefaultAnalyzer();
         }
+        if (commitInterval == null) {
+            withCommitInterval(Long.parseLong(System.getProperty("org.uberfire.metadata.index.commit.interval",
+                                                                 DEFAULT_COMMIT_INTERVAL)));
+        }
+        if (maxPendingChanges == null) {
+            withMaxPendingChanges(Integer.parseInt(System.getProperty("org.uberfire.metadata.index.commit.max.pending",
+                                                                      DEFAULT_MAX_PENDING_CHANGES)));
+        }
 
         return new LuceneConfig(metaModelStore,
                                 fieldFactory,
                                 new DirectoryFactory(type,
                                                      analyzer),
-                                analyzer);
+                                analyzer,
+                                commitInterval,
+                                maxPendingChanges);
     }
 
     public void withDefaultDirectory() {
@@ -24,6 +24,7 @@ import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
@@ -36,8 +37,9 @@ public abstract class BaseLuceneIndex implements LuceneIndex {
     public void indexDocument(final String id,
                               final Document doc) {
         try {
-            deleteIfExists(id);
-            writer().addDocument(doc);
+            writer().updateDocument(new Term("id",
+                                             id),
+                                    doc);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -46,6 +48,8 @@ public abstract class BaseLuceneIndex implements LuceneIndex {
     @Override
     public boolean deleteIfExists(final String... docIds) {
         boolean deletedSomething = false;
+        // documents indexed since the last refresh must be found too
+        refresh();
         final IndexSearcher searcher = nrtSearcher();
         try {
             final int[] answers = lookupDocIdByPK(searcher,
@@ -69,20 +73,8 @@ public abstract class BaseLuceneIndex implements LuceneIndex {
     @Override
     public void rename(final String sourceId,
                        final Document doc) {
-        final IndexSearcher searcher = nrtSearcher();
-        try {
-            int docId = lookupDocIdByPK(searcher,
-                                        sourceId)[0];
-            if (docId != -1) {
-                writer().tryDeleteDocument(searcher.getIndexReader(),
-                                           docId);
-            }
-            indexDocument(sourceId,
-                          doc);
-        } catch (IOException ex) {
-        } finally {
-            nrtRelease(searcher);
-        }
+        indexDocument(sourceId,
+                      doc);
     }
 
     protected int[] lookupDocIdByPK(final IndexSearcher searcher,
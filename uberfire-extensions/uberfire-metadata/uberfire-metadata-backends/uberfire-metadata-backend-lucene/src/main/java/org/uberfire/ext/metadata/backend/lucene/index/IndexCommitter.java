@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.ext.metadata.backend.lucene.index;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.uberfire.ext.metadata.model.KCluster;
+
+import static org.kie.soup.commons.validation.Preconditions.checkCondition;
+import static org.kie.soup.commons.validation.Preconditions.checkNotNull;
+
+/**
+ * Background committer of cluster indexes.
+ * <p>
+ * Changes are searchable right away through near real time readers; this only defers the durable
+ * (fsync'ed) commit of each cluster until its commit interval elapsed or it has too many pending
+ * changes, so a burst of changes costs a single commit.
+ */
+class IndexCommitter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexCommitter.class);
+
+    private final long commitInterval;
+    private final int maxPendingChanges;
+    private final Consumer<KCluster> commitAction;
+    private final Map<KCluster, PendingChanges> pending = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    IndexCommitter(final long commitInterval,
+                   final int maxPendingChanges,
+                   final Consumer<KCluster> commitAction) {
+        checkCondition("commitInterval must be positive",
+                       commitInterval > 0);
+        checkCondition("maxPendingChanges must be positive",
+                       maxPendingChanges > 0);
+        this.commitInterval = commitInterval;
+        this.maxPendingChanges = maxPendingChanges;
+        this.commitAction = checkNotNull("commitAction",
+                                         commitAction);
+        this.scheduler = new ScheduledThreadPoolExecutor(1,
+                                                        runnable -> {
+                                                            final Thread thread = new Thread(runnable,
+                                                                                             "lucene-index-committer");
+                                                            thread.setDaemon(true);
+                                                            return thread;
+                                                        });
+        // on shutdown pending changes are committed right away, no need to wait for their delay
+        this.scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Records a change to the cluster index, scheduling its commit if needed.
+     */
+    void changed(final KCluster cluster) {
+        final PendingChanges changes = pending.computeIfAbsent(cluster,
+                                                               PendingChanges::new);
+        try {
+            if (changes.count.incrementAndGet() >= maxPendingChanges) {
+                scheduler.execute(() -> commit(changes));
+            } else if (changes.scheduled.compareAndSet(false,
+                                                       true)) {
+                scheduler.schedule(() -> commit(changes),
+                                   commitInterval,
+                                   TimeUnit.MILLISECONDS);
+            }
+        } catch (final RejectedExecutionException ex) {
+            // shutting down: commit on the caller thread
+            commit(changes);
+        }
+    }
+
+    boolean hasPendingChanges(final KCluster cluster) {
+        final PendingChanges changes = pending.get(cluster);
+        return changes != null && changes.count.get() > 0;
+    }
+
+    /**
+     * Drops the pending changes of a cluster, e.g. because its index was deleted.
+     */
+    void forget(final KCluster cluster) {
+        pending.remove(cluster);
+    }
+
+    /**
+     * Commits every pending change and stops the committer.
+     */
+    void shutdown() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1,
+                                       TimeUnit.MINUTES);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        for (final PendingChanges changes : pending.values()) {
+            commit(changes);
+        }
+    }
+
+    private void commit(final PendingChanges changes) {
+        changes.scheduled.set(false);
+        if (changes.count.getAndSet(0) == 0) {
+            return;
+        }
+        try {
+            commitAction.accept(changes.cluster);
+        } catch (final RuntimeException ex) {
+            LOGGER.error("Can't commit index of cluster [" + changes.cluster.getClusterId() + "]",
+                         ex);
+        }
+    }
+
+    private static class PendingChanges {
+
+        private final KCluster cluster;
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        PendingChanges(final KCluster cluster) {
+            this.cluster = cluster;
+        }
+    }
+}
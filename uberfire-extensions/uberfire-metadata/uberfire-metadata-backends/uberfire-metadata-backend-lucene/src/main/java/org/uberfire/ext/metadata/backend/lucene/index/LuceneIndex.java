@@ -16,6 +16,8 @@
 
 package org.uberfire.ext.metadata.backend.lucene.index;
 
+import java.util.Map;
+
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.IndexSearcher;
@@ -43,4 +45,18 @@ public interface LuceneIndex extends Index {
     IndexSearcher nrtSearcher();
 
     void nrtRelease(final IndexSearcher searcher);
+
+    /**
+     * Reopens the near real time searcher if the index changed. Searchers only see the changes made
+     * before the last refresh, so writers refresh once their changes must be searchable.
+     */
+    void refresh();
+
+    /**
+     * Commits the index, storing the given checkpoint entries (merged into the current ones, null
+     * values remove entries) in the commit user data.
+     */
+    void commit(final Map<String, String> checkpoint);
+
+    Map<String, String> getCheckpoint();
 }
@@ -18,6 +18,7 @@ package org.uberfire.ext.metadata.backend.lucene.index;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -34,6 +35,7 @@ import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.IndexableField;
 import org.uberfire.commons.lifecycle.PriorityDisposableRegistry;
 import org.uberfire.ext.metadata.backend.lucene.fields.FieldFactory;
+import org.uberfire.ext.metadata.backend.lucene.metamodel.NullMetaModelStore;
 import org.uberfire.ext.metadata.engine.Index;
 import org.uberfire.ext.metadata.engine.MetaIndexEngine;
 import org.uberfire.ext.metadata.engine.MetaModelStore;
@@ -55,38 +57,63 @@ public class LuceneIndexEngine implements MetaIndexEngine {
     private final LuceneIndexManager indexManager;
     private final Map<KCluster, AtomicInteger> batchMode = new ConcurrentHashMap<KCluster, AtomicInteger>();
     private final Collection<Runnable> beforeDispose = new ArrayList<Runnable>();
+    private final IndexCommitter committer;
 
     public LuceneIndexEngine(final FieldFactory fieldFactory,
                              final MetaModelStore metaModelStore,
                              final LuceneIndexManager indexManager) {
+        this(fieldFactory,
+             metaModelStore,
+             indexManager,
+             0,
+             1);
+    }
+
+    /**
+     * @param commitInterval maximum time, in milliseconds, changes made outside batch mode wait
+     * for their durable commit; they are searchable right away. 0 commits every change.
+     * @param maxPendingChanges number of pending changes of a cluster that triggers its commit
+     * before the interval elapsed.
+     */
+    public LuceneIndexEngine(final FieldFactory fieldFactory,
+                             final MetaModelStore metaModelStore,
+                             final LuceneIndexManager indexManager,
+                             final long commitInterval,
+                             final int maxPendingChanges) {
         this.fieldFactory = checkNotNull("fieldFactory",
                                          fieldFactory);
         this.metaModelStore = checkNotNull("metaModelStore",
                                            metaModelStore);
         this.indexManager = checkNotNull("indexManager",
                                          indexManager);
+        if (commitInterval > 0) {
+            this.committer = new IndexCommitter(commitInterval,
+                                                maxPendingChanges,
+                                                this::commitPendingChanges);
+        } else {
+            this.committer = null;
+        }
         PriorityDisposableRegistry.register(this);
     }
 
     @Override
     public boolean freshIndex(final KCluster cluster) {
         final Index index = indexManager.get(cluster);
-        return (index == null || index.freshIndex()) && !batchMode.containsKey(cluster);
+        return (index == null || index.freshIndex()) && !batchMode.containsKey(cluster) &&
+                (committer == null || !committer.hasPendingChanges(cluster));
     }
 
     @Override
     public void startBatch(final KCluster cluster) {
-        final AtomicInteger batchStack = batchMode.get(cluster);
-        if (batchStack == null) {
-            batchMode.put(cluster,
-                          new AtomicInteger());
-        } else {
-            if (batchStack.get() < 0) {
-                batchStack.set(1);
-            } else {
-                batchStack.incrementAndGet();
-            }
-        }
+        // each batch is ended by a commit
+        batchMode.compute(cluster,
+                          (c, batchStack) -> {
+                              if (batchStack == null) {
+                                  return new AtomicInteger(1);
+                              }
+                              batchStack.incrementAndGet();
+                              return batchStack;
+                          });
     }
 
     @Override
@@ -166,6 +193,9 @@ public class LuceneIndexEngine implements MetaIndexEngine {
 
     @Override
     public void delete(KCluster cluster) {
+        if (committer != null) {
+            committer.forget(cluster);
+        }
         indexManager.delete(cluster);
     }
 
@@ -195,12 +225,13 @@ public class LuceneIndexEngine implements MetaIndexEngine {
 
         for (final Map.Entry<LuceneIndex, List<String>> entry : execution.entrySet()) {
             entry.getKey().deleteIfExists(entry.getValue().toArray(new String[entry.getValue().size()]));
+            entry.getKey().refresh();
         }
     }
 
     @Override
     public void commit(final KCluster cluster) {
-        final Index index = indexManager.get(cluster);
+        final LuceneIndex index = indexManager.get(cluster);
         if (index == null) {
             return;
         }
@@ -209,22 +240,66 @@ public class LuceneIndexEngine implements MetaIndexEngine {
             int value = batchStack.decrementAndGet();
             if (value <= 0) {
                 index.commit();
-                batchMode.remove(cluster);
+                index.refresh();
+                batchMode.remove(cluster,
+                                 batchStack);
             }
         } else {
             index.commit();
+            index.refresh();
         }
     }
 
-    private synchronized void commitIfNotBatchMode(final KCluster cluster) {
-        final AtomicInteger batchStack = batchMode.get(cluster);
-        if (batchStack == null || batchStack.get() <= 0) {
+    @Override
+    public void checkpoint(final KCluster cluster,
+                           final Map<String, String> entries) {
+        checkNotNull("entries",
+                     entries);
+        final LuceneIndex index = indexManager.get(cluster);
+        if (index != null) {
+            index.commit(entries);
+        }
+    }
+
+    @Override
+    public Map<String, String> getCheckpoint(final KCluster cluster) {
+        final LuceneIndex index = indexManager.get(cluster);
+        if (index == null) {
+            return Collections.emptyMap();
+        }
+        return index.getCheckpoint();
+    }
+
+    private void commitIfNotBatchMode(final KCluster cluster) {
+        if (batchMode.containsKey(cluster)) {
+            // committed once the batch ends
+            return;
+        }
+        if (committer != null) {
+            committer.changed(cluster);
+            // searchable right away, durable once committed
+            indexManager.get(cluster).refresh();
+        } else {
             commit(cluster);
         }
     }
 
+    private void commitPendingChanges(final KCluster cluster) {
+        // a running batch commits everything once it's done
+        if (batchMode.containsKey(cluster)) {
+            return;
+        }
+        final Index index = indexManager.get(cluster);
+        if (index != null) {
+            index.commit();
+        }
+    }
+
     @Override
     public void dispose() {
+        if (committer != null) {
+            committer.shutdown();
+        }
         if (!beforeDispose.isEmpty()) {
             for (final Runnable activeDispose : beforeDispose) {
                 activeDispose.run();
@@ -244,23 +319,51 @@ public class LuceneIndexEngine implements MetaIndexEngine {
     }
 
     private void updateMetaModel(final KObject object) {
-        final MetaObject metaObject = metaModelStore.getMetaObject(object.getType().getName());
-        if (metaObject == null) {
-            metaModelStore.add(newMetaObect(object));
-        } else {
-            for (final KProperty property : object.getProperties()) {
-                final MetaProperty metaProperty = metaObject.getProperty(property.getName());
-                if (metaProperty == null) {
-                    metaObject.addProperty(newMetaProperty(property));
-                } else {
-                    metaProperty.addType(property.getValue().getClass());
-                    if (property.isSearchable()) {
-                        metaProperty.setAsSearchable();
+        if (metaModelStore instanceof NullMetaModelStore) {
+            return;
+        }
+        // the meta model rarely changes once every type was indexed: check it without locking
+        if (!isMetaModelOutdated(metaModelStore.getMetaObject(object.getType().getName()),
+                                 object)) {
+            return;
+        }
+        // objects of the same type may be indexed concurrently, e.g. by a parallel batch index
+        synchronized (metaModelStore) {
+            final MetaObject metaObject = metaModelStore.getMetaObject(object.getType().getName());
+            if (metaObject == null) {
+                metaModelStore.add(newMetaObect(object));
+            } else if (isMetaModelOutdated(metaObject,
+                                           object)) {
+                for (final KProperty property : object.getProperties()) {
+                    final MetaProperty metaProperty = metaObject.getProperty(property.getName());
+                    if (metaProperty == null) {
+                        metaObject.addProperty(newMetaProperty(property));
+                    } else {
+                        metaProperty.addType(property.getValue().getClass());
+                        if (property.isSearchable()) {
+                            metaProperty.setAsSearchable();
+                        }
                     }
                 }
+                metaModelStore.update(metaObject);
+            }
+        }
+    }
+
+    private boolean isMetaModelOutdated(final MetaObject metaObject,
+                                        final KObject object) {
+        if (metaObject == null) {
+            return true;
+        }
+        for (final KProperty<?> property : object.getProperties()) {
+            final MetaProperty metaProperty = metaObject.getProperty(property.getName());
+            if (metaProperty == null ||
+                    !metaProperty.getTypes().contains(property.getValue().getClass()) ||
+                    (property.isSearchable() && !metaProperty.isSearchable())) {
+                return true;
             }
-            metaModelStore.update(metaObject);
         }
+        return false;
     }
 
     private MetaObject newMetaObect(final KObject object) {
@@ -306,7 +409,7 @@ public class LuceneIndexEngine implements MetaIndexEngine {
     private MetaProperty newMetaProperty(final KProperty<?> property) {
         return new MetaProperty() {
 
-            private boolean isSearchable = property.isSearchable();
+            private volatile boolean isSearchable = property.isSearchable();
             private Set<Class<?>> types = new CopyOnWriteArraySet<Class<?>>() {{
                 add(property.getValue().getClass());
             }};
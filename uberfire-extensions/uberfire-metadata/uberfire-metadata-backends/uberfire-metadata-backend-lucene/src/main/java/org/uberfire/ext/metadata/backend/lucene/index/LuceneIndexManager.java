@@ -18,18 +18,25 @@ package org.uberfire.ext.metadata.backend.lucene.index;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.MultiReader;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.SearcherFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.uberfire.ext.metadata.backend.lucene.model.KClusterImpl;
-import org.uberfire.ext.metadata.engine.Index;
 import org.uberfire.ext.metadata.engine.IndexManager;
 import org.uberfire.ext.metadata.model.KCluster;
 import org.uberfire.ext.metadata.model.KObjectKey;
@@ -37,15 +44,57 @@ import org.uberfire.ext.metadata.search.ClusterSegment;
 
 import static org.kie.soup.commons.validation.Preconditions.checkNotNull;
 
+/**
+ * Cluster indexes and the searchers over them.
+ * <p>
+ * Each cluster index keeps a reference counted near real time searcher, refreshed by the writers
+ * once their changes must be searchable, and in the background every
+ * {@code org.uberfire.metadata.index.refresh.interval} milliseconds. Searchers spanning several
+ * clusters are cached per cluster set and reused until one of their cluster searchers is reopened;
+ * the background refresh also drops cached searchers left behind that way, so they don't keep old
+ * segments open.
+ */
 public class LuceneIndexManager implements IndexManager {
 
+    public static final String DEFAULT_REFRESH_INTERVAL = "500";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LuceneIndexManager.class);
+
     private final LuceneIndexFactory factory;
     private final Map<KCluster, LuceneIndex> indexes = new ConcurrentHashMap<KCluster, LuceneIndex>();
+    private final Map<Set<KCluster>, CompositeSearcher> searchers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService refresher;
 
     public LuceneIndexManager(final LuceneIndexFactory factory) {
+        this(factory,
+             Long.parseLong(System.getProperty("org.uberfire.metadata.index.refresh.interval",
+                                               DEFAULT_REFRESH_INTERVAL)));
+    }
+
+    /**
+     * @param refreshInterval milliseconds between background searcher refreshes, 0 or less to only
+     * refresh after writes.
+     */
+    public LuceneIndexManager(final LuceneIndexFactory factory,
+                              final long refreshInterval) {
         this.factory = checkNotNull("factory",
                                     factory);
         this.indexes.putAll(factory.getIndexes());
+        if (refreshInterval > 0) {
+            this.refresher = new ScheduledThreadPoolExecutor(1,
+                                                             runnable -> {
+                                                                 final Thread thread = new Thread(runnable,
+                                                                                                  "lucene-index-refresher");
+                                                                 thread.setDaemon(true);
+                                                                 return thread;
+                                                             });
+            this.refresher.scheduleWithFixedDelay(this::refreshAll,
+                                                  refreshInterval,
+                                                  refreshInterval,
+                                                  TimeUnit.MILLISECONDS);
+        } else {
+            this.refresher = null;
+        }
     }
 
     @Override
@@ -64,6 +113,8 @@ public class LuceneIndexManager implements IndexManager {
         final LuceneIndex index = factory.newCluster(kcluster);
         indexes.put(kcluster,
                     index);
+        // cached searchers over all clusters are keyed by the previous cluster set
+        evictSearchers(clusters -> true);
         return index;
     }
 
@@ -76,6 +127,7 @@ public class LuceneIndexManager implements IndexManager {
     public void delete(KCluster cluster) {
         final LuceneIndex setup = indexes.remove(cluster);
         factory.remove(cluster);
+        evictSearchers(clusters -> clusters.contains(cluster));
         if (setup != null) {
             setup.delete();
         }
@@ -83,6 +135,10 @@ public class LuceneIndexManager implements IndexManager {
 
     @Override
     public void dispose() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+        evictSearchers(clusters -> true);
         for (final LuceneIndex index : indexes.values()) {
             index.dispose();
         }
@@ -90,7 +146,7 @@ public class LuceneIndexManager implements IndexManager {
     }
 
     @Override
-    public Index get(KCluster cluster) {
+    public LuceneIndex get(KCluster cluster) {
         return indexes.get(cluster);
     }
 
@@ -105,25 +161,139 @@ public class LuceneIndexManager implements IndexManager {
             }
         }
 
-        final Collection<IndexReader> readers = new ArrayList<IndexReader>(clusters.size());
-        for (final KCluster cluster : clusters) {
-            final LuceneIndex index = indexes.get(cluster);
-            readers.add(index.nrtReader());
-        }
-
+        final List<LuceneIndex> acquiredFrom = new ArrayList<LuceneIndex>(clusters.size());
+        final List<IndexReader> readers = new ArrayList<IndexReader>(clusters.size());
         try {
-            return new SearcherFactory().newSearcher(new MultiReader(readers.toArray(new IndexReader[readers.size()])),
-                                                     null);
+            // stable order, so cached searchers can be matched reader by reader
+            final List<KCluster> sortedClusters = new ArrayList<KCluster>(clusters);
+            sortedClusters.sort(Comparator.comparing(KCluster::getClusterId));
+            for (final KCluster cluster : sortedClusters) {
+                final LuceneIndex index = indexes.get(cluster);
+                readers.add(index.nrtReader());
+                acquiredFrom.add(index);
+            }
+
+            final CompositeSearcher current = searchers.get(clusters);
+            if (current != null && current.readers.equals(readers) && current.reader.tryIncRef()) {
+                return current.searcher;
+            }
+
+            // the cache holds one reference, the caller the other
+            final CompositeSearcher composite = new CompositeSearcher(sortedClusters,
+                                                                      readers);
+            composite.reader.incRef();
+            final CompositeSearcher replaced = searchers.put(clusters,
+                                                             composite);
+            if (replaced != null) {
+                replaced.release();
+            }
+            return composite.searcher;
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            // composite readers hold their own references to the cluster readers
+            for (int i = 0; i < acquiredFrom.size(); i++) {
+                acquiredFrom.get(i).nrtRelease(readers.get(i));
+            }
         }
     }
 
     public void release(final IndexSearcher index) {
         try {
-            index.getIndexReader().close();
+            index.getIndexReader().decRef();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
+
+    private void evictSearchers(final Predicate<Set<KCluster>> filter) {
+        for (final Map.Entry<Set<KCluster>, CompositeSearcher> entry : searchers.entrySet()) {
+            if (filter.test(entry.getKey()) && searchers.remove(entry.getKey(),
+                                                                entry.getValue())) {
+                entry.getValue().release();
+            }
+        }
+    }
+
+    private void refreshAll() {
+        for (final LuceneIndex index : indexes.values()) {
+            try {
+                index.refresh();
+            } catch (final RuntimeException ex) {
+                // most likely the index was deleted or disposed meanwhile
+                LOGGER.debug("Can't refresh index of cluster [" + index.getCluster().getClusterId() + "]",
+                             ex);
+            }
+        }
+        evictStaleSearchers();
+    }
+
+    /**
+     * Drops the cached searchers holding a reader that isn't the current one of its cluster.
+     */
+    void evictStaleSearchers() {
+        if (searchers.isEmpty()) {
+            return;
+        }
+        final Map<KCluster, IndexReader> current = new HashMap<KCluster, IndexReader>();
+        final Map<KCluster, LuceneIndex> acquiredFrom = new HashMap<KCluster, LuceneIndex>();
+        try {
+            for (final Map.Entry<KCluster, LuceneIndex> entry : indexes.entrySet()) {
+                try {
+                    current.put(entry.getKey(),
+                                entry.getValue().nrtReader());
+                    acquiredFrom.put(entry.getKey(),
+                                     entry.getValue());
+                } catch (final RuntimeException ex) {
+                    LOGGER.debug("Can't read index of cluster [" + entry.getKey().getClusterId() + "]",
+                                 ex);
+                }
+            }
+            for (final Map.Entry<Set<KCluster>, CompositeSearcher> entry : searchers.entrySet()) {
+                if (!entry.getValue().isCurrent(current) && searchers.remove(entry.getKey(),
+                                                                             entry.getValue())) {
+                    entry.getValue().release();
+                }
+            }
+        } finally {
+            for (final Map.Entry<KCluster, LuceneIndex> entry : acquiredFrom.entrySet()) {
+                entry.getValue().nrtRelease(current.get(entry.getKey()));
+            }
+        }
+    }
+
+    private static class CompositeSearcher {
+
+        private final List<KCluster> clusters;
+        private final List<IndexReader> readers;
+        private final MultiReader reader;
+        private final IndexSearcher searcher;
+
+        CompositeSearcher(final List<KCluster> clusters,
+                          final List<IndexReader> readers) throws IOException {
+            this.clusters = new ArrayList<KCluster>(clusters);
+            this.readers = new ArrayList<IndexReader>(readers);
+            this.reader = new MultiReader(readers.toArray(new IndexReader[readers.size()]),
+                                          false);
+            this.searcher = new SearcherFactory().newSearcher(reader,
+                                                              null);
+        }
+
+        boolean isCurrent(final Map<KCluster, IndexReader> currentReaders) {
+            for (int i = 0; i < clusters.size(); i++) {
+                if (currentReaders.get(clusters.get(i)) != readers.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void release() {
+            try {
+                reader.decRef();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
 }
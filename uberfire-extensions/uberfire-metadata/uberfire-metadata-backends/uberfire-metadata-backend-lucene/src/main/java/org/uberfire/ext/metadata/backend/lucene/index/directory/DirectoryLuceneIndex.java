@@ -17,14 +17,16 @@
 package org.uberfire.ext.metadata.backend.lucene.index.directory;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.search.IndexSearcher;
-import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
 import org.uberfire.ext.metadata.backend.lucene.index.BaseLuceneIndex;
 import org.uberfire.ext.metadata.model.KCluster;
 
@@ -37,6 +39,7 @@ public class DirectoryLuceneIndex extends BaseLuceneIndex {
 
     private final KCluster cluster;
     private final IndexWriter writer;
+    private final SearcherManager searcherManager;
     private final Directory directory;
     private AtomicBoolean freshIndex;
     private AtomicBoolean isDisposed = new AtomicBoolean(false);
@@ -51,6 +54,9 @@ public class DirectoryLuceneIndex extends BaseLuceneIndex {
                                           directory);
             this.writer = new IndexWriter(directory.getDirectory(),
                                           config);
+            this.searcherManager = new SearcherManager(writer,
+                                                       true,
+                                                       null);
             this.freshIndex = new AtomicBoolean(directory.freshIndex());
         } catch (final Exception ex) {
             throw new RuntimeException(ex);
@@ -67,39 +73,49 @@ public class DirectoryLuceneIndex extends BaseLuceneIndex {
         return cluster;
     }
 
+    /**
+     * Acquires the current reader, which must be handed back to {@link #nrtRelease(IndexReader)}.
+     */
     @Override
     public IndexReader nrtReader() {
+        return nrtSearcher().getIndexReader();
+    }
+
+    @Override
+    public void nrtRelease(final IndexReader reader) {
         try {
-            return DirectoryReader.open(writer,
-                                        true);
+            reader.decRef();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Acquires the current searcher, as of the last {@link #refresh()}; it must be handed back to
+     * {@link #nrtRelease(IndexSearcher)}.
+     */
     @Override
-    public void nrtRelease(final IndexReader reader) {
+    public IndexSearcher nrtSearcher() {
         try {
-            reader.close();
+            return searcherManager.acquire();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
     @Override
-    public IndexSearcher nrtSearcher() {
+    public void nrtRelease(final IndexSearcher searcher) {
         try {
-            return new SearcherFactory().newSearcher(nrtReader(),
-                                                     null);
+            searcherManager.release(searcher);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
     @Override
-    public void nrtRelease(final IndexSearcher searcher) {
+    public void refresh() {
         try {
-            searcher.getIndexReader().close();
+            searcherManager.maybeRefreshBlocking();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -110,11 +126,20 @@ public class DirectoryLuceneIndex extends BaseLuceneIndex {
         if (isDisposed.get()) {
             return;
         }
+        closeSearcherManager();
         closeWriter();
         directory.close();
         isDisposed.set(true);
     }
 
+    private void closeSearcherManager() {
+        try {
+            searcherManager.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private void closeWriter() {
         try {
             writer.commit();
@@ -139,8 +164,33 @@ public class DirectoryLuceneIndex extends BaseLuceneIndex {
         }
     }
 
+    @Override
+    public synchronized void commit(final Map<String, String> checkpoint) {
+        final Map<String, String> commitData = new HashMap<>(getCheckpoint());
+        for (final Map.Entry<String, String> entry : checkpoint.entrySet()) {
+            if (entry.getValue() == null) {
+                commitData.remove(entry.getKey());
+            } else {
+                commitData.put(entry.getKey(),
+                               entry.getValue());
+            }
+        }
+        writer.setCommitData(commitData);
+        commit();
+    }
+
+    @Override
+    public Map<String, String> getCheckpoint() {
+        final Map<String, String> commitData = writer.getCommitData();
+        if (commitData == null) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(new HashMap<>(commitData));
+    }
+
     @Override
     public void delete() {
+        closeSearcherManager();
         closeWriter();
         directory.delete();
         isDisposed.set(true);
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.ext.metadata.backend.lucene.metamodel;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.uberfire.ext.metadata.engine.MetaModelStore;
+import org.uberfire.ext.metadata.model.schema.MetaObject;
+import org.uberfire.ext.metadata.model.schema.MetaProperty;
+import org.uberfire.ext.metadata.model.schema.MetaType;
+
+import static org.kie.soup.commons.validation.PortablePreconditions.checkNotNull;
+
+/**
+ * Meta model store backed by an append-only file, shared by every cluster of an index engine.
+ * <p>
+ * The file is a log of facts (a property of a type has a value type, or is searchable) loaded at
+ * startup; updates only append the facts that aren't in the file yet, so it grows with the
+ * schema and not with the number of indexed objects. A record left incomplete by a crash is
+ * dropped on the next load.
+ */
+public class PersistentMetaModelStore implements MetaModelStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PersistentMetaModelStore.class);
+
+    private static final int MAGIC = 0x55464d4d;
+    private static final int VERSION = 1;
+
+    private static final byte PROPERTY_TYPE = 0;
+    private static final byte SEARCHABLE = 1;
+
+    private final File file;
+    private final ConcurrentMap<String, StoredMetaObject> metaModel = new ConcurrentHashMap<>();
+    private final Set<String> persisted = ConcurrentHashMap.newKeySet();
+    private DataOutputStream out;
+
+    public PersistentMetaModelStore(final File file) {
+        this.file = checkNotNull("file",
+                                 file);
+        try {
+            load();
+            open();
+        } catch (final IOException ex) {
+            throw new org.uberfire.java.nio.IOException("Can't open meta model store [" + file.getAbsolutePath() + "]",
+                                                        ex);
+        }
+    }
+
+    @Override
+    public void add(final MetaObject metaObject) {
+        update(metaObject);
+    }
+
+    @Override
+    public synchronized void update(final MetaObject metaObject) {
+        final String type = metaObject.getType().getName();
+        final StoredMetaObject stored = metaModel.computeIfAbsent(type,
+                                                                  StoredMetaObject::new);
+        for (final MetaProperty property : metaObject.getProperties()) {
+            for (final Class<?> propertyType : property.getTypes()) {
+                stored.property(property.getName()).addType(propertyType);
+            }
+            if (property.isSearchable()) {
+                stored.property(property.getName()).setAsSearchable();
+            }
+        }
+
+        if (out == null) {
+            LOGGER.warn("Meta model store [" + file.getAbsolutePath() + "] is disposed, type [" + type + "] is not persisted");
+            return;
+        }
+        // facts are only marked as persisted once flushed, so a failed write is retried by the next update
+        final Set<String> appended = new HashSet<>();
+        try {
+            for (final MetaProperty property : metaObject.getProperties()) {
+                for (final Class<?> propertyType : property.getTypes()) {
+                    append(PROPERTY_TYPE,
+                           type,
+                           property.getName(),
+                           propertyType.getName(),
+                           appended);
+                }
+                if (property.isSearchable()) {
+                    append(SEARCHABLE,
+                           type,
+                           property.getName(),
+                           "",
+                           appended);
+                }
+            }
+            if (!appended.isEmpty()) {
+                out.flush();
+                persisted.addAll(appended);
+            }
+        } catch (final IOException ex) {
+            LOGGER.error("Can't persist meta model of type [" + type + "]",
+                         ex);
+        }
+    }
+
+    @Override
+    public MetaObject getMetaObject(final String type) {
+        return metaModel.get(type);
+    }
+
+    @Override
+    public synchronized void dispose() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (final IOException ex) {
+            LOGGER.warn("Can't close meta model store [" + file.getAbsolutePath() + "]",
+                        ex);
+        } finally {
+            out = null;
+        }
+    }
+
+    private void append(final byte kind,
+                        final String type,
+                        final String property,
+                        final String value,
+                        final Set<String> appended) throws IOException {
+        final String fact = factOf(kind,
+                                   type,
+                                   property,
+                                   value);
+        if (persisted.contains(fact) || !appended.add(fact)) {
+            return;
+        }
+        out.writeByte(kind);
+        out.writeUTF(type);
+        out.writeUTF(property);
+        out.writeUTF(value);
+    }
+
+    private void load() throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            return;
+        }
+        final byte[] content = Files.readAllBytes(file.toPath());
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(content));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Unknown meta model store format");
+        }
+
+        long validLength = content.length - in.available();
+        try {
+            while (in.available() > 0) {
+                final byte kind = in.readByte();
+                final String type = in.readUTF();
+                final String property = in.readUTF();
+                final String value = in.readUTF();
+                validLength = content.length - in.available();
+
+                persisted.add(factOf(kind,
+                                     type,
+                                     property,
+                                     value));
+                final StoredMetaProperty stored = metaModel.computeIfAbsent(type,
+                                                                            StoredMetaObject::new).property(property);
+                if (kind == SEARCHABLE) {
+                    stored.setAsSearchable();
+                } else {
+                    final Class<?> propertyType = loadClass(value);
+                    if (propertyType != null) {
+                        stored.addType(propertyType);
+                    }
+                }
+            }
+        } catch (final EOFException | UTFDataFormatException ex) {
+            LOGGER.warn("Dropping incomplete record at the end of meta model store [" + file.getAbsolutePath() + "]");
+            try (final RandomAccessFile truncate = new RandomAccessFile(file,
+                                                                        "rw")) {
+                truncate.setLength(validLength);
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Can't create directory [" + parent.getAbsolutePath() + "]");
+        }
+        final boolean isNew = !file.exists() || file.length() == 0;
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file,
+                                                                                 true)));
+        if (isNew) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.flush();
+        }
+    }
+
+    private static String factOf(final byte kind,
+                                 final String type,
+                                 final String property,
+                                 final String value) {
+        return kind + "\u0000" + type + "\u0000" + property + "\u0000" + value;
+    }
+
+    private static Class<?> loadClass(final String name) {
+        try {
+            return Class.forName(name,
+                                 false,
+                                 PersistentMetaModelStore.class.getClassLoader());
+        } catch (final ClassNotFoundException ex) {
+            final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+            if (contextClassLoader != null) {
+                try {
+                    return Class.forName(name,
+                                         false,
+                                         contextClassLoader);
+                } catch (final ClassNotFoundException ignored) {
+                }
+            }
+            LOGGER.warn("Ignoring unknown meta model property type [" + name + "]");
+            return null;
+        }
+    }
+
+    private static class StoredMetaObject implements MetaObject {
+
+        private final String type;
+        private final ConcurrentMap<String, MetaProperty> properties = new ConcurrentHashMap<>();
+
+        StoredMetaObject(final String type) {
+            this.type = type;
+        }
+
+        StoredMetaProperty property(final String name) {
+            return (StoredMetaProperty) properties.computeIfAbsent(name,
+                                                                   StoredMetaProperty::new);
+        }
+
+        @Override
+        public MetaType getType() {
+            return () -> type;
+        }
+
+        @Override
+        public Collection<MetaProperty> getProperties() {
+            return properties.values();
+        }
+
+        @Override
+        public MetaProperty getProperty(final String name) {
+            return properties.get(name);
+        }
+
+        @Override
+        public void addProperty(final MetaProperty metaProperty) {
+            final StoredMetaProperty stored = property(metaProperty.getName());
+            for (final Class<?> propertyType : metaProperty.getTypes()) {
+                stored.addType(propertyType);
+            }
+            if (metaProperty.isSearchable()) {
+                stored.setAsSearchable();
+            }
+        }
+    }
+
+    private static class StoredMetaProperty implements MetaProperty {
+
+        private final String name;
+        private final Set<Class<?>> types = new CopyOnWriteArraySet<>();
+        private volatile boolean searchable = false;
+
+        StoredMetaProperty(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Set<Class<?>> getTypes() {
+            return types;
+        }
+
+        @Override
+        public boolean isSearchable() {
+            return searchable;
+        }
+
+        @Override
+        public void setAsSearchable() {
+            this.searchable = true;
+        }
+
+        @Override
+        public void addType(final Class<?> type) {
+            types.add(type);
+        }
+    }
+}
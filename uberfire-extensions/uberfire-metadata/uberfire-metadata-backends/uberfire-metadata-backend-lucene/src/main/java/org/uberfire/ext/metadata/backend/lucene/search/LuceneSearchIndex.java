@@ -16,9 +16,13 @@
 
 package org.uberfire.ext.metadata.backend.lucene.search;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.index.Term;
@@ -29,7 +33,10 @@ import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.WildcardQuery;
@@ -38,7 +45,10 @@ import org.uberfire.ext.metadata.model.KObject;
 import org.uberfire.ext.metadata.search.ClusterSegment;
 import org.uberfire.ext.metadata.search.DateRange;
 import org.uberfire.ext.metadata.search.IOSearchService;
+import org.uberfire.ext.metadata.search.SearchCursor;
 import org.uberfire.ext.metadata.search.SearchIndex;
+import org.uberfire.ext.metadata.search.SearchPage;
+import org.uberfire.ext.metadata.search.SearchResults;
 
 import static java.util.Collections.emptyList;
 import static org.apache.lucene.search.BooleanClause.Occur.MUST;
@@ -53,6 +63,15 @@ import static org.uberfire.ext.metadata.engine.MetaIndexEngine.FULL_TEXT_FIELD;
  */
 public class LuceneSearchIndex implements SearchIndex {
 
+    /**
+     * Stored fields needed to build a {@link KObject} without its properties.
+     */
+    private static final Set<String> KEY_FIELDS = new HashSet<String>(Arrays.asList("id",
+                                                                                    "type",
+                                                                                    "cluster.id",
+                                                                                    "segment.id",
+                                                                                    "key"));
+
     private final LuceneIndexManager indexManager;
     private final QueryParser queryParser;
 
@@ -100,6 +119,49 @@ public class LuceneSearchIndex implements SearchIndex {
                       clusterSegments);
     }
 
+    @Override
+    public SearchResults<KObject> searchByAttrs(final Map<String, ?> attrs,
+                                                final IOSearchService.Filter filter,
+                                                final SearchPage page,
+                                                final ClusterSegment... clusterSegments) {
+        checkNotNull("page",
+                     page);
+        if (clusterSegments == null || clusterSegments.length == 0) {
+            return new SearchResults<KObject>(emptyList(),
+                                              0,
+                                              null);
+        }
+        if (attrs == null || attrs.size() == 0) {
+            return new SearchResults<KObject>(emptyList(),
+                                              0,
+                                              null);
+        }
+        return search(buildQuery(attrs,
+                                 clusterSegments),
+                      filter,
+                      page,
+                      clusterSegments);
+    }
+
+    @Override
+    public SearchResults<KObject> fullTextSearch(final String term,
+                                                 final IOSearchService.Filter filter,
+                                                 final SearchPage page,
+                                                 final ClusterSegment... clusterSegments) {
+        checkNotNull("page",
+                     page);
+        if (clusterSegments == null || clusterSegments.length == 0) {
+            return new SearchResults<KObject>(emptyList(),
+                                              0,
+                                              null);
+        }
+        return search(buildQuery(term,
+                                 clusterSegments),
+                      filter,
+                      page,
+                      clusterSegments);
+    }
+
     @Override
     public int searchByAttrsHits(final Map<String, ?> attrs,
                                  final ClusterSegment... clusterSegments) {
@@ -168,6 +230,113 @@ public class LuceneSearchIndex implements SearchIndex {
         return result;
     }
 
+    /**
+     * Collects the hits of the page in batches, continuing each batch after the last hit seen, so
+     * only the hits up to the end of the page are ever collected. The total hit count comes from
+     * the first batch; stored documents are only loaded for hits that may end up in the page, and
+     * without their properties unless the filter has to look at them.
+     * <p>
+     * The cursor of the page is only followed if the index wasn't reopened since it was created, as
+     * its document ids don't hold across readers; otherwise the page is read from its offset.
+     */
+    private SearchResults<KObject> search(final Query query,
+                                          final IOSearchService.Filter filter,
+                                          final SearchPage page,
+                                          final ClusterSegment... clusterSegments) {
+        final boolean filtered = filter != null && !(filter instanceof IOSearchService.NoOpFilter);
+        final Set<String> fieldsToLoad = filtered ? null : KEY_FIELDS;
+        final Sort sort = page.getSortField() == null ? null : new Sort(new SortField(page.getSortField(),
+                                                                                      SortField.Type.STRING,
+                                                                                      page.isReverse()));
+        final List<KObject> result = new ArrayList<KObject>();
+        ScoreDoc after = null;
+        int toSkip = page.getOffset();
+        int totalHits = 0;
+        boolean exhausted = false;
+
+        final IndexSearcher index = indexManager.getIndexSearcher(clusterSegments);
+        final Object readerKey = index.getIndexReader().getCombinedCoreAndDeletesKey();
+        if (page.getCursor() instanceof LuceneSearchCursor && ((LuceneSearchCursor) page.getCursor()).isValidFor(readerKey)) {
+            after = ((LuceneSearchCursor) page.getCursor()).after;
+            toSkip = 0;
+        }
+        try {
+            boolean firstBatch = true;
+            boolean batchConsumed = false;
+            while (result.size() < page.getPageSize() && !exhausted) {
+                // unfiltered hits are skipped without being loaded, so they can be collected at once
+                final int batchSize = page.getPageSize() - result.size() + (filtered ? 0 : toSkip);
+                final TopDocs topDocs = sort == null ?
+                        index.searchAfter(after,
+                                          query,
+                                          batchSize) :
+                        index.searchAfter(after,
+                                          query,
+                                          batchSize,
+                                          sort);
+                if (firstBatch) {
+                    totalHits = topDocs.totalHits;
+                    firstBatch = false;
+                }
+                final ScoreDoc[] hits = topDocs.scoreDocs;
+                int processed = 0;
+                while (processed < hits.length && result.size() < page.getPageSize()) {
+                    final ScoreDoc hit = hits[processed++];
+                    after = hit;
+                    if (!filtered && toSkip > 0) {
+                        toSkip--;
+                        continue;
+                    }
+                    final KObject kObject = toKObject(fieldsToLoad == null ?
+                                                              index.doc(hit.doc) :
+                                                              index.doc(hit.doc,
+                                                                        fieldsToLoad));
+                    if (filtered && !filter.accept(kObject)) {
+                        continue;
+                    }
+                    if (toSkip > 0) {
+                        toSkip--;
+                    } else {
+                        result.add(kObject);
+                    }
+                }
+                batchConsumed = processed == hits.length;
+                exhausted = hits.length < batchSize && batchConsumed;
+            }
+            // a page ending on the last hit has no next page
+            if (!exhausted && batchConsumed) {
+                if (filtered) {
+                    final TopDocs next = sort == null ?
+                            index.searchAfter(after,
+                                              query,
+                                              1) :
+                            index.searchAfter(after,
+                                              query,
+                                              1,
+                                              sort);
+                    exhausted = next.scoreDocs.length == 0;
+                } else {
+                    exhausted = page.getOffset() + result.size() >= totalHits;
+                }
+            }
+        } catch (final Exception ex) {
+            throw new RuntimeException("Error during Query!",
+                                       ex);
+        } finally {
+            indexManager.release(index);
+        }
+
+        final SearchPage nextPage = exhausted ? null : new SearchPage(page.getOffset() + page.getPageSize(),
+                                                                      page.getPageSize(),
+                                                                      page.getSortField(),
+                                                                      page.isReverse(),
+                                                                      after == null ? null : new LuceneSearchCursor(readerKey,
+                                                                                                                    after));
+        return new SearchResults<KObject>(result,
+                                          totalHits,
+                                          nextPage);
+    }
+
     private Query buildQuery(final Map<String, ?> attrs,
                              final ClusterSegment... clusterSegments) {
         final BooleanQuery query = new BooleanQuery();
@@ -275,4 +444,24 @@ public class LuceneSearchIndex implements SearchIndex {
     private String format(final String term) {
         return term.toLowerCase();
     }
+
+    /**
+     * Last hit of a page, along with the reader it was read from; the reader is only weakly
+     * referenced, so cursors held by clients don't keep old index segments open.
+     */
+    private static class LuceneSearchCursor extends SearchCursor {
+
+        private final WeakReference<Object> readerKey;
+        private final ScoreDoc after;
+
+        LuceneSearchCursor(final Object readerKey,
+                           final ScoreDoc after) {
+            this.readerKey = new WeakReference<Object>(readerKey);
+            this.after = after;
+        }
+
+        boolean isValidFor(final Object currentReaderKey) {
+            return readerKey.get() == currentReaderKey;
+        }
+    }
 }
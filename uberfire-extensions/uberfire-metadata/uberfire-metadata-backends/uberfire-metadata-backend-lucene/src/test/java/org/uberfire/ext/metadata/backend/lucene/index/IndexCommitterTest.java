@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.ext.metadata.backend.lucene.index;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+import org.uberfire.ext.metadata.backend.lucene.model.KClusterImpl;
+import org.uberfire.ext.metadata.model.KCluster;
+
+import static org.junit.Assert.*;
+
+public class IndexCommitterTest {
+
+    private final List<KCluster> commits = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void changesWithinIntervalShareOneCommit() throws Exception {
+        final IndexCommitter committer = new IndexCommitter(200,
+                                                            1000,
+                                                            commits::add);
+        final KCluster cluster = new KClusterImpl("cluster");
+        for (int i = 0; i < 10; i++) {
+            committer.changed(cluster);
+        }
+        assertTrue(commits.isEmpty());
+        assertTrue(committer.hasPendingChanges(cluster));
+
+        waitForCommits(1);
+        Thread.sleep(300);
+        assertEquals(1,
+                     commits.size());
+        assertFalse(committer.hasPendingChanges(cluster));
+        committer.shutdown();
+    }
+
+    @Test
+    public void tooManyPendingChangesCommitEarly() throws Exception {
+        final IndexCommitter committer = new IndexCommitter(60000,
+                                                            5,
+                                                            commits::add);
+        final KCluster cluster = new KClusterImpl("cluster");
+        for (int i = 0; i < 5; i++) {
+            committer.changed(cluster);
+        }
+
+        waitForCommits(1);
+        assertEquals(cluster,
+                     commits.get(0));
+        committer.shutdown();
+    }
+
+    @Test
+    public void shutdownCommitsPendingChanges() {
+        final IndexCommitter committer = new IndexCommitter(60000,
+                                                            1000,
+                                                            commits::add);
+        final KCluster one = new KClusterImpl("one");
+        final KCluster other = new KClusterImpl("other");
+        committer.changed(one);
+        committer.changed(other);
+        committer.forget(other);
+
+        committer.shutdown();
+        assertEquals(1,
+                     commits.size());
+        assertEquals(one,
+                     commits.get(0));
+    }
+
+    private void waitForCommits(final int expected) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (commits.size() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected,
+                     commits.size());
+    }
+}
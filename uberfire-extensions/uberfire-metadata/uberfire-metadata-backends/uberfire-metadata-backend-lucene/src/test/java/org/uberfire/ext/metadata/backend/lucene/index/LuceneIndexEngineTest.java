@@ -16,12 +16,18 @@
 
 package org.uberfire.ext.metadata.backend.lucene.index;
 
+import java.util.Collections;
+
 import org.apache.lucene.analysis.Analyzer;
 import org.junit.Test;
 import org.uberfire.commons.lifecycle.PriorityDisposableRegistry;
 import org.uberfire.ext.metadata.backend.lucene.LuceneConfig;
 import org.uberfire.ext.metadata.backend.lucene.fields.FieldFactory;
+import org.uberfire.ext.metadata.backend.lucene.metamodel.NullMetaModelStore;
 import org.uberfire.ext.metadata.engine.MetaModelStore;
+import org.uberfire.ext.metadata.model.KCluster;
+import org.uberfire.ext.metadata.model.KObject;
+import org.uberfire.ext.metadata.model.schema.MetaType;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -37,4 +43,48 @@ public class LuceneIndexEngineTest {
 
         assertTrue(PriorityDisposableRegistry.getDisposables().contains(config));
     }
+
+    @Test
+    public void testBatchIsCommittedOnceItEnds() {
+        final KCluster cluster = mock(KCluster.class);
+        final LuceneIndex index = mock(LuceneIndex.class);
+        when(index.getCluster()).thenReturn(cluster);
+        final LuceneIndexManager indexManager = mock(LuceneIndexManager.class);
+        when(indexManager.get(cluster)).thenReturn(index);
+        when(indexManager.indexOf(any(KObject.class))).thenReturn(index);
+        final LuceneIndexEngine engine = new LuceneIndexEngine(mock(FieldFactory.class),
+                                                               new NullMetaModelStore(),
+                                                               indexManager);
+
+        engine.startBatch(cluster);
+        engine.startBatch(cluster);
+        engine.index(kObject("1"));
+        engine.index(kObject("2"));
+        engine.commit(cluster);
+        engine.index(kObject("3"));
+        verify(index,
+               never()).commit();
+        assertFalse(engine.freshIndex(cluster));
+
+        engine.commit(cluster);
+        verify(index,
+               times(1)).commit();
+
+        engine.index(kObject("4"));
+        verify(index,
+               times(2)).commit();
+    }
+
+    private static KObject kObject(final String id) {
+        final KObject object = mock(KObject.class);
+        final MetaType type = mock(MetaType.class);
+        when(type.getName()).thenReturn("type");
+        when(object.getId()).thenReturn(id);
+        when(object.getType()).thenReturn(type);
+        when(object.getKey()).thenReturn(id);
+        when(object.getClusterId()).thenReturn("cluster");
+        when(object.getSegmentId()).thenReturn("segment");
+        when(object.getProperties()).thenReturn(Collections.emptyList());
+        return object;
+    }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.ext.metadata.backend.lucene.index;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.uberfire.ext.metadata.backend.lucene.index.directory.DirectoryFactory;
+import org.uberfire.ext.metadata.backend.lucene.index.directory.DirectoryType;
+import org.uberfire.ext.metadata.backend.lucene.model.KClusterImpl;
+
+import static org.junit.Assert.*;
+
+public class LuceneIndexManagerTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private LuceneIndex one;
+    private LuceneIndex other;
+    private LuceneIndexManager indexManager;
+
+    @Before
+    public void setup() {
+        System.setProperty("org.uberfire.metadata.index.dir",
+                           tempFolder.getRoot().getAbsolutePath());
+        final DirectoryFactory factory = new DirectoryFactory(DirectoryType.INMEMORY,
+                                                              new StandardAnalyzer());
+        one = factory.newCluster(new KClusterImpl("one"));
+        other = factory.newCluster(new KClusterImpl("other"));
+        indexManager = new LuceneIndexManager(factory,
+                                              0);
+    }
+
+    @After
+    public void cleanup() {
+        indexManager.dispose();
+        System.clearProperty("org.uberfire.metadata.index.dir");
+    }
+
+    @Test
+    public void searcherIsReusedUntilAClusterChanges() {
+        one.indexDocument("a",
+                          newDocument("a"));
+        one.refresh();
+
+        final IndexSearcher first = indexManager.getIndexSearcher();
+        final IndexSearcher second = indexManager.getIndexSearcher();
+        assertSame(first,
+                   second);
+        assertEquals(1,
+                     first.getIndexReader().numDocs());
+
+        other.indexDocument("b",
+                            newDocument("b"));
+        other.refresh();
+        final IndexSearcher third = indexManager.getIndexSearcher();
+        assertNotSame(first,
+                      third);
+        assertEquals(2,
+                     third.getIndexReader().numDocs());
+
+        // stale searchers stay usable until released
+        assertEquals(1,
+                     first.getIndexReader().numDocs());
+        indexManager.release(first);
+        indexManager.release(second);
+        assertEquals(0,
+                     first.getIndexReader().getRefCount());
+
+        indexManager.release(third);
+        assertTrue(third.getIndexReader().getRefCount() > 0);
+    }
+
+    @Test
+    public void reindexedDocumentReplacesPreviousVersion() {
+        one.indexDocument("a",
+                          newDocument("a"));
+        one.indexDocument("a",
+                          newDocument("a"));
+        one.rename("a",
+                   newDocument("b"));
+        one.refresh();
+
+        final IndexSearcher searcher = one.nrtSearcher();
+        try {
+            assertEquals(1,
+                         searcher.getIndexReader().numDocs());
+            assertEquals(-1,
+                         ((BaseLuceneIndex) one).lookupDocIdByPK(searcher,
+                                                                  "a")[0]);
+        } catch (final Exception ex) {
+            fail(ex.getMessage());
+        } finally {
+            one.nrtRelease(searcher);
+        }
+
+        assertTrue(one.deleteIfExists("b"));
+        one.refresh();
+        final IndexReader reader = one.nrtReader();
+        assertEquals(0,
+                     reader.numDocs());
+        one.nrtRelease(reader);
+    }
+
+    @Test
+    public void staleSearchersAreEvicted() {
+        one.indexDocument("a",
+                          newDocument("a"));
+        one.refresh();
+        final IndexSearcher searcher = indexManager.getIndexSearcher();
+        indexManager.release(searcher);
+
+        indexManager.evictStaleSearchers();
+        assertTrue(searcher.getIndexReader().getRefCount() > 0);
+
+        one.indexDocument("b",
+                          newDocument("b"));
+        one.refresh();
+        indexManager.evictStaleSearchers();
+        assertEquals(0,
+                     searcher.getIndexReader().getRefCount());
+    }
+
+    private Document newDocument(final String id) {
+        final Document doc = new Document();
+        doc.add(new StringField("id",
+                                id,
+                                Field.Store.YES));
+        return doc;
+    }
+}
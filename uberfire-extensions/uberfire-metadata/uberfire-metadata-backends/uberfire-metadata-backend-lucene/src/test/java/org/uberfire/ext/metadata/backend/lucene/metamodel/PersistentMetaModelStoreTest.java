@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.ext.metadata.backend.lucene.metamodel;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.uberfire.ext.metadata.model.schema.MetaObject;
+import org.uberfire.ext.metadata.model.schema.MetaProperty;
+import org.uberfire.ext.metadata.model.schema.MetaType;
+
+import static org.junit.Assert.*;
+
+public class PersistentMetaModelStoreTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void metaModelIsReloaded() throws Exception {
+        final File file = new File(tempFolder.getRoot(),
+                                   "metamodel.dat");
+        final PersistentMetaModelStore store = new PersistentMetaModelStore(file);
+        store.add(newMetaObject("java.nio.file.Path",
+                                "dcore.author",
+                                String.class,
+                                true));
+        final MetaObject stored = store.getMetaObject("java.nio.file.Path");
+        stored.getProperty("dcore.author").addType(Date.class);
+        store.update(stored);
+        store.update(newMetaObject("java.nio.file.Path",
+                                   "size",
+                                   Long.class,
+                                   false));
+        final long length = file.length();
+
+        // nothing new, nothing appended
+        store.update(stored);
+        assertEquals(length,
+                     file.length());
+        store.dispose();
+
+        final PersistentMetaModelStore reloaded = new PersistentMetaModelStore(file);
+        final MetaObject metaObject = reloaded.getMetaObject("java.nio.file.Path");
+        assertEquals("java.nio.file.Path",
+                     metaObject.getType().getName());
+        assertEquals(2,
+                     metaObject.getProperties().size());
+        assertTrue(metaObject.getProperty("dcore.author").isSearchable());
+        assertEquals(2,
+                     metaObject.getProperty("dcore.author").getTypes().size());
+        assertTrue(metaObject.getProperty("dcore.author").getTypes().contains(Date.class));
+        assertFalse(metaObject.getProperty("size").isSearchable());
+        assertNull(reloaded.getMetaObject("other"));
+        reloaded.dispose();
+    }
+
+    @Test
+    public void incompleteRecordIsDropped() throws Exception {
+        final File file = new File(tempFolder.getRoot(),
+                                   "metamodel.dat");
+        final PersistentMetaModelStore store = new PersistentMetaModelStore(file);
+        store.add(newMetaObject("type",
+                                "first",
+                                String.class,
+                                false));
+        final long length = file.length();
+        store.add(newMetaObject("type",
+                                "second",
+                                String.class,
+                                false));
+        store.dispose();
+
+        try (final RandomAccessFile raf = new RandomAccessFile(file,
+                                                               "rw")) {
+            raf.setLength(file.length() - 3);
+        }
+
+        final PersistentMetaModelStore reloaded = new PersistentMetaModelStore(file);
+        assertEquals(length,
+                     file.length());
+        assertNotNull(reloaded.getMetaObject("type").getProperty("first"));
+        assertNull(reloaded.getMetaObject("type").getProperty("second"));
+
+        reloaded.add(newMetaObject("type",
+                                   "second",
+                                   String.class,
+                                   false));
+        reloaded.dispose();
+        assertNotNull(new PersistentMetaModelStore(file).getMetaObject("type").getProperty("second"));
+    }
+
+    @Test
+    public void updateAfterDisposeIsOnlyKeptInMemory() throws Exception {
+        final File file = new File(tempFolder.getRoot(),
+                                   "metamodel.dat");
+        final PersistentMetaModelStore store = new PersistentMetaModelStore(file);
+        store.dispose();
+        final long length = file.length();
+
+        store.update(newMetaObject("type",
+                                   "late",
+                                   String.class,
+                                   false));
+        assertNotNull(store.getMetaObject("type").getProperty("late"));
+        assertEquals(length,
+                     file.length());
+    }
+
+    private MetaObject newMetaObject(final String type,
+                                     final String name,
+                                     final Class<?> propertyType,
+                                     final boolean searchable) {
+        final MetaProperty property = new MetaProperty() {
+            private final Set<Class<?>> types = new CopyOnWriteArraySet<>(Collections.singleton(propertyType));
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Set<Class<?>> getTypes() {
+                return types;
+            }
+
+            @Override
+            public boolean isSearchable() {
+                return searchable;
+            }
+
+            @Override
+            public void setAsSearchable() {
+            }
+
+            @Override
+            public void addType(final Class<?> aClass) {
+                types.add(aClass);
+            }
+        };
+        return new MetaObject() {
+            @Override
+            public MetaType getType() {
+                return () -> type;
+            }
+
+            @Override
+            public Collection<MetaProperty> getProperties() {
+                return Collections.singletonList(property);
+            }
+
+            @Override
+            public MetaProperty getProperty(final String propertyName) {
+                return name.equals(propertyName) ? property : null;
+            }
+
+            @Override
+            public void addProperty(final MetaProperty metaProperty) {
+            }
+        };
+    }
+}
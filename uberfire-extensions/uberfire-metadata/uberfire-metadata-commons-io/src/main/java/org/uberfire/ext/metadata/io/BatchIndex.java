@@ -16,8 +16,18 @@
 
 package org.uberfire.ext.metadata.io;
 
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,9 +37,11 @@ import org.uberfire.ext.metadata.engine.MetaIndexEngine;
 import org.uberfire.ext.metadata.engine.Observer;
 import org.uberfire.ext.metadata.model.KCluster;
 import org.uberfire.ext.metadata.model.KObject;
+import org.uberfire.ext.metadata.model.KObjectKey;
 import org.uberfire.io.IOService;
 import org.uberfire.java.nio.IOException;
 import org.uberfire.java.nio.base.FileSystemId;
+import org.uberfire.java.nio.base.dotfiles.DotFileUtils;
 import org.uberfire.java.nio.file.FileSystem;
 import org.uberfire.java.nio.file.FileVisitResult;
 import org.uberfire.java.nio.file.Path;
@@ -42,10 +54,32 @@ import static org.kie.soup.commons.validation.PortablePreconditions.checkNotNull
 import static org.uberfire.java.nio.file.Files.walkFileTree;
 
 /**
- *
+ * Indexes every file of a file system, or of a tree within it.
+ * <p>
+ * The calling thread walks the tree and hands files over to a pool of workers through a bounded
+ * queue (running them itself when the queue is full). On file systems exposing commit ids every
+ * few files, once all handed over files are indexed, the cluster is committed along with a
+ * checkpoint of the walk, so an interrupted batch index resumes after the last checkpoint
+ * instead of starting over, as long as the tree didn't change meanwhile.
+ * <p>
+ * The cluster stays in batch mode for the whole walk, so the index is only committed at
+ * checkpoints and once the walk is done, not after every file.
  */
 public final class BatchIndex {
 
+    public static final String DEFAULT_THREADS = String.valueOf(Math.min(4,
+                                                                         Runtime.getRuntime().availableProcessors()));
+    public static final String DEFAULT_QUEUE_SIZE = "1000";
+    public static final String DEFAULT_CHECKPOINT_INTERVAL = "1000";
+
+    /**
+     * Checkpoint entry prefixes, followed by the root URI: commit being indexed, last checkpointed
+     * file of its walk, and last commit completely indexed.
+     */
+    static final String INDEXING_COMMIT = "batch.indexing.commit:";
+    static final String INDEXING_PATH = "batch.indexing.path:";
+    static final String INDEXED_COMMIT = "batch.indexed.commit:";
+
     private static final Logger LOG = LoggerFactory.getLogger(BatchIndex.class);
 
     private final MetaIndexEngine indexEngine;
@@ -54,12 +88,42 @@ public final class BatchIndex {
     private final AtomicBoolean indexDisposed = new AtomicBoolean(false);
     private final Observer observer;
     private final ExecutorService executorService;
+    private final int threads;
+    private final int queueSize;
+    private final int checkpointInterval;
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
 
     public BatchIndex(final MetaIndexEngine indexEngine,
                       final IOService ioService,
                       final Observer observer,
                       final ExecutorService executorService,
                       final Class<? extends FileAttributeView>... views) {
+        this(indexEngine,
+             ioService,
+             observer,
+             executorService,
+             Integer.parseInt(System.getProperty("org.uberfire.metadata.index.batch.threads",
+                                                 DEFAULT_THREADS)),
+             Integer.parseInt(System.getProperty("org.uberfire.metadata.index.batch.queue.size",
+                                                 DEFAULT_QUEUE_SIZE)),
+             Integer.parseInt(System.getProperty("org.uberfire.metadata.index.batch.checkpoint",
+                                                 DEFAULT_CHECKPOINT_INTERVAL)),
+             views);
+    }
+
+    /**
+     * @param threads number of indexing workers; 1 or less indexes on the walking thread.
+     * @param queueSize files waiting for a worker before the walking thread indexes them itself.
+     * @param checkpointInterval files walked between checkpoints; 0 or less disables them.
+     */
+    public BatchIndex(final MetaIndexEngine indexEngine,
+                      final IOService ioService,
+                      final Observer observer,
+                      final ExecutorService executorService,
+                      final int threads,
+                      final int queueSize,
+                      final int checkpointInterval,
+                      final Class<? extends FileAttributeView>... views) {
         this.indexEngine = checkNotNull("indexEngine",
                                         indexEngine);
         this.ioService = checkNotNull("ioService",
@@ -67,16 +131,26 @@ public final class BatchIndex {
         this.observer = checkNotNull("observer",
                                      observer);
         this.views = views;
+        this.threads = threads;
+        this.queueSize = Math.max(1,
+                                  queueSize);
+        this.checkpointInterval = checkpointInterval;
 
         this.executorService = executorService;
     }
 
+    /**
+     * Indexes every root of the file system, within the batch the caller started on its cluster
+     * (see {@link MetaIndexEngine#startBatch(KCluster)}), which ends once they're all indexed.
+     */
     public void runAsync(final FileSystem fs) {
         if (fs != null && fs.getRootDirectories().iterator().hasNext()) {
+            final String fsId = ((FileSystemId) fs).id();
+            running.add(fsId);
             executorService.execute(new DescriptiveRunnable() {
                 @Override
                 public String getDescription() {
-                    return "FS BatchIndex [" + ((FileSystemId) fs).id() + "]";
+                    return "FS BatchIndex [" + fsId + "]";
                 }
 
                 @Override
@@ -87,7 +161,8 @@ public final class BatchIndex {
                         public void run() {
                             indexDisposed.set(true);
 
-                            if (!indexFinished.get()) {
+                            // keep what was indexed up to the last checkpoint, the next start resumes from it
+                            if (!indexFinished.get() && !hasIncompleteRoots(fs)) {
                                 indexEngine.delete(KObjectUtil.toKCluster(fs));
                             }
                         }
@@ -95,7 +170,7 @@ public final class BatchIndex {
 
                     try {
                         for (final Path root : fs.getRootDirectories()) {
-                            BatchIndex.this.run(root);
+                            indexRoot(root);
                         }
                         indexFinished.set(true);
                     } catch (Exception ex) {
@@ -103,12 +178,42 @@ public final class BatchIndex {
                             logError("FileSystem Index fails. [@" + fs.toString() + "]",
                                      ex);
                         }
+                    } finally {
+                        endBatch(KObjectUtil.toKCluster(fs));
+                        running.remove(fsId);
                     }
                 }
             });
         }
     }
 
+    /**
+     * Brings the index of every root of the file system up to date, see {@link #catchUp(Path)}.
+     * Does nothing while a batch index of the file system is running, as it indexes the latest
+     * commit anyway.
+     */
+    public void catchUpAsync(final FileSystem fs) {
+        if (fs == null || running.contains(((FileSystemId) fs).id())) {
+            return;
+        }
+        executorService.execute(new DescriptiveRunnable() {
+            @Override
+            public String getDescription() {
+                return "FS BatchIndex catch up [" + ((FileSystemId) fs).id() + "]";
+            }
+
+            @Override
+            public void run() {
+                for (final Path root : fs.getRootDirectories()) {
+                    if (indexDisposed.get()) {
+                        return;
+                    }
+                    catchUp(root);
+                }
+            }
+        });
+    }
+
     public void runAsync(final Path root) {
         this.executorService.execute(new DescriptiveRunnable() {
             @Override
@@ -123,6 +228,23 @@ public final class BatchIndex {
         });
     }
 
+    /**
+     * True if a batch index of the file system was interrupted after a checkpoint and isn't
+     * running anymore, so it should be resumed.
+     */
+    public boolean isIncomplete(final FileSystem fs) {
+        return fs != null && !running.contains(((FileSystemId) fs).id()) && hasIncompleteRoots(fs);
+    }
+
+    private boolean hasIncompleteRoots(final FileSystem fs) {
+        for (final String key : indexEngine.getCheckpoint(KObjectUtil.toKCluster(fs)).keySet()) {
+            if (key.startsWith(INDEXING_COMMIT)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void run(final Path root) {
         run(root,
             null);
@@ -130,88 +252,79 @@ public final class BatchIndex {
 
     public void run(final Path root,
                     final Runnable callback) {
+        if (root == null) {
+            return;
+        }
+        final KCluster cluster = KObjectUtil.toKCluster(root.getFileSystem());
+        final boolean completed;
+        indexEngine.startBatch(cluster);
         try {
-            if (root == null) {
-                return;
-            }
-
-            logInformation("Starting indexing of " + root.toUri() + " ...");
+            completed = indexRoot(root);
+        } finally {
+            endBatch(cluster);
+        }
+        if (completed && callback != null) {
+            callback.run();
+        }
+    }
 
+    /**
+     * Indexes the tree, in the batch already started on its cluster.
+     * @return true if every file of the tree was indexed.
+     */
+    private boolean indexRoot(final Path root) {
+        try {
             final KCluster cluster = KObjectUtil.toKCluster(root.getFileSystem());
+            final String rootKey = root.toUri().toString();
+            final String commitId = checkpointInterval > 0 ? readCommitId(root) : null;
+            final Map<String, String> checkpoint = indexEngine.getCheckpoint(cluster);
+            String resumeAfter = null;
+            if (commitId != null && commitId.equals(checkpoint.get(INDEXING_COMMIT + rootKey))) {
+                resumeAfter = checkpoint.get(INDEXING_PATH + rootKey);
+            }
 
-            walkFileTree(checkNotNull("root",
-                                      root),
-                         new SimpleFileVisitor<Path>() {
-                             @Override
-                             public FileVisitResult visitFile(final Path file,
-                                                              final BasicFileAttributes attrs) throws IOException {
-                                 if (indexDisposed.get()) {
-                                     return FileVisitResult.TERMINATE;
-                                 }
-                                 try {
-                                     checkNotNull("file",
-                                                  file);
-                                     checkNotNull("attrs",
-                                                  attrs);
-
-                                     if (!file.getFileName().toString().startsWith(".")) {
-
-                                         LOG.debug("Indexing " + file.toUri());
-
-                                         //Default indexing
-                                         for (final Class<? extends FileAttributeView> view : views) {
-                                             ioService.getFileAttributeView(file,
-                                                                            view);
-                                         }
-                                         final FileAttribute<?>[] allAttrs = ioService.convert(ioService.readAttributes(file));
-                                         if (!indexDisposed.get()) {
-                                             indexEngine.index(KObjectUtil.toKObject(file,
-                                                                                     allAttrs));
-                                         } else {
-                                             return FileVisitResult.TERMINATE;
-                                         }
-
-                                         //Additional indexing
-                                         for (Indexer indexer : IndexersFactory.getIndexers()) {
-                                             if (file.getFileSystem().isOpen()) {
-                                                 if (indexer.supportsPath(file)) {
-                                                     final KObject kObject = indexer.toKObject(file);
-                                                     if (kObject != null) {
-                                                         if (!indexDisposed.get()) {
-                                                             indexEngine.index(kObject);
-                                                         } else {
-                                                             return FileVisitResult.TERMINATE;
-                                                         }
-                                                     }
-                                                 }
-                                             }
-                                         }
-                                     }
-                                 } catch (final Exception ex) {
-                                     if (indexDisposed.get()) {
-                                         logWarning("Batch index couldn't finish. [@" + root.toUri().toString() + "]");
-                                         return FileVisitResult.TERMINATE;
-                                     } else {
-                                         logError("Index fails. [@" + file.toString() + "]",
-                                                  ex);
-                                     }
-                                 }
-                                 if (indexDisposed.get()) {
-                                     return FileVisitResult.TERMINATE;
-                                 }
-                                 return FileVisitResult.CONTINUE;
-                             }
-                         });
+            if (resumeAfter == null) {
+                logInformation("Starting indexing of " + root.toUri() + " ...");
+            } else {
+                logInformation("Resuming indexing of " + root.toUri() + " after " + resumeAfter + " ...");
+            }
 
-            if (!indexDisposed.get()) {
+            final Workers workers = new Workers(root);
+            final boolean indexed;
+            try {
+                if (!walk(root,
+                          cluster,
+                          commitId,
+                          resumeAfter,
+                          workers)) {
+                    logWarning("Checkpoint of " + root.toUri() + " not found, indexing it from the start.");
+                    walk(root,
+                         cluster,
+                         commitId,
+                         null,
+                         workers);
+                }
+                indexed = workers.awaitCompletion();
+            } finally {
+                workers.shutdown();
+            }
+
+            if (indexed && !indexDisposed.get()) {
                 logInformation("Completed indexing of " + root.toUri());
-                indexEngine.commit(cluster);
-                if (callback != null) {
-                    callback.run();
+                if (commitId != null) {
+                    final Map<String, String> entries = new HashMap<String, String>();
+                    entries.put(INDEXED_COMMIT + rootKey,
+                                commitId);
+                    entries.put(INDEXING_COMMIT + rootKey,
+                                null);
+                    entries.put(INDEXING_PATH + rootKey,
+                                null);
+                    indexEngine.checkpoint(cluster,
+                                           entries);
                 }
-            } else {
-                logWarning("Batch index couldn't finish. [@" + root.toUri().toString() + "]");
+                return true;
             }
+            logWarning("Batch index couldn't finish. [@" + root.toUri().toString() + "]");
         } catch (final IllegalStateException ex) {
             if (indexDisposed.get()) {
                 logWarning("Batch index couldn't finish. [@" + root.toUri().toString() + "]");
@@ -227,6 +340,253 @@ public final class BatchIndex {
                          ex);
             }
         }
+        return false;
+    }
+
+    /**
+     * Ends a batch on the cluster, committing it if it's the outermost one.
+     */
+    private void endBatch(final KCluster cluster) {
+        try {
+            indexEngine.commit(cluster);
+        } catch (final Exception ex) {
+            if (!indexDisposed.get()) {
+                logError("Index commit fails. [@" + cluster.getClusterId() + "]",
+                         ex);
+            }
+        }
+    }
+
+    /**
+     * Re-indexes only the files changed since the last commit indexed for the root, as reported by
+     * the "changes" attribute of its file system. Falls back to a full index of the root if no
+     * commit was recorded for it or the recorded one is unknown, e.g. after a history rewrite.
+     * File systems without commit ids are left untouched.
+     */
+    public void catchUp(final Path root) {
+        if (root == null) {
+            return;
+        }
+        try {
+            final KCluster cluster = KObjectUtil.toKCluster(root.getFileSystem());
+            final String rootKey = root.toUri().toString();
+            final String indexedCommit = indexEngine.getCheckpoint(cluster).get(INDEXED_COMMIT + rootKey);
+            if (indexedCommit == null) {
+                if (readCommitId(root) != null) {
+                    logInformation("No indexed commit recorded for " + root.toUri() + ", indexing it from the start.");
+                    run(root);
+                }
+                return;
+            }
+
+            final Map<String, Object> changes = ioService.readAttributes(root,
+                                                                         "changes:" + indexedCommit);
+            final Object commitId = changes.get("id");
+            if (commitId == null || commitId.equals(indexedCommit)) {
+                return;
+            }
+            if (!changes.containsKey("modified")) {
+                logWarning("Indexed commit " + indexedCommit + " of " + root.toUri() + " not found, indexing it from the start.");
+                run(root);
+                return;
+            }
+
+            final List<String> modified = (List<String>) changes.get("modified");
+            final List<String> deleted = (List<String>) changes.get("deleted");
+            logInformation("Catching up indexing of " + root.toUri() + " with " + (modified.size() + deleted.size()) + " changes ...");
+
+            for (final String deletedPath : deleted) {
+                if (indexDisposed.get()) {
+                    return;
+                }
+                final Path file = root.resolve(deletedPath.substring(1));
+                if (!file.getFileName().toString().startsWith(".")) {
+                    delete(file);
+                }
+            }
+
+            // a changed dot file holds attributes of its "real path", which is the one to index
+            final Set<Path> toIndex = new LinkedHashSet<Path>();
+            for (final String modifiedPath : modified) {
+                final Path file = root.resolve(modifiedPath.substring(1));
+                if (!file.getFileName().toString().startsWith(".")) {
+                    toIndex.add(file);
+                } else if (!IOServiceIndexedUtil.isBlackListed(file)) {
+                    toIndex.add(DotFileUtils.undot(file));
+                }
+            }
+
+            final Workers workers = new Workers(root);
+            try {
+                for (final Path file : toIndex) {
+                    if (indexDisposed.get()) {
+                        return;
+                    }
+                    if (ioService.exists(file)) {
+                        workers.submit(file);
+                    }
+                }
+                if (!workers.awaitCompletion()) {
+                    logWarning("Index catch up couldn't finish. [@" + root.toUri().toString() + "]");
+                    return;
+                }
+            } finally {
+                workers.shutdown();
+            }
+
+            if (!indexDisposed.get()) {
+                final Map<String, String> entries = new HashMap<String, String>();
+                entries.put(INDEXED_COMMIT + rootKey,
+                            commitId.toString());
+                indexEngine.checkpoint(cluster,
+                                       entries);
+                logInformation("Completed catching up indexing of " + root.toUri());
+            }
+        } catch (final Exception ex) {
+            if (indexDisposed.get()) {
+                logWarning("Index catch up couldn't finish. [@" + root.toUri().toString() + "]");
+            } else {
+                logError("Index catch up fails. [@" + root.toUri().toString() + "]",
+                         ex);
+            }
+        }
+    }
+
+    private void delete(final Path file) {
+        //Default indexing
+        indexEngine.delete(KObjectUtil.toKObjectKey(file));
+
+        //Additional indexing
+        for (Indexer indexer : IndexersFactory.getIndexers()) {
+            if (indexer.supportsPath(file)) {
+                final KObjectKey kObject = indexer.toKObjectKey(file);
+                if (kObject != null) {
+                    indexEngine.delete(kObject);
+                }
+            }
+        }
+    }
+
+    /**
+     * Walks the tree handing files over to the workers, skipping them up to the resume point if
+     * any. Returns false if the resume point wasn't found.
+     */
+    private boolean walk(final Path root,
+                         final KCluster cluster,
+                         final String commitId,
+                         final String resumeAfter,
+                         final Workers workers) {
+        final String rootKey = root.toUri().toString();
+        final AtomicBoolean skipping = new AtomicBoolean(resumeAfter != null);
+        final AtomicInteger walked = new AtomicInteger();
+
+        walkFileTree(checkNotNull("root",
+                                  root),
+                     new SimpleFileVisitor<Path>() {
+                         @Override
+                         public FileVisitResult visitFile(final Path file,
+                                                          final BasicFileAttributes attrs) throws IOException {
+                             if (indexDisposed.get()) {
+                                 return FileVisitResult.TERMINATE;
+                             }
+                             checkNotNull("file",
+                                          file);
+                             checkNotNull("attrs",
+                                          attrs);
+
+                             final String fileKey = file.toUri().toString();
+                             if (skipping.get()) {
+                                 if (fileKey.equals(resumeAfter)) {
+                                     skipping.set(false);
+                                 }
+                                 return FileVisitResult.CONTINUE;
+                             }
+
+                             if (!file.getFileName().toString().startsWith(".")) {
+                                 workers.submit(file);
+                             }
+
+                             if (commitId != null && walked.incrementAndGet() % checkpointInterval == 0) {
+                                 // never checkpoint files still being indexed
+                                 if (!workers.awaitCompletion() || indexDisposed.get()) {
+                                     return FileVisitResult.TERMINATE;
+                                 }
+                                 final Map<String, String> entries = new HashMap<String, String>();
+                                 entries.put(INDEXING_COMMIT + rootKey,
+                                             commitId);
+                                 entries.put(INDEXING_PATH + rootKey,
+                                             fileKey);
+                                 indexEngine.checkpoint(cluster,
+                                                        entries);
+                             }
+
+                             if (indexDisposed.get()) {
+                                 return FileVisitResult.TERMINATE;
+                             }
+                             return FileVisitResult.CONTINUE;
+                         }
+                     });
+
+        return !skipping.get();
+    }
+
+    private void indexFile(final Path root,
+                           final Path file) {
+        if (indexDisposed.get()) {
+            return;
+        }
+        try {
+            LOG.debug("Indexing " + file.toUri());
+
+            //Default indexing
+            for (final Class<? extends FileAttributeView> view : views) {
+                ioService.getFileAttributeView(file,
+                                               view);
+            }
+            final FileAttribute<?>[] allAttrs = ioService.convert(ioService.readAttributes(file));
+            if (indexDisposed.get()) {
+                return;
+            }
+            indexEngine.index(KObjectUtil.toKObject(file,
+                                                    allAttrs));
+
+            //Additional indexing
+            for (Indexer indexer : IndexersFactory.getIndexers()) {
+                if (file.getFileSystem().isOpen()) {
+                    if (indexer.supportsPath(file)) {
+                        final KObject kObject = indexer.toKObject(file);
+                        if (kObject != null) {
+                            if (indexDisposed.get()) {
+                                return;
+                            }
+                            indexEngine.index(kObject);
+                        }
+                    }
+                }
+            }
+        } catch (final Exception ex) {
+            if (indexDisposed.get()) {
+                logWarning("Batch index couldn't finish. [@" + root.toUri().toString() + "]");
+            } else {
+                logError("Index fails. [@" + file.toString() + "]",
+                         ex);
+            }
+        }
+    }
+
+    /**
+     * Commit id of the tree, if its file system has any.
+     */
+    private String readCommitId(final Path root) {
+        try {
+            final Object id = ioService.readAttributes(root,
+                                                       "commit:id").get("id");
+            return id == null ? null : id.toString();
+        } catch (final Exception ex) {
+            LOG.debug("No commit id for " + root.toUri() + ", its batch index can't be resumed.",
+                      ex);
+            return null;
+        }
     }
 
     private void logInformation(final String message) {
@@ -249,4 +609,82 @@ public final class BatchIndex {
     public void dispose() {
         indexEngine.dispose();
     }
+
+    /**
+     * Indexing workers of a single walk.
+     */
+    private class Workers {
+
+        private final Path root;
+        private final ThreadPoolExecutor executor;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private boolean interrupted = false;
+
+        Workers(final Path root) {
+            this.root = root;
+            if (threads > 1) {
+                final String name = "BatchIndex worker [" + root.toUri() + "]";
+                this.executor = new ThreadPoolExecutor(threads,
+                                                       threads,
+                                                       0L,
+                                                       TimeUnit.MILLISECONDS,
+                                                       new ArrayBlockingQueue<Runnable>(queueSize),
+                                                       runnable -> {
+                                                           final Thread thread = new Thread(runnable,
+                                                                                            name);
+                                                           thread.setDaemon(true);
+                                                           return thread;
+                                                       },
+                                                       // a full queue slows the walk down to the workers pace
+                                                       new ThreadPoolExecutor.CallerRunsPolicy());
+            } else {
+                this.executor = null;
+            }
+        }
+
+        void submit(final Path file) {
+            if (executor == null) {
+                indexFile(root,
+                          file);
+                return;
+            }
+            inFlight.incrementAndGet();
+            executor.execute(() -> {
+                try {
+                    indexFile(root,
+                              file);
+                } finally {
+                    if (inFlight.decrementAndGet() == 0) {
+                        synchronized (inFlight) {
+                            inFlight.notifyAll();
+                        }
+                    }
+                }
+            });
+        }
+
+        /**
+         * @return false if the wait was interrupted, now or before, so some handed over files
+         * may not be indexed.
+         */
+        boolean awaitCompletion() {
+            synchronized (inFlight) {
+                while (!interrupted && inFlight.get() > 0) {
+                    try {
+                        inFlight.wait();
+                    } catch (final InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        interrupted = true;
+                    }
+                }
+                return !interrupted;
+            }
+        }
+
+        void shutdown() {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+    }
 }
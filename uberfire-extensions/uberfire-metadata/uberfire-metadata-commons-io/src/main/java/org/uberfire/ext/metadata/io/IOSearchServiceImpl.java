@@ -26,6 +26,8 @@ import org.uberfire.ext.metadata.model.KObject;
 import org.uberfire.ext.metadata.search.ClusterSegment;
 import org.uberfire.ext.metadata.search.IOSearchService;
 import org.uberfire.ext.metadata.search.SearchIndex;
+import org.uberfire.ext.metadata.search.SearchPage;
+import org.uberfire.ext.metadata.search.SearchResults;
 import org.uberfire.io.IOService;
 import org.uberfire.java.nio.base.FileSystemId;
 import org.uberfire.java.nio.base.SegmentedPath;
@@ -82,6 +84,35 @@ public class IOSearchServiceImpl implements IOSearchService {
         }};
     }
 
+    @Override
+    public SearchResults<Path> searchByAttrs(final Map<String, ?> attrs,
+                                             final Filter filter,
+                                             final SearchPage page,
+                                             final Path... roots) {
+        return toPaths(searchIndex.searchByAttrs(attrs,
+                                                 filter,
+                                                 page,
+                                                 buildClusterSegments(roots)));
+    }
+
+    @Override
+    public SearchResults<Path> fullTextSearch(final String _term,
+                                              final Filter filter,
+                                              final SearchPage page,
+                                              final Path... roots) {
+        final String term = checkNotNull("term",
+                                         _term).trim();
+        if (term.isEmpty()) {
+            return new SearchResults<Path>(Collections.<Path>emptyList(),
+                                           0,
+                                           null);
+        }
+        return toPaths(searchIndex.fullTextSearch(term,
+                                                  filter,
+                                                  page,
+                                                  buildClusterSegments(roots)));
+    }
+
     @Override
     public int searchByAttrsHits(final Map<String, ?> attrs,
                                  final Path... roots) {
@@ -96,6 +127,16 @@ public class IOSearchServiceImpl implements IOSearchService {
                                               buildClusterSegments(roots));
     }
 
+    private SearchResults<Path> toPaths(final SearchResults<KObject> kObjects) {
+        final List<Path> paths = new ArrayList<Path>(kObjects.getResults().size());
+        for (final KObject kObject : kObjects.getResults()) {
+            paths.add(ioService.get(URI.create(kObject.getKey())));
+        }
+        return new SearchResults<Path>(paths,
+                                       kObjects.getTotalHits(),
+                                       kObjects.getNextPage());
+    }
+
     private ClusterSegment[] buildClusterSegments(final Path[] roots) {
         if (roots == null || roots.length == 0) {
             return new ClusterSegment[0];
@@ -22,6 +22,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 
 import org.slf4j.Logger;
@@ -35,8 +36,10 @@ import org.uberfire.ext.metadata.model.KObject;
 import org.uberfire.ext.metadata.model.KObjectKey;
 import org.uberfire.io.IOWatchService;
 import org.uberfire.io.impl.IOServiceDotFileImpl;
+import org.uberfire.io.impl.watch.WatchKeyDispatcher;
 import org.uberfire.java.nio.IOException;
 import org.uberfire.java.nio.base.FSPath;
+import org.uberfire.java.nio.base.ListenableWatchService;
 import org.uberfire.java.nio.base.WatchContext;
 import org.uberfire.java.nio.base.dotfiles.DotFileUtils;
 import org.uberfire.java.nio.file.DeleteOption;
@@ -68,9 +71,11 @@ public class IOServiceIndexedImpl extends IOServiceDotFileImpl {
     private final Class<? extends FileAttributeView>[] views;
     private final List<FileSystem> watchedList = new ArrayList<FileSystem>();
     private final List<WatchService> watchServices = new ArrayList<WatchService>();
+    private final Set<FileSystem> caughtUpList = ConcurrentHashMap.newKeySet();
 
     private final Observer observer;
     private ExecutorService executorService;
+    private WatchKeyDispatcher dispatcher;
 
     public IOServiceIndexedImpl(final MetaIndexEngine indexEngine,
                                 final ExecutorService executorService,
@@ -224,6 +229,7 @@ public class IOServiceIndexedImpl extends IOServiceDotFileImpl {
         try {
             final FileSystem fs = super.newFileSystem(uri,
                                                       env);
+            caughtUpList.add(fs);
             index(fs);
             setupWatchService(fs);
             return fs;
@@ -247,6 +253,11 @@ public class IOServiceIndexedImpl extends IOServiceDotFileImpl {
 
     @Override
     public void dispose() {
+        synchronized (this) {
+            if (dispatcher != null) {
+                dispatcher.dispose();
+            }
+        }
         for (final WatchService watchService : watchServices) {
             watchService.close();
         }
@@ -261,6 +272,18 @@ public class IOServiceIndexedImpl extends IOServiceDotFileImpl {
         watchedList.add(fs);
         watchServices.add(ws);
 
+        if (ws instanceof ListenableWatchService) {
+            // keys of a file system are indexed in order, by workers shared with every other watched file system
+            getDispatcher().register((ListenableWatchService) ws,
+                                     wk -> {
+                                         indexEvents(fs,
+                                                     ws,
+                                                     wk.pollEvents());
+                                         return !isDisposed(ws);
+                                     });
+            return;
+        }
+
         final ExecutorService defaultInstance = this.executorService;
 
         defaultInstance.execute(new DescriptiveRunnable() {
@@ -288,136 +311,175 @@ public class IOServiceIndexedImpl extends IOServiceDotFileImpl {
 
                         @Override
                         public void run() {
-                            // Get a set of "real paths" to be indexed. The "dot path" associated with the "real path"
-                            // is automatically indexed because the "dot path" contains content for FileAttributeView(s)
-                            // linked to the "real path".
-                            final Set<Path> eventRealPaths = new HashSet<>();
-                            for (WatchEvent event : events) {
-                                final WatchContext context = ((WatchContext) event.context());
-                                if (event.kind() == ENTRY_MODIFY || event.kind() == ENTRY_CREATE) {
-                                    final Path path = context.getPath();
-                                    if (!path.getFileName().toString().startsWith(".")) {
-                                        eventRealPaths.add(path);
-                                    }
-                                }
+                            indexEvents(fs,
+                                        ws,
+                                        events);
+                        }
+                    };
+                    defaultInstance.execute(job);
+                }
+            }
+        });
+    }
+
+    private void indexEvents(final FileSystem fs,
+                             final WatchService ws,
+                             final List<WatchEvent<?>> events) {
+        for (final WatchEvent<?> event : events) {
+            if (event.kind() == StandardWatchEventKind.OVERFLOW) {
+                // events were dropped, so the index is brought up to date with the branches instead
+                LOGGER.warn("Watch events of " + fs + " were dropped, catching up the index.");
+                batchIndex.catchUpAsync(fs);
+                return;
+            }
+        }
+
+        // Get a set of "real paths" to be indexed. The "dot path" associated with the "real path"
+        // is automatically indexed because the "dot path" contains content for FileAttributeView(s)
+        // linked to the "real path".
+        final Set<Path> eventRealPaths = new HashSet<>();
+        for (WatchEvent event : events) {
+            final WatchContext context = ((WatchContext) event.context());
+            if (event.kind() == ENTRY_MODIFY || event.kind() == ENTRY_CREATE) {
+                final Path path = context.getPath();
+                if (!path.getFileName().toString().startsWith(".")) {
+                    eventRealPaths.add(path);
+                }
+            }
+        }
+
+        for (WatchEvent object : events) {
+            if (isDisposed(ws)) {
+                return;
+            }
+            try {
+                final WatchContext context = ((WatchContext) object.context());
+                if (object.kind() == ENTRY_MODIFY || object.kind() == ENTRY_CREATE) {
+
+                    // If the path to be indexed is a "dot path" but does not have an associated
+                    // "real path" index the "real path" instead. This ensures when only a
+                    // "dot path" is updated the FileAttributeView(s) are re-indexed.
+                    Path path = context.getPath();
+                    if (path.getFileName().toString().startsWith(".")) {
+                        if (!IOServiceIndexedUtil.isBlackListed(path)) {
+                            final Path realPath = DotFileUtils.undot(path);
+                            if (!eventRealPaths.contains(realPath)) {
+                                path = realPath;
                             }
+                        }
+                    }
 
-                            for (WatchEvent object : events) {
-                                if (isDisposed()) {
-                                    return;
-                                }
-                                try {
-                                    final WatchContext context = ((WatchContext) object.context());
-                                    if (object.kind() == ENTRY_MODIFY || object.kind() == ENTRY_CREATE) {
-
-                                        // If the path to be indexed is a "dot path" but does not have an associated
-                                        // "real path" index the "real path" instead. This ensures when only a
-                                        // "dot path" is updated the FileAttributeView(s) are re-indexed.
-                                        Path path = context.getPath();
-                                        if (path.getFileName().toString().startsWith(".")) {
-                                            if (!IOServiceIndexedUtil.isBlackListed(path)) {
-                                                final Path realPath = DotFileUtils.undot(path);
-                                                if (!eventRealPaths.contains(realPath)) {
-                                                    path = realPath;
-                                                }
-                                            }
-                                        }
-
-                                        if (!path.getFileName().toString().startsWith(".")) {
-
-                                            //Default indexing
-                                            for (final Class<? extends FileAttributeView> view : views) {
-                                                getFileAttributeView(path,
-                                                                     view);
-                                            }
-                                            final FileAttribute<?>[] allAttrs = convert(readAttributes(path));
-                                            indexEngine.index(KObjectUtil.toKObject(path,
-                                                                                    allAttrs));
-
-                                            //Additional indexing
-                                            for (Indexer indexer : IndexersFactory.getIndexers()) {
-                                                if (isDisposed()) {
-                                                    return;
-                                                }
-                                                if (indexer.supportsPath(path)) {
-                                                    final KObject kObject = indexer.toKObject(path);
-                                                    if (kObject != null) {
-                                                        indexEngine.index(kObject);
-                                                    }
-                                                }
-                                            }
-                                        }
-                                    }
-
-                                    if (object.kind() == StandardWatchEventKind.ENTRY_RENAME) {
-                                        //Default indexing
-                                        final Path sourcePath = context.getOldPath();
-                                        final Path destinationPath = context.getPath();
-                                        indexEngine.rename(KObjectUtil.toKObjectKey(sourcePath),
-                                                           KObjectUtil.toKObject(destinationPath));
-
-                                        //Additional indexing
-                                        for (Indexer indexer : IndexersFactory.getIndexers()) {
-                                            if (isDisposed()) {
-                                                return;
-                                            }
-                                            if (indexer.supportsPath(destinationPath)) {
-                                                final KObjectKey kObjectSource = indexer.toKObjectKey(sourcePath);
-                                                final KObject kObjectDestination = indexer.toKObject(destinationPath);
-                                                if (kObjectSource != null && kObjectDestination != null) {
-                                                    indexEngine.rename(kObjectSource,
-                                                                       kObjectDestination);
-                                                }
-                                            }
-                                        }
-                                    }
-
-                                    if (object.kind() == StandardWatchEventKind.ENTRY_DELETE) {
-                                        //Default indexing
-                                        final Path oldPath = context.getOldPath();
-                                        indexEngine.delete(KObjectUtil.toKObjectKey(oldPath));
-
-                                        //Additional indexing
-                                        for (Indexer indexer : IndexersFactory.getIndexers()) {
-                                            if (isDisposed()) {
-                                                return;
-                                            }
-                                            if (indexer.supportsPath(oldPath)) {
-                                                final KObjectKey kObject = indexer.toKObjectKey(oldPath);
-                                                if (kObject != null) {
-                                                    indexEngine.delete(kObject);
-                                                }
-                                            }
-                                        }
-                                    }
-                                } catch (final Exception ex) {
-                                    LOGGER.error("Error during indexing. { " + object.toString() + " }",
-                                                 ex);
+                    if (!path.getFileName().toString().startsWith(".")) {
+
+                        //Default indexing
+                        for (final Class<? extends FileAttributeView> view : views) {
+                            getFileAttributeView(path,
+                                                 view);
+                        }
+                        final FileAttribute<?>[] allAttrs = convert(readAttributes(path));
+                        indexEngine.index(KObjectUtil.toKObject(path,
+                                                                allAttrs));
+
+                        //Additional indexing
+                        for (Indexer indexer : IndexersFactory.getIndexers()) {
+                            if (isDisposed(ws)) {
+                                return;
+                            }
+                            if (indexer.supportsPath(path)) {
+                                final KObject kObject = indexer.toKObject(path);
+                                if (kObject != null) {
+                                    indexEngine.index(kObject);
                                 }
                             }
                         }
+                    }
+                }
 
-                        private boolean isDisposed() {
-                            return isDisposed || ws.isClose();
+                if (object.kind() == StandardWatchEventKind.ENTRY_RENAME) {
+                    //Default indexing
+                    final Path sourcePath = context.getOldPath();
+                    final Path destinationPath = context.getPath();
+                    indexEngine.rename(KObjectUtil.toKObjectKey(sourcePath),
+                                       KObjectUtil.toKObject(destinationPath));
+
+                    //Additional indexing
+                    for (Indexer indexer : IndexersFactory.getIndexers()) {
+                        if (isDisposed(ws)) {
+                            return;
                         }
-                    };
-                    defaultInstance.execute(job);
+                        if (indexer.supportsPath(destinationPath)) {
+                            final KObjectKey kObjectSource = indexer.toKObjectKey(sourcePath);
+                            final KObject kObjectDestination = indexer.toKObject(destinationPath);
+                            if (kObjectSource != null && kObjectDestination != null) {
+                                indexEngine.rename(kObjectSource,
+                                                   kObjectDestination);
+                            }
+                        }
+                    }
+                }
+
+                if (object.kind() == StandardWatchEventKind.ENTRY_DELETE) {
+                    //Default indexing
+                    final Path oldPath = context.getOldPath();
+                    indexEngine.delete(KObjectUtil.toKObjectKey(oldPath));
+
+                    //Additional indexing
+                    for (Indexer indexer : IndexersFactory.getIndexers()) {
+                        if (isDisposed(ws)) {
+                            return;
+                        }
+                        if (indexer.supportsPath(oldPath)) {
+                            final KObjectKey kObject = indexer.toKObjectKey(oldPath);
+                            if (kObject != null) {
+                                indexEngine.delete(kObject);
+                            }
+                        }
+                    }
                 }
+            } catch (final Exception ex) {
+                LOGGER.error("Error during indexing. { " + object.toString() + " }",
+                             ex);
             }
-        });
+        }
+    }
+
+    private boolean isDisposed(final WatchService ws) {
+        return isDisposed || ws.isClose();
+    }
+
+    private synchronized WatchKeyDispatcher getDispatcher() {
+        if (dispatcher == null) {
+            dispatcher = new WatchKeyDispatcher("IOServiceIndexedImpl",
+                                                executorService,
+                                                WatchKeyDispatcher.DEFAULT_THREADS);
+            dispatcher.start();
+        }
+        return dispatcher;
     }
 
     private synchronized void indexIfFresh(final FileSystem fs) {
         final KCluster cluster = KObjectUtil.toKCluster(fs);
-        if (indexEngine.freshIndex(cluster)) {
+        if (indexEngine.freshIndex(cluster) || batchIndex.isIncomplete(fs)) {
             // See https://bugzilla.redhat.com/show_bug.cgi?id=1288132
             // Record batch index as being started before the async indexing actually runs to
             // prevent multiple batch indexes for the same FileSystem being scheduled.
             indexEngine.startBatch(cluster);
             index(fs);
+        } else if (caughtUpList.add(fs)) {
+            // changes made while this service wasn't watching the file system
+            batchIndex.catchUpAsync(fs);
         }
     }
 
+    /**
+     * Re-indexes the files changed since the last indexed commit of each branch of the file
+     * system, e.g. after watch events were missed.
+     */
+    public void catchUp(final FileSystem fs) {
+        batchIndex.catchUpAsync(checkNotNull("fs",
+                                             fs));
+    }
+
     private void index(final FileSystem fs) {
         batchIndex.runAsync(fs);
     }
@@ -15,9 +15,9 @@
  */
 package org.uberfire.ext.metadata.io;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.kie.soup.commons.validation.PortablePreconditions;
 import org.uberfire.ext.metadata.engine.Indexer;
@@ -27,7 +27,7 @@ import org.uberfire.ext.metadata.engine.Indexer;
  */
 public class IndexersFactory {
 
-    private static final List<Indexer> indexers = new ArrayList<Indexer>();
+    private static final List<Indexer> indexers = new CopyOnWriteArrayList<Indexer>();
 
     public static void addIndexer(final Indexer indexer) {
         indexers.add(PortablePreconditions.checkNotNull("indexer",
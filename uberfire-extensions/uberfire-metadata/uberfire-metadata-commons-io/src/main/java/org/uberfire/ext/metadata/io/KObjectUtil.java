@@ -42,7 +42,14 @@ import static org.apache.commons.io.FilenameUtils.getExtension;
  */
 public final class KObjectUtil {
 
-    private static final MessageDigest DIGEST;
+    // MessageDigest instances are stateful, so each indexing thread gets its own
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA1");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    });
     private static final MetaType META_TYPE = new MetaType() {
         @Override
         public String getName() {
@@ -50,14 +57,6 @@ public final class KObjectUtil {
         }
     };
 
-    static {
-        try {
-            DIGEST = MessageDigest.getInstance("SHA1");
-        } catch (final NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     private KObjectUtil() {
 
     }
@@ -262,6 +261,6 @@ public final class KObjectUtil {
         if (input == null || input.trim().length() == 0) {
             return "--";
         }
-        return encodeBase64String(DIGEST.digest(input.getBytes()));
+        return encodeBase64String(DIGEST.get().digest(input.getBytes()));
     }
 }
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.ext.metadata.io;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.uberfire.commons.async.DescriptiveThreadFactory;
+import org.uberfire.ext.metadata.engine.MetaIndexEngine;
+import org.uberfire.ext.metadata.engine.Observer;
+import org.uberfire.ext.metadata.model.KCluster;
+import org.uberfire.ext.metadata.model.KObject;
+import org.uberfire.ext.metadata.model.KObjectKey;
+import org.uberfire.io.IOService;
+import org.uberfire.io.attribute.DublinCoreView;
+import org.uberfire.io.impl.IOServiceDotFileImpl;
+import org.uberfire.java.nio.file.FileVisitResult;
+import org.uberfire.java.nio.file.Path;
+import org.uberfire.java.nio.file.SimpleFileVisitor;
+import org.uberfire.java.nio.file.attribute.BasicFileAttributes;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+import static org.uberfire.java.nio.file.Files.walkFileTree;
+
+public class BatchIndexResumeTest extends BaseIndexTest {
+
+    private final MetaIndexEngine indexEngine = mock(MetaIndexEngine.class);
+    private final Set<String> indexed = ConcurrentHashMap.newKeySet();
+
+    @Override
+    protected IOService ioService() {
+        if (ioService == null) {
+            ioService = new IOServiceDotFileImpl();
+        }
+        return ioService;
+    }
+
+    @Override
+    protected String[] getRepositoryNames() {
+        return new String[]{this.getClass().getSimpleName()};
+    }
+
+    @Test
+    public void testResumeAfterCheckpoint() {
+        final Path root = ioService().get("git://" + this.getClass().getSimpleName() + "/");
+        for (int i = 0; i < 10; i++) {
+            ioService().write(root.resolve("dir" + (i % 3)).resolve("file" + i + ".txt"),
+                              "content " + i);
+        }
+        final List<String> walked = walk(root);
+        final String commitId = ioService().readAttributes(root,
+                                                           "commit:id").get("id").toString();
+        final String rootKey = root.toUri().toString();
+
+        final Map<String, String> checkpoint = new HashMap<String, String>();
+        checkpoint.put(BatchIndex.INDEXING_COMMIT + rootKey,
+                       commitId);
+        checkpoint.put(BatchIndex.INDEXING_PATH + rootKey,
+                       walked.get(3));
+        when(indexEngine.getCheckpoint(any(KCluster.class))).thenReturn(checkpoint);
+        recordIndexedKeys();
+
+        newBatchIndex().run(root);
+
+        final Set<String> expected = ConcurrentHashMap.newKeySet();
+        for (final String file : walked.subList(4,
+                                                walked.size())) {
+            if (!file.substring(file.lastIndexOf('/') + 1).startsWith(".")) {
+                expected.add(file);
+            }
+        }
+        assertEquals(expected,
+                     indexed);
+
+        final ArgumentCaptor<Map> entries = ArgumentCaptor.forClass(Map.class);
+        verify(indexEngine,
+               atLeastOnce()).checkpoint(any(KCluster.class),
+                                         entries.capture());
+        final Map<String, String> last = entries.getValue();
+        assertEquals(commitId,
+                     last.get(BatchIndex.INDEXED_COMMIT + rootKey));
+        assertTrue(last.containsKey(BatchIndex.INDEXING_COMMIT + rootKey));
+        assertNull(last.get(BatchIndex.INDEXING_COMMIT + rootKey));
+        verify(indexEngine).commit(any(KCluster.class));
+    }
+
+    @Test
+    public void testCheckpointOfAnotherCommitIsIgnored() {
+        final Path root = ioService().get("git://" + this.getClass().getSimpleName() + "/");
+        ioService().write(root.resolve("other.txt"),
+                          "other content");
+        final List<String> walked = walk(root);
+        final String rootKey = root.toUri().toString();
+
+        final Map<String, String> checkpoint = new HashMap<String, String>();
+        checkpoint.put(BatchIndex.INDEXING_COMMIT + rootKey,
+                       "0000000000000000000000000000000000000000");
+        checkpoint.put(BatchIndex.INDEXING_PATH + rootKey,
+                       walked.get(walked.size() - 1));
+        when(indexEngine.getCheckpoint(any(KCluster.class))).thenReturn(checkpoint);
+        recordIndexedKeys();
+
+        newBatchIndex().run(root);
+
+        for (final String file : walked) {
+            if (!file.substring(file.lastIndexOf('/') + 1).startsWith(".")) {
+                assertTrue(file,
+                           indexed.contains(file));
+            }
+        }
+    }
+
+    @Test
+    public void testCatchUpIndexesChangesSinceIndexedCommit() {
+        final Path root = ioService().get("git://" + this.getClass().getSimpleName() + "/");
+        final Path unchanged = root.resolve("catchup/unchanged.txt");
+        final Path modified = root.resolve("catchup/modified.txt");
+        final Path deleted = root.resolve("catchup/deleted.txt");
+        final Path added = root.resolve("catchup/added.txt");
+        ioService().write(unchanged,
+                          "unchanged");
+        ioService().write(modified,
+                          "modified");
+        ioService().write(deleted,
+                          "deleted");
+        final String indexedCommit = ioService().readAttributes(root,
+                                                                "commit:id").get("id").toString();
+
+        ioService().write(modified,
+                          "modified again");
+        ioService().delete(deleted);
+        ioService().write(added,
+                          "added");
+        final String commitId = ioService().readAttributes(root,
+                                                           "commit:id").get("id").toString();
+        final String rootKey = root.toUri().toString();
+
+        final Map<String, String> checkpoint = new HashMap<String, String>();
+        checkpoint.put(BatchIndex.INDEXED_COMMIT + rootKey,
+                       indexedCommit);
+        when(indexEngine.getCheckpoint(any(KCluster.class))).thenReturn(checkpoint);
+        recordIndexedKeys();
+
+        newBatchIndex().catchUp(root);
+
+        final Set<String> expected = ConcurrentHashMap.newKeySet();
+        expected.add(modified.toUri().toString());
+        expected.add(added.toUri().toString());
+        assertEquals(expected,
+                     indexed);
+
+        final ArgumentCaptor<KObjectKey> deletedKey = ArgumentCaptor.forClass(KObjectKey.class);
+        verify(indexEngine).delete(deletedKey.capture());
+        assertEquals(deleted.toUri().toString(),
+                     deletedKey.getValue().getKey());
+
+        final ArgumentCaptor<Map> entries = ArgumentCaptor.forClass(Map.class);
+        verify(indexEngine).checkpoint(any(KCluster.class),
+                                       entries.capture());
+        assertEquals(commitId,
+                     entries.getValue().get(BatchIndex.INDEXED_COMMIT + rootKey));
+    }
+
+    @Test
+    public void testCatchUpWithoutIndexedCommitIndexesEverything() {
+        final Path root = ioService().get("git://" + this.getClass().getSimpleName() + "/");
+        ioService().write(root.resolve("full/file.txt"),
+                          "content");
+        final List<String> walked = walk(root);
+        recordIndexedKeys();
+
+        newBatchIndex().catchUp(root);
+
+        for (final String file : walked) {
+            if (!file.substring(file.lastIndexOf('/') + 1).startsWith(".")) {
+                assertTrue(file,
+                           indexed.contains(file));
+            }
+        }
+        verify(indexEngine).commit(any(KCluster.class));
+    }
+
+    private BatchIndex newBatchIndex() {
+        return new BatchIndex(indexEngine,
+                              ioService(),
+                              mock(Observer.class),
+                              Executors.newCachedThreadPool(new DescriptiveThreadFactory()),
+                              3,
+                              2,
+                              2,
+                              DublinCoreView.class);
+    }
+
+    private void recordIndexedKeys() {
+        doAnswer(invocation -> {
+            indexed.add(((KObject) invocation.getArguments()[0]).getKey());
+            return null;
+        }).when(indexEngine).index(any(KObject.class));
+    }
+
+    private List<String> walk(final Path root) {
+        final List<String> files = new ArrayList<String>();
+        walkFileTree(root,
+                     new SimpleFileVisitor<Path>() {
+                         @Override
+                         public FileVisitResult visitFile(final Path file,
+                                                          final BasicFileAttributes attrs) {
+                             files.add(file.toUri().toString());
+                             return FileVisitResult.CONTINUE;
+                         }
+                     });
+        return files;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.ext.metadata.io;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jboss.byteman.contrib.bmunit.BMScript;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.uberfire.ext.metadata.backend.lucene.fields.FieldFactory;
+import org.uberfire.ext.metadata.search.IOSearchService;
+import org.uberfire.ext.metadata.search.SearchPage;
+import org.uberfire.ext.metadata.search.SearchResults;
+import org.uberfire.java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+@RunWith(org.jboss.byteman.contrib.bmunit.BMUnitRunner.class)
+@BMScript(value = "byteman/index.btm")
+public class IOSearchServicePagingTest extends BaseIndexTest {
+
+    @Override
+    protected String[] getRepositoryNames() {
+        return new String[]{this.getClass().getSimpleName()};
+    }
+
+    @Test
+    public void testPagedFullTextSearch() throws InterruptedException {
+        setupCountDown(5);
+
+        final IOSearchServiceImpl searchIndex = new IOSearchServiceImpl(config.getSearchIndex(),
+                                                                        ioService());
+
+        final Path base = getBasePath(this.getClass().getSimpleName());
+        for (int i = 0; i < 5; i++) {
+            ioService().write(base.resolve("paged" + i + ".txt"),
+                              "content " + i);
+        }
+
+        waitForCountDown(5000);
+
+        final Path root = base.getRoot();
+        final Set<Path> seen = new HashSet<Path>();
+        final List<Integer> pageSizes = new ArrayList<Integer>();
+
+        SearchPage page = new SearchPage(0,
+                                         2);
+        while (page != null) {
+            final SearchResults<Path> results = searchIndex.fullTextSearch("paged*",
+                                                                           new IOSearchService.NoOpFilter(),
+                                                                           page,
+                                                                           root);
+            assertEquals(5,
+                         results.getTotalHits());
+            pageSizes.add(results.getResults().size());
+            seen.addAll(results.getResults());
+            page = results.getNextPage();
+        }
+        assertEquals(5,
+                     seen.size());
+        assertEquals(2,
+                     (int) pageSizes.get(0));
+        assertEquals(2,
+                     (int) pageSizes.get(1));
+        assertEquals(1,
+                     (int) pageSizes.get(2));
+
+        {
+            final SearchResults<Path> results = searchIndex.fullTextSearch("paged*",
+                                                                           new IOSearchService.NoOpFilter(),
+                                                                           new SearchPage(4,
+                                                                                          2),
+                                                                           root);
+            assertEquals(1,
+                         results.getResults().size());
+            assertNull(results.getNextPage());
+        }
+
+        {
+            final SearchResults<Path> results = searchIndex.fullTextSearch("paged*",
+                                                                           kObject -> !kObject.getKey().endsWith("paged0.txt"),
+                                                                           new SearchPage(1,
+                                                                                          10),
+                                                                           root);
+            assertEquals(5,
+                         results.getTotalHits());
+            assertEquals(3,
+                         results.getResults().size());
+            assertNull(results.getNextPage());
+        }
+
+        {
+            // pages ending on the last hit have no next page
+            final SearchResults<Path> last = searchIndex.fullTextSearch("paged*",
+                                                                        new IOSearchService.NoOpFilter(),
+                                                                        new SearchPage(3,
+                                                                                       2),
+                                                                        root);
+            assertEquals(2,
+                         last.getResults().size());
+            assertNull(last.getNextPage());
+
+            final SearchResults<Path> filteredLast = searchIndex.fullTextSearch("paged*",
+                                                                                kObject -> !kObject.getKey().endsWith("paged0.txt"),
+                                                                                new SearchPage(0,
+                                                                                               4,
+                                                                                               FieldFactory.FILE_NAME_FIELD_SORTED,
+                                                                                               false),
+                                                                                root);
+            assertEquals(4,
+                         filteredLast.getResults().size());
+            assertEquals("paged4.txt",
+                         filteredLast.getResults().get(3).getFileName().toString());
+            assertNull(filteredLast.getNextPage());
+        }
+
+        {
+            final SearchResults<Path> first = searchIndex.fullTextSearch("paged*",
+                                                                         new IOSearchService.NoOpFilter(),
+                                                                         new SearchPage(0,
+                                                                                        2,
+                                                                                        FieldFactory.FILE_NAME_FIELD_SORTED,
+                                                                                        true),
+                                                                         root);
+            assertEquals("paged4.txt",
+                         first.getResults().get(0).getFileName().toString());
+            assertEquals("paged3.txt",
+                         first.getResults().get(1).getFileName().toString());
+
+            final SearchResults<Path> second = searchIndex.fullTextSearch("paged*",
+                                                                          new IOSearchService.NoOpFilter(),
+                                                                          first.getNextPage(),
+                                                                          root);
+            assertEquals("paged2.txt",
+                         second.getResults().get(0).getFileName().toString());
+            assertEquals("paged1.txt",
+                         second.getResults().get(1).getFileName().toString());
+
+            // the index changed since the first page, so its cursor is dropped for the offset
+            setupCountDown(1);
+            ioService().write(base.resolve("paged5.txt"),
+                              "content 5");
+            waitForCountDown(5000);
+
+            final SearchResults<Path> afterChange = searchIndex.fullTextSearch("paged*",
+                                                                               new IOSearchService.NoOpFilter(),
+                                                                               first.getNextPage(),
+                                                                               root);
+            assertEquals(6,
+                         afterChange.getTotalHits());
+            assertEquals("paged3.txt",
+                         afterChange.getResults().get(0).getFileName().toString());
+            assertEquals("paged2.txt",
+                         afterChange.getResults().get(1).getFileName().toString());
+        }
+    }
+}
@@ -162,7 +162,7 @@ public abstract class AbstractIOService implements IOServiceIdentifiable,
 
     @Override
     public void endBatch() {
-        if (!batchLockControl.isLocked()) {
+        if (!batchLockControl.isHeldByCurrentThread()) {
             throw new RuntimeException("There is no batch process.");
         }
 
@@ -172,7 +172,7 @@ public abstract class AbstractIOService implements IOServiceIdentifiable,
         }
 
         try {
-            cleanUpAndUnsetBatchModeOnFileSystems();
+            cleanUpAndUnsetBatchModeOnFileSystems(batchLockControl.getLockedFileSystems());
         } catch (Exception e) {
             throw new RuntimeException("Exception cleaning and unsetting batch mode on FS.",
                                        e);
@@ -181,13 +181,16 @@ public abstract class AbstractIOService implements IOServiceIdentifiable,
         }
     }
 
-    private void cleanUpAndUnsetBatchModeOnFileSystems() {
+    private void cleanUpAndUnsetBatchModeOnFileSystems(final List<FileSystem> batchFileSystems) {
         if (!fileSystems.isEmpty()) {
             cleanupClosedFileSystems();
         }
 
-        for (final FileSystem fs : fileSystems) {
-            unsetBatchModeOn(fs);
+        // only the file systems of this batch: other threads may be running their own batches
+        for (final FileSystem fs : batchFileSystems) {
+            if (fs.isOpen()) {
+                unsetBatchModeOn(fs);
+            }
         }
     }
 
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.io.impl.cluster;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.uberfire.java.nio.base.FileSystemRefsAware;
+import org.uberfire.java.nio.file.FileSystem;
+
+/**
+ * Refs of a file system changed by a write, sent along its {@link ClusterMessageType#SYNC_FS} message so the other
+ * nodes only sync those refs instead of fetching the whole repository.
+ * <p>
+ * The content holds the number of changed refs as {@code fs_refs}, then the name, old and new version of every ref as
+ * {@code fs_ref_<i>}, {@code fs_ref_old_<i>} (missing for new refs) and {@code fs_ref_new_<i>}. Messages without
+ * {@code fs_refs} ask for a full sync, as before.
+ */
+class FileSystemRefChanges {
+
+    static final String REFS = "fs_refs";
+    static final String REF = "fs_ref_";
+    static final String OLD_ID = "fs_ref_old_";
+    static final String NEW_ID = "fs_ref_new_";
+
+    // ref name -> {old version, new version}
+    private final Map<String, String[]> changes;
+
+    private FileSystemRefChanges(final Map<String, String[]> changes) {
+        this.changes = changes;
+    }
+
+    /**
+     * @return The refs of the file system, or null if it doesn't expose them.
+     */
+    static Map<String, String> refsOf(final FileSystem fileSystem) {
+        if (fileSystem instanceof FileSystemRefsAware) {
+            return ((FileSystemRefsAware) fileSystem).getRefs();
+        }
+        return null;
+    }
+
+    /**
+     * @return The changes between both versions of the refs, or null if they can't be sent as changes (refs unknown
+     * or deleted), so a full sync is needed.
+     */
+    static FileSystemRefChanges between(final Map<String, String> before,
+                                        final Map<String, String> after) {
+        if (before == null || after == null || !after.keySet().containsAll(before.keySet())) {
+            return null;
+        }
+        final Map<String, String[]> changes = new LinkedHashMap<>();
+        for (final Map.Entry<String, String> ref : after.entrySet()) {
+            final String oldId = before.get(ref.getKey());
+            if (!ref.getValue().equals(oldId)) {
+                changes.put(ref.getKey(),
+                            new String[]{oldId, ref.getValue()});
+            }
+        }
+        return new FileSystemRefChanges(changes);
+    }
+
+    /**
+     * @return The changes sent in the content of a message, or null if it asks for a full sync.
+     */
+    static FileSystemRefChanges from(final Map<String, String> content) {
+        final String refs = content.get(REFS);
+        if (refs == null) {
+            return null;
+        }
+        final Map<String, String[]> changes = new LinkedHashMap<>();
+        for (int i = 0; i < Integer.parseInt(refs); i++) {
+            changes.put(content.get(REF + i),
+                        new String[]{content.get(OLD_ID + i), content.get(NEW_ID + i)});
+        }
+        return new FileSystemRefChanges(changes);
+    }
+
+    boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * @return The new version of every changed ref, keyed by ref name.
+     */
+    Map<String, String> getNewIds() {
+        final Map<String, String> newIds = new LinkedHashMap<>();
+        for (final Map.Entry<String, String[]> change : changes.entrySet()) {
+            newIds.put(change.getKey(),
+                       change.getValue()[1]);
+        }
+        return newIds;
+    }
+
+    /**
+     * Adds later changes of the same file system, so a burst of messages is synced at once. A ref changed by both
+     * goes from the oldest to the newest version, even if a change arrived right before the one it follows.
+     */
+    void merge(final FileSystemRefChanges later) {
+        for (final Map.Entry<String, String[]> change : later.changes.entrySet()) {
+            final String[] current = changes.get(change.getKey());
+            final String[] next = change.getValue();
+            if (current == null) {
+                changes.put(change.getKey(),
+                            next.clone());
+            } else if (Objects.equals(next[1],
+                                      current[0])) {
+                // arrived before the change it precedes
+                current[0] = next[0];
+            } else {
+                current[1] = next[1];
+            }
+        }
+    }
+
+    void putInto(final Map<String, String> content) {
+        content.put(REFS,
+                    String.valueOf(changes.size()));
+        int i = 0;
+        for (final Map.Entry<String, String[]> change : changes.entrySet()) {
+            content.put(REF + i,
+                        change.getKey());
+            if (change.getValue()[0] != null) {
+                content.put(OLD_ID + i,
+                            change.getValue()[0]);
+            }
+            content.put(NEW_ID + i,
+                        change.getValue()[1]);
+            i++;
+        }
+    }
+}
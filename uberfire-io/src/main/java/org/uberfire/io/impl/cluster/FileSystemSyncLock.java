@@ -16,15 +16,20 @@
 
 package org.uberfire.io.impl.cluster;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.uberfire.commons.cluster.ClusterService;
 import org.uberfire.commons.cluster.LockExecuteNotifyAsyncReleaseTemplate;
 import org.uberfire.commons.message.MessageType;
 import org.uberfire.java.nio.base.FileSystemId;
 import org.uberfire.java.nio.file.FileSystem;
 
+import static java.util.Collections.singletonList;
 import static org.uberfire.io.impl.cluster.ClusterMessageType.SYNC_FS;
+import static org.uberfire.io.impl.cluster.FileSystemRefChanges.between;
+import static org.uberfire.io.impl.cluster.FileSystemRefChanges.refsOf;
 
 public class FileSystemSyncLock<V> extends LockExecuteNotifyAsyncReleaseTemplate<V> {
 
@@ -32,6 +37,9 @@ public class FileSystemSyncLock<V> extends LockExecuteNotifyAsyncReleaseTemplate
     private final String scheme;
     private final String id;
     private final String uri;
+    private final FileSystem fileSystem;
+    private Map<String, String> refsBefore;
+    private FileSystemRefChanges changes;
 
     public FileSystemSyncLock(final String serviceId,
                               final FileSystem _fileSystem) {
@@ -40,6 +48,25 @@ public class FileSystemSyncLock<V> extends LockExecuteNotifyAsyncReleaseTemplate
         this.scheme = fileSystem.getRootDirectories().iterator().next().toUri().getScheme();
         this.id = ((FileSystemId) fileSystem).id();
         this.uri = fileSystem.toString();
+        this.fileSystem = fileSystem;
+    }
+
+    @Override
+    public void beforeTask() {
+        refsBefore = refsOf(fileSystem);
+    }
+
+    /**
+     * Sends the refs changed by the task, if the file system tells them, and nothing if the task didn't change any.
+     */
+    @Override
+    public void sendMessage(final ClusterService clusterService) {
+        changes = between(refsBefore,
+                          refsOf(fileSystem));
+        if (changes != null && changes.isEmpty()) {
+            return;
+        }
+        super.sendMessage(clusterService);
     }
 
     @Override
@@ -61,6 +88,14 @@ public class FileSystemSyncLock<V> extends LockExecuteNotifyAsyncReleaseTemplate
                 id);
             put("fs_uri",
                 uri);
+            if (changes != null) {
+                changes.putInto(this);
+            }
         }};
     }
+
+    @Override
+    public Collection<String> getFileSystemIds() {
+        return singletonList(id);
+    }
 }
@@ -27,6 +27,8 @@ import org.uberfire.java.nio.base.FileSystemId;
 import org.uberfire.java.nio.file.FileSystem;
 
 import static org.uberfire.io.impl.cluster.ClusterMessageType.SYNC_FS;
+import static org.uberfire.io.impl.cluster.FileSystemRefChanges.between;
+import static org.uberfire.io.impl.cluster.FileSystemRefChanges.refsOf;
 
 public class FileSystemSyncNonLock<V> {
 
@@ -34,14 +36,31 @@ public class FileSystemSyncNonLock<V> {
     private final String scheme;
     private final String id;
     private final String uri;
+    private final FileSystem fileSystem;
+    private Map<String, String> refsBefore;
+    private FileSystemRefChanges changes;
 
     public FileSystemSyncNonLock(final String serviceId,
                                  final FileSystem _fileSystem) {
+        this(serviceId,
+             _fileSystem,
+             null);
+    }
+
+    /**
+     * @param refsBefore Refs of the file system before it was changed, so only the changed ones are synced; null if
+     * unknown.
+     */
+    public FileSystemSyncNonLock(final String serviceId,
+                                 final FileSystem _fileSystem,
+                                 final Map<String, String> refsBefore) {
         final FileSystem fileSystem = _fileSystem.getRootDirectories().iterator().next().getFileSystem();
         this.serviceId = serviceId;
         this.scheme = fileSystem.getRootDirectories().iterator().next().toUri().getScheme();
         this.id = ((FileSystemId) fileSystem).id();
         this.uri = fileSystem.toString();
+        this.fileSystem = fileSystem;
+        this.refsBefore = refsBefore;
     }
 
     public MessageType getMessageType() {
@@ -60,10 +79,21 @@ public class FileSystemSyncNonLock<V> {
                 id);
             put("fs_uri",
                 uri);
+            if (changes != null) {
+                changes.putInto(this);
+            }
         }};
     }
 
+    /**
+     * Sends the refs changed since {@code refsBefore}, if known, and nothing if none changed.
+     */
     public void sendMessage(final ClusterService clusterService) {
+        changes = between(refsBefore,
+                          refsOf(fileSystem));
+        if (changes != null && changes.isEmpty()) {
+            return;
+        }
         clusterService.broadcast(getServiceId(),
                                  getMessageType(),
                                  buildContent());
@@ -72,6 +102,8 @@ public class FileSystemSyncNonLock<V> {
     public V execute(final ClusterService clusterService,
                      final RunnableFuture<V> task) {
         try {
+            refsBefore = refsOf(fileSystem);
+
             task.run();
 
             final V result = task.get();
@@ -25,18 +25,21 @@ import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.FutureTask;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,7 +49,6 @@ import org.uberfire.commons.cluster.ClusterServiceFactory;
 import org.uberfire.commons.cluster.LockExecuteNotifySyncReleaseTemplate;
 import org.uberfire.commons.data.Pair;
 import org.uberfire.commons.lifecycle.PriorityDisposableRegistry;
-import org.uberfire.commons.lock.LockExecuteReleaseTemplate;
 import org.uberfire.commons.message.AsyncCallback;
 import org.uberfire.commons.message.MessageHandler;
 import org.uberfire.commons.message.MessageHandlerResolver;
@@ -84,11 +86,16 @@ import static org.uberfire.io.impl.cluster.ClusterMessageType.NEW_FS;
 import static org.uberfire.io.impl.cluster.ClusterMessageType.QUERY_FOR_FS;
 import static org.uberfire.io.impl.cluster.ClusterMessageType.QUERY_FOR_FS_RESULT;
 import static org.uberfire.io.impl.cluster.ClusterMessageType.SYNC_FS;
+import static org.uberfire.io.impl.cluster.FileSystemRefChanges.refsOf;
 
 public class IOServiceClusterImpl implements IOService {
 
     private static final Logger logger = LoggerFactory.getLogger(IOServiceClusterImpl.class);
-    protected final Set<String> batchFileSystems = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    // max number of file systems synced at once while joining the cluster
+    static final int JOIN_THREADS = readJoinThreads("org.uberfire.cluster.join.threads",
+                                                    4);
+    // batches are owned by a thread, so batches on file systems held by different cluster partitions run in parallel
+    private final ThreadLocal<Batch> batch = new ThreadLocal<Batch>();
     private ExecutorService executorService;
     protected IOServiceLockable service;
     protected ClusterService clusterService;
@@ -155,95 +162,185 @@ public class IOServiceClusterImpl implements IOService {
         start();
     }
 
+    /**
+     * Joins the cluster, copying every file system the other nodes have. Returns once the node is caught up.
+     * <p>
+     * File systems are first copied in parallel without locking the cluster, so the other nodes keep writing
+     * meanwhile. A second pass then syncs the changes made during the copy, locking each file system alone; as sync
+     * messages are received since the node connected, it's up to date once done.
+     */
     private void start() {
         logger.debug("Starting IO Cluster service {}",
                      this);
-        //New cluster members are executed within locked
-        new LockExecuteReleaseTemplate<Void>().execute(clusterService,
-                                                       new FutureTask<Void>(new Callable<Void>() {
-                                                           @Override
-                                                           public Void call() throws Exception {
-
-                                                               // 10 seconds
-                                                               int timeout = 10000;
-                                                               final AtomicBoolean msgAnsweredOrTimedout = new AtomicBoolean(false);
-                                                               final AtomicBoolean onSync = new AtomicBoolean(false);
-
-                                                               final Map<Integer, FileSystemInfo> fileSystems = new HashMap<Integer, FileSystemInfo>();
-
-                                                               clusterService.broadcastAndWait(service.getId(),
-                                                                                               QUERY_FOR_FS,
-                                                                                               Collections.<String, String>emptyMap(),
-                                                                                               timeout,
-                                                                                               new AsyncCallback() {
-                                                                                                   @Override
-                                                                                                   public void onTimeOut() {
-                                                                                                       msgAnsweredOrTimedout.set(true);
-                                                                                                   }
-
-                                                                                                   @Override
-                                                                                                   public void onReply(final MessageType type,
-                                                                                                                       final Map<String, String> content) {
-                                                                                                       if (msgAnsweredOrTimedout.get() || onSync.get()) {
-                                                                                                           return;
-                                                                                                       }
-
-                                                                                                       onSync.set(true);
-
-                                                                                                       executorService.execute(new DescriptiveRunnable() {
-                                                                                                           @Override
-                                                                                                           public String getDescription() {
-                                                                                                               return "Cluster Messaging Reply [" + service.getId() + "/QUERY_FOR_FS]";
-                                                                                                           }
-
-                                                                                                           @Override
-                                                                                                           public void run() {
-                                                                                                               for (final Map.Entry<String, String> entry : content.entrySet()) {
-                                                                                                                   if (entry.getKey().startsWith("fs_")) {
-                                                                                                                       int index = Integer.valueOf(entry.getKey().substring(entry.getKey().lastIndexOf("_") + 1));
-                                                                                                                       if (!fileSystems.containsKey(index)) {
-                                                                                                                           fileSystems.put(index,
-                                                                                                                                           new FileSystemInfo());
-                                                                                                                       }
-                                                                                                                       final FileSystemInfo fsInfo = fileSystems.get(index);
-                                                                                                                       if (entry.getKey().startsWith("fs_id_")) {
-                                                                                                                           fsInfo.setId(entry.getValue());
-                                                                                                                       } else if (entry.getKey().startsWith("fs_scheme_")) {
-                                                                                                                           fsInfo.setScheme(entry.getValue());
-                                                                                                                       } else if (entry.getKey().startsWith("fs_uri_")) {
-                                                                                                                           fsInfo.setUri(entry.getValue());
-                                                                                                                       }
-                                                                                                                   }
-                                                                                                               }
-
-                                                                                                               for (final FileSystemInfo fileSystemInfo : new HashSet<FileSystemInfo>(fileSystems.values())) {
-                                                                                                                   try {
-                                                                                                                       final URI newFS = URI.create(fileSystemInfo.getScheme() + "://" + fileSystemInfo.getId());
-                                                                                                                       service.newFileSystem(newFS,
-                                                                                                                                             Collections.<String, Object>emptyMap());
-                                                                                                                   } catch (FileSystemAlreadyExistsException ex) {
-                                                                                                                   }
-
-                                                                                                                   final URI fs = URI.create(fileSystemInfo.getScheme() + "://" + fileSystemInfo.getId() + "?sync=" + fileSystemInfo.getUri().split("\n")[0] + "&force");
-                                                                                                                   service.getFileSystem(fs);
-                                                                                                               }
-
-                                                                                                               msgAnsweredOrTimedout.set(true);
-                                                                                                           }
-                                                                                                       });
-                                                                                                   }
-                                                                                               });
-
-                                                               while (!msgAnsweredOrTimedout.get()) {
-                                                                   try {
-                                                                       Thread.sleep(100);
-                                                                   } catch (InterruptedException ignored) {
-                                                                   }
-                                                               }
-
-                                                               return null;
-                                                           }
-                                                       }));
+        final long startTime = System.currentTimeMillis();
+        final Collection<FileSystemInfo> fileSystems = queryFileSystems();
+
+        runInParallel(fileSystems,
+                      "Cluster Join [" + service.getId() + "/copy]",
+                      fileSystemInfo -> {
+                          try {
+                              service.newFileSystem(URI.create(fileSystemInfo.getScheme() + "://" + fileSystemInfo.getId()),
+                                                    Collections.<String, Object>emptyMap());
+                          } catch (FileSystemAlreadyExistsException ex) {
+                          }
+                          syncFileSystem(fileSystemInfo);
+                      });
+
+        runInParallel(fileSystems,
+                      "Cluster Join [" + service.getId() + "/catch up]",
+                      fileSystemInfo -> {
+                          final Set<String> ids = Collections.singleton(fileSystemInfo.getId());
+                          clusterService.lock(ids);
+                          try {
+                              syncFileSystem(fileSystemInfo);
+                          } finally {
+                              clusterService.unlock(ids);
+                          }
+                      });
+
+        logger.info("IO Cluster service {} ready, {} file system(s) synced in {} ms",
+                    service.getId(),
+                    fileSystems.size(),
+                    System.currentTimeMillis() - startTime);
+    }
+
+    private Collection<FileSystemInfo> queryFileSystems() {
+        // 10 seconds
+        final int timeout = 10000;
+        final CountDownLatch answeredOrTimedOut = new CountDownLatch(1);
+        final Map<Integer, FileSystemInfo> fileSystems = new HashMap<Integer, FileSystemInfo>();
+
+        clusterService.broadcastAndWait(service.getId(),
+                                        QUERY_FOR_FS,
+                                        Collections.<String, String>emptyMap(),
+                                        timeout,
+                                        new AsyncCallback() {
+                                            @Override
+                                            public void onTimeOut() {
+                                                answeredOrTimedOut.countDown();
+                                            }
+
+                                            @Override
+                                            public void onReply(final MessageType type,
+                                                                final Map<String, String> content) {
+                                                synchronized (fileSystems) {
+                                                    if (answeredOrTimedOut.getCount() == 0) {
+                                                        return;
+                                                    }
+                                                    for (final Map.Entry<String, String> entry : content.entrySet()) {
+                                                        if (entry.getKey().startsWith("fs_")) {
+                                                            int index = Integer.valueOf(entry.getKey().substring(entry.getKey().lastIndexOf("_") + 1));
+                                                            if (!fileSystems.containsKey(index)) {
+                                                                fileSystems.put(index,
+                                                                                new FileSystemInfo());
+                                                            }
+                                                            final FileSystemInfo fsInfo = fileSystems.get(index);
+                                                            if (entry.getKey().startsWith("fs_id_")) {
+                                                                fsInfo.setId(entry.getValue());
+                                                            } else if (entry.getKey().startsWith("fs_scheme_")) {
+                                                                fsInfo.setScheme(entry.getValue());
+                                                            } else if (entry.getKey().startsWith("fs_uri_")) {
+                                                                fsInfo.setUri(entry.getValue());
+                                                            }
+                                                        }
+                                                    }
+                                                    answeredOrTimedOut.countDown();
+                                                }
+                                            }
+                                        });
+
+        try {
+            answeredOrTimedOut.await(timeout,
+                                     TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (fileSystems) {
+            answeredOrTimedOut.countDown();
+            return new ArrayList<FileSystemInfo>(fileSystems.values());
+        }
+    }
+
+    private void syncFileSystem(final FileSystemInfo fileSystemInfo) {
+        final URI fs = URI.create(fileSystemInfo.getScheme() + "://" + fileSystemInfo.getId() + "?sync=" + fileSystemInfo.getUri().split("\n")[0] + "&force");
+        service.getFileSystem(fs);
+    }
+
+    private static int readJoinThreads(final String property,
+                                       final int defaultValue) {
+        final String value = System.getProperty(property);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            final int threads = Integer.parseInt(value.trim());
+            if (threads > 0) {
+                return threads;
+            }
+        } catch (final NumberFormatException ex) {
+        }
+        logger.warn("Invalid value '{}' of {}, syncing {} file systems at once",
+                    value,
+                    property,
+                    defaultValue);
+        return defaultValue;
+    }
+
+    /**
+     * Runs the task for every file system on at most {@link #JOIN_THREADS} threads, the calling one included, and
+     * waits for all of them. Failures are logged, so a file system failing doesn't stop the others.
+     */
+    private void runInParallel(final Collection<FileSystemInfo> fileSystems,
+                               final String description,
+                               final Consumer<FileSystemInfo> task) {
+        final Queue<FileSystemInfo> queue = new ConcurrentLinkedQueue<FileSystemInfo>(fileSystems);
+        final Runnable worker = () -> {
+            FileSystemInfo fileSystemInfo;
+            while ((fileSystemInfo = queue.poll()) != null) {
+                try {
+                    task.accept(fileSystemInfo);
+                } catch (Exception ex) {
+                    logger.error(description + " failed for file system " + fileSystemInfo.getId(),
+                                 ex);
+                }
+            }
+        };
+
+        final int threads = executorService == null ? 0 : Math.max(0,
+                                                                    Math.min(JOIN_THREADS,
+                                                                             fileSystems.size()) - 1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            executorService.execute(new DescriptiveRunnable() {
+                @Override
+                public String getDescription() {
+                    return description;
+                }
+
+                @Override
+                public void run() {
+                    try {
+                        worker.run();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        worker.run();
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     @Override
@@ -254,13 +351,7 @@ public class IOServiceClusterImpl implements IOService {
     @Override
     public void startBatch(FileSystem[] fs,
                            final Option... options) {
-        clusterService.lock();
-        for (final FileSystem _f : fs) {
-            final FileSystem f = _f.getRootDirectories().iterator().next().getFileSystem();
-            if (f instanceof FileSystemId) {
-                batchFileSystems.add(((FileSystemId) f).id());
-            }
-        }
+        lockBatch(fs);
         service.startBatch(fs,
                            options);
     }
@@ -268,65 +359,105 @@ public class IOServiceClusterImpl implements IOService {
     @Override
     public void startBatch(final FileSystem _fs,
                            final Option... options) {
-        clusterService.lock();
         final FileSystem fs = _fs.getRootDirectories().iterator().next().getFileSystem();
-        if (fs instanceof FileSystemId) {
-            batchFileSystems.add(((FileSystemId) fs).id());
-        }
-
+        lockBatch(fs);
         service.startBatch(fs,
                            options);
     }
 
     @Override
     public void startBatch(final FileSystem... fs) {
-        clusterService.lock();
+        lockBatch(fs);
+        service.startBatch(fs);
+    }
+
+    /**
+     * Locks the cluster for the file systems of a batch only, unless some of them can't be identified.
+     */
+    private void lockBatch(final FileSystem... fs) {
+        final Map<String, FileSystem> fileSystems = new HashMap<String, FileSystem>();
+        boolean identified = fs.length > 0;
         for (final FileSystem _f : fs) {
             final FileSystem f = _f.getRootDirectories().iterator().next().getFileSystem();
             if (f instanceof FileSystemId) {
-                batchFileSystems.add(((FileSystemId) f).id());
+                fileSystems.put(((FileSystemId) f).id(),
+                                f);
+            } else {
+                identified = false;
             }
         }
-        service.startBatch(fs);
+
+        final Set<String> lockedIds = identified ? new HashSet<String>(fileSystems.keySet()) : null;
+        if (lockedIds == null) {
+            clusterService.lock();
+        } else {
+            clusterService.lock(lockedIds);
+        }
+
+        Batch current = batch.get();
+        if (current == null) {
+            current = new Batch();
+            batch.set(current);
+        }
+        for (final Map.Entry<String, FileSystem> f : fileSystems.entrySet()) {
+            if (!current.fileSystems.containsKey(f.getKey())) {
+                current.fileSystems.put(f.getKey(),
+                                        refsOf(f.getValue()));
+            }
+        }
+        current.locks.add(lockedIds);
+    }
+
+    private void unlockBatch(final Set<String> lockedIds) {
+        if (lockedIds == null) {
+            clusterService.unlock();
+        } else {
+            clusterService.unlock(lockedIds);
+        }
     }
 
     @Override
     public void endBatch() {
         service.endBatch();
-        if (service.getLockControl().getHoldCount() == 0) {
-            final AtomicInteger process = new AtomicInteger(batchFileSystems.size());
+        final Batch current = batch.get();
+        if (current == null || current.locks.isEmpty()) {
+            return;
+        }
+        final Set<String> lockedIds = current.locks.remove(current.locks.size() - 1);
+        if (service.getLockControl().getHoldCount() != 0) {
+            unlockBatch(lockedIds);
+            return;
+        }
 
+        batch.remove();
+        try {
             for (final FileSystem _fs : service.getFileSystems()) {
                 final FileSystem fs = _fs.getRootDirectories().iterator().next().getFileSystem();
                 if (fs instanceof FileSystemId &&
-                        batchFileSystems.contains(((FileSystemId) fs).id())) {
+                        current.fileSystems.containsKey(((FileSystemId) fs).id())) {
                     try {
                         new FileSystemSyncNonLock<Void>(service.getId(),
-                                                        fs).execute(clusterService,
-                                                                    new FutureTask<Void>(new Callable<Void>() {
-                                                                        @Override
-                                                                        public Void call() throws Exception {
-                                                                            if (process.decrementAndGet() == 0) {
-                                                                                clusterService.unlock();
-                                                                            }
-                                                                            return null;
-                                                                        }
-                                                                    }));
+                                                        fs,
+                                                        current.fileSystems.get(((FileSystemId) fs).id())).sendMessage(clusterService);
                     } catch (Exception ex) {
                         logger.error("End batch error",
                                      ex);
-                        if (process.decrementAndGet() == 0) {
-                            clusterService.unlock();
-                        }
                     }
                 }
             }
-            batchFileSystems.clear();
-        } else {
-            clusterService.unlock();
+        } finally {
+            unlockBatch(lockedIds);
         }
     }
 
+    /**
+     * Ids of the file systems in the batch of the current thread.
+     */
+    Set<String> getBatchFileSystems() {
+        final Batch current = batch.get();
+        return current == null ? Collections.<String>emptySet() : current.fileSystems.keySet();
+    }
+
     @Override
     public FileAttribute<?>[] convert(final Map<String, ?> attrs) {
         return service.convert(attrs);
@@ -1207,6 +1338,60 @@ public class IOServiceClusterImpl implements IOService {
         return service.priority() - 1;
     }
 
+    private static class Batch {
+
+        // refs of every file system when the batch started, null when unknown
+        private final Map<String, Map<String, String>> fileSystems = new HashMap<String, Map<String, String>>();
+        // ids locked by each nested startBatch, null when the whole cluster was locked
+        private final List<Set<String>> locks = new ArrayList<Set<String>>();
+    }
+
+    private static class PendingSync {
+
+        private final String scheme;
+        private String[] uris;
+        // null when the whole file system has to be synced
+        private FileSystemRefChanges changes;
+
+        PendingSync(final String scheme,
+                    final String[] uris,
+                    final FileSystemRefChanges changes) {
+            this.scheme = scheme;
+            this.uris = uris;
+            this.changes = changes;
+        }
+
+        void merge(final PendingSync later) {
+            uris = later.uris;
+            if (changes == null || later.changes == null) {
+                changes = null;
+            } else {
+                changes.merge(later.changes);
+            }
+        }
+
+        /**
+         * @return The changed refs as {@code ref:newId}, separated by {@code ~}; null to sync the whole file system,
+         * which is also done if some ref name can't be sent in a query.
+         */
+        String refsParam() {
+            if (changes == null) {
+                return null;
+            }
+            final StringBuilder refs = new StringBuilder();
+            for (final Map.Entry<String, String> ref : changes.getNewIds().entrySet()) {
+                if (ref.getKey().contains("&") || ref.getKey().contains("=") || ref.getKey().contains("~")) {
+                    return null;
+                }
+                if (refs.length() > 0) {
+                    refs.append('~');
+                }
+                refs.append(ref.getKey()).append(':').append(ref.getValue());
+            }
+            return refs.toString();
+        }
+    }
+
     static class FileSystemInfo {
 
         private String id;
@@ -1280,42 +1465,85 @@ public class IOServiceClusterImpl implements IOService {
         }
     }
 
+    /**
+     * Syncs the file systems changed by other nodes, fetching only the refs the message tells changed if any.
+     * Messages for a file system already being synced are merged and synced at once by the thread syncing it, so a
+     * burst of writes doesn't cost a sync each.
+     */
     class SyncFileSystemMessageHandler implements MessageHandler {
 
+        // next sync of every file system being synced
+        private final Map<String, PendingSync> pending = new HashMap<String, PendingSync>();
+        private final Set<String> syncing = new HashSet<String>();
+
         @Override
         public Pair<MessageType, Map<String, String>> handleMessage(final MessageType type,
                                                                     final Map<String, String> content) {
             if (SYNC_FS.equals(type)) {
-                final String scheme = content.get("fs_scheme");
                 final String id = content.get("fs_id");
-                final String[] supportedUris = cleanup(content.get("fs_uri").split("\n"));
+                final PendingSync sync = new PendingSync(content.get("fs_scheme"),
+                                                         cleanup(content.get("fs_uri").split("\n")),
+                                                         FileSystemRefChanges.from(content));
+                synchronized (this) {
+                    final PendingSync queued = pending.get(id);
+                    if (queued == null) {
+                        pending.put(id,
+                                    sync);
+                    } else {
+                        queued.merge(sync);
+                    }
+                    if (!syncing.add(id)) {
+                        return null;
+                    }
+                }
 
-                for (final String supportedUri : supportedUris) {
-                    try {
-                        String origin;
-                        try {
-                            origin = URLEncoder.encode(supportedUri,
-                                                       "UTF-8");
-                        } catch (UnsupportedEncodingException e) {
-                            origin = supportedUri;
+                while (true) {
+                    final PendingSync next;
+                    synchronized (this) {
+                        next = pending.remove(id);
+                        if (next == null) {
+                            syncing.remove(id);
+                            break;
                         }
-
-                        final URI fs = URI.create(scheme + "://" + id + "?sync=" + origin + "&force");
-
-                        service.getFileSystem(fs);
-                        break;
-                    } catch (Exception e) {
-                        // try the other supported uri in case of failure
-                        logger.warn("File system synchronization for origin {} failed with error {}, trying another if available",
-                                    supportedUri,
-                                    e.getMessage());
                     }
+                    sync(id,
+                         next);
                 }
             }
 
             return null;
         }
 
+        private void sync(final String id,
+                          final PendingSync sync) {
+            final String refs = sync.refsParam();
+            if (refs != null && refs.isEmpty()) {
+                return;
+            }
+            for (final String supportedUri : sync.uris) {
+                try {
+                    final URI fs = URI.create(sync.scheme + "://" + id + "?sync=" + encode(supportedUri) + "&force" + (refs == null ? "" : "&refs=" + encode(refs)));
+
+                    service.getFileSystem(fs);
+                    break;
+                } catch (Exception e) {
+                    // try the other supported uri in case of failure
+                    logger.warn("File system synchronization for origin {} failed with error {}, trying another if available",
+                                supportedUri,
+                                e.getMessage());
+                }
+            }
+        }
+
+        private String encode(final String value) {
+            try {
+                return URLEncoder.encode(value,
+                                         "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                return value;
+            }
+        }
+
         private String[] cleanup(final String... split) {
             final List<String> result = new ArrayList<String>(split.length);
             for (final String s : split) {
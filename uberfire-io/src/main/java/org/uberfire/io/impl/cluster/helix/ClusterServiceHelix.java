@@ -16,20 +16,30 @@
 
 package org.uberfire.io.impl.cluster.helix;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
 import org.apache.helix.Criteria;
+import org.apache.helix.HelixAdmin;
+import org.apache.helix.HelixException;
 import org.apache.helix.HelixManager;
 import org.apache.helix.InstanceType;
 import org.apache.helix.NotificationContext;
+import org.apache.helix.manager.zk.ZkClient;
 import org.apache.helix.messaging.handling.HelixTaskResult;
 import org.apache.helix.messaging.handling.MessageHandler;
 import org.apache.helix.messaging.handling.MessageHandlerFactory;
 import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.IdealState;
 import org.apache.helix.model.Message;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,22 +55,48 @@ import static java.util.Arrays.asList;
 import static java.util.UUID.randomUUID;
 import static org.apache.helix.HelixManagerFactory.getZKHelixManager;
 
+/**
+ * Cluster service backed by Helix.
+ * <p>
+ * The cluster lock is split in the partitions of the {@code LeaderStandby} resource, and file systems are mapped to
+ * partitions by a hash of their id, so nodes changing file systems of different partitions don't wait for each other;
+ * {@link #lock()} takes every partition, in order. The resource is created with {@value #PARTITIONS_PROPERTY}
+ * partitions ({@value #DEFAULT_PARTITIONS} by default) when missing, and grown to that many partitions at start when
+ * the property is set; every node must then be restarted with the same value, as the file systems are mapped to
+ * partitions by the count read at start.
+ * <p>
+ * A partition is owned through a {@link ZkPartitionLock}, as Helix alone would move the leadership to the preferred
+ * replica as soon as it's enabled. The owner then enables its replica of the partition and waits for Helix to make it
+ * the leader, so the external view keeps telling who holds each lock, and disables it before releasing the
+ * partition. Leadership changes are notified by the state transitions of this node's replicas.
+ */
 public class ClusterServiceHelix implements ClusterService {
 
     private static final AtomicInteger counter = new AtomicInteger(0);
     private static final Logger logger = LoggerFactory.getLogger(ClusterServiceHelix.class);
 
+    public static final String PARTITIONS_PROPERTY = "org.uberfire.cluster.partitions";
+    static final int DEFAULT_PARTITIONS = 16;
+
     private static final String ORIGIN = "origin";
     private static final String SERVICE_ID = "serviceId";
     private static final String OFFLINE = "OFFLINE";
+    private static final String STANDBY = "STANDBY";
+    private static final String LEADER = "LEADER";
 
     private final String clusterName;
+    private final String zkAddress;
     private final String instanceName;
     private final HelixManager participantManager;
     private final String resourceName;
     private final Map<String, MessageHandlerResolver> messageHandlerResolver = new ConcurrentHashMap<String, MessageHandlerResolver>();
 
-    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Map<Integer, ReentrantLock> partitionLocks = new ConcurrentHashMap<>();
+    private final Map<Integer, ZkPartitionLock> clusterLocks = new ConcurrentHashMap<>();
+    // state of this node's replica of every partition, as notified by its transitions; missing means offline
+    private final Map<String, String> partitionStates = new ConcurrentHashMap<>();
+    private volatile int partitionCount = 1;
+    private ZkClient zkClient;
 
     public ClusterServiceHelix(final String clusterName,
                                final String zkAddress,
@@ -68,6 +104,7 @@ public class ClusterServiceHelix implements ClusterService {
                                final String resourceName,
                                final MessageHandlerResolver messageHandlerResolver) {
         this.clusterName = clusterName;
+        this.zkAddress = zkAddress;
         this.instanceName = instanceName;
         this.resourceName = resourceName;
         addMessageHandlerResolver(messageHandlerResolver);
@@ -101,9 +138,11 @@ public class ClusterServiceHelix implements ClusterService {
             participantManager.getMessagingService().registerMessageHandlerFactory(Message.MessageType.USER_DEFINE_MSG.toString(),
                                                                                    new MessageHandlerResolverWrapper().convert());
             participantManager.getStateMachineEngine().registerStateModelFactory("LeaderStandby",
-                                                                                 new LockTransitionalFactory());
+                                                                                 new LockTransitionalFactory(this::onPartitionState));
             participantManager.connect();
-            offlinePartition();
+            zkClient = new ZkClient(zkAddress);
+            partitionCount = readPartitionCount();
+            offlinePartitions();
         } catch (final Exception ex) {
             throw new RuntimeException(ex);
         }
@@ -141,6 +180,9 @@ public class ClusterServiceHelix implements ClusterService {
         if (participantManager != null && participantManager.isConnected()) {
             participantManager.disconnect();
         }
+        if (zkClient != null) {
+            zkClient.close();
+        }
     }
 
     @Override
@@ -150,75 +192,310 @@ public class ClusterServiceHelix implements ClusterService {
 
     @Override
     public int getHoldCount() {
-        return lock.getHoldCount();
+        int holdCount = 0;
+        for (final ReentrantLock lock : partitionLocks.values()) {
+            holdCount = Math.max(holdCount,
+                                 lock.getHoldCount());
+        }
+        return holdCount;
     }
 
-    private void offlinePartition() {
-        if (OFFLINE.equals(getNodeStatus())) {
-            return;
+    int getPartitionCount() {
+        return partitionCount;
+    }
+
+    /**
+     * Partition holding the lock of the given file system.
+     */
+    int partitionOf(final String fileSystemId) {
+        return (fileSystemId.hashCode() & Integer.MAX_VALUE) % partitionCount;
+    }
+
+    String partitionName(final int partition) {
+        return resourceName + "_" + partition;
+    }
+
+    String getPartitionState(final String partitionName) {
+        final String state = partitionStates.get(partitionName);
+        return state == null ? OFFLINE : state;
+    }
+
+    void onPartitionState(final String partitionName,
+                          final String state) {
+        synchronized (partitionStates) {
+            partitionStates.put(partitionName,
+                                state);
+            partitionStates.notifyAll();
+        }
+    }
+
+    private int readPartitionCount() {
+        final HelixAdmin admin = participantManager.getClusterManagmentTool();
+        final Integer requested = readRequestedPartitions();
+        IdealState idealState = admin.getResourceIdealState(clusterName,
+                                                            resourceName);
+        if (idealState == null) {
+            try {
+                admin.addResource(clusterName,
+                                  resourceName,
+                                  requested == null ? DEFAULT_PARTITIONS : requested,
+                                  "LeaderStandby",
+                                  IdealState.RebalanceMode.FULL_AUTO.toString());
+                rebalance(admin);
+            } catch (final HelixException ex) {
+                // created by another node in the meantime
+                logger.debug("Cluster resource " + resourceName + " already created",
+                             ex);
+            }
+        } else if (requested != null && requested > idealState.getNumPartitions()) {
+            logger.info("Growing cluster resource {} from {} to {} lock partitions",
+                        resourceName,
+                        idealState.getNumPartitions(),
+                        requested);
+            idealState.setNumPartitions(requested);
+            admin.setResourceIdealState(clusterName,
+                                        resourceName,
+                                        idealState);
+            rebalance(admin);
+        }
+        idealState = admin.getResourceIdealState(clusterName,
+                                                 resourceName);
+        final int count = idealState == null ? 1 : Math.max(1,
+                                                            idealState.getNumPartitions());
+        logger.info("Cluster resource {} has {} lock partition(s)",
+                    resourceName,
+                    count);
+        return count;
+    }
+
+    /**
+     * Every node gets a replica of every partition, so any of them can lead it.
+     */
+    private void rebalance(final HelixAdmin admin) {
+        admin.rebalance(clusterName,
+                        resourceName,
+                        Math.max(1,
+                                 admin.getInstancesInCluster(clusterName).size()));
+    }
+
+    private static Integer readRequestedPartitions() {
+        final String value = System.getProperty(PARTITIONS_PROPERTY);
+        if (value == null) {
+            return null;
+        }
+        try {
+            final int partitions = Integer.parseInt(value.trim());
+            if (partitions > 0) {
+                return partitions;
+            }
+        } catch (final NumberFormatException ex) {
+        }
+        logger.warn("Invalid value '{}' of {}, keeping the lock partitions of the cluster resource",
+                    value,
+                    PARTITIONS_PROPERTY);
+        return null;
+    }
+
+    private void offlinePartitions() {
+        final List<String> partitions = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(partitionName(i));
         }
         participantManager.getClusterManagmentTool().enablePartition(false,
                                                                      clusterName,
                                                                      instanceName,
                                                                      resourceName,
-                                                                     asList(resourceName + "_0"));
-        while (!OFFLINE.equals(getNodeStatus())) {
-            try {
-                Thread.sleep(10);
-            } catch (InterruptedException e) {
-            }
+                                                                     partitions);
+        for (final String partition : partitions) {
+            awaitPartitionState(partition,
+                                OFFLINE::equals);
         }
     }
 
-    private void enablePartition() {
-        if ("LEADER".equals(getNodeStatus())) {
+    private void enablePartition(final int partition) {
+        final String partitionName = partitionName(partition);
+        if (LEADER.equals(getPartitionState(partitionName))) {
             return;
         }
         participantManager.getClusterManagmentTool().enablePartition(true,
                                                                      clusterName,
                                                                      instanceName,
                                                                      resourceName,
-                                                                     asList(resourceName + "_0"));
-        while (!"LEADER".equals(getNodeStatus())) {
-            try {
-                Thread.sleep(10);
-            } catch (InterruptedException e) {
-            }
-        }
+                                                                     asList(partitionName));
+        awaitPartitionState(partitionName,
+                            LEADER::equals);
     }
 
-    private void disablePartition() {
-        String nodeStatus = getNodeStatus();
-        if ("STANDBY".equals(nodeStatus) || OFFLINE.equals(nodeStatus)) {
+    private void disablePartition(final int partition) {
+        final String partitionName = partitionName(partition);
+        if (!LEADER.equals(getPartitionState(partitionName))) {
             return;
         }
         participantManager.getClusterManagmentTool().enablePartition(false,
                                                                      clusterName,
                                                                      instanceName,
                                                                      resourceName,
-                                                                     asList(resourceName + "_0"));
+                                                                     asList(partitionName));
+        awaitPartitionState(partitionName,
+                            state -> STANDBY.equals(state) || OFFLINE.equals(state));
+    }
 
-        while (!("STANDBY".equals(nodeStatus) || OFFLINE.equals(nodeStatus))) {
-            try {
-                Thread.sleep(10);
-                nodeStatus = getNodeStatus();
-            } catch (InterruptedException e) {
+    private void awaitPartitionState(final String partitionName,
+                                     final Predicate<String> expected) {
+        boolean interrupted = false;
+        synchronized (partitionStates) {
+            while (!expected.test(getPartitionState(partitionName))) {
+                try {
+                    partitionStates.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
             }
         }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     @Override
     public void lock() {
-        lock.lock();
-
-        enablePartition();
+        lockPartitions(allPartitions());
     }
 
     @Override
     public void unlock() {
-        disablePartition();
+        unlockPartitions(allPartitions());
+    }
 
-        lock.unlock();
+    @Override
+    public void lock(final Collection<String> fileSystemIds) {
+        lockPartitions(partitionsOf(fileSystemIds));
+    }
+
+    @Override
+    public void unlock(final Collection<String> fileSystemIds) {
+        unlockPartitions(partitionsOf(fileSystemIds));
+    }
+
+    /**
+     * Partitions are always locked in ascending order so nodes (or threads) locking several of them can't deadlock.
+     * A thread already holding partitions higher than a new one first releases them, then locks all of them again in
+     * order with the same hold counts; other nodes may take the released partitions in between.
+     */
+    private void lockPartitions(final NavigableSet<Integer> partitions) {
+        final Map<Integer, Integer> released = releaseHigherPartitions(partitions);
+        final NavigableSet<Integer> toLock = new TreeSet<>(partitions);
+        toLock.addAll(released.keySet());
+        final List<Integer> locked = new ArrayList<>();
+        try {
+            for (final Integer partition : toLock) {
+                final int holds = released.getOrDefault(partition,
+                                                        0) + (partitions.contains(partition) ? 1 : 0);
+                for (int i = 0; i < holds; i++) {
+                    final ReentrantLock lock = partitionLocks.computeIfAbsent(partition,
+                                                                              p -> new ReentrantLock(true));
+                    lock.lock();
+                    locked.add(partition);
+                    if (lock.getHoldCount() == 1) {
+                        clusterLock(partition).lock();
+                        enablePartition(partition);
+                    }
+                }
+            }
+        } catch (final RuntimeException ex) {
+            for (int i = locked.size() - 1; i >= 0; i--) {
+                unlockPartitions(new TreeSet<>(asList(locked.get(i))));
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Releases the partitions held by this thread above the lowest of the given ones it doesn't hold yet.
+     * @return The hold count of each released partition.
+     */
+    private Map<Integer, Integer> releaseHigherPartitions(final NavigableSet<Integer> partitions) {
+        Integer lowestNew = null;
+        for (final Integer partition : partitions) {
+            final ReentrantLock lock = partitionLocks.get(partition);
+            if (lock == null || !lock.isHeldByCurrentThread()) {
+                lowestNew = partition;
+                break;
+            }
+        }
+        final Map<Integer, Integer> released = new HashMap<>();
+        if (lowestNew == null) {
+            return released;
+        }
+        for (final Map.Entry<Integer, ReentrantLock> lock : partitionLocks.entrySet()) {
+            if (lock.getKey() > lowestNew && lock.getValue().isHeldByCurrentThread()) {
+                released.put(lock.getKey(),
+                             lock.getValue().getHoldCount());
+            }
+        }
+        if (!released.isEmpty()) {
+            logger.debug("Releasing partitions {} of {} to lock {} in order",
+                         released.keySet(),
+                         resourceName,
+                         partitions);
+            final NavigableSet<Integer> releasedPartitions = new TreeSet<>(released.keySet());
+            for (final Integer partition : releasedPartitions.descendingSet()) {
+                for (int i = released.get(partition); i > 0; i--) {
+                    unlockPartitions(new TreeSet<>(asList(partition)));
+                }
+            }
+        }
+        return released;
+    }
+
+    private void unlockPartitions(final NavigableSet<Integer> partitions) {
+        for (final Integer partition : partitions.descendingSet()) {
+            final ReentrantLock lock = partitionLocks.get(partition);
+            if (lock == null || !lock.isHeldByCurrentThread()) {
+                throw new IllegalMonitorStateException("Partition " + partitionName(partition) + " isn't locked by this thread");
+            }
+            try {
+                if (lock.getHoldCount() == 1) {
+                    releasePartition(partition);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void releasePartition(final int partition) {
+        final ZkPartitionLock clusterLock = clusterLock(partition);
+        if (!clusterLock.isLocked()) {
+            return;
+        }
+        try {
+            disablePartition(partition);
+        } finally {
+            clusterLock.unlock();
+        }
+    }
+
+    private ZkPartitionLock clusterLock(final int partition) {
+        return clusterLocks.computeIfAbsent(partition,
+                                            p -> new ZkPartitionLock(zkClient,
+                                                                     "/" + clusterName + "/PROPERTYSTORE/locks/" + partitionName(p)));
+    }
+
+    private NavigableSet<Integer> allPartitions() {
+        final NavigableSet<Integer> partitions = new TreeSet<>();
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(i);
+        }
+        return partitions;
+    }
+
+    private NavigableSet<Integer> partitionsOf(final Collection<String> fileSystemIds) {
+        final NavigableSet<Integer> partitions = new TreeSet<>();
+        for (final String fileSystemId : fileSystemIds) {
+            partitions.add(partitionOf(fileSystemId));
+        }
+        return partitions;
     }
 
     @Override
@@ -16,6 +16,8 @@
 
 package org.uberfire.io.impl.cluster.helix;
 
+import java.util.function.BiConsumer;
+
 import org.apache.helix.NotificationContext;
 import org.apache.helix.model.Message;
 import org.apache.helix.participant.statemachine.StateModel;
@@ -26,33 +28,60 @@ import org.apache.helix.participant.statemachine.Transition;
 public class LockTransitionModel extends StateModel {
 
     private final String lockName;
+    private final BiConsumer<String, String> stateListener;
 
     public LockTransitionModel(final String lockName) {
+        this(lockName,
+             (partition, state) -> {
+             });
+    }
+
+    /**
+     * @param stateListener Notified of every state this node's replica of the partition moves to.
+     */
+    public LockTransitionModel(final String lockName,
+                               final BiConsumer<String, String> stateListener) {
         this.lockName = lockName;
+        this.stateListener = stateListener;
     }
 
     @Transition(from = "STANDBY", to = "LEADER")
     public void lock(final Message m,
                      final NotificationContext context) {
+        stateListener.accept(lockName,
+                             "LEADER");
     }
 
     @Transition(from = "LEADER", to = "STANDBY")
     public void release(final Message m,
                         final NotificationContext context) {
+        stateListener.accept(lockName,
+                             "STANDBY");
     }
 
     @Transition(from = "STANDBY", to = "OFFLINE")
     public void toOffLine(final Message m,
                           final NotificationContext context) {
+        stateListener.accept(lockName,
+                             "OFFLINE");
     }
 
     @Transition(from = "OFFLINE", to = "STANDBY")
     public void toStandBy(final Message m,
                           final NotificationContext context) {
+        stateListener.accept(lockName,
+                             "STANDBY");
     }
 
     @Transition(from = "OFFLINE", to = "DROPPED")
     public void dropped(final Message m,
                         final NotificationContext context) {
     }
+
+    @Override
+    public void reset() {
+        // connection to the cluster lost
+        stateListener.accept(lockName,
+                             "OFFLINE");
+    }
 }
@@ -16,12 +16,29 @@
 
 package org.uberfire.io.impl.cluster.helix;
 
+import java.util.function.BiConsumer;
+
 import org.apache.helix.participant.statemachine.StateModelFactory;
 
 public class LockTransitionalFactory extends StateModelFactory<LockTransitionModel> {
 
+    private final BiConsumer<String, String> stateListener;
+
+    public LockTransitionalFactory() {
+        this((partition, state) -> {
+        });
+    }
+
+    /**
+     * @param stateListener Notified of every state this node's replica of a partition moves to.
+     */
+    public LockTransitionalFactory(final BiConsumer<String, String> stateListener) {
+        this.stateListener = stateListener;
+    }
+
     @Override
     public LockTransitionModel createNewStateModel(final String lockName) {
-        return new LockTransitionModel(lockName);
+        return new LockTransitionModel(lockName,
+                                       stateListener);
     }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.io.impl.cluster.helix;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.I0Itec.zkclient.IZkChildListener;
+import org.apache.helix.manager.zk.ZkClient;
+
+/**
+ * Cluster wide mutual exclusion of a lock partition, through ephemeral sequential nodes under a ZooKeeper path.
+ * <p>
+ * Every node locking the partition queues an ephemeral sequential node and owns the lock once its node is the
+ * first one; waiting nodes are woken up by a watch on the queue, and only check the queue again every few seconds in
+ * case a notification was lost, e.g. while reconnecting. Nodes of crashed members go away with their session. Not
+ * reentrant: callers count their own holds.
+ */
+class ZkPartitionLock {
+
+    private static final String PREFIX = "lock-";
+    private static final long RECHECK_INTERVAL = 5000;
+
+    private final ZkClient zkClient;
+    private final String path;
+    private final IZkChildListener listener = (parentPath, children) -> wakeUp();
+    private volatile String lockNode;
+
+    ZkPartitionLock(final ZkClient zkClient,
+                    final String path) {
+        this.zkClient = zkClient;
+        this.path = path;
+        zkClient.createPersistent(path,
+                                  true);
+    }
+
+    void lock() {
+        final String node = zkClient.createEphemeralSequential(path + "/" + PREFIX,
+                                                               null);
+        final String nodeName = node.substring(path.length() + 1);
+        boolean interrupted = false;
+        zkClient.subscribeChildChanges(path,
+                                       listener);
+        try {
+            synchronized (this) {
+                while (!nodeName.equals(first(zkClient.getChildren(path)))) {
+                    try {
+                        wait(RECHECK_INTERVAL);
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+        } catch (final RuntimeException ex) {
+            zkClient.delete(node);
+            throw ex;
+        } finally {
+            zkClient.unsubscribeChildChanges(path,
+                                             listener);
+        }
+        lockNode = node;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void unlock() {
+        final String node = lockNode;
+        if (node == null) {
+            throw new IllegalMonitorStateException("Lock " + path + " isn't held");
+        }
+        lockNode = null;
+        zkClient.delete(node);
+    }
+
+    boolean isLocked() {
+        return lockNode != null;
+    }
+
+    private synchronized void wakeUp() {
+        notifyAll();
+    }
+
+    private static String first(final List<String> children) {
+        if (children == null || children.isEmpty()) {
+            return null;
+        }
+        // sequence numbers have a fixed width, so they sort as strings
+        return Collections.min(children);
+    }
+}
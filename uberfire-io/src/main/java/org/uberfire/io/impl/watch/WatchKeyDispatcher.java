@@ -0,0 +1,242 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.io.impl.watch;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.uberfire.commons.async.DescriptiveRunnable;
+import org.uberfire.java.nio.base.ListenableWatchService;
+import org.uberfire.java.nio.file.WatchKey;
+
+import static org.kie.soup.commons.validation.PortablePreconditions.checkCondition;
+import static org.kie.soup.commons.validation.PortablePreconditions.checkNotNull;
+
+/**
+ * Dispatches the watch keys of many {@link ListenableWatchService}s with a fixed number of workers, so the number of
+ * threads doesn't depend on the number of watched file systems.
+ * <p>
+ * A watch service with new keys is put in the dispatch queue, and a worker then polls and handles its keys. A watch
+ * service is in the queue at most once and is handled by a single worker at a time, so its keys are handled in order
+ * and the queue never holds more entries than registered watch services; keys waiting to be handled stay in the
+ * bounded queue of their watch service. A worker gives up a watch service after {@link #BATCH_SIZE} keys and puts it
+ * back at the end of the queue, so a busy file system doesn't hold back the others.
+ */
+public class WatchKeyDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WatchKeyDispatcher.class);
+
+    public static final int DEFAULT_THREADS = readThreads("org.uberfire.watcher.dispatcher.threads",
+                                                          4);
+
+    static final int BATCH_SIZE = 16;
+
+    private final String name;
+    private final ExecutorService executorService;
+    private final int threads;
+    private final BlockingQueue<Registration> queue = new LinkedBlockingQueue<>();
+    private final Registration stop = new Registration(null,
+                                                       null);
+    private boolean started = false;
+    private volatile boolean disposed = false;
+
+    /**
+     * @param name Name of the dispatcher, used to describe its workers.
+     * @param executorService Executor running the workers.
+     * @param threads Number of workers.
+     */
+    public WatchKeyDispatcher(final String name,
+                              final ExecutorService executorService,
+                              final int threads) {
+        checkCondition("threads must be positive",
+                       threads > 0);
+        this.name = checkNotNull("name",
+                                 name);
+        this.executorService = checkNotNull("executorService",
+                                            executorService);
+        this.threads = threads;
+    }
+
+    /**
+     * Starts dispatching the keys to the handlers; keys published before are kept by their watch services until then.
+     */
+    public synchronized void start() {
+        if (started || disposed) {
+            return;
+        }
+        started = true;
+        for (int i = 0; i < threads; i++) {
+            executorService.execute(new DescriptiveRunnable() {
+                @Override
+                public String getDescription() {
+                    return name + "(WatchKeyDispatcher)";
+                }
+
+                @Override
+                public void run() {
+                    work();
+                }
+            });
+        }
+    }
+
+    /**
+     * Handles the keys of the given watch service, starting with the keys it already holds.
+     * @param handler Handles a key, returning false to stop watching; keys of the watch service are never handled
+     * concurrently.
+     */
+    public Registration register(final ListenableWatchService ws,
+                                 final Predicate<WatchKey> handler) {
+        final Registration registration = new Registration(checkNotNull("ws",
+                                                                        ws),
+                                                           checkNotNull("handler",
+                                                                        handler));
+        ws.setKeysAvailableListener(registration::signal);
+        registration.signal();
+        return registration;
+    }
+
+    /**
+     * Stops the workers once they're done with the keys they're handling.
+     */
+    public synchronized void dispose() {
+        if (disposed) {
+            return;
+        }
+        disposed = true;
+        queue.clear();
+        if (started) {
+            for (int i = 0; i < threads; i++) {
+                queue.offer(stop);
+            }
+        }
+    }
+
+    /**
+     * Number of watch services waiting for a worker.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void work() {
+        while (!disposed) {
+            final Registration registration;
+            try {
+                registration = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (registration == stop) {
+                return;
+            }
+            registration.dispatch();
+        }
+    }
+
+    private static int readThreads(final String property,
+                                   final int defaultValue) {
+        final String value = System.getProperty(property);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            final int threads = Integer.parseInt(value.trim());
+            if (threads > 0) {
+                return threads;
+            }
+        } catch (final NumberFormatException ex) {
+        }
+        LOGGER.warn("Invalid value '{}' of {}, using {} threads",
+                    value,
+                    property,
+                    defaultValue);
+        return defaultValue;
+    }
+
+    public class Registration {
+
+        private final ListenableWatchService ws;
+        private final Predicate<WatchKey> handler;
+        // signals not handled yet; the registration is queued, or held by a worker, while there is any
+        private final AtomicInteger signals = new AtomicInteger();
+        private volatile boolean cancelled = false;
+
+        private Registration(final ListenableWatchService ws,
+                             final Predicate<WatchKey> handler) {
+            this.ws = ws;
+            this.handler = handler;
+        }
+
+        /**
+         * Stops handling the keys of the watch service.
+         */
+        public void cancel() {
+            cancelled = true;
+            ws.setKeysAvailableListener(null);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        private void signal() {
+            if (!cancelled && !disposed && signals.getAndIncrement() == 0) {
+                queue.offer(this);
+            }
+        }
+
+        private void dispatch() {
+            final int seen = signals.get();
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                if (cancelled || disposed) {
+                    return;
+                }
+                final WatchKey wk;
+                try {
+                    wk = ws.poll();
+                } catch (final Exception ex) {
+                    // closed watch service
+                    cancel();
+                    return;
+                }
+                if (wk == null) {
+                    // keys published while polling left signals behind
+                    if (signals.addAndGet(-seen) > 0) {
+                        queue.offer(this);
+                    }
+                    return;
+                }
+                try {
+                    if (!handler.test(wk)) {
+                        cancel();
+                        return;
+                    }
+                } catch (final Exception ex) {
+                    LOGGER.error("Unexpected error handling the watch key of " + ws,
+                                 ex);
+                }
+            }
+            queue.offer(this);
+        }
+    }
+}
@@ -16,27 +16,276 @@
 
 package org.uberfire.io.lock;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.uberfire.java.nio.base.FileSystemId;
 import org.uberfire.java.nio.file.FileSystem;
 
+/**
+ * Batch locks, one per file system, so batches on unrelated file systems run in parallel.
+ * <p>
+ * A batch is owned by a thread: nested {@link #lock(FileSystem...)} calls (on the same or on
+ * other file systems) join the running batch, and every lock is released by the
+ * {@link #unlock()} matching the outermost one. The file systems of a single call are locked in
+ * name order, so batches on several file systems can't deadlock each other.
+ * <p>
+ * The lock of a file system is dropped once no thread holds or waits for it, so closed file
+ * systems aren't kept around; its contention counters are kept by name.
+ */
 public class BatchLockControl {
 
-    private ReentrantLock lock = new ReentrantLock(true);
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchLockControl.class);
+
+    private static final Comparator<FileSystem> LOCK_ORDER = Comparator.comparing(BatchLockControl::nameOf)
+            .thenComparingInt(System::identityHashCode);
+
+    private final Map<FileSystem, FileSystemLock> locks = new ConcurrentHashMap<>();
+    private final Map<String, LockCounters> counters = new ConcurrentHashMap<>();
+    private final ThreadLocal<Batch> batch = new ThreadLocal<>();
 
     public void lock(final FileSystem... fileSystems) {
-        lock.lock();
+        Batch current = batch.get();
+        if (current == null) {
+            current = new Batch();
+            batch.set(current);
+        }
+
+        final TreeMap<FileSystem, FileSystemLock> toLock = new TreeMap<>(LOCK_ORDER);
+        if (fileSystems != null) {
+            for (final FileSystem fs : fileSystems) {
+                if (fs != null && !current.locks.containsKey(fs) && !toLock.containsKey(fs)) {
+                    toLock.put(fs,
+                               reserve(fs));
+                }
+            }
+        }
+
+        if (!toLock.isEmpty() && !current.locks.isEmpty()) {
+            final FileSystem lastLocked = current.locks.keySet().stream().max(LOCK_ORDER).get();
+            if (LOCK_ORDER.compare(toLock.firstKey(),
+                                   lastLocked) < 0) {
+                LOGGER.warn("Nested batch on [" + nameOf(toLock.firstKey()) + "] started while holding [" + nameOf(lastLocked) +
+                                    "]; nested batches should lock file systems in name order to avoid deadlocks.");
+            }
+        }
+
+        final List<FileSystem> acquired = new ArrayList<>(toLock.size());
+        try {
+            for (final Map.Entry<FileSystem, FileSystemLock> entry : toLock.entrySet()) {
+                entry.getValue().lock();
+                acquired.add(entry.getKey());
+                current.locks.put(entry.getKey(),
+                                  entry.getValue());
+            }
+        } catch (final RuntimeException | Error ex) {
+            // leaves the batch as it was before this call
+            for (final Map.Entry<FileSystem, FileSystemLock> entry : toLock.entrySet()) {
+                if (acquired.contains(entry.getKey())) {
+                    current.locks.remove(entry.getKey());
+                    entry.getValue().unlock();
+                }
+                release(entry.getKey(),
+                        entry.getValue());
+            }
+            if (current.depth == 0) {
+                batch.remove();
+            }
+            throw ex;
+        }
+        current.depth++;
     }
 
     public void unlock() {
-        lock.unlock();
+        final Batch current = batch.get();
+        if (current == null || current.depth == 0) {
+            throw new IllegalMonitorStateException("There is no batch process on this thread.");
+        }
+        current.depth--;
+        if (current.depth == 0) {
+            batch.remove();
+            for (final Map.Entry<FileSystem, FileSystemLock> entry : current.locks.entrySet()) {
+                entry.getValue().unlock();
+                release(entry.getKey(),
+                        entry.getValue());
+            }
+        }
     }
 
+    /**
+     * True if any thread holds a batch lock.
+     */
     public boolean isLocked() {
-        return lock.isLocked();
+        for (final FileSystemLock lock : locks.values()) {
+            if (lock.lock.isLocked()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isHeldByCurrentThread() {
+        return getHoldCount() > 0;
     }
 
+    /**
+     * Batch nesting depth of the current thread.
+     */
     public int getHoldCount() {
-        return lock.getHoldCount();
+        final Batch current = batch.get();
+        return current == null ? 0 : current.depth;
+    }
+
+    /**
+     * File systems locked by the batch of the current thread.
+     */
+    public List<FileSystem> getLockedFileSystems() {
+        final Batch current = batch.get();
+        return current == null ? new ArrayList<>() : new ArrayList<>(current.locks.keySet());
+    }
+
+    /**
+     * Contention counters keyed by file system name.
+     */
+    public Map<String, BatchLockStatistics> getStatistics() {
+        final Map<String, BatchLockStatistics> result = new HashMap<>(counters.size());
+        for (final Map.Entry<String, LockCounters> entry : counters.entrySet()) {
+            result.put(entry.getKey(),
+                       entry.getValue().snapshot(entry.getKey()));
+        }
+        return result;
+    }
+
+    /**
+     * Registers the current thread as a user of the lock of the file system, creating it if needed.
+     */
+    private FileSystemLock reserve(final FileSystem fs) {
+        return locks.compute(fs,
+                             (key, lock) -> {
+                                 FileSystemLock result = lock;
+                                 if (result == null) {
+                                     result = new FileSystemLock(counters.computeIfAbsent(nameOf(key),
+                                                                                          name -> new LockCounters()));
+                                 }
+                                 result.users++;
+                                 return result;
+                             });
+    }
+
+    /**
+     * Unregisters the current thread as a user of the lock, dropping it when it was the last one.
+     */
+    private void release(final FileSystem fs,
+                         final FileSystemLock lock) {
+        locks.computeIfPresent(fs,
+                               (key, current) -> {
+                                   if (current != lock) {
+                                       return current;
+                                   }
+                                   current.users--;
+                                   return current.users == 0 ? null : current;
+                               });
+    }
+
+    /**
+     * Number of file systems whose lock is held or waited for.
+     */
+    int getLockCount() {
+        return locks.size();
+    }
+
+    private static String nameOf(final FileSystem fs) {
+        if (fs instanceof FileSystemId) {
+            return ((FileSystemId) fs).id();
+        }
+        return String.valueOf(fs);
+    }
+
+    private static class Batch {
+
+        private final Map<FileSystem, FileSystemLock> locks = new LinkedHashMap<>();
+        private int depth = 0;
+    }
+
+    /**
+     * Users (threads holding or waiting for the lock) are only counted inside the map operations
+     * on the lock, which are atomic per file system.
+     */
+    private static class FileSystemLock {
+
+        private final ReentrantLock lock = new ReentrantLock(true);
+        private final LockCounters counters;
+        private volatile long acquiredAt;
+        private int users = 0;
+
+        FileSystemLock(final LockCounters counters) {
+            this.counters = counters;
+        }
+
+        void lock() {
+            final long start = System.nanoTime();
+            lock.lock();
+            acquiredAt = System.nanoTime();
+            counters.acquired(acquiredAt - start);
+        }
+
+        void unlock() {
+            counters.released(System.nanoTime() - acquiredAt);
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Counters are only updated by the thread owning the lock they measure; max values use a CAS
+     * loop as snapshots may be read concurrently.
+     */
+    private static class LockCounters {
+
+        private final AtomicLong acquisitions = new AtomicLong();
+        private final AtomicLong totalWaitTime = new AtomicLong();
+        private final AtomicLong maxWaitTime = new AtomicLong();
+        private final AtomicLong totalHoldTime = new AtomicLong();
+        private final AtomicLong maxHoldTime = new AtomicLong();
+
+        void acquired(final long waitTime) {
+            acquisitions.incrementAndGet();
+            totalWaitTime.addAndGet(waitTime);
+            updateMax(maxWaitTime,
+                      waitTime);
+        }
+
+        void released(final long holdTime) {
+            totalHoldTime.addAndGet(holdTime);
+            updateMax(maxHoldTime,
+                      holdTime);
+        }
+
+        BatchLockStatistics snapshot(final String name) {
+            return new BatchLockStatistics(name,
+                                           acquisitions.get(),
+                                           totalWaitTime.get(),
+                                           maxWaitTime.get(),
+                                           totalHoldTime.get(),
+                                           maxHoldTime.get());
+        }
+
+        private static void updateMax(final AtomicLong max,
+                                      final long value) {
+            long current = max.get();
+            while (value > current && !max.compareAndSet(current,
+                                                         value)) {
+                current = max.get();
+            }
+        }
     }
 }
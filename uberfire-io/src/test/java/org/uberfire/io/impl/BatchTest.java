@@ -23,6 +23,8 @@ import java.net.URI;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.AfterClass;
@@ -32,6 +34,8 @@ import org.mockito.Mockito;
 import org.uberfire.commons.lifecycle.PriorityDisposableRegistry;
 import org.uberfire.io.CommonIOServiceDotFileTest;
 import org.uberfire.io.IOService;
+import org.uberfire.io.lock.BatchLockControl;
+import org.uberfire.io.lock.BatchLockStatistics;
 import org.uberfire.java.nio.base.options.CommentedOption;
 import org.uberfire.java.nio.base.version.VersionAttributeView;
 import org.uberfire.java.nio.file.FileSystem;
@@ -718,4 +722,54 @@ public class BatchTest {
         }
         assertFalse(ioServiceSpy.getLockControl().isLocked());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void batchesOnDifferentFileSystemsRunInParallel() throws Exception {
+        ioService.startBatch(new FileSystem[]{fs1});
+        try {
+            final CountDownLatch started = new CountDownLatch(1);
+            final Thread other = new Thread(() -> {
+                ioService.startBatch(new FileSystem[]{fs2});
+                started.countDown();
+                ioService.endBatch();
+            });
+            other.start();
+            assertTrue(started.await(10,
+                                     TimeUnit.SECONDS));
+            other.join();
+
+            assertTrue(fs1Batch.isOnBatch());
+            assertFalse(fs2Batch.isOnBatch());
+        } finally {
+            ioService.endBatch();
+        }
+        assertFalse(fs1Batch.isOnBatch());
+    }
+
+    @Test
+    public void nestedBatchOnOtherFileSystemEndsWithOuterBatch() throws Exception {
+        final BatchLockControl lockControl = ((IOServiceLockable) ioService).getLockControl();
+
+        ioService.startBatch(new FileSystem[]{fs1});
+        ioService.startBatch(new FileSystem[]{fs2});
+        assertEquals(2,
+                     lockControl.getHoldCount());
+        assertTrue(fs2Batch.isOnBatch());
+
+        ioService.endBatch();
+        assertTrue(fs1Batch.isOnBatch());
+        assertTrue(fs2Batch.isOnBatch());
+
+        ioService.endBatch();
+        assertFalse(fs1Batch.isOnBatch());
+        assertFalse(fs2Batch.isOnBatch());
+        assertEquals(0,
+                     lockControl.getHoldCount());
+        assertFalse(lockControl.isLocked());
+
+        final BatchLockStatistics statistics = lockControl.getStatistics().get(fs2Batch.id());
+        assertNotNull(statistics);
+        assertTrue(statistics.getAcquisitions() > 0);
+        assertTrue(statistics.getTotalHoldTime() > 0);
+    }
+}
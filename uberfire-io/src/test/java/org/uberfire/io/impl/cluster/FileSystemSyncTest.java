@@ -18,15 +18,21 @@ package org.uberfire.io.impl.cluster;
 
 import java.net.URI;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.FutureTask;
 
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.uberfire.commons.cluster.ClusterService;
 import org.uberfire.java.nio.base.FileSystemId;
+import org.uberfire.java.nio.base.FileSystemRefsAware;
 import org.uberfire.java.nio.file.FileSystem;
 import org.uberfire.java.nio.file.Path;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
+import static org.uberfire.io.impl.cluster.ClusterMessageType.SYNC_FS;
 
 public class FileSystemSyncTest {
 
@@ -63,4 +69,116 @@ public class FileSystemSyncTest {
                          content.get("fs_id"));
         }
     }
+
+    @Test
+    public void testChangedRefsAreSent() {
+        final FileSystem fs = mock(FileSystem.class,
+                                   withSettings().extraInterfaces(FileSystemId.class,
+                                                                  FileSystemRefsAware.class));
+        final Path rootPath = mock(Path.class);
+        when(fs.getRootDirectories()).thenReturn(Arrays.asList(rootPath));
+        when(rootPath.getFileSystem()).thenReturn(fs);
+        when(rootPath.toUri()).thenReturn(URI.create("git://myrepo"));
+        when(((FileSystemId) fs).id()).thenReturn("my-fsid");
+
+        final Map<String, String> refs = new HashMap<String, String>();
+        refs.put("master",
+                 "m1");
+        refs.put("dev",
+                 "d1");
+        when(((FileSystemRefsAware) fs).getRefs()).then(invocation -> new HashMap<String, String>(refs));
+
+        final ClusterService clusterService = mock(ClusterService.class);
+
+        new FileSystemSyncLock<Void>("serviceId",
+                                     fs).execute(clusterService,
+                                                 new FutureTask<Void>(() -> {
+                                                     refs.put("master",
+                                                              "m2");
+                                                     refs.put("feature",
+                                                              "f1");
+                                                     return null;
+                                                 }));
+
+        final ArgumentCaptor<Map> content = ArgumentCaptor.forClass(Map.class);
+        verify(clusterService).broadcast(eq("serviceId"),
+                                         eq(SYNC_FS),
+                                         content.capture());
+        final FileSystemRefChanges changes = FileSystemRefChanges.from(content.getValue());
+        final Map<String, String> expected = new HashMap<String, String>();
+        expected.put("master",
+                     "m2");
+        expected.put("feature",
+                     "f1");
+        assertEquals(expected,
+                     changes.getNewIds());
+        assertEquals("m1",
+                     content.getValue().get(FileSystemRefChanges.OLD_ID + indexOf(content.getValue(),
+                                                                                  "master")));
+        assertNull(content.getValue().get(FileSystemRefChanges.OLD_ID + indexOf(content.getValue(),
+                                                                                "feature")));
+
+        // nothing written, nothing to sync
+        reset(clusterService);
+        new FileSystemSyncLock<Void>("serviceId",
+                                     fs).execute(clusterService,
+                                                 new FutureTask<Void>(() -> null));
+        verify(clusterService,
+               never()).broadcast(anyString(),
+                                  any(),
+                                  anyMap());
+    }
+
+    @Test
+    public void testMergedChangesGoFromOldestToNewest() {
+        final FileSystemRefChanges first = FileSystemRefChanges.between(refs("master",
+                                                                             "m1"),
+                                                                        refs("master",
+                                                                             "m2"));
+        final FileSystemRefChanges second = FileSystemRefChanges.between(refs("master",
+                                                                              "m2"),
+                                                                         refs("master",
+                                                                              "m3"));
+        final FileSystemRefChanges third = FileSystemRefChanges.between(refs("master",
+                                                                             "m3"),
+                                                                        refs("master",
+                                                                             "m4"));
+        // the first change is received after the second one
+        second.merge(first);
+        second.merge(third);
+
+        final Map<String, String> content = new HashMap<String, String>();
+        second.putInto(content);
+        assertEquals("m1",
+                     content.get(FileSystemRefChanges.OLD_ID + 0));
+        assertEquals("m4",
+                     content.get(FileSystemRefChanges.NEW_ID + 0));
+    }
+
+    @Test
+    public void testDeletedRefsNeedFullSync() {
+        assertNull(FileSystemRefChanges.between(refs("master",
+                                                     "m1"),
+                                                new HashMap<String, String>()));
+        assertNull(FileSystemRefChanges.between(null,
+                                                refs("master",
+                                                     "m1")));
+    }
+
+    private static Map<String, String> refs(final String name,
+                                            final String id) {
+        final Map<String, String> refs = new HashMap<String, String>();
+        refs.put(name,
+                 id);
+        return refs;
+    }
+
+    private static int indexOf(final Map<String, String> content,
+                               final String ref) {
+        for (int i = 0; ; i++) {
+            if (ref.equals(content.get(FileSystemRefChanges.REF + i))) {
+                return i;
+            }
+        }
+    }
 }
@@ -17,10 +17,21 @@
 package org.uberfire.io.impl.cluster;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 import org.uberfire.commons.cluster.ClusterService;
+import org.uberfire.commons.cluster.ClusterServiceFactory;
+import org.uberfire.commons.message.AsyncCallback;
 import org.uberfire.io.impl.IOServiceLockable;
 import org.uberfire.io.lock.BatchLockControl;
 import org.uberfire.java.nio.base.FileSystemId;
@@ -30,6 +41,9 @@ import org.uberfire.java.nio.file.Path;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
+import static org.uberfire.io.impl.cluster.ClusterMessageType.QUERY_FOR_FS;
+import static org.uberfire.io.impl.cluster.ClusterMessageType.QUERY_FOR_FS_RESULT;
+import static org.uberfire.io.impl.cluster.ClusterMessageType.SYNC_FS;
 
 public class IOServiceClusterImplTest {
 
@@ -63,14 +77,14 @@ public class IOServiceClusterImplTest {
                                                                           serviceLockable);
 
             assertEquals(0,
-                         ioServiceCluster.batchFileSystems.size());
+                         ioServiceCluster.getBatchFileSystems().size());
 
             ioServiceCluster.startBatch(mockedFS);
 
             assertEquals(1,
-                         ioServiceCluster.batchFileSystems.size());
+                         ioServiceCluster.getBatchFileSystems().size());
 
-            assertTrue(ioServiceCluster.batchFileSystems.contains(((FileSystemId) mockedFSId).id()));
+            assertTrue(ioServiceCluster.getBatchFileSystems().contains(((FileSystemId) mockedFSId).id()));
 
             ioServiceCluster.endBatch();
 
@@ -78,10 +92,14 @@ public class IOServiceClusterImplTest {
                    times(1)).endBatch();
 
             assertEquals(0,
-                         ioServiceCluster.batchFileSystems.size());
+                         ioServiceCluster.getBatchFileSystems().size());
 
             verify(clusterService,
-                   times(1)).unlock();
+                   times(1)).lock(Collections.singleton("my-fsid"));
+            verify(clusterService,
+                   times(1)).unlock(Collections.singleton("my-fsid"));
+            verify(clusterService,
+                   never()).lock();
         }
 
         {
@@ -89,15 +107,15 @@ public class IOServiceClusterImplTest {
                                                                           serviceLockable);
 
             assertEquals(0,
-                         ioServiceCluster.batchFileSystems.size());
+                         ioServiceCluster.getBatchFileSystems().size());
 
             ioServiceCluster.startBatch(new FileSystem[]{mockedFS},
                                         mock(Option.class));
 
             assertEquals(1,
-                         ioServiceCluster.batchFileSystems.size());
+                         ioServiceCluster.getBatchFileSystems().size());
 
-            assertTrue(ioServiceCluster.batchFileSystems.contains(((FileSystemId) mockedFSId).id()));
+            assertTrue(ioServiceCluster.getBatchFileSystems().contains(((FileSystemId) mockedFSId).id()));
 
             ioServiceCluster.endBatch();
 
@@ -105,10 +123,14 @@ public class IOServiceClusterImplTest {
                    times(2)).endBatch();
 
             assertEquals(0,
-                         ioServiceCluster.batchFileSystems.size());
+                         ioServiceCluster.getBatchFileSystems().size());
 
             verify(clusterService,
-                   times(2)).unlock();
+                   times(2)).lock(Collections.singleton("my-fsid"));
+            verify(clusterService,
+                   times(2)).unlock(Collections.singleton("my-fsid"));
+            verify(clusterService,
+                   never()).lock();
         }
 
         {
@@ -116,15 +138,15 @@ public class IOServiceClusterImplTest {
                                                                           serviceLockable);
 
             assertEquals(0,
-                         ioServiceCluster.batchFileSystems.size());
+                         ioServiceCluster.getBatchFileSystems().size());
 
             ioServiceCluster.startBatch(mockedFS,
                                         mock(Option.class));
 
             assertEquals(1,
-                         ioServiceCluster.batchFileSystems.size());
+                         ioServiceCluster.getBatchFileSystems().size());
 
-            assertTrue(ioServiceCluster.batchFileSystems.contains(((FileSystemId) mockedFSId).id()));
+            assertTrue(ioServiceCluster.getBatchFileSystems().contains(((FileSystemId) mockedFSId).id()));
 
             ioServiceCluster.endBatch();
 
@@ -132,13 +154,146 @@ public class IOServiceClusterImplTest {
                    times(3)).endBatch();
 
             assertEquals(0,
-                         ioServiceCluster.batchFileSystems.size());
+                         ioServiceCluster.getBatchFileSystems().size());
 
             verify(clusterService,
-                   times(3)).unlock();
+                   times(3)).lock(Collections.singleton("my-fsid"));
+            verify(clusterService,
+                   times(3)).unlock(Collections.singleton("my-fsid"));
+            verify(clusterService,
+                   never()).lock();
         }
     }
 
+    @Test
+    public void testJoinCopiesFileSystemsWithoutLockingTheCluster() {
+        final ClusterService clusterService = mock(ClusterService.class);
+        final IOServiceLockable serviceLockable = mock(IOServiceLockable.class);
+        when(serviceLockable.getId()).thenReturn("serviceId");
+
+        final Map<String, String> reply = new HashMap<String, String>();
+        for (int i = 0; i < 10; i++) {
+            reply.put("fs_scheme_" + i,
+                      "git");
+            reply.put("fs_id_" + i,
+                      "repo" + i);
+            reply.put("fs_uri_" + i,
+                      "git://origin/repo" + i);
+        }
+        doAnswer(invocation -> {
+            ((AsyncCallback) invocation.getArguments()[4]).onReply(QUERY_FOR_FS_RESULT,
+                                                                   reply);
+            return null;
+        }).when(clusterService).broadcastAndWait(eq("serviceId"),
+                                                 eq(QUERY_FOR_FS),
+                                                 anyMap(),
+                                                 anyInt(),
+                                                 any(AsyncCallback.class));
+
+        final ClusterServiceFactory clusterServiceFactory = mock(ClusterServiceFactory.class);
+        when(clusterServiceFactory.build(any())).thenReturn(clusterService);
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            new IOServiceClusterImpl(serviceLockable,
+                                     clusterServiceFactory,
+                                     executorService);
+        } finally {
+            executorService.shutdown();
+        }
+
+        for (int i = 0; i < 10; i++) {
+            verify(serviceLockable).newFileSystem(URI.create("git://repo" + i),
+                                                  Collections.<String, Object>emptyMap());
+            // copied, then caught up
+            verify(serviceLockable,
+                   times(2)).getFileSystem(URI.create("git://repo" + i + "?sync=git://origin/repo" + i + "&force"));
+            verify(clusterService).lock(Collections.singleton("repo" + i));
+            verify(clusterService).unlock(Collections.singleton("repo" + i));
+        }
+        verify(clusterService,
+               never()).lock();
+    }
+
+    @Test
+    public void testEndBatchWithoutBatchDoesNothing() {
+        final ClusterService clusterService = mock(ClusterService.class);
+        final IOServiceLockable serviceLockable = mock(IOServiceLockable.class);
+        final IOServiceClusterImpl ioServiceCluster = new TestWrapper(clusterService,
+                                                                      serviceLockable);
+
+        ioServiceCluster.endBatch();
+
+        verify(serviceLockable).endBatch();
+        verifyZeroInteractions(clusterService);
+    }
+
+    @Test
+    public void testSyncMessagesOfABurstAreMerged() throws Exception {
+        final IOServiceLockable serviceLockable = mock(IOServiceLockable.class);
+        final IOServiceClusterImpl ioServiceCluster = new TestWrapper(mock(ClusterService.class),
+                                                                      serviceLockable);
+        final IOServiceClusterImpl.SyncFileSystemMessageHandler handler = ioServiceCluster.new SyncFileSystemMessageHandler();
+
+        final List<URI> syncs = Collections.synchronizedList(new ArrayList<URI>());
+        final CountDownLatch syncing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(serviceLockable.getFileSystem(any(URI.class))).then(invocation -> {
+            syncs.add((URI) invocation.getArguments()[0]);
+            syncing.countDown();
+            release.await(10,
+                          TimeUnit.SECONDS);
+            return null;
+        });
+
+        final Thread first = new Thread(() -> handler.handleMessage(SYNC_FS,
+                                                                    syncContent("m0",
+                                                                                "m1")));
+        first.start();
+        assertTrue(syncing.await(10,
+                                 TimeUnit.SECONDS));
+
+        // received while the first sync runs
+        handler.handleMessage(SYNC_FS,
+                              syncContent("m1",
+                                          "m2"));
+        handler.handleMessage(SYNC_FS,
+                              syncContent("m2",
+                                          "m3"));
+        assertEquals(1,
+                     syncs.size());
+
+        release.countDown();
+        first.join(10000);
+
+        assertEquals(2,
+                     syncs.size());
+        assertEquals("sync=git://origin/my-fsid&force&refs=master:m1",
+                     syncs.get(0).getQuery());
+        assertEquals("sync=git://origin/my-fsid&force&refs=master:m3",
+                     syncs.get(1).getQuery());
+    }
+
+    private Map<String, String> syncContent(final String oldId,
+                                            final String newId) {
+        final Map<String, String> content = new HashMap<String, String>();
+        content.put("fs_scheme",
+                    "git");
+        content.put("fs_id",
+                    "my-fsid");
+        content.put("fs_uri",
+                    "git://origin/my-fsid");
+        content.put(FileSystemRefChanges.REFS,
+                    "1");
+        content.put(FileSystemRefChanges.REF + 0,
+                    "master");
+        content.put(FileSystemRefChanges.OLD_ID + 0,
+                    oldId);
+        content.put(FileSystemRefChanges.NEW_ID + 0,
+                    newId);
+        return content;
+    }
+
     private class TestWrapper extends IOServiceClusterImpl {
 
         public TestWrapper(final ClusterService clusterService,
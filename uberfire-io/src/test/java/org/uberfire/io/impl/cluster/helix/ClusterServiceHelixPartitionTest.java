@@ -0,0 +1,283 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.io.impl.cluster.helix;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.HelixManager;
+import org.apache.helix.controller.HelixControllerMain;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.tools.ClusterSetup;
+import org.apache.zookeeper.server.ServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.*;
+
+/**
+ * Runs two cluster nodes against an embedded ZooKeeper.
+ */
+public class ClusterServiceHelixPartitionTest {
+
+    private static final String CLUSTER = "uf-cluster";
+    private static final String RESOURCE = "uf-resource";
+    private static final int PARTITIONS = 8;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private ServerCnxnFactory zkServer;
+    private HelixManager controller;
+    private ClusterServiceHelix node1;
+    private ClusterServiceHelix node2;
+    private final List<Thread> threads = new ArrayList<>();
+
+    @Before
+    public void setup() throws Exception {
+        final File zkDir = tempFolder.newFolder("zk");
+        zkServer = ServerCnxnFactory.createFactory(new InetSocketAddress("localhost",
+                                                                         0),
+                                                   100);
+        zkServer.startup(new ZooKeeperServer(zkDir,
+                                             zkDir,
+                                             2000));
+        final String zkAddress = "localhost:" + zkServer.getLocalPort();
+
+        final ClusterSetup clusterSetup = new ClusterSetup(zkAddress);
+        clusterSetup.addCluster(CLUSTER,
+                                true);
+        clusterSetup.addResourceToCluster(CLUSTER,
+                                          RESOURCE,
+                                          PARTITIONS,
+                                          "LeaderStandby",
+                                          IdealState.RebalanceMode.FULL_AUTO.toString());
+        clusterSetup.addInstanceToCluster(CLUSTER,
+                                          "node_1");
+        clusterSetup.addInstanceToCluster(CLUSTER,
+                                          "node_2");
+        clusterSetup.rebalanceResource(CLUSTER,
+                                       RESOURCE,
+                                       2);
+        controller = HelixControllerMain.startHelixController(zkAddress,
+                                                              CLUSTER,
+                                                              "controller",
+                                                              HelixControllerMain.STANDALONE);
+
+        node1 = new ClusterServiceHelix(CLUSTER,
+                                        zkAddress,
+                                        "node_1",
+                                        RESOURCE,
+                                        null);
+        node2 = new ClusterServiceHelix(CLUSTER,
+                                        zkAddress,
+                                        "node_2",
+                                        RESOURCE,
+                                        null);
+    }
+
+    @After
+    public void cleanup() throws InterruptedException {
+        for (final Thread thread : threads) {
+            thread.join(30000);
+        }
+        node1.dispose();
+        node2.dispose();
+        controller.disconnect();
+        zkServer.shutdown();
+    }
+
+    @Test
+    public void fileSystemsAreMappedToPartitions() {
+        assertEquals(PARTITIONS,
+                     node1.getPartitionCount());
+        assertEquals(node1.partitionOf("repo"),
+                     node2.partitionOf("repo"));
+        assertEquals(node1.partitionOf("repo"),
+                     node1.partitionOf("repo"));
+        assertTrue(node1.partitionOf("repo") < PARTITIONS);
+    }
+
+    @Test
+    public void fileSystemsOfDifferentPartitionsAreLockedConcurrently() throws Exception {
+        final String one = "repo-one";
+        final String other = otherPartitionThan(one);
+
+        node1.lock(singletonList(one));
+        assertEquals("LEADER",
+                     node1.getPartitionState(node1.partitionName(node1.partitionOf(one))));
+
+        assertTrue(lockInBackground(node2,
+                                    singletonList(other)).await(30,
+                                                                TimeUnit.SECONDS));
+
+        final CountDownLatch sameFileSystem = lockInBackground(node2,
+                                                               singletonList(one));
+        assertFalse(sameFileSystem.await(1,
+                                         TimeUnit.SECONDS));
+
+        node1.unlock(singletonList(one));
+        assertTrue(sameFileSystem.await(30,
+                                        TimeUnit.SECONDS));
+        assertEquals(0,
+                     node1.getHoldCount());
+    }
+
+    @Test
+    public void globalLockWaitsForEveryPartition() throws Exception {
+        node1.lock(singletonList("repo-one"));
+
+        final CountDownLatch global = lockInBackground(node2,
+                                                       null);
+        assertFalse(global.await(1,
+                                 TimeUnit.SECONDS));
+
+        node1.unlock(singletonList("repo-one"));
+        assertTrue(global.await(30,
+                                TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void lowerPartitionsAreLockedInOrderWhileHoldingHigherOnes() throws Exception {
+        final String one = "repo-one";
+        final String other = otherPartitionThan(one);
+        final boolean oneIsHigher = node1.partitionOf(one) > node1.partitionOf(other);
+        final String high = oneIsHigher ? one : other;
+        final String low = oneIsHigher ? other : one;
+
+        node1.lock(singletonList(high));
+        node1.lock(singletonList(high));
+        node1.lock(singletonList(low));
+        assertEquals(2,
+                     node1.getHoldCount());
+        assertEquals("LEADER",
+                     node1.getPartitionState(node1.partitionName(node1.partitionOf(high))));
+        assertEquals("LEADER",
+                     node1.getPartitionState(node1.partitionName(node1.partitionOf(low))));
+
+        node1.unlock(singletonList(low));
+        node1.unlock(singletonList(high));
+        final CountDownLatch highLock = lockInBackground(node2,
+                                                         singletonList(high));
+        assertFalse(highLock.await(1,
+                                   TimeUnit.SECONDS));
+
+        node1.unlock(singletonList(high));
+        assertEquals(0,
+                     node1.getHoldCount());
+        assertTrue(highLock.await(30,
+                                  TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void missingResourceIsCreatedAndGrown() throws Exception {
+        final String zkAddress = "localhost:" + zkServer.getLocalPort();
+        final String cluster = "uf-other-cluster";
+        final ClusterSetup clusterSetup = new ClusterSetup(zkAddress);
+        clusterSetup.addCluster(cluster,
+                                true);
+        clusterSetup.addInstanceToCluster(cluster,
+                                          "node_1");
+        final HelixManager otherController = HelixControllerMain.startHelixController(zkAddress,
+                                                                                      cluster,
+                                                                                      "controller",
+                                                                                      HelixControllerMain.STANDALONE);
+        try {
+            System.setProperty(ClusterServiceHelix.PARTITIONS_PROPERTY,
+                               "2");
+            final ClusterServiceHelix created = new ClusterServiceHelix(cluster,
+                                                                        zkAddress,
+                                                                        "node_1",
+                                                                        RESOURCE,
+                                                                        null);
+            assertEquals(2,
+                         created.getPartitionCount());
+            created.dispose();
+
+            System.setProperty(ClusterServiceHelix.PARTITIONS_PROPERTY,
+                               "4");
+            final ClusterServiceHelix grown = new ClusterServiceHelix(cluster,
+                                                                      zkAddress,
+                                                                      "node_1",
+                                                                      RESOURCE,
+                                                                      null);
+            assertEquals(4,
+                         grown.getPartitionCount());
+            grown.lock();
+            grown.unlock();
+            grown.dispose();
+
+            System.setProperty(ClusterServiceHelix.PARTITIONS_PROPERTY,
+                               "3");
+            final ClusterServiceHelix kept = new ClusterServiceHelix(cluster,
+                                                                     zkAddress,
+                                                                     "node_1",
+                                                                     RESOURCE,
+                                                                     null);
+            assertEquals(4,
+                         kept.getPartitionCount());
+            kept.dispose();
+        } finally {
+            System.clearProperty(ClusterServiceHelix.PARTITIONS_PROPERTY);
+            otherController.disconnect();
+        }
+    }
+
+    private String otherPartitionThan(final String fileSystemId) {
+        for (int i = 0; ; i++) {
+            final String candidate = "repo-" + i;
+            if (node1.partitionOf(candidate) != node1.partitionOf(fileSystemId)) {
+                return candidate;
+            }
+        }
+    }
+
+    /**
+     * Locks (and then unlocks) the file systems in another thread.
+     * @param fileSystemIds null to lock the whole cluster.
+     * @return Released once the lock is acquired.
+     */
+    private CountDownLatch lockInBackground(final ClusterServiceHelix node,
+                                            final Collection<String> fileSystemIds) {
+        final CountDownLatch locked = new CountDownLatch(1);
+        final Thread thread = new Thread(() -> {
+            if (fileSystemIds == null) {
+                node.lock();
+                locked.countDown();
+                node.unlock();
+            } else {
+                node.lock(fileSystemIds);
+                locked.countDown();
+                node.unlock(fileSystemIds);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        threads.add(thread);
+        return locked;
+    }
+}
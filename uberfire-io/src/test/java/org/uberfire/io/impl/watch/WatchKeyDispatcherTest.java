@@ -0,0 +1,207 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.io.impl.watch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.uberfire.java.nio.base.ListenableWatchService;
+import org.uberfire.java.nio.file.WatchKey;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class WatchKeyDispatcherTest {
+
+    private ExecutorService executorService;
+    private WatchKeyDispatcher dispatcher;
+
+    @Before
+    public void setup() {
+        executorService = Executors.newCachedThreadPool();
+        dispatcher = new WatchKeyDispatcher("test",
+                                            executorService,
+                                            3);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        dispatcher.dispose();
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(10,
+                                                    TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testKeysOfEveryWatchServiceAreHandledInOrderByTheWorkers() throws Exception {
+        final int watchServices = 20;
+        final int keysPerWatchService = 200;
+        final CountDownLatch handled = new CountDownLatch(watchServices * keysPerWatchService);
+        final Set<String> threads = Collections.synchronizedSet(new HashSet<>());
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        final List<TestWatchService> services = new ArrayList<>();
+
+        dispatcher.start();
+        for (int i = 0; i < watchServices; i++) {
+            final TestWatchService ws = new TestWatchService();
+            final AtomicInteger expected = new AtomicInteger();
+            final AtomicBoolean busy = new AtomicBoolean(false);
+            dispatcher.register(ws,
+                                wk -> {
+                                    threads.add(Thread.currentThread().getName());
+                                    if (!busy.compareAndSet(false,
+                                                            true) || ws.indexOf(wk) != expected.getAndIncrement()) {
+                                        failed.set(true);
+                                    }
+                                    busy.set(false);
+                                    handled.countDown();
+                                    return true;
+                                });
+            services.add(ws);
+        }
+
+        final List<Thread> publishers = new ArrayList<>();
+        for (final TestWatchService ws : services) {
+            final Thread publisher = new Thread(() -> {
+                for (int i = 0; i < keysPerWatchService; i++) {
+                    ws.publish();
+                }
+            });
+            publisher.start();
+            publishers.add(publisher);
+        }
+        for (final Thread publisher : publishers) {
+            publisher.join();
+        }
+
+        assertTrue(handled.await(30,
+                                 TimeUnit.SECONDS));
+        assertFalse(failed.get());
+        assertTrue(threads.size() <= 3);
+        assertEquals(0,
+                     dispatcher.getQueueDepth());
+    }
+
+    @Test
+    public void testKeysPublishedBeforeStartAreHandledOnStart() throws Exception {
+        final TestWatchService ws = new TestWatchService();
+        ws.publish();
+        final CountDownLatch handled = new CountDownLatch(2);
+        dispatcher.register(ws,
+                            wk -> {
+                                handled.countDown();
+                                return true;
+                            });
+        ws.publish();
+
+        assertFalse(handled.await(100,
+                                  TimeUnit.MILLISECONDS));
+        assertEquals(2,
+                     ws.keys.size());
+
+        dispatcher.start();
+        assertTrue(handled.await(10,
+                                 TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testHandlerStopsWatching() throws Exception {
+        final TestWatchService ws = new TestWatchService();
+        final AtomicInteger handled = new AtomicInteger();
+        final WatchKeyDispatcher.Registration registration = dispatcher.register(ws,
+                                                                                 wk -> handled.incrementAndGet() < 2);
+        dispatcher.start();
+        ws.publish();
+        ws.publish();
+        ws.publish();
+
+        final long timeout = System.currentTimeMillis() + 10000;
+        while (!registration.isCancelled() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertTrue(registration.isCancelled());
+        assertNull(ws.listener);
+        assertEquals(2,
+                     handled.get());
+        assertEquals(1,
+                     ws.keys.size());
+    }
+
+    private static class TestWatchService implements ListenableWatchService {
+
+        private final ConcurrentLinkedQueue<WatchKey> keys = new ConcurrentLinkedQueue<>();
+        private final List<WatchKey> published = Collections.synchronizedList(new ArrayList<>());
+        private volatile Runnable listener;
+
+        void publish() {
+            final WatchKey wk = mock(WatchKey.class);
+            published.add(wk);
+            keys.add(wk);
+            final Runnable listener = this.listener;
+            if (listener != null) {
+                listener.run();
+            }
+        }
+
+        int indexOf(final WatchKey wk) {
+            return published.indexOf(wk);
+        }
+
+        @Override
+        public void setKeysAvailableListener(final Runnable listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public WatchKey poll() {
+            return keys.poll();
+        }
+
+        @Override
+        public WatchKey poll(final long timeout,
+                             final TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public WatchKey take() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isClose() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.uberfire.io.lock;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.uberfire.java.nio.file.FileSystem;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class BatchLockControlTest {
+
+    private final BatchLockControl lockControl = new BatchLockControl();
+
+    @Test
+    public void locksAreDroppedOnceReleased() {
+        final FileSystem fs1 = mock(FileSystem.class);
+        final FileSystem fs2 = mock(FileSystem.class);
+
+        lockControl.lock(fs1);
+        lockControl.lock(fs2);
+        assertEquals(2,
+                     lockControl.getLockCount());
+
+        lockControl.unlock();
+        lockControl.unlock();
+        assertEquals(0,
+                     lockControl.getLockCount());
+        assertFalse(lockControl.isLocked());
+        assertEquals(2,
+                     lockControl.getStatistics().size());
+    }
+
+    @Test
+    public void lockIsKeptWhileAnotherThreadWaitsForIt() throws Exception {
+        final FileSystem fs = mock(FileSystem.class);
+        final CountDownLatch locked = new CountDownLatch(1);
+
+        lockControl.lock(fs);
+        final Thread other = new Thread(() -> {
+            lockControl.lock(fs);
+            locked.countDown();
+            lockControl.unlock();
+        });
+        other.start();
+        assertFalse(locked.await(200,
+                                 TimeUnit.MILLISECONDS));
+
+        lockControl.unlock();
+        assertTrue(locked.await(10,
+                                TimeUnit.SECONDS));
+        other.join();
+        assertEquals(0,
+                     lockControl.getLockCount());
+    }
+}
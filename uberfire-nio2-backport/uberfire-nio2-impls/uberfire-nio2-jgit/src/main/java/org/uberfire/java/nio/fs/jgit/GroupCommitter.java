@@ -0,0 +1,320 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.java.nio.fs.jgit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.uberfire.java.nio.fs.jgit.util.commands.PathUtil;
+import org.uberfire.java.nio.fs.jgit.util.model.BlobContent;
+import org.uberfire.java.nio.fs.jgit.util.model.CommitInfo;
+import org.uberfire.java.nio.fs.jgit.util.model.DefaultCommitContent;
+
+import static org.kie.soup.commons.validation.PortablePreconditions.checkCondition;
+import static org.kie.soup.commons.validation.PortablePreconditions.checkNotNull;
+
+/**
+ * Coalesces concurrent writes to the same branch into a single commit.
+ * <p>
+ * The first writer of a group becomes its leader: it waits for the group window (or until the
+ * group is full), then commits every write of the group at once. Other writers just wait for that
+ * commit, so each caller still returns only once its content is committed. Writes touching a path
+ * already written (or deleted) by the group start a new group, so a group never has to order
+ * conflicting changes.
+ * <p>
+ * Groups of the same branch commit in the order they were opened: a leader always waits for the
+ * previous group to finish. A writer arriving while no other writer of the branch is pending
+ * commits right away, without waiting for the window.
+ */
+class GroupCommitter {
+
+    /**
+     * Commits a group of writes, all on the same filesystem and branch, in arrival order.
+     */
+    interface GroupExecutor {
+
+        void execute(List<Request> requests);
+    }
+
+    private final long window;
+    private final int maxSize;
+    private final GroupExecutor executor;
+    private final Map<String, Group> openGroups = new HashMap<>();
+    private final Map<String, Group> lastGroups = new HashMap<>();
+    private final Map<String, Integer> pendingWriters = new HashMap<>();
+    private final AtomicLong groups = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+
+    GroupCommitter(final long window,
+                   final int maxSize,
+                   final GroupExecutor executor) {
+        checkCondition("maxSize must be positive",
+                       maxSize > 0);
+        this.window = window;
+        this.maxSize = maxSize;
+        this.executor = checkNotNull("executor",
+                                     executor);
+    }
+
+    void commit(final JGitPathImpl path,
+                final CommitInfo commitInfo,
+                final DefaultCommitContent content) {
+        final Request request = new Request(path,
+                                            commitInfo,
+                                            content);
+        final String key = path.getFileSystem().id() + "@" + path.getRefTree();
+        final Group group;
+        final boolean leader;
+        synchronized (this) {
+            final Integer pending = pendingWriters.get(key);
+            pendingWriters.put(key,
+                               pending == null ? 1 : pending + 1);
+            Group current = openGroups.get(key);
+            if (current == null || current.conflictsWith(request)) {
+                final Group last = lastGroups.get(key);
+                current = new Group(last != null ? last.committed : null);
+                lastGroups.put(key,
+                               current);
+                openGroups.put(key,
+                               current);
+                if (pending == null) {
+                    current.full.countDown();
+                }
+                leader = true;
+            } else {
+                leader = false;
+            }
+            current.add(request);
+            if (current.requests.size() >= maxSize) {
+                openGroups.remove(key,
+                                  current);
+                current.full.countDown();
+            }
+            group = current;
+        }
+
+        try {
+            if (leader) {
+                lead(key,
+                     group);
+            }
+            request.done.join();
+        } catch (final CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            synchronized (this) {
+                final int pending = pendingWriters.get(key) - 1;
+                if (pending == 0) {
+                    pendingWriters.remove(key);
+                } else {
+                    pendingWriters.put(key,
+                                       pending);
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of commits done so far.
+     */
+    long getGroups() {
+        return groups.get();
+    }
+
+    /**
+     * Number of writes committed so far.
+     */
+    long getWrites() {
+        return writes.get();
+    }
+
+    private void lead(final String key,
+                      final Group group) {
+        try {
+            group.full.await(window,
+                             TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (group.previous != null) {
+            group.previous.join();
+        }
+        synchronized (this) {
+            openGroups.remove(key,
+                              group);
+        }
+
+        try {
+            executor.execute(group.requests);
+            groups.incrementAndGet();
+            writes.addAndGet(group.requests.size());
+            for (final Request request : group.requests) {
+                request.done.complete(null);
+            }
+        } catch (final RuntimeException ex) {
+            for (final Request request : group.requests) {
+                request.done.completeExceptionally(ex);
+            }
+        } finally {
+            group.committed.complete(null);
+            synchronized (this) {
+                lastGroups.remove(key,
+                                  group);
+            }
+        }
+    }
+
+    /**
+     * Builds the commit info of a group: the first writer is the author, every other writer is
+     * kept in a Co-authored-by trailer.
+     */
+    static CommitInfo mergeCommitInfo(final List<Request> requests) {
+        final CommitInfo first = requests.get(0).commitInfo;
+        final Set<String> messages = new LinkedHashSet<>();
+        final Set<String> coAuthors = new LinkedHashSet<>();
+        for (final Request request : requests) {
+            final CommitInfo info = request.commitInfo;
+            if (info.getMessage() != null && !info.getMessage().trim().isEmpty()) {
+                messages.add(info.getMessage().trim());
+            }
+            if (info.getName() != null && !sameWriter(first,
+                                                      info)) {
+                coAuthors.add("Co-authored-by: " + info.getName() + " <" + (info.getEmail() != null ? info.getEmail() : "") + ">");
+            }
+        }
+
+        final StringBuilder message = new StringBuilder(String.join("\n",
+                                                                    messages));
+        if (!coAuthors.isEmpty()) {
+            message.append("\n\n").append(String.join("\n",
+                                                      coAuthors));
+        }
+        return new CommitInfo(first.getSessionId(),
+                              first.getName(),
+                              first.getEmail(),
+                              message.toString(),
+                              first.getTimeZone(),
+                              first.getWhen());
+    }
+
+    /**
+     * Merges the content of a group, later writes winning, and records the writer of each path.
+     */
+    static DefaultCommitContent mergeContent(final List<Request> requests,
+                                             final Map<String, CommitInfo> writers) {
+        final Map<String, BlobContent> content = new HashMap<>();
+        for (final Request request : requests) {
+            for (final Map.Entry<String, BlobContent> entry : request.content.getBlobs().entrySet()) {
+                content.put(entry.getKey(),
+                            entry.getValue());
+                writers.put(PathUtil.normalize(entry.getKey()),
+                            request.commitInfo);
+            }
+        }
+        return DefaultCommitContent.fromBlobs(content);
+    }
+
+    /**
+     * Finds the writer of a changed path; files removed as part of a deleted directory belong to
+     * the writer of that directory.
+     */
+    static CommitInfo writerOf(final Map<String, CommitInfo> writers,
+                               final String path,
+                               final CommitInfo defaultWriter) {
+        String current = PathUtil.normalize(path);
+        while (!current.isEmpty()) {
+            final CommitInfo writer = writers.get(current);
+            if (writer != null) {
+                return writer;
+            }
+            final int index = current.lastIndexOf('/');
+            current = index < 0 ? "" : current.substring(0,
+                                                         index);
+        }
+        return defaultWriter;
+    }
+
+    private static boolean sameWriter(final CommitInfo one,
+                                      final CommitInfo other) {
+        return one.getName() != null && one.getName().equals(other.getName()) &&
+                (one.getEmail() == null ? other.getEmail() == null : one.getEmail().equals(other.getEmail()));
+    }
+
+    static class Request {
+
+        final JGitPathImpl path;
+        final CommitInfo commitInfo;
+        final DefaultCommitContent content;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Request(final JGitPathImpl path,
+                final CommitInfo commitInfo,
+                final DefaultCommitContent content) {
+            this.path = path;
+            this.commitInfo = commitInfo;
+            this.content = content;
+        }
+    }
+
+    private static class Group {
+
+        private final CompletableFuture<Void> previous;
+        private final List<Request> requests = new ArrayList<>();
+        private final Set<String> paths = new HashSet<>();
+        private final CountDownLatch full = new CountDownLatch(1);
+        private final CompletableFuture<Void> committed = new CompletableFuture<>();
+
+        Group(final CompletableFuture<Void> previous) {
+            this.previous = previous;
+        }
+
+        void add(final Request request) {
+            requests.add(request);
+            for (final String path : request.content.getBlobs().keySet()) {
+                paths.add(PathUtil.normalize(path));
+            }
+        }
+
+        boolean conflictsWith(final Request request) {
+            for (final String path : request.content.getBlobs().keySet()) {
+                final String normalized = PathUtil.normalize(path);
+                for (final String other : paths) {
+                    if (normalized.equals(other) ||
+                            normalized.startsWith(other + "/") ||
+                            other.startsWith(normalized + "/") ||
+                            normalized.isEmpty() || other.isEmpty()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
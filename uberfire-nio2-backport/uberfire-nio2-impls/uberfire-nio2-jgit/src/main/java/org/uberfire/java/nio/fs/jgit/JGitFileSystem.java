@@ -16,21 +16,18 @@
 
 package org.uberfire.java.nio.fs.jgit;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Queue;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.jgit.lib.Ref;
@@ -39,13 +36,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.uberfire.java.nio.IOException;
 import org.uberfire.java.nio.base.FileSystemId;
+import org.uberfire.java.nio.base.FileSystemRefsAware;
 import org.uberfire.java.nio.base.FileSystemState;
 import org.uberfire.java.nio.base.FileSystemStateAware;
 import org.uberfire.java.nio.base.options.CommentedOption;
-import org.uberfire.java.nio.file.ClosedWatchServiceException;
 import org.uberfire.java.nio.file.FileStore;
 import org.uberfire.java.nio.file.FileSystem;
-import org.uberfire.java.nio.file.InterruptedException;
 import org.uberfire.java.nio.file.InvalidPathException;
 import org.uberfire.java.nio.file.Path;
 import org.uberfire.java.nio.file.PathMatcher;
@@ -53,13 +49,15 @@ import org.uberfire.java.nio.file.PatternSyntaxException;
 import org.uberfire.java.nio.file.WatchEvent;
 import org.uberfire.java.nio.file.WatchKey;
 import org.uberfire.java.nio.file.WatchService;
-import org.uberfire.java.nio.file.Watchable;
 import org.uberfire.java.nio.file.attribute.UserPrincipalLookupService;
 import org.uberfire.java.nio.file.spi.FileSystemProvider;
+import org.uberfire.java.nio.fs.jgit.util.BranchLockManager;
 import org.uberfire.java.nio.fs.jgit.util.Git;
 import org.uberfire.java.nio.fs.jgit.util.model.CommitInfo;
+import org.uberfire.java.nio.fs.jgit.util.model.LockStatistics;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableList;
 import static java.util.Collections.unmodifiableSet;
 import static org.eclipse.jgit.lib.Repository.shortenRefName;
 import static org.kie.soup.commons.validation.PortablePreconditions.checkNotEmpty;
@@ -67,13 +65,17 @@ import static org.kie.soup.commons.validation.PortablePreconditions.checkNotNull
 
 public class JGitFileSystem implements FileSystem,
                                        FileSystemId,
-                                       FileSystemStateAware {
+                                       FileSystemStateAware,
+                                       FileSystemRefsAware {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(JGitFileSystem.class);
 
     private static final Set<String> SUPPORTED_ATTR_VIEWS = unmodifiableSet(new HashSet<String>(asList("basic",
                                                                                                        "version")));
 
+    // granularity of the last access time, in milliseconds
+    private static final long ACCESS_RESOLUTION = 1000;
+
     private final JGitFileSystemProvider provider;
     private final Git git;
     private final String toStringContent;
@@ -81,15 +83,16 @@ public class JGitFileSystem implements FileSystem,
     private final FileStore fileStore;
     private final String name;
     private final CredentialsProvider credential;
-    private final Map<WatchService, Queue<WatchKey>> events = new ConcurrentHashMap<WatchService, Queue<WatchKey>>();
-    private final Collection<WatchService> watchServices = new ArrayList<WatchService>();
+    private final List<JGitWatchService> watchServices = new CopyOnWriteArrayList<JGitWatchService>();
     private final AtomicInteger numberOfCommitsSinceLastGC = new AtomicInteger(0);
 
     private FileSystemState state = FileSystemState.NORMAL;
     private CommitInfo batchCommitInfo = null;
     private Map<Path, Boolean> hadCommitOnBatchState = new ConcurrentHashMap<Path, Boolean>();
 
-    private final Lock lock = new Lock();
+    private final BranchLockManager locks = new BranchLockManager();
+    private volatile long lastAccess = System.currentTimeMillis();
+    private volatile boolean holdsResources = true;
 
     JGitFileSystem(final JGitFileSystemProvider provider,
                    final Map<String, String> fullHostNames,
@@ -131,9 +134,39 @@ public class JGitFileSystem implements FileSystem,
     }
 
     public Git getGit() {
+        // volatile writes only when the state changes, as this is called on every operation
+        final long now = System.currentTimeMillis();
+        if (now - lastAccess >= ACCESS_RESOLUTION) {
+            lastAccess = now;
+        }
+        if (!holdsResources) {
+            holdsResources = true;
+        }
         return git;
     }
 
+    /**
+     * Releases pack file handles and cached pack windows if the filesystem wasn't accessed for the
+     * given time. The filesystem stays open; the repository reopens its packs on next access.
+     * @return true if resources were released.
+     */
+    boolean releaseIfIdle(final long idleTimeout) {
+        if (isClosed || !holdsResources || System.currentTimeMillis() - lastAccess < idleTimeout) {
+            return false;
+        }
+        lock();
+        try {
+            if (isClosed || System.currentTimeMillis() - lastAccess < idleTimeout) {
+                return false;
+            }
+            git.releaseResources();
+            holdsResources = false;
+            return true;
+        } finally {
+            unlock();
+        }
+    }
+
     public CredentialsProvider getCredential() {
         return credential;
     }
@@ -293,61 +326,24 @@ public class JGitFileSystem implements FileSystem,
     public WatchService newWatchService()
             throws UnsupportedOperationException, IOException {
         checkClosed();
-        final WatchService ws = new WatchService() {
-            private boolean wsClose = false;
-
-            @Override
-            public WatchKey poll() throws ClosedWatchServiceException {
-                return events.get(this).poll();
-            }
-
-            @Override
-            public WatchKey poll(long timeout,
-                                 TimeUnit unit) throws ClosedWatchServiceException, org.uberfire.java.nio.file.InterruptedException {
-                return events.get(this).poll();
-            }
-
-            @Override
-            public synchronized WatchKey take() throws ClosedWatchServiceException, InterruptedException {
-                while (true) {
-                    if (wsClose || isClosed) {
-                        throw new ClosedWatchServiceException("This service is closed.");
-                    } else if (events.get(this).size() > 0) {
-                        return events.get(this).poll();
-                    } else {
-                        try {
-                            this.wait();
-                        } catch (final java.lang.InterruptedException e) {
-                        }
-                    }
-                }
-            }
-
-            @Override
-            public boolean isClose() {
-                return isClosed;
-            }
-
-            @Override
-            public synchronized void close() throws IOException {
-                wsClose = true;
-                notifyAll();
-                watchServices.remove(this);
-            }
-
-            @Override
-            public String toString() {
-                return "WatchService{" +
-                        "FileSystem=" + JGitFileSystem.this.toString() +
-                        '}';
-            }
-        };
-        events.put(ws,
-                   new ConcurrentLinkedQueue<>());
+        final JGitWatchService ws = new JGitWatchService(this,
+                                                         provider.getWatchQueueCapacity(),
+                                                         provider.getWatchOverflowPolicy());
         watchServices.add(ws);
         return ws;
     }
 
+    void removeWatchService(final JGitWatchService ws) {
+        watchServices.remove(ws);
+    }
+
+    /**
+     * Open watch services of this filesystem, to monitor their queues.
+     */
+    public List<JGitWatchService> getWatchServices() {
+        return unmodifiableList(watchServices);
+    }
+
     @Override
     public void close() throws IOException {
         if (isClosed) {
@@ -357,7 +353,7 @@ public class JGitFileSystem implements FileSystem,
         isClosed = true;
         try {
 
-            for (final WatchService ws : new ArrayList<>(watchServices)) {
+            for (final WatchService ws : watchServices) {
                 try {
                     ws.close();
                 } catch (final Exception ex) {
@@ -366,7 +362,6 @@ public class JGitFileSystem implements FileSystem,
                 }
             }
             watchServices.clear();
-            events.clear();
         } catch (final Exception ex) {
             LOGGER.error("Error during close of WatchServices [" + toString() + "]",
                          ex);
@@ -424,43 +419,16 @@ public class JGitFileSystem implements FileSystem,
 
     public void publishEvents(final Path watchable,
                               final List<WatchEvent<?>> elist) {
-        if (this.events.isEmpty()) {
+        if (watchServices.isEmpty()) {
             return;
         }
 
-        final WatchKey wk = new WatchKey() {
-
-            @Override
-            public boolean isValid() {
-                return true;
-            }
-
-            @Override
-            public List<WatchEvent<?>> pollEvents() {
-                return new ArrayList<WatchEvent<?>>(elist);
-            }
-
-            @Override
-            public boolean reset() {
-                return isOpen();
-            }
-
-            @Override
-            public void cancel() {
-            }
-
-            @Override
-            public Watchable watchable() {
-                return watchable;
-            }
-        };
+        final WatchKey wk = JGitWatchService.newWatchKey(this,
+                                                         watchable,
+                                                         elist);
 
-        for (final Map.Entry<WatchService, Queue<WatchKey>> watchServiceQueueEntry : events.entrySet()) {
-            watchServiceQueueEntry.getValue().add(wk);
-            final WatchService ws = watchServiceQueueEntry.getKey();
-            synchronized (ws) {
-                ws.notifyAll();
-            }
+        for (final JGitWatchService ws : watchServices) {
+            ws.publish(wk);
         }
     }
 
@@ -563,31 +531,48 @@ public class JGitFileSystem implements FileSystem,
         return state;
     }
 
-    public void lock() {
-        try {
-            lock.lock();
-        } catch (final java.lang.InterruptedException ignored) {
+    @Override
+    public Map<String, String> getRefs() {
+        checkClosed();
+        final Map<String, String> refs = new HashMap<>();
+        for (final Ref ref : git.listRefs()) {
+            if (ref.getObjectId() != null) {
+                refs.put(shortenRefName(ref.getName()),
+                         ref.getObjectId().name());
+            }
         }
+        return refs;
+    }
+
+    /**
+     * Acquires the whole filesystem, blocking writers on every branch. Only meant for operations that
+     * touch the ref database as a whole, like branch create/delete, fetch or GC.
+     */
+    public void lock() {
+        locks.lockExclusive();
     }
 
     public void unlock() {
-        lock.unlock();
+        locks.unlockExclusive();
     }
 
-    private static class Lock {
+    public void lock(final String branchName) {
+        locks.lockBranch(branchName);
+    }
 
-        private final AtomicBoolean isLocked = new AtomicBoolean(false);
+    public void unlock(final String branchName) {
+        locks.unlockBranch(branchName);
+    }
 
-        public synchronized void lock() throws java.lang.InterruptedException {
-            while (!isLocked.compareAndSet(false,
-                                           true)) {
-                wait();
-            }
-        }
+    public void lock(final Collection<String> branchNames) {
+        locks.lockBranches(branchNames);
+    }
 
-        public synchronized void unlock() {
-            isLocked.set(false);
-            notifyAll();
-        }
+    public void unlock(final Collection<String> branchNames) {
+        locks.unlockBranches(branchNames);
+    }
+
+    public Map<String, LockStatistics> getLockStatistics() {
+        return locks.getStatistics();
     }
 }
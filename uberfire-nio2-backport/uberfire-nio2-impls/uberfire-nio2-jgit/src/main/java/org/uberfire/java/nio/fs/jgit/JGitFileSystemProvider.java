@@ -16,9 +16,9 @@
 
 package org.uberfire.java.nio.fs.jgit;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.FilterOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -43,10 +43,15 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.jcraft.jsch.Session;
@@ -140,10 +145,12 @@ import org.uberfire.java.nio.file.attribute.FileAttributeView;
 import org.uberfire.java.nio.fs.jgit.daemon.git.Daemon;
 import org.uberfire.java.nio.fs.jgit.daemon.ssh.BaseGitCommand;
 import org.uberfire.java.nio.fs.jgit.daemon.ssh.GitSSHService;
+import org.uberfire.java.nio.fs.jgit.util.BlobBuffer;
 import org.uberfire.java.nio.fs.jgit.util.Git;
 import org.uberfire.java.nio.fs.jgit.util.ProxyAuthenticator;
 import org.uberfire.java.nio.fs.jgit.util.commands.PathUtil;
 import org.uberfire.java.nio.fs.jgit.util.exceptions.GitException;
+import org.uberfire.java.nio.fs.jgit.util.model.BlobContent;
 import org.uberfire.java.nio.fs.jgit.util.model.CommitContent;
 import org.uberfire.java.nio.fs.jgit.util.model.CommitInfo;
 import org.uberfire.java.nio.fs.jgit.util.model.CopyCommitContent;
@@ -211,6 +218,23 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
     public static final String SSH_ALGORITHM = "DSA";
     public static final String SSH_CERT_PASSPHRASE = "";
     public static final String DEFAULT_COMMIT_LIMIT_TO_GC = "20";
+    public static final String DEFAULT_GC_THREADS = "1";
+    public static final String DEFAULT_GC_DEBOUNCE = "5000";
+    public static final String DEFAULT_GC_STARTUP_DELAY = "60000";
+    public static final String DEFAULT_GC_LOOSE_OBJECTS_LIMIT = "1000";
+    public static final String DEFAULT_GC_PACK_FILES_LIMIT = "10";
+    public static final String DEFAULT_GC_BUDGET = "25";
+    public static final String DEFAULT_WARMUP_REPOSITORIES = "";
+    public static final String DEFAULT_WARMUP_THREADS = "4";
+    public static final String DEFAULT_IDLE_TIMEOUT = "1800000";
+    public static final String WARMUP_ALL_REPOSITORIES = "*";
+    public static final String DEFAULT_COMMIT_BUFFER_THRESHOLD = "1048576";
+    public static final String DEFAULT_GROUP_COMMIT_ENABLED = "false";
+    public static final String DEFAULT_GROUP_COMMIT_WINDOW = "10";
+    public static final String DEFAULT_GROUP_COMMIT_MAX_SIZE = "64";
+    public static final String DEFAULT_WATCH_QUEUE_CAPACITY = "1000";
+    public static final String DEFAULT_WATCH_OVERFLOW_POLICY = "COALESCE";
+    public static final String DEFAULT_DIFF_EVENTS_CHUNK_SIZE = "1000";
     private static final String GIT_ENV_KEY_MIGRATE_FROM = "migrate-from";
 
     private File gitReposParentDir;
@@ -218,6 +242,16 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
     private File hookDir;
 
     private int commitLimit;
+    private JGitGarbageCollectorScheduler gcScheduler;
+    private Set<String> warmupRepositories;
+    private int warmupThreads;
+    private long idleTimeout;
+    private int commitBufferThreshold;
+    private GroupCommitter groupCommitter;
+    private int watchQueueCapacity;
+    private JGitWatchService.OverflowPolicy watchOverflowPolicy;
+    private int diffEventsChunkSize;
+    private ScheduledExecutorService idleMonitor;
     private boolean daemonEnabled;
     private int daemonPort;
     private String daemonHostAddr;
@@ -233,6 +267,7 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
     private String sshIdleTimeout;
 
     private final Map<String, JGitFileSystem> fileSystems = new ConcurrentHashMap<>();
+    private final Map<String, File> existingRepositories = new ConcurrentHashMap<>();
     private final Set<JGitFileSystem> closedFileSystems = new HashSet<>();
     private final Map<Repository, JGitFileSystem> repoIndex = new ConcurrentHashMap<>();
 
@@ -294,6 +329,38 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
                                                             SSH_CERT_PASSPHRASE);
         final ConfigProperty commitLimitProp = config.get("org.uberfire.nio.git.gc.limit",
                                                           DEFAULT_COMMIT_LIMIT_TO_GC);
+        final ConfigProperty gcThreadsProp = config.get("org.uberfire.nio.git.gc.threads",
+                                                        DEFAULT_GC_THREADS);
+        final ConfigProperty gcDebounceProp = config.get("org.uberfire.nio.git.gc.debounce",
+                                                         DEFAULT_GC_DEBOUNCE);
+        final ConfigProperty gcStartupDelayProp = config.get("org.uberfire.nio.git.gc.startup.delay",
+                                                             DEFAULT_GC_STARTUP_DELAY);
+        final ConfigProperty gcLooseObjectsProp = config.get("org.uberfire.nio.git.gc.loose.objects",
+                                                             DEFAULT_GC_LOOSE_OBJECTS_LIMIT);
+        final ConfigProperty gcPackFilesProp = config.get("org.uberfire.nio.git.gc.pack.files",
+                                                          DEFAULT_GC_PACK_FILES_LIMIT);
+        final ConfigProperty gcBudgetProp = config.get("org.uberfire.nio.git.gc.budget",
+                                                       DEFAULT_GC_BUDGET);
+        final ConfigProperty warmupProp = config.get("org.uberfire.nio.git.warmup",
+                                                     DEFAULT_WARMUP_REPOSITORIES);
+        final ConfigProperty warmupThreadsProp = config.get("org.uberfire.nio.git.warmup.threads",
+                                                            DEFAULT_WARMUP_THREADS);
+        final ConfigProperty idleTimeoutProp = config.get("org.uberfire.nio.git.idle.timeout",
+                                                          DEFAULT_IDLE_TIMEOUT);
+        final ConfigProperty commitBufferThresholdProp = config.get("org.uberfire.nio.git.commit.buffer.threshold",
+                                                                    DEFAULT_COMMIT_BUFFER_THRESHOLD);
+        final ConfigProperty groupCommitEnabledProp = config.get("org.uberfire.nio.git.commit.group.enabled",
+                                                                 DEFAULT_GROUP_COMMIT_ENABLED);
+        final ConfigProperty groupCommitWindowProp = config.get("org.uberfire.nio.git.commit.group.window",
+                                                                DEFAULT_GROUP_COMMIT_WINDOW);
+        final ConfigProperty groupCommitMaxSizeProp = config.get("org.uberfire.nio.git.commit.group.max",
+                                                                 DEFAULT_GROUP_COMMIT_MAX_SIZE);
+        final ConfigProperty watchQueueCapacityProp = config.get("org.uberfire.nio.git.watch.queue.size",
+                                                                 DEFAULT_WATCH_QUEUE_CAPACITY);
+        final ConfigProperty watchOverflowPolicyProp = config.get("org.uberfire.nio.git.watch.overflow",
+                                                                  DEFAULT_WATCH_OVERFLOW_POLICY);
+        final ConfigProperty diffEventsChunkSizeProp = config.get("org.uberfire.nio.git.watch.chunk.size",
+                                                                  DEFAULT_DIFF_EVENTS_CHUNK_SIZE);
 
         final ConfigProperty httpProxyUserProp = config.get("http.proxyUser",
                                                             null);
@@ -322,6 +389,30 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
         gitReposParentDir = new File(bareReposDirProp.getValue(),
                                      reposDirNameProp.getValue());
         commitLimit = commitLimitProp.getIntValue();
+        gcScheduler = new JGitGarbageCollectorScheduler(gcThreadsProp.getIntValue(),
+                                                        gcDebounceProp.getIntValue(),
+                                                        gcStartupDelayProp.getIntValue(),
+                                                        gcLooseObjectsProp.getIntValue(),
+                                                        gcPackFilesProp.getIntValue(),
+                                                        gcBudgetProp.getIntValue());
+        warmupRepositories = new HashSet<>();
+        for (final String repo : warmupProp.getValue().split(",")) {
+            if (!repo.trim().isEmpty()) {
+                warmupRepositories.add(repo.trim());
+            }
+        }
+        warmupThreads = warmupThreadsProp.getIntValue();
+        idleTimeout = idleTimeoutProp.getIntValue();
+        commitBufferThreshold = commitBufferThresholdProp.getIntValue();
+        if (groupCommitEnabledProp.getBooleanValue()) {
+            groupCommitter = new GroupCommitter(groupCommitWindowProp.getIntValue(),
+                                                groupCommitMaxSizeProp.getIntValue(),
+                                                this::commitGroup);
+        }
+        watchQueueCapacity = watchQueueCapacityProp.getIntValue();
+        watchOverflowPolicy = JGitWatchService.OverflowPolicy.valueOf(watchOverflowPolicyProp.getValue().trim().toUpperCase());
+        diffEventsChunkSize = Math.max(1,
+                                       diffEventsChunkSizeProp.getIntValue());
 
         daemonEnabled = enabledProp.getBooleanValue();
         if (daemonEnabled) {
@@ -375,16 +466,26 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
         synchronized (oldHeadsOfPendingDiffsLock) {
             oldHeadsOfPendingDiffs.remove(fileSystem);
         }
-        if (closedFileSystems.size() == fileSystems.size()) {
+        if (closedFileSystems.size() == getRegisteredCount()) {
             forceStopDaemon();
             shutdownSSH();
         }
     }
 
+    /**
+     * Number of registered filesystems, including the existing repositories that weren't opened yet.
+     */
+    private int getRegisteredCount() {
+        final Set<String> names = new HashSet<>(fileSystems.keySet());
+        names.addAll(existingRepositories.keySet());
+        return names.size();
+    }
+
     public void onDisposeFileSystem(final JGitFileSystem fileSystem) {
         onCloseFileSystem(fileSystem);
         closedFileSystems.remove(fileSystem);
         fileSystems.remove(fileSystem.id());
+        existingRepositories.remove(fileSystem.id());
 
         repoIndex.remove(fileSystem.getGit().getRepository());
     }
@@ -416,6 +517,10 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
     @Override
     public void dispose() {
         shutdown();
+        gcScheduler.shutdown();
+        if (idleMonitor != null) {
+            idleMonitor.shutdownNow();
+        }
     }
 
     public class RepositoryResolverImpl<T> implements RepositoryResolver<T> {
@@ -426,7 +531,7 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
                 throws RepositoryNotFoundException,
                 ServiceNotAuthorizedException, ServiceNotEnabledException,
                 ServiceMayNotContinueException {
-            final JGitFileSystem fs = fileSystems.get(name);
+            final JGitFileSystem fs = lookupFileSystem(name);
             if (fs == null) {
                 throw new RepositoryNotFoundException(name);
             }
@@ -519,6 +624,10 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
 
         rescanForExistingRepositories();
 
+        if (idleTimeout > 0) {
+            startIdleMonitor();
+        }
+
         if (daemonEnabled) {
             buildAndStartDaemon();
         } else {
@@ -537,39 +646,143 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
      * {@link #gitReposParentDir}. Call this method any time you add or remove git repositories without using this
      * class. If you only ever add or remove git repositories using the methods of this class, there is no need to call
      * this method.
+     * <p>
+     * Only repository names are collected here; each filesystem is opened on first access. Repositories listed in
+     * {@code org.uberfire.nio.git.warmup} ("*" for all of them) are opened in parallel before this method returns.
      */
     public final void rescanForExistingRepositories() {
         fileSystems.clear();
+        existingRepositories.clear();
         final List<Pair<String, String>> repos = getRepositories(gitReposParentDir);
         if (repos != null) {
             for (Pair<String, String> repo : repos) {
                 final File repoDir = new File(gitReposParentDir,
                                               repo.getK1() + repo.getK2());
-                try {
-                    if (repoDir.isDirectory()) {
-                        final String name = repo.getK1() + repo.getK2().substring(0,
-                                                                                  repo.getK2().indexOf(DOT_GIT_EXT));
-                        final JGitFileSystem fs = new JGitFileSystem(this,
-                                                                     fullHostNames,
-                                                                     Git.createRepository(repoDir),
-                                                                     name,
-                                                                     buildCredential(null));
-                        LOG.debug("Running GIT GC on '" + name + "'");
-                        fs.getGit().gc();
-                        LOG.debug("Registering existing GIT filesystem '" + name + "' at " + repoDir);
-                        fileSystems.put(name,
-                                        fs);
-                        repoIndex.put(fs.getGit().getRepository(),
-                                      fs);
-                    } else {
-                        LOG.debug("Not registering " + repoDir + " as a GIT filesystem because it is not a directory");
-                    }
-                } catch (final Exception ex) {
-                    LOG.error("Not registering " + repoDir + " as a GIT filesystem failed",
-                              ex);
+                if (repoDir.isDirectory()) {
+                    final String name = repo.getK1() + repo.getK2().substring(0,
+                                                                              repo.getK2().indexOf(DOT_GIT_EXT));
+                    LOG.debug("Found existing GIT filesystem '" + name + "' at " + repoDir);
+                    existingRepositories.put(name,
+                                             repoDir);
+                } else {
+                    LOG.debug("Not registering " + repoDir + " as a GIT filesystem because it is not a directory");
                 }
             }
         }
+        warmup();
+    }
+
+    private void warmup() {
+        final List<String> names = new ArrayList<>();
+        for (final String name : existingRepositories.keySet()) {
+            if (warmupRepositories.contains(WARMUP_ALL_REPOSITORIES) || warmupRepositories.contains(name)) {
+                names.add(name);
+            }
+        }
+        if (names.isEmpty()) {
+            return;
+        }
+
+        final ExecutorService warmupExecutor = Executors.newFixedThreadPool(Math.min(Math.max(warmupThreads,
+                                                                                              1),
+                                                                                     names.size()),
+                                                                            new DescriptiveThreadFactory());
+        try {
+            final List<Callable<JGitFileSystem>> tasks = new ArrayList<>(names.size());
+            for (final String name : names) {
+                tasks.add(() -> lookupFileSystem(name));
+            }
+            warmupExecutor.invokeAll(tasks);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            warmupExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the filesystem registered under the given name, opening it first if it's an existing repository
+     * that wasn't accessed yet.
+     */
+    private JGitFileSystem lookupFileSystem(final String name) {
+        final JGitFileSystem fs = fileSystems.get(name);
+        if (fs != null) {
+            return fs;
+        }
+        final File repoDir = existingRepositories.get(name);
+        if (repoDir == null) {
+            return null;
+        }
+        // opened out of the map, so lookups never wait on the repository IO of another filesystem
+        final JGitFileSystem opened = openExistingFileSystem(name,
+                                                             repoDir);
+        if (opened == null) {
+            return fileSystems.get(name);
+        }
+        final JGitFileSystem registered = fileSystems.putIfAbsent(name,
+                                                                  opened);
+        if (registered != null) {
+            // another thread opened it first
+            opened.getGit().getRepository().close();
+            return registered;
+        }
+        LOG.debug("Registering existing GIT filesystem '" + name + "' at " + repoDir);
+        repoIndex.put(opened.getGit().getRepository(),
+                      opened);
+        gcScheduler.scheduleAfterStartup(opened);
+        return opened;
+    }
+
+    private JGitFileSystem openExistingFileSystem(final String name,
+                                                  final File repoDir) {
+        try {
+            return new JGitFileSystem(this,
+                                      fullHostNames,
+                                      Git.createRepository(repoDir),
+                                      name,
+                                      buildCredential(null));
+        } catch (final Exception ex) {
+            LOG.error("Not registering " + repoDir + " as a GIT filesystem failed",
+                      ex);
+            existingRepositories.remove(name);
+            return null;
+        }
+    }
+
+    private boolean isRegistered(final String name) {
+        return fileSystems.containsKey(name) || existingRepositories.containsKey(name);
+    }
+
+    /**
+     * Periodically releases pack file handles and cached pack windows of repositories that weren't
+     * accessed within {@link #idleTimeout}. Filesystems stay registered and open.
+     */
+    private void startIdleMonitor() {
+        idleMonitor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread t = new Thread(r,
+                                        "jgit-idle-monitor");
+            t.setDaemon(true);
+            return t;
+        });
+        final long period = Math.max(idleTimeout / 2,
+                                     1000);
+        idleMonitor.scheduleWithFixedDelay(this::releaseIdleFileSystems,
+                                           period,
+                                           period,
+                                           TimeUnit.MILLISECONDS);
+    }
+
+    void releaseIdleFileSystems() {
+        for (final JGitFileSystem fs : getOpenFileSystems()) {
+            try {
+                if (fs.releaseIfIdle(idleTimeout)) {
+                    LOG.debug("Released resources of idle GIT filesystem '" + fs.getName() + "'");
+                }
+            } catch (final Exception ex) {
+                LOG.error("Failed to release resources of idle GIT filesystem '" + fs.getName() + "'",
+                          ex);
+            }
+        }
     }
 
     private List<Pair<String, String>> getRepositories(File root) {
@@ -609,9 +822,14 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
         final ReceivePackFactory receivePackFactory = (ReceivePackFactory<BaseGitCommand>) (req, db) -> new ReceivePack(db) {{
             final JGitFileSystem fs = repoIndex.get(db);
             final Map<String, RevCommit> oldTreeRefs = new HashMap<>();
+            final List<String> lockedRefs = new ArrayList<>();
+            final AtomicBoolean exclusiveLock = new AtomicBoolean(false);
 
             setPreReceiveHook((rp, commands2) -> {
-                fs.lock();
+                lockReceivedRefs(fs,
+                                 commands2,
+                                 lockedRefs,
+                                 exclusiveLock);
                 for (final ReceiveCommand command : commands2) {
                     final RevCommit lastCommit = fs.getGit().getLastCommit(command.getRefName());
                     oldTreeRefs.put(command.getRefName(),
@@ -620,7 +838,9 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
             });
 
             setPostReceiveHook((rp, commands) -> {
-                fs.unlock();
+                unlockReceivedRefs(fs,
+                                   lockedRefs,
+                                   exclusiveLock);
                 final String userName = req.getUser().getName();
                 for (Map.Entry<String, RevCommit> oldTreeRef : oldTreeRefs.entrySet()) {
                     final List<RevCommit> commits = fs.getGit().listCommits(oldTreeRef.getValue(),
@@ -655,6 +875,42 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
         gitSSHService.start();
     }
 
+    /**
+     * Pushes that only update existing refs lock just those branches; creating or deleting a ref
+     * changes the ref database as a whole and takes the whole filesystem.
+     */
+    private void lockReceivedRefs(final JGitFileSystem fs,
+                                  final Collection<ReceiveCommand> commands,
+                                  final List<String> lockedRefs,
+                                  final AtomicBoolean exclusiveLock) {
+        final List<String> refs = new ArrayList<>(commands.size());
+        boolean exclusive = false;
+        for (final ReceiveCommand command : commands) {
+            refs.add(command.getRefName());
+            if (command.getType() == ReceiveCommand.Type.CREATE || command.getType() == ReceiveCommand.Type.DELETE) {
+                exclusive = true;
+            }
+        }
+        if (exclusive || refs.isEmpty()) {
+            fs.lock();
+            exclusiveLock.set(true);
+        } else {
+            fs.lock(refs);
+            lockedRefs.addAll(refs);
+        }
+    }
+
+    private void unlockReceivedRefs(final JGitFileSystem fs,
+                                    final List<String> lockedRefs,
+                                    final AtomicBoolean exclusiveLock) {
+        if (exclusiveLock.getAndSet(false)) {
+            fs.unlock();
+        } else if (!lockedRefs.isEmpty()) {
+            fs.unlock(lockedRefs);
+            lockedRefs.clear();
+        }
+    }
+
     void buildAndStartDaemon() {
         if (daemonService == null || !daemonService.isRunning()) {
             daemonService = new Daemon(new InetSocketAddress(daemonHostAddr,
@@ -689,6 +945,7 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
      * {@link #rescanForExistingRepositories()}.
      */
     public void shutdown() {
+        gcScheduler.cancelAll();
         for (JGitFileSystem fs : getOpenFileSystems()) {
             fs.close();
         }
@@ -743,7 +1000,7 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
         migrateIfNeeded(env,
                         name);
 
-        if (fileSystems.containsKey(name)) {
+        if (isRegistered(name)) {
             throw new FileSystemAlreadyExistsException("No filesystem for uri (" + uri + ") found.");
         }
 
@@ -837,7 +1094,7 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
             URI migrateFromURI = (URI) env.get(GIT_ENV_KEY_MIGRATE_FROM);
             final String oldRepoName = extractRepoName(migrateFromURI);
 
-            if (fileSystems.containsKey(oldRepoName) && !fileSystems.containsKey(name)) {
+            if (isRegistered(oldRepoName) && !isRegistered(name)) {
                 this.migrateOldRepository(oldRepoName,
                                           name);
             }
@@ -880,6 +1137,7 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
                                newRepository.toPath(),
                                REPLACE_EXISTING);
                     this.fileSystems.remove(oldName);
+                    this.existingRepositories.remove(oldName);
                 } catch (java.io.IOException e) {
                     throw new GitException("A problem occurred trying to migrate repositories",
                                            e);
@@ -898,11 +1156,11 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
         checkURI("uri",
                  uri);
 
-        JGitFileSystem fileSystem = fileSystems.get(extractRepoNameWithFolder(uri));
+        JGitFileSystem fileSystem = lookupFileSystem(extractRepoNameWithFolder(uri));
 
         if (fileSystem == null) {
 
-            fileSystem = fileSystems.get(extractRepoNameWithoutFolder(uri));
+            fileSystem = lookupFileSystem(extractRepoNameWithoutFolder(uri));
             if (fileSystem == null) {
                 throw new FileSystemNotFoundException("No filesystem for uri (" + uri + ") found.");
             }
@@ -910,28 +1168,17 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
 
         if (hasSyncFlag(uri)) {
             try {
-                final String treeRef = "master";
-                final ObjectId oldHead = fileSystem.getGit().getTreeFromRef(treeRef);
                 final Map<String, String> params = getQueryParams(uri);
-                try {
-                    fileSystem.lock();
-                    final Pair<String, String> remote = Pair.newPair("upstream",
-                                                                     params.get("sync"));
-                    fileSystem.getGit().fetch(fileSystem.getCredential(),
-                                              remote,
-                                              emptyList());
-                    fileSystem.getGit().syncRemote(remote);
-                } finally {
-                    fileSystem.unlock();
+                final Pair<String, String> remote = Pair.newPair("upstream",
+                                                                 params.get("sync"));
+                if (params.containsKey("refs")) {
+                    syncBranches(fileSystem,
+                                 remote,
+                                 params.get("refs"));
+                } else {
+                    syncRepository(fileSystem,
+                                   remote);
                 }
-                final ObjectId newHead = fileSystem.getGit().getTreeFromRef(treeRef);
-                notifyDiffs(fileSystem,
-                            treeRef,
-                            "<system>",
-                            "<system>",
-                            "",
-                            oldHead,
-                            newHead);
             } catch (final Exception ex) {
                 throw new IOException("Failed to sync repository.",
                                       ex);
@@ -954,6 +1201,65 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
         return fileSystem;
     }
 
+    private void syncRepository(final JGitFileSystem fileSystem,
+                                final Pair<String, String> remote) throws InvalidRemoteException {
+        final String treeRef = "master";
+        final ObjectId oldHead = fileSystem.getGit().getTreeFromRef(treeRef);
+        try {
+            fileSystem.lock();
+            fileSystem.getGit().fetch(fileSystem.getCredential(),
+                                      remote,
+                                      emptyList());
+            fileSystem.getGit().syncRemote(remote);
+        } finally {
+            fileSystem.unlock();
+        }
+        final ObjectId newHead = fileSystem.getGit().getTreeFromRef(treeRef);
+        notifyDiffs(fileSystem,
+                    treeRef,
+                    "<system>",
+                    "<system>",
+                    "",
+                    oldHead,
+                    newHead);
+    }
+
+    /**
+     * Syncs only the given branches, each one as {@code branch:commitId}, separated by {@code ~} (neither character
+     * is allowed in branch names).
+     */
+    private void syncBranches(final JGitFileSystem fileSystem,
+                              final Pair<String, String> remote,
+                              final String refs) throws InvalidRemoteException {
+        for (final String ref : refs.split("~")) {
+            final int separator = ref.lastIndexOf(':');
+            final String branch = ref.substring(0,
+                                                separator);
+            final ObjectId commitId = ObjectId.fromString(ref.substring(separator + 1));
+
+            final ObjectId oldHead = fileSystem.getGit().getTreeFromRef(branch);
+            final boolean moved;
+            try {
+                fileSystem.lock();
+                moved = fileSystem.getGit().syncBranch(fileSystem.getCredential(),
+                                                       remote,
+                                                       branch,
+                                                       commitId);
+            } finally {
+                fileSystem.unlock();
+            }
+            if (moved) {
+                notifyDiffs(fileSystem,
+                            branch,
+                            "<system>",
+                            "<system>",
+                            "",
+                            oldHead,
+                            fileSystem.getGit().getTreeFromRef(branch));
+            }
+        }
+    }
+
     @Override
     public Path getPath(final URI uri)
             throws IllegalArgumentException, FileSystemNotFoundException, SecurityException {
@@ -966,10 +1272,10 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
 
         Path path;
 
-        JGitFileSystem fileSystem = fileSystems.get(extractRepoNameWithFolder(uri));
+        JGitFileSystem fileSystem = lookupFileSystem(extractRepoNameWithFolder(uri));
 
         if (fileSystem == null) {
-            fileSystem = fileSystems.get(extractRepoNameWithoutFolder(uri));
+            fileSystem = lookupFileSystem(extractRepoNameWithoutFolder(uri));
 
             if (fileSystem == null) {
                 throw new FileSystemNotFoundException("No filesystem for uri (" + uri + ") found.");
@@ -1018,27 +1324,40 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
             throw new NotDirectoryException(path.toString());
         }
 
-        try {
-            final File file = File.createTempFile("gitz",
-                                                  "woot");
-            return new FilterOutputStream(new FileOutputStream(file)) {
-                @Override
-                public void close() throws java.io.IOException {
+        final BlobBuffer content = new BlobBuffer(commitBufferThreshold);
+        return new FilterOutputStream(content.newOutputStream()) {
+            private boolean closed = false;
+
+            @Override
+            public void write(final byte[] b,
+                              final int off,
+                              final int len) throws java.io.IOException {
+                out.write(b,
+                          off,
+                          len);
+            }
+
+            @Override
+            public void close() throws java.io.IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
                     super.close();
 
                     commit(gPath,
                            buildCommitInfo("{" + toPathImpl(path).getPath() + "}",
                                            Arrays.asList(options)),
-                           new DefaultCommitContent(new HashMap<String, File>() {{
+                           DefaultCommitContent.fromBlobs(new HashMap<String, BlobContent>() {{
                                put(gPath.getPath(),
-                                   file);
+                                   content);
                            }}));
+                } finally {
+                    content.dispose();
                 }
-            };
-        } catch (java.io.IOException e) {
-            throw new IOException("Could not create file or output stream.",
-                                  e);
-        }
+            }
+        };
     }
 
     private CommitInfo buildCommitInfo(final String defaultMessage,
@@ -1138,43 +1457,82 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
     private SeekableByteChannel createANewByteChannel(final Path path,
                                                       final Set<? extends OpenOption> options,
                                                       final JGitPathImpl gPath,
-                                                      final FileAttribute<?>[] attrs) throws java.io.IOException {
-        final File file = File.createTempFile("gitz",
-                                              "woot");
+                                                      final FileAttribute<?>[] attrs) {
+        final BlobBuffer content = new BlobBuffer(commitBufferThreshold);
+        final SeekableByteChannel channel = content.newByteChannel();
+
+        return new SeekableByteChannel() {
+            @Override
+            public long position() throws IOException {
+                return channel.position();
+            }
+
+            @Override
+            public SeekableByteChannel position(final long newPosition) throws IOException {
+                channel.position(newPosition);
+                return this;
+            }
+
+            @Override
+            public long size() throws IOException {
+                return channel.size();
+            }
+
+            @Override
+            public SeekableByteChannel truncate(final long size) throws IOException {
+                channel.truncate(size);
+                return this;
+            }
+
+            @Override
+            public int read(final ByteBuffer dst) throws java.io.IOException {
+                return channel.read(dst);
+            }
+
+            @Override
+            public int write(final ByteBuffer src) throws java.io.IOException {
+                return channel.write(src);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
 
-        return new SeekableByteChannelFileBasedImpl(new RandomAccessFile(file,
-                                                                         "rw").getChannel()) {
             @Override
             public void close() throws java.io.IOException {
-                super.close();
-
-                File tempDot = null;
-                final boolean hasDotContent;
-                if (options != null && options.contains(new DotFileOption())) {
-                    deleteIfExists(dot(path),
-                                   extractCommentedOption(options));
-                    tempDot = File.createTempFile("meta",
-                                                  "dot");
-                    hasDotContent = buildDotFile(path,
-                                                 new FileOutputStream(tempDot),
-                                                 attrs);
-                } else {
-                    hasDotContent = false;
+                if (!channel.isOpen()) {
+                    return;
                 }
+                channel.close();
 
-                final File dotfile = tempDot;
+                try {
+                    final ByteArrayOutputStream dotContent = new ByteArrayOutputStream();
+                    final boolean hasDotContent;
+                    if (options != null && options.contains(new DotFileOption())) {
+                        deleteIfExists(dot(path),
+                                       extractCommentedOption(options));
+                        hasDotContent = buildDotFile(path,
+                                                     dotContent,
+                                                     attrs);
+                    } else {
+                        hasDotContent = false;
+                    }
 
-                commit(gPath,
-                       buildCommitInfo("{" + toPathImpl(path).getPath() + "}",
-                                       options),
-                       new DefaultCommitContent(new HashMap<String, File>() {{
-                           put(gPath.getPath(),
-                               file);
-                           if (hasDotContent) {
-                               put(toPathImpl(dot(gPath)).getPath(),
-                                   dotfile);
-                           }
-                       }}));
+                    commit(gPath,
+                           buildCommitInfo("{" + toPathImpl(path).getPath() + "}",
+                                           options),
+                           DefaultCommitContent.fromBlobs(new HashMap<String, BlobContent>() {{
+                               put(gPath.getPath(),
+                                   content);
+                               if (hasDotContent) {
+                                   put(toPathImpl(dot(gPath)).getPath(),
+                                       BlobContent.of(dotContent.toByteArray()));
+                               }
+                           }}));
+                } finally {
+                    content.dispose();
+                }
             }
         };
     }
@@ -1564,11 +1922,11 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
                        final JGitPathImpl target) {
 
         try {
-            target.getFileSystem().lock();
+            target.getFileSystem().lock(target.getRefTree());
             source.getFileSystem().getGit().merge(source.getRefTree(),
                                                   target.getRefTree());
         } finally {
-            target.getFileSystem().unlock();
+            target.getFileSystem().unlock(target.getRefTree());
         }
     }
 
@@ -1576,11 +1934,11 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
                             final JGitPathImpl target,
                             final String... commits) {
         try {
-            target.getFileSystem().lock();
+            target.getFileSystem().lock(target.getRefTree());
             source.getFileSystem().getGit().cherryPick(target,
                                                        commits);
         } finally {
-            target.getFileSystem().unlock();
+            target.getFileSystem().unlock(target.getRefTree());
         }
     }
 
@@ -2157,6 +2515,18 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
             map.put("diff",
                     diffs);
             return map;
+        } else if (s[0].equals("commit")) {
+            final JGitPathImpl gPath = toPathImpl(path);
+            final RevCommit lastCommit = gPath.getFileSystem().getGit().getLastCommit(gPath.getRefTree());
+            final HashMap<String, Object> map = new HashMap<>();
+            if (lastCommit != null) {
+                map.put("id",
+                        lastCommit.getName());
+            }
+            return map;
+        } else if (s[0].equals("changes")) {
+            return readChanges(toPathImpl(path),
+                               s[1]);
         } else {
             final ExtendedAttributeView view = getFileAttributeView(toPathImpl(path),
                                                                     s[0],
@@ -2169,6 +2539,54 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
         }
     }
 
+    /**
+     * Paths changed on the branch of the given path since a commit: "id" holds the last commit of
+     * the branch, "modified" the added or modified paths and "deleted" the removed ones. Both lists
+     * are missing if the commit isn't known by the repository.
+     */
+    private Map<String, Object> readChanges(final JGitPathImpl gPath,
+                                            final String fromCommit) {
+        final Git git = gPath.getFileSystem().getGit();
+        final RevCommit lastCommit = git.getLastCommit(gPath.getRefTree());
+        final HashMap<String, Object> map = new HashMap<>();
+        if (lastCommit == null) {
+            return map;
+        }
+        map.put("id",
+                lastCommit.getName());
+
+        final List<ObjectId> from = git.resolveObjectIds(fromCommit);
+        if (from.isEmpty()) {
+            return map;
+        }
+        final List<DiffEntry> diff;
+        try {
+            diff = git.listDiffs(git.resolveRevCommit(from.get(0)).getTree(),
+                                 lastCommit.getTree());
+        } catch (final java.io.IOException | IllegalArgumentException ex) {
+            LOG.warn("Can't resolve commit '" + fromCommit + "' of [" + gPath.getFileSystem().getName() + "]",
+                     ex);
+            return map;
+        }
+
+        final List<String> modified = new ArrayList<>();
+        final List<String> deleted = new ArrayList<>();
+        for (final DiffEntry entry : diff) {
+            if (!entry.getOldPath().equals(DiffEntry.DEV_NULL) && entry.getChangeType() != DiffEntry.ChangeType.MODIFY
+                    && entry.getChangeType() != DiffEntry.ChangeType.COPY) {
+                deleted.add("/" + entry.getOldPath());
+            }
+            if (!entry.getNewPath().equals(DiffEntry.DEV_NULL)) {
+                modified.add("/" + entry.getNewPath());
+            }
+        }
+        map.put("modified",
+                modified);
+        map.put("deleted",
+                deleted);
+        return map;
+    }
+
     @Override
     public void setAttribute(final Path path,
                              final String attribute,
@@ -2194,7 +2612,6 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
                 if (value instanceof CommentedOption) {
                     fileSystem.setBatchCommitInfo("Batch mode",
                                                   (CommentedOption) value);
-                    fileSystem.unlock();
                     return;
                 }
 
@@ -2232,9 +2649,9 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
     private void lockAndSquash(final Path path,
                                final SquashOption value) {
         final JGitFileSystem fileSystem = (JGitFileSystem) path.getFileSystem();
+        final JGitPathImpl gSource = toPathImpl(path);
         try {
-            fileSystem.lock();
-            final JGitPathImpl gSource = toPathImpl(path);
+            fileSystem.lock(gSource.getRefTree());
             String commitMessage = checkNotEmpty("commitMessage",
                                                  value.getMessage());
             String startCommit = checkNotEmpty("startCommit",
@@ -2243,7 +2660,7 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
                                                     startCommit,
                                                     commitMessage);
         } finally {
-            fileSystem.unlock();
+            fileSystem.unlock(gSource.getRefTree());
         }
     }
 
@@ -2478,13 +2895,53 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
     private void commit(final JGitPathImpl path,
                         final CommitInfo commitInfo,
                         final CommitContent commitContent) {
+        if (groupCommitter != null && commitContent instanceof DefaultCommitContent && !path.getFileSystem().isOnBatch()) {
+            groupCommitter.commit(path,
+                                  commitInfo,
+                                  (DefaultCommitContent) commitContent);
+        } else {
+            commit(path,
+                   commitInfo,
+                   commitContent,
+                   changedPath -> commitInfo);
+        }
+    }
+
+    private void commitGroup(final List<GroupCommitter.Request> requests) {
+        final GroupCommitter.Request first = requests.get(0);
+        if (requests.size() == 1) {
+            commit(first.path,
+                   first.commitInfo,
+                   first.content,
+                   changedPath -> first.commitInfo);
+            return;
+        }
+
+        final Map<String, CommitInfo> writers = new HashMap<>();
+        final DefaultCommitContent content = GroupCommitter.mergeContent(requests,
+                                                                         writers);
+        commit(first.path,
+               GroupCommitter.mergeCommitInfo(requests),
+               content,
+               changedPath -> GroupCommitter.writerOf(writers,
+                                                      changedPath,
+                                                      first.commitInfo));
+    }
+
+    /**
+     * @param writerOf resolves the commit info reported in the watch event of each changed path.
+     */
+    private void commit(final JGitPathImpl path,
+                        final CommitInfo commitInfo,
+                        final CommitContent commitContent,
+                        final Function<String, CommitInfo> writerOf) {
 
         final JGitFileSystem fileSystem = path.getFileSystem();
+        final String branchName = path.getRefTree();
         try {
-            fileSystem.lock();
+            fileSystem.lock(branchName);
 
             final Git git = fileSystem.getGit();
-            final String branchName = path.getRefTree();
             final boolean batchState = fileSystem.isOnBatch();
             final boolean amend = batchState && fileSystem.isHadCommitOnBatchState(path.getRoot());
 
@@ -2507,11 +2964,7 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
 
             if (!batchState) {
                 if (hasCommit) {
-                    int value = fileSystem.incrementAndGetCommitCount();
-                    if (value >= commitLimit) {
-                        git.gc();
-                        fileSystem.resetCommitCount();
-                    }
+                    scheduleGCIfNeeded(fileSystem);
                 }
 
                 final ObjectId newHead = path.getFileSystem().getGit().getTreeFromRef(branchName);
@@ -2520,9 +2973,7 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
 
                 notifyDiffs(path.getFileSystem(),
                             branchName,
-                            commitInfo.getSessionId(),
-                            commitInfo.getName(),
-                            commitInfo.getMessage(),
+                            writerOf,
                             oldHead,
                             newHead);
             } else {
@@ -2557,10 +3008,38 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
                                                     hasCommit);
             }
         } finally {
-            fileSystem.unlock();
+            fileSystem.unlock(branchName);
+        }
+    }
+
+    /**
+     * Every <code>commitLimit</code> commits the repository is handed to the background gc scheduler,
+     * which decides from its loose objects and pack files whether it is worth collecting.
+     */
+    private void scheduleGCIfNeeded(final JGitFileSystem fileSystem) {
+        int value = fileSystem.incrementAndGetCommitCount();
+        if (value >= commitLimit) {
+            fileSystem.resetCommitCount();
+            gcScheduler.schedule(fileSystem);
         }
     }
 
+    JGitGarbageCollectorScheduler getGCScheduler() {
+        return gcScheduler;
+    }
+
+    GroupCommitter getGroupCommitter() {
+        return groupCommitter;
+    }
+
+    int getWatchQueueCapacity() {
+        return watchQueueCapacity;
+    }
+
+    JGitWatchService.OverflowPolicy getWatchOverflowPolicy() {
+        return watchOverflowPolicy;
+    }
+
     private void postCommitHook(final Repository repository) {
         detectedFS.runHookIfPresent(repository,
                                     "post-commit",
@@ -2590,11 +3069,7 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
             }
 
             for (JGitFileSystem fileSystem : oldHeadsOfPendingDiffs.keySet()) {
-                int value = fileSystem.incrementAndGetCommitCount();
-                if (value >= commitLimit) {
-                    fileSystem.getGit().gc();
-                    fileSystem.resetCommitCount();
-                }
+                scheduleGCIfNeeded(fileSystem);
             }
 
             oldHeadsOfPendingDiffs.clear();
@@ -2608,6 +3083,24 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
                      final String message,
                      final ObjectId oldHead,
                      final ObjectId newHead) {
+        final CommitInfo commitInfo = new CommitInfo(sessionId,
+                                                     userName,
+                                                     null,
+                                                     message,
+                                                     null,
+                                                     null);
+        notifyDiffs(fs,
+                    _tree,
+                    changedPath -> commitInfo,
+                    oldHead,
+                    newHead);
+    }
+
+    private void notifyDiffs(final JGitFileSystem fs,
+                             final String _tree,
+                             final Function<String, CommitInfo> writerOf,
+                             final ObjectId oldHead,
+                             final ObjectId newHead) {
 
         final String tree;
         if (_tree.startsWith("refs/")) {
@@ -2624,105 +3117,127 @@ public class JGitFileSystemProvider implements SecuredFileSystemProvider,
 
         final List<DiffEntry> diff = fs.getGit().listDiffs(oldHead,
                                                            newHead);
-        final List<WatchEvent<?>> events = new ArrayList<>(diff.size());
-
-        for (final DiffEntry diffEntry : diff) {
-            final Path oldPath;
-            if (!diffEntry.getOldPath().equals(DiffEntry.DEV_NULL)) {
-                oldPath = JGitPathImpl.create(fs,
-                                              "/" + diffEntry.getOldPath(),
-                                              host,
-                                              null,
-                                              false);
-            } else {
-                oldPath = null;
-            }
-
-            final Path newPath;
-            if (!diffEntry.getNewPath().equals(DiffEntry.DEV_NULL)) {
-                final PathInfo pathInfo = fs.getGit().getPathInfo(tree,
-                                                                  diffEntry.getNewPath());
-                newPath = JGitPathImpl.create(fs,
-                                              "/" + pathInfo.getPath(),
-                                              host,
-                                              pathInfo.getObjectId(),
-                                              false);
-            } else {
-                newPath = null;
-            }
-
-            events.add(new WatchEvent() {
-                @Override
-                public Kind kind() {
-                    DiffEntry.ChangeType changeType = diffEntry.getChangeType();
-                    switch (changeType) {
-                        case ADD:
-                        case COPY:
-                            return StandardWatchEventKind.ENTRY_CREATE;
-                        case DELETE:
-                            return StandardWatchEventKind.ENTRY_DELETE;
-                        case MODIFY:
-                            return StandardWatchEventKind.ENTRY_MODIFY;
-                        case RENAME:
-                            return StandardWatchEventKind.ENTRY_RENAME;
-                        default:
-                            throw new RuntimeException("Unsupported change type: " + changeType);
-                    }
-                }
+        for (int from = 0; from < diff.size(); from += diffEventsChunkSize) {
+            final List<DiffEntry> chunk = diff.subList(from,
+                                                       Math.min(diff.size(),
+                                                                from + diffEventsChunkSize));
+            final List<WatchEvent<?>> events = new ArrayList<>(chunk.size());
+            for (final DiffEntry diffEntry : chunk) {
+                events.add(toWatchEvent(fs,
+                                        host,
+                                        writerOf,
+                                        diffEntry));
+            }
+            fs.publishEvents(root,
+                             events);
+        }
+    }
 
-                @Override
-                public int count() {
-                    return 1;
-                }
+    private WatchEvent<?> toWatchEvent(final JGitFileSystem fs,
+                                       final String host,
+                                       final Function<String, CommitInfo> writerOf,
+                                       final DiffEntry diffEntry) {
+        final Path oldPath;
+        if (!diffEntry.getOldPath().equals(DiffEntry.DEV_NULL)) {
+            oldPath = JGitPathImpl.create(fs,
+                                          "/" + diffEntry.getOldPath(),
+                                          host,
+                                          null,
+                                          false);
+        } else {
+            oldPath = null;
+        }
 
-                @Override
-                public Object context() {
-                    return new WatchContext() {
+        final Path newPath;
+        if (!diffEntry.getNewPath().equals(DiffEntry.DEV_NULL)) {
+            // the diff already carries the new blob id, no need to walk the tree again
+            newPath = JGitPathImpl.create(fs,
+                                          "/" + diffEntry.getNewPath(),
+                                          host,
+                                          diffEntry.getNewId().isComplete() ? diffEntry.getNewId().toObjectId() : null,
+                                          false);
+        } else {
+            newPath = null;
+        }
+
+        final CommitInfo writer = writerOf.apply(!diffEntry.getNewPath().equals(DiffEntry.DEV_NULL) ? diffEntry.getNewPath() : diffEntry.getOldPath());
+        final String sessionId = writer.getSessionId();
+        final String userName = writer.getName();
+        final String message = writer.getMessage();
+
+        final WatchEvent.Kind kind;
+        switch (diffEntry.getChangeType()) {
+            case ADD:
+            case COPY:
+                kind = StandardWatchEventKind.ENTRY_CREATE;
+                break;
+            case DELETE:
+                kind = StandardWatchEventKind.ENTRY_DELETE;
+                break;
+            case MODIFY:
+                kind = StandardWatchEventKind.ENTRY_MODIFY;
+                break;
+            case RENAME:
+                kind = StandardWatchEventKind.ENTRY_RENAME;
+                break;
+            default:
+                throw new RuntimeException("Unsupported change type: " + diffEntry.getChangeType());
+        }
+
+        return new WatchEvent() {
+            @Override
+            public Kind kind() {
+                return kind;
+            }
 
-                        @Override
-                        public Path getPath() {
-                            return newPath;
-                        }
+            @Override
+            public int count() {
+                return 1;
+            }
 
-                        @Override
-                        public Path getOldPath() {
-                            return oldPath;
-                        }
+            @Override
+            public Object context() {
+                return new WatchContext() {
 
-                        @Override
-                        public String getSessionId() {
-                            return sessionId;
-                        }
+                    @Override
+                    public Path getPath() {
+                        return newPath;
+                    }
 
-                        @Override
-                        public String getMessage() {
-                            return message;
-                        }
+                    @Override
+                    public Path getOldPath() {
+                        return oldPath;
+                    }
 
-                        @Override
-                        public String getUser() {
-                            return userName;
-                        }
-                    };
-                }
+                    @Override
+                    public String getSessionId() {
+                        return sessionId;
+                    }
 
-                @Override
-                public String toString() {
-                    return "WatchEvent{" +
-                            "newPath=" + newPath +
-                            ", oldPath=" + oldPath +
-                            ", sessionId='" + sessionId + '\'' +
-                            ", userName='" + userName + '\'' +
-                            ", message='" + message + '\'' +
-                            ", changeType=" + diffEntry.getChangeType() +
-                            '}';
-                }
-            });
-        }
-        if (!events.isEmpty()) {
-            fs.publishEvents(root,
-                             events);
-        }
+                    @Override
+                    public String getMessage() {
+                        return message;
+                    }
+
+                    @Override
+                    public String getUser() {
+                        return userName;
+                    }
+                };
+            }
+
+            @Override
+            public String toString() {
+                return "WatchEvent{" +
+                        "newPath=" + newPath +
+                        ", oldPath=" + oldPath +
+                        ", sessionId='" + sessionId + '\'' +
+                        ", userName='" + userName + '\'' +
+                        ", message='" + message + '\'' +
+                        ", changeType=" + diffEntry.getChangeType() +
+                        '}';
+            }
+        };
     }
 
     GitSSHService getGitSSHService() {
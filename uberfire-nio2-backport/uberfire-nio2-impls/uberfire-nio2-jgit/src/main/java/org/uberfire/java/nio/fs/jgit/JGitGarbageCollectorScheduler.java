@@ -0,0 +1,235 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.java.nio.fs.jgit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.uberfire.java.nio.fs.jgit.util.Git;
+
+import static org.kie.soup.commons.validation.PortablePreconditions.checkCondition;
+
+/**
+ * Runs git gc for {@link JGitFileSystem}s in the background.
+ * <p>
+ * Requests are debounced per repository: while a repository has a pending run, new requests are
+ * ignored. When a run starts, the repository is only collected if it has enough loose objects or
+ * pack files. Only ref packing holds the filesystem lock; objects are repacked while writers keep
+ * going. Workers are throttled so gc only takes the configured percentage of wall time.
+ */
+public class JGitGarbageCollectorScheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JGitGarbageCollectorScheduler.class);
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<String, PendingRun> pending = new ConcurrentHashMap<>();
+    private final AtomicLong notBefore = new AtomicLong(0);
+    private final AtomicInteger executions = new AtomicInteger(0);
+
+    private final long debounce;
+    private final long startupDelay;
+    private final long looseObjectsLimit;
+    private final long packFilesLimit;
+    private final int budget;
+
+    /**
+     * @param threads maximum number of repositories collected at the same time.
+     * @param debounce delay, in milliseconds, between a request and its run.
+     * @param startupDelay delay, in milliseconds, of the runs requested for existing repositories at startup.
+     * @param looseObjectsLimit number of loose objects that makes a repository worth collecting.
+     * @param packFilesLimit number of pack files that makes a repository worth collecting.
+     * @param budget percentage (1-100) of wall time the workers may spend collecting.
+     */
+    public JGitGarbageCollectorScheduler(final int threads,
+                                         final long debounce,
+                                         final long startupDelay,
+                                         final long looseObjectsLimit,
+                                         final long packFilesLimit,
+                                         final int budget) {
+        checkCondition("threads must be positive",
+                       threads > 0);
+        checkCondition("budget must be between 1 and 100",
+                       budget > 0 && budget <= 100);
+        this.debounce = debounce;
+        this.startupDelay = startupDelay;
+        this.looseObjectsLimit = looseObjectsLimit;
+        this.packFilesLimit = packFilesLimit;
+        this.budget = budget;
+        this.executor = new ScheduledThreadPoolExecutor(threads,
+                                                        r -> {
+                                                            final Thread t = new Thread(r,
+                                                                                        "jgit-gc");
+                                                            t.setDaemon(true);
+                                                            t.setPriority(Thread.MIN_PRIORITY);
+                                                            return t;
+                                                        });
+        this.executor.setKeepAliveTime(1,
+                                       TimeUnit.MINUTES);
+        this.executor.allowCoreThreadTimeOut(true);
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Requests a run for the given filesystem, unless one is already pending.
+     */
+    public void schedule(final JGitFileSystem fs) {
+        schedule(fs,
+                 debounce);
+    }
+
+    /**
+     * Requests a run for an existing repository found at startup. It's delayed, so startup and the
+     * first requests served don't compete with gc for IO.
+     */
+    public void scheduleAfterStartup(final JGitFileSystem fs) {
+        schedule(fs,
+                 startupDelay);
+    }
+
+    public boolean isPending(final JGitFileSystem fs) {
+        return pending.containsKey(fs.id());
+    }
+
+    /**
+     * Number of repositories actually collected so far.
+     */
+    public int getExecutions() {
+        return executions.get();
+    }
+
+    public void cancelAll() {
+        for (final PendingRun run : pending.values()) {
+            run.cancel();
+        }
+        pending.clear();
+    }
+
+    public void shutdown() {
+        cancelAll();
+        executor.shutdownNow();
+    }
+
+    private void schedule(final JGitFileSystem fs,
+                          final long delay) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        // registered before being scheduled, so a run can't end before its entry exists
+        final PendingRun run = new PendingRun(fs);
+        if (pending.putIfAbsent(fs.id(),
+                                run) == null) {
+            run.schedule(delay);
+        }
+    }
+
+    private void run(final PendingRun run) {
+        final JGitFileSystem fs = run.fs;
+        final long wait = notBefore.get() - System.currentTimeMillis();
+        if (wait > 0) {
+            run.schedule(wait);
+            return;
+        }
+        // a newer request may have replaced this run already
+        pending.remove(fs.id(),
+                       run);
+        if (!fs.isOpen()) {
+            return;
+        }
+
+        final long start = System.currentTimeMillis();
+        try {
+            collect(fs);
+        } catch (final Exception ex) {
+            LOG.error("Failed to run GIT GC on '" + fs.getName() + "'",
+                      ex);
+        } finally {
+            final long duration = System.currentTimeMillis() - start;
+            final long idle = duration * (100 - budget) / budget;
+            notBefore.accumulateAndGet(System.currentTimeMillis() + idle,
+                                       Math::max);
+        }
+    }
+
+    private void collect(final JGitFileSystem fs) {
+        final Git git = fs.getGit();
+        if (!git.isGCNeeded(looseObjectsLimit,
+                            packFilesLimit)) {
+            LOG.debug("Skipping GIT GC on '" + fs.getName() + "', below loose objects and pack files limits");
+            return;
+        }
+        LOG.debug("Running GIT GC on '" + fs.getName() + "'");
+        try {
+            fs.lock();
+            git.packRefs();
+        } finally {
+            fs.unlock();
+        }
+        git.repack();
+        executions.incrementAndGet();
+    }
+
+    /**
+     * A requested run of a repository, pending until it starts collecting.
+     */
+    private class PendingRun implements Runnable {
+
+        private final JGitFileSystem fs;
+        private volatile ScheduledFuture<?> future;
+        private volatile boolean cancelled = false;
+
+        private PendingRun(final JGitFileSystem fs) {
+            this.fs = fs;
+        }
+
+        private void schedule(final long delay) {
+            try {
+                future = executor.schedule(this,
+                                           delay,
+                                           TimeUnit.MILLISECONDS);
+            } catch (final RejectedExecutionException ex) {
+                pending.remove(fs.id(),
+                               this);
+            }
+        }
+
+        private void cancel() {
+            cancelled = true;
+            final ScheduledFuture<?> scheduled = future;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                pending.remove(fs.id(),
+                               this);
+                return;
+            }
+            JGitGarbageCollectorScheduler.this.run(this);
+        }
+    }
+}
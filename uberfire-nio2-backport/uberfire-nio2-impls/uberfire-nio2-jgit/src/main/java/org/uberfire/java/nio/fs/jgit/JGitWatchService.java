@@ -0,0 +1,381 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.java.nio.fs.jgit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.uberfire.java.nio.IOException;
+import org.uberfire.java.nio.base.ListenableWatchService;
+import org.uberfire.java.nio.base.WatchContext;
+import org.uberfire.java.nio.file.ClosedWatchServiceException;
+import org.uberfire.java.nio.file.InterruptedException;
+import org.uberfire.java.nio.file.Path;
+import org.uberfire.java.nio.file.StandardWatchEventKind;
+import org.uberfire.java.nio.file.WatchEvent;
+import org.uberfire.java.nio.file.WatchKey;
+import org.uberfire.java.nio.file.Watchable;
+
+import static org.kie.soup.commons.validation.PortablePreconditions.checkCondition;
+import static org.kie.soup.commons.validation.PortablePreconditions.checkNotNull;
+
+/**
+ * Watch service of a {@link JGitFileSystem}, backed by a bounded queue of watch keys.
+ * <p>
+ * When a watcher falls behind and its queue is full, the {@link OverflowPolicy} decides what to
+ * do with the pending keys, so a slow watcher never makes the queue grow without limit. A
+ * listener can be told about every new key, instead of keeping a thread blocked in {@link #take()}.
+ */
+public class JGitWatchService implements ListenableWatchService {
+
+    public enum OverflowPolicy {
+        /**
+         * Merges the pending keys, keeping only the latest creation or modification of each path. Renames and
+         * deletions are all kept, in order, so watchers still learn about the paths that went away.
+         */
+        COALESCE,
+        /**
+         * Drops the pending keys and queues a single {@link StandardWatchEventKind#OVERFLOW}
+         * event, so the watcher knows it has to resync.
+         */
+        OVERFLOW
+    }
+
+    private final JGitFileSystem fs;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final Deque<QueuedKey> queue = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final AtomicLong overflows = new AtomicLong();
+    private volatile boolean wsClose = false;
+    private volatile Runnable keysAvailableListener;
+
+    JGitWatchService(final JGitFileSystem fs,
+                     final int capacity,
+                     final OverflowPolicy policy) {
+        checkCondition("capacity must be positive",
+                       capacity > 0);
+        this.fs = checkNotNull("fs",
+                               fs);
+        this.capacity = capacity;
+        this.policy = checkNotNull("policy",
+                                   policy);
+    }
+
+    @Override
+    public WatchKey poll() throws ClosedWatchServiceException {
+        lock.lock();
+        try {
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public WatchKey poll(final long timeout,
+                         final TimeUnit unit) throws ClosedWatchServiceException, InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (queue.isEmpty()) {
+                checkOpen();
+                if (nanos <= 0) {
+                    return null;
+                }
+                try {
+                    nanos = notEmpty.awaitNanos(nanos);
+                } catch (final java.lang.InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedException();
+                }
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public WatchKey take() throws ClosedWatchServiceException, InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                checkOpen();
+                if (!queue.isEmpty()) {
+                    return dequeue();
+                }
+                // keeps waiting, as before: watchers are stopped by closing the service
+                notEmpty.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isClose() {
+        return !fs.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            wsClose = true;
+            queue.clear();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        fs.removeWatchService(this);
+    }
+
+    @Override
+    public void setKeysAvailableListener(final Runnable listener) {
+        this.keysAvailableListener = listener;
+    }
+
+    /**
+     * Number of watch keys waiting to be taken.
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Time, in milliseconds, the oldest pending watch key has been waiting; 0 if there is none.
+     */
+    public long getQueueLag() {
+        lock.lock();
+        try {
+            final QueuedKey oldest = queue.peekFirst();
+            return oldest == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest.queuedAt);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of times the queue was full and the overflow policy had to be applied.
+     */
+    public long getOverflowCount() {
+        return overflows.get();
+    }
+
+    void publish(final WatchKey key) {
+        lock.lock();
+        try {
+            if (wsClose) {
+                return;
+            }
+            queue.addLast(new QueuedKey(key,
+                                        System.nanoTime()));
+            if (queue.size() > capacity) {
+                overflows.incrementAndGet();
+                final QueuedKey oldest = queue.peekFirst();
+                if (policy == OverflowPolicy.COALESCE) {
+                    coalesce(oldest.queuedAt);
+                }
+                // keys of too many different roots can't be merged below capacity either
+                if (queue.size() > capacity) {
+                    queue.clear();
+                    queue.addLast(new QueuedKey(overflowKey(oldest.key.watchable()),
+                                                oldest.queuedAt));
+                }
+            }
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        final Runnable listener = keysAvailableListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WatchService{" +
+                "FileSystem=" + fs.toString() +
+                '}';
+    }
+
+    private WatchKey dequeue() {
+        final QueuedKey queued = queue.pollFirst();
+        return queued == null ? null : queued.key;
+    }
+
+    private void checkOpen() {
+        if (wsClose || !fs.isOpen()) {
+            throw new ClosedWatchServiceException("This service is closed.");
+        }
+    }
+
+    /**
+     * Replaces the queued keys by one key per watchable, holding the latest creation or modification of each path
+     * and every rename and deletion.
+     */
+    private void coalesce(final long queuedAt) {
+        final Map<Watchable, Map<Object, WatchEvent<?>>> merged = new LinkedHashMap<>();
+        for (final QueuedKey queued : queue) {
+            final Map<Object, WatchEvent<?>> events = merged.computeIfAbsent(queued.key.watchable(),
+                                                                             w -> new LinkedHashMap<>());
+            for (final WatchEvent<?> event : queued.key.pollEvents()) {
+                final Object mergeKey = mergeKeyOf(event);
+                // re-insert so the event moves to its latest position
+                events.remove(mergeKey);
+                events.put(mergeKey,
+                           event);
+            }
+        }
+        queue.clear();
+        for (final Map.Entry<Watchable, Map<Object, WatchEvent<?>>> entry : merged.entrySet()) {
+            queue.addLast(new QueuedKey(newWatchKey(fs,
+                                                    entry.getKey(),
+                                                    new ArrayList<>(entry.getValue().values())),
+                                        queuedAt));
+        }
+    }
+
+    private static Object mergeKeyOf(final WatchEvent<?> event) {
+        // dropping a rename or a deletion would leave watchers with paths that don't exist anymore
+        if (StandardWatchEventKind.ENTRY_RENAME.equals(event.kind()) || StandardWatchEventKind.ENTRY_DELETE.equals(event.kind())) {
+            return event;
+        }
+        if (event.context() instanceof WatchContext) {
+            final WatchContext context = (WatchContext) event.context();
+            final Path path = context.getPath() != null ? context.getPath() : context.getOldPath();
+            if (path != null) {
+                return path.toString();
+            }
+        }
+        // events without a path are never merged either
+        return event;
+    }
+
+    private WatchKey overflowKey(final Watchable watchable) {
+        final WatchContext context = new WatchContext() {
+            @Override
+            public Path getPath() {
+                return null;
+            }
+
+            @Override
+            public Path getOldPath() {
+                return null;
+            }
+
+            @Override
+            public String getSessionId() {
+                return null;
+            }
+
+            @Override
+            public String getMessage() {
+                return null;
+            }
+
+            @Override
+            public String getUser() {
+                return null;
+            }
+        };
+        final WatchEvent<Object> event = new WatchEvent<Object>() {
+            @Override
+            public Kind<Object> kind() {
+                return StandardWatchEventKind.OVERFLOW;
+            }
+
+            @Override
+            public int count() {
+                return 1;
+            }
+
+            @Override
+            public Object context() {
+                return context;
+            }
+
+            @Override
+            public String toString() {
+                return "WatchEvent{OVERFLOW}";
+            }
+        };
+        return newWatchKey(fs,
+                           watchable,
+                           Collections.<WatchEvent<?>>singletonList(event));
+    }
+
+    static WatchKey newWatchKey(final JGitFileSystem fs,
+                                final Watchable watchable,
+                                final List<WatchEvent<?>> events) {
+        return new WatchKey() {
+
+            @Override
+            public boolean isValid() {
+                return true;
+            }
+
+            @Override
+            public List<WatchEvent<?>> pollEvents() {
+                return new ArrayList<WatchEvent<?>>(events);
+            }
+
+            @Override
+            public boolean reset() {
+                return fs.isOpen();
+            }
+
+            @Override
+            public void cancel() {
+            }
+
+            @Override
+            public Watchable watchable() {
+                return watchable;
+            }
+        };
+    }
+
+    private static class QueuedKey {
+
+        private final WatchKey key;
+        private final long queuedAt;
+
+        QueuedKey(final WatchKey key,
+                  final long queuedAt) {
+            this.key = key;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
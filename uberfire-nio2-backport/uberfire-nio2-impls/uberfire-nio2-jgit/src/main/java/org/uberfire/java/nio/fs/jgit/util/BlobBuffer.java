@@ -0,0 +1,281 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.java.nio.fs.jgit.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import org.uberfire.java.nio.IOException;
+import org.uberfire.java.nio.channels.SeekableByteChannel;
+import org.uberfire.java.nio.fs.jgit.util.model.BlobContent;
+
+import static org.kie.soup.commons.validation.PortablePreconditions.checkCondition;
+
+/**
+ * Write buffer for the content of a file being saved.
+ * <p>
+ * Content is kept in memory until it grows past the threshold; from then on it's moved to a
+ * temporary file. {@link #dispose()} deletes that file, so it must be called once the content
+ * was committed (or the write failed).
+ */
+public class BlobBuffer implements BlobContent {
+
+    private static final int INITIAL_CAPACITY = 4096;
+
+    private final int threshold;
+    private byte[] buffer = new byte[0];
+    private long size = 0;
+    private long lastModified = System.currentTimeMillis();
+    private File file;
+    private FileChannel fileChannel;
+
+    public BlobBuffer(final int threshold) {
+        checkCondition("threshold must not be negative",
+                       threshold >= 0);
+        this.threshold = threshold;
+    }
+
+    public OutputStream newOutputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(final int b) throws java.io.IOException {
+                write(new byte[]{(byte) b},
+                      0,
+                      1);
+            }
+
+            @Override
+            public void write(final byte[] b,
+                              final int off,
+                              final int len) throws java.io.IOException {
+                final ByteBuffer src = ByteBuffer.wrap(b,
+                                                       off,
+                                                       len);
+                synchronized (BlobBuffer.this) {
+                    BlobBuffer.this.write(size,
+                                          src);
+                }
+            }
+        };
+    }
+
+    public SeekableByteChannel newByteChannel() {
+        return new SeekableByteChannel() {
+            private long position = 0;
+            private boolean open = true;
+
+            @Override
+            public long position() {
+                return position;
+            }
+
+            @Override
+            public SeekableByteChannel position(final long newPosition) {
+                checkCondition("position must not be negative",
+                               newPosition >= 0);
+                position = newPosition;
+                return this;
+            }
+
+            @Override
+            public long size() {
+                return BlobBuffer.this.length();
+            }
+
+            @Override
+            public SeekableByteChannel truncate(final long newSize) throws IOException {
+                BlobBuffer.this.truncate(newSize);
+                position = Math.min(position,
+                                    newSize);
+                return this;
+            }
+
+            @Override
+            public int read(final ByteBuffer dst) throws IOException {
+                final int read = BlobBuffer.this.read(position,
+                                                      dst);
+                if (read > 0) {
+                    position += read;
+                }
+                return read;
+            }
+
+            @Override
+            public int write(final ByteBuffer src) throws IOException {
+                final int written = BlobBuffer.this.write(position,
+                                                          src);
+                position += written;
+                return written;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return open;
+            }
+
+            @Override
+            public void close() {
+                open = false;
+            }
+        };
+    }
+
+    public synchronized boolean isInMemory() {
+        return file == null;
+    }
+
+    @Override
+    public synchronized long length() {
+        return size;
+    }
+
+    @Override
+    public synchronized long lastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public synchronized InputStream openStream() throws java.io.IOException {
+        if (file == null) {
+            return new ByteArrayInputStream(buffer,
+                                            0,
+                                            (int) size);
+        }
+        fileChannel.force(false);
+        return new FileInputStream(file);
+    }
+
+    /**
+     * Releases the content, deleting the temporary file if there is one.
+     */
+    public synchronized void dispose() {
+        buffer = new byte[0];
+        size = 0;
+        if (file != null) {
+            try {
+                fileChannel.close();
+            } catch (final java.io.IOException ignored) {
+            }
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+            file = null;
+            fileChannel = null;
+        }
+    }
+
+    synchronized int write(final long position,
+                           final ByteBuffer src) throws IOException {
+        final int length = src.remaining();
+        final long end = position + length;
+        lastModified = System.currentTimeMillis();
+        try {
+            if (file == null && end > threshold) {
+                spill();
+            }
+            if (file != null) {
+                int written = 0;
+                while (src.hasRemaining()) {
+                    written += fileChannel.write(src,
+                                                 position + written);
+                }
+                size = Math.max(size,
+                                end);
+                return written;
+            }
+        } catch (final java.io.IOException e) {
+            throw new IOException(e);
+        }
+
+        if (end > buffer.length) {
+            buffer = Arrays.copyOf(buffer,
+                                   (int) Math.min(threshold,
+                                                  Math.max(end,
+                                                           Math.max(INITIAL_CAPACITY,
+                                                                    buffer.length * 2L))));
+        }
+        src.get(buffer,
+                (int) position,
+                length);
+        size = Math.max(size,
+                        end);
+        return length;
+    }
+
+    synchronized int read(final long position,
+                          final ByteBuffer dst) throws IOException {
+        if (position >= size) {
+            return -1;
+        }
+        if (file != null) {
+            try {
+                return fileChannel.read(dst,
+                                        position);
+            } catch (final java.io.IOException e) {
+                throw new IOException(e);
+            }
+        }
+        final int length = (int) Math.min(dst.remaining(),
+                                          size - position);
+        dst.put(buffer,
+                (int) position,
+                length);
+        return length;
+    }
+
+    synchronized void truncate(final long newSize) throws IOException {
+        if (newSize >= size) {
+            return;
+        }
+        if (file != null) {
+            try {
+                fileChannel.truncate(newSize);
+            } catch (final java.io.IOException e) {
+                throw new IOException(e);
+            }
+        } else {
+            // a later write past the end must read back zeros, not the truncated bytes
+            Arrays.fill(buffer,
+                        (int) newSize,
+                        (int) size,
+                        (byte) 0);
+        }
+        size = newSize;
+        lastModified = System.currentTimeMillis();
+    }
+
+    private void spill() throws java.io.IOException {
+        file = File.createTempFile("gitz",
+                                   "woot");
+        fileChannel = new RandomAccessFile(file,
+                                           "rw").getChannel();
+        final ByteBuffer content = ByteBuffer.wrap(buffer,
+                                                   0,
+                                                   (int) size);
+        while (content.hasRemaining()) {
+            fileChannel.write(content);
+        }
+        buffer = null;
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.java.nio.fs.jgit.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.uberfire.java.nio.fs.jgit.util.model.LockStatistics;
+
+import static org.eclipse.jgit.lib.Repository.shortenRefName;
+import static org.kie.soup.commons.validation.PortablePreconditions.checkNotEmpty;
+import static org.kie.soup.commons.validation.PortablePreconditions.checkNotNull;
+
+/**
+ * Lock striping for a single git repository.
+ * <p>
+ * Writes to a branch take the shared side of the repository lock plus the write side of the
+ * branch lock, so writes to different branches run concurrently. Operations that touch the ref
+ * database as a whole (branch create/delete, fetch and GC) take the exclusive side of the
+ * repository lock, which waits for every branch writer to finish.
+ * <p>
+ * All locks are reentrant and owned by the acquiring thread. A thread holding a branch lock must
+ * not ask for the exclusive lock, as read locks can't be upgraded.
+ */
+public class BranchLockManager {
+
+    public static final String EXCLUSIVE_LOCK_NAME = "*";
+
+    private final ReentrantReadWriteLock repositoryLock = new ReentrantReadWriteLock();
+    private final ConcurrentMap<String, StripeLock> branchLocks = new ConcurrentHashMap<>();
+    private final LockMetrics exclusiveMetrics = new LockMetrics(EXCLUSIVE_LOCK_NAME);
+
+    /**
+     * Acquires the write lock of the given branch. Both short ("master") and full ("refs/heads/master")
+     * ref names resolve to the same lock.
+     */
+    public void lockBranch(final String branchName) {
+        final StripeLock stripe = stripe(branchName);
+        repositoryLock.readLock().lock();
+        try {
+            stripe.lock();
+        } catch (final RuntimeException ex) {
+            repositoryLock.readLock().unlock();
+            throw ex;
+        }
+    }
+
+    public void unlockBranch(final String branchName) {
+        final StripeLock stripe = branchLocks.get(normalize(branchName));
+        if (stripe == null) {
+            throw new IllegalMonitorStateException("Branch '" + branchName + "' is not locked.");
+        }
+        try {
+            stripe.unlock();
+        } finally {
+            repositoryLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Acquires the write locks of all given branches, in a stable order to avoid deadlocks
+     * between concurrent multi-branch writers.
+     */
+    public void lockBranches(final Collection<String> branchNames) {
+        final List<String> locked = new ArrayList<>();
+        try {
+            for (final String branchName : sorted(branchNames)) {
+                lockBranch(branchName);
+                locked.add(branchName);
+            }
+        } catch (final RuntimeException ex) {
+            for (final String branchName : locked) {
+                unlockBranch(branchName);
+            }
+            throw ex;
+        }
+    }
+
+    public void unlockBranches(final Collection<String> branchNames) {
+        for (final String branchName : sorted(branchNames)) {
+            unlockBranch(branchName);
+        }
+    }
+
+    /**
+     * Acquires the whole repository, blocking every branch writer.
+     */
+    public void lockExclusive() {
+        final long start = System.nanoTime();
+        repositoryLock.writeLock().lock();
+        if (repositoryLock.getWriteHoldCount() == 1) {
+            exclusiveMetrics.acquired(System.nanoTime() - start);
+        }
+    }
+
+    public void unlockExclusive() {
+        if (repositoryLock.getWriteHoldCount() == 1) {
+            exclusiveMetrics.released();
+        }
+        repositoryLock.writeLock().unlock();
+    }
+
+    public boolean isExclusivelyLockedByCurrentThread() {
+        return repositoryLock.isWriteLockedByCurrentThread();
+    }
+
+    public boolean isBranchLockedByCurrentThread(final String branchName) {
+        final StripeLock stripe = branchLocks.get(normalize(branchName));
+        return stripe != null && stripe.lock.isWriteLockedByCurrentThread();
+    }
+
+    /**
+     * Contention counters keyed by short branch name. The exclusive repository lock is reported
+     * under {@link #EXCLUSIVE_LOCK_NAME}.
+     */
+    public Map<String, LockStatistics> getStatistics() {
+        final Map<String, LockStatistics> result = new HashMap<>(branchLocks.size() + 1);
+        for (final StripeLock stripe : branchLocks.values()) {
+            result.put(stripe.metrics.name,
+                       stripe.metrics.snapshot());
+        }
+        result.put(EXCLUSIVE_LOCK_NAME,
+                   exclusiveMetrics.snapshot());
+        return result;
+    }
+
+    private StripeLock stripe(final String branchName) {
+        return branchLocks.computeIfAbsent(normalize(branchName),
+                                           StripeLock::new);
+    }
+
+    private static String normalize(final String branchName) {
+        return shortenRefName(checkNotEmpty("branchName",
+                                            branchName));
+    }
+
+    private static Collection<String> sorted(final Collection<String> branchNames) {
+        final TreeSet<String> result = new TreeSet<>();
+        for (final String branchName : checkNotNull("branchNames",
+                                                    branchNames)) {
+            result.add(normalize(branchName));
+        }
+        return result;
+    }
+
+    private static class StripeLock {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final LockMetrics metrics;
+
+        StripeLock(final String name) {
+            this.metrics = new LockMetrics(name);
+        }
+
+        void lock() {
+            final long start = System.nanoTime();
+            lock.writeLock().lock();
+            if (lock.getWriteHoldCount() == 1) {
+                metrics.acquired(System.nanoTime() - start);
+            }
+        }
+
+        void unlock() {
+            if (lock.getWriteHoldCount() == 1) {
+                metrics.released();
+            }
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Counters are only updated by the thread owning the (exclusive) lock they measure, so plain
+     * atomic adds are enough; max values use a CAS loop as snapshots may be read concurrently.
+     */
+    private static class LockMetrics {
+
+        private final String name;
+        private final AtomicLong acquisitions = new AtomicLong();
+        private final AtomicLong totalWaitTime = new AtomicLong();
+        private final AtomicLong maxWaitTime = new AtomicLong();
+        private final AtomicLong totalHoldTime = new AtomicLong();
+        private final AtomicLong maxHoldTime = new AtomicLong();
+        private volatile long acquiredAt;
+
+        LockMetrics(final String name) {
+            this.name = name;
+        }
+
+        void acquired(final long waitTime) {
+            acquiredAt = System.nanoTime();
+            acquisitions.incrementAndGet();
+            totalWaitTime.addAndGet(waitTime);
+            updateMax(maxWaitTime,
+                      waitTime);
+        }
+
+        void released() {
+            final long holdTime = System.nanoTime() - acquiredAt;
+            totalHoldTime.addAndGet(holdTime);
+            updateMax(maxHoldTime,
+                      holdTime);
+        }
+
+        LockStatistics snapshot() {
+            return new LockStatistics(name,
+                                      acquisitions.get(),
+                                      totalWaitTime.get(),
+                                      maxWaitTime.get(),
+                                      totalHoldTime.get(),
+                                      maxHoldTime.get());
+        }
+
+        private static void updateMax(final AtomicLong max,
+                                      final long value) {
+            long current = max.get();
+            while (value > current && !max.compareAndSet(current,
+                                                         value)) {
+                current = max.get();
+            }
+        }
+    }
+}
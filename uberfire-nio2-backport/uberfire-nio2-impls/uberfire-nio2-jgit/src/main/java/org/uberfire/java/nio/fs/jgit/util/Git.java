@@ -41,6 +41,7 @@ import org.uberfire.java.nio.fs.jgit.JGitPathImpl;
 import org.uberfire.java.nio.fs.jgit.util.commands.Clone;
 import org.uberfire.java.nio.fs.jgit.util.commands.CreateRepository;
 import org.uberfire.java.nio.fs.jgit.util.commands.Fork;
+import org.uberfire.java.nio.fs.jgit.util.model.CacheStatistics;
 import org.uberfire.java.nio.fs.jgit.util.model.CommitContent;
 import org.uberfire.java.nio.fs.jgit.util.model.CommitInfo;
 import org.uberfire.java.nio.fs.jgit.util.model.PathInfo;
@@ -104,6 +105,15 @@ public interface Git {
 
     void gc();
 
+    boolean isGCNeeded(final long looseObjectsLimit,
+                       final long packFilesLimit);
+
+    void packRefs();
+
+    void repack();
+
+    void releaseResources();
+
     RevCommit getLastCommit(final String refName);
 
     RevCommit getLastCommit(final Ref ref) throws IOException;
@@ -124,6 +134,16 @@ public interface Git {
 
     void syncRemote(final Pair<String, String> remote) throws InvalidRemoteException;
 
+    /**
+     * Moves a branch to the given commit of the remote, fetching only that branch when the commit isn't known yet.
+     * Nothing is done if the branch already contains the commit.
+     * @return true if the branch was moved.
+     */
+    boolean syncBranch(final CredentialsProvider credential,
+                       final Pair<String, String> remote,
+                       final String branch,
+                       final ObjectId commitId) throws InvalidRemoteException;
+
     List<String> merge(final String source,
                        final String target);
 
@@ -172,6 +192,12 @@ public interface Git {
     List<PathInfo> listPathContent(final String branchName,
                                    final String path);
 
+    /**
+     * Counters of the tree lookup cache behind {@link #getPathInfo(String, String)} and
+     * {@link #listPathContent(String, String)}. The cache is shared by all repositories.
+     */
+    CacheStatistics getTreeCacheStatistics();
+
     boolean isHEADInitialized();
 
     void setHeadAsInitialized();
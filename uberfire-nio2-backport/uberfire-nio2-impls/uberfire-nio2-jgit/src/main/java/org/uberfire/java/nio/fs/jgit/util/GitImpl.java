@@ -40,6 +40,7 @@ import org.eclipse.jgit.api.errors.InvalidRemoteException;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.internal.ketch.KetchLeader;
 import org.eclipse.jgit.internal.ketch.KetchLeaderCache;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
 import org.eclipse.jgit.internal.storage.reftree.RefTreeDatabase;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
@@ -79,10 +80,12 @@ import org.uberfire.java.nio.fs.jgit.util.commands.ResolveObjectIds;
 import org.uberfire.java.nio.fs.jgit.util.commands.ResolveRevCommit;
 import org.uberfire.java.nio.fs.jgit.util.commands.SimpleRefUpdateCommand;
 import org.uberfire.java.nio.fs.jgit.util.commands.Squash;
+import org.uberfire.java.nio.fs.jgit.util.commands.SyncBranch;
 import org.uberfire.java.nio.fs.jgit.util.commands.SyncRemote;
 import org.uberfire.java.nio.fs.jgit.util.commands.UpdateRemoteConfig;
 import org.uberfire.java.nio.fs.jgit.util.model.CommitContent;
 import org.uberfire.java.nio.fs.jgit.util.model.CommitInfo;
+import org.uberfire.java.nio.fs.jgit.util.model.CacheStatistics;
 import org.uberfire.java.nio.fs.jgit.util.model.PathInfo;
 
 import static org.uberfire.java.nio.fs.jgit.util.commands.PathUtil.normalize;
@@ -93,6 +96,8 @@ public class GitImpl implements Git {
     private static final String DEFAULT_JGIT_RETRY_SLEEP_TIME = "50";
     private static int JGIT_RETRY_TIMES = initRetryValue();
     private static final int JGIT_RETRY_SLEEP_TIME = initSleepTime();
+    private static final String DEFAULT_TREE_CACHE_SIZE = "50000";
+    private static final TreeLookupCache TREE_CACHE = new TreeLookupCache(initTreeCacheSize());
     private boolean isEnabled = false;
 
     private static int initSleepTime() {
@@ -101,6 +106,12 @@ public class GitImpl implements Git {
                           DEFAULT_JGIT_RETRY_SLEEP_TIME).getIntValue();
     }
 
+    private static int initTreeCacheSize() {
+        final ConfigProperties config = new ConfigProperties(System.getProperties());
+        return config.get("org.uberfire.nio.git.cache.tree.size",
+                          DEFAULT_TREE_CACHE_SIZE).getIntValue();
+    }
+
     private static int initRetryValue() {
         final ConfigProperties config = new ConfigProperties(System.getProperties());
         final String osName = config.get("os.name",
@@ -173,6 +184,34 @@ public class GitImpl implements Git {
         new GarbageCollector(this).execute();
     }
 
+    @Override
+    public boolean isGCNeeded(final long looseObjectsLimit,
+                              final long packFilesLimit) {
+        return new GarbageCollector(this).isNeeded(looseObjectsLimit,
+                                                   packFilesLimit);
+    }
+
+    @Override
+    public void packRefs() {
+        new GarbageCollector(this).packRefs();
+    }
+
+    @Override
+    public void repack() {
+        new GarbageCollector(this).repack();
+    }
+
+    /**
+     * Closes open pack files and drops their cached windows. The object database reopens them on
+     * next read, so the repository stays usable.
+     */
+    @Override
+    public void releaseResources() {
+        if (getRepository() instanceof FileRepository) {
+            getRepository().getObjectDatabase().close();
+        }
+    }
+
     @Override
     public RevCommit getLastCommit(final String refName) {
         return retryIfNeeded(RuntimeException.class,
@@ -254,6 +293,18 @@ public class GitImpl implements Git {
                        remote).execute();
     }
 
+    @Override
+    public boolean syncBranch(final CredentialsProvider credential,
+                              final Pair<String, String> remote,
+                              final String branch,
+                              final ObjectId commitId) throws InvalidRemoteException {
+        return new SyncBranch(this,
+                              credential,
+                              remote,
+                              branch,
+                              commitId).execute();
+    }
+
     @Override
     public List<String> merge(final String source,
                               final String target) {
@@ -392,7 +443,8 @@ public class GitImpl implements Git {
         return retryIfNeeded(RuntimeException.class,
                              () -> new GetPathInfo(this,
                                                    branchName,
-                                                   path).execute());
+                                                   path,
+                                                   TREE_CACHE).execute());
     }
 
     @Override
@@ -401,7 +453,13 @@ public class GitImpl implements Git {
         return retryIfNeeded(RuntimeException.class,
                              () -> new ListPathContent(this,
                                                        branchName,
-                                                       path).execute());
+                                                       path,
+                                                       TREE_CACHE).execute());
+    }
+
+    @Override
+    public CacheStatistics getTreeCacheStatistics() {
+        return TREE_CACHE.getStatistics();
     }
 
     @Override
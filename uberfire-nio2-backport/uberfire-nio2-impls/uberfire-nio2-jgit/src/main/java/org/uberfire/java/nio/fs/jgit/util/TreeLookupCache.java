@@ -0,0 +1,213 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.java.nio.fs.jgit.util;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.uberfire.java.nio.fs.jgit.util.model.CacheStatistics;
+import org.uberfire.java.nio.fs.jgit.util.model.PathInfo;
+
+import static org.kie.soup.commons.validation.PortablePreconditions.checkCondition;
+
+/**
+ * Caches tree lookups by (tree id, path).
+ * <p>
+ * Trees are content-addressed, so a cached lookup is valid forever and entries are never
+ * invalidated, only evicted. For the same reason the cache can be shared by every repository.
+ * Memory is bounded by weight: a {@link PathInfo} weighs one, a directory listing weighs one plus
+ * its number of children. Least recently used entries are evicted first, per segment.
+ */
+public class TreeLookupCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long maxWeight;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @FunctionalInterface
+    public interface Loader<T> {
+
+        T load() throws IOException;
+    }
+
+    public TreeLookupCache(final long maxWeight) {
+        checkCondition("maxWeight must not be negative",
+                       maxWeight >= 0);
+        this.maxWeight = maxWeight;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment((maxWeight + SEGMENTS - 1) / SEGMENTS);
+        }
+    }
+
+    public PathInfo getPathInfo(final ObjectId tree,
+                                final String path,
+                                final Loader<PathInfo> loader) throws IOException {
+        return get(new Key(tree,
+                           path,
+                           false),
+                   loader,
+                   1);
+    }
+
+    /**
+     * The returned list is read only.
+     */
+    public List<PathInfo> listPathContent(final ObjectId tree,
+                                          final String path,
+                                          final Loader<List<PathInfo>> loader) throws IOException {
+        return get(new Key(tree,
+                           path,
+                           true),
+                   () -> Collections.unmodifiableList(loader.load()),
+                   -1);
+    }
+
+    public CacheStatistics getStatistics() {
+        long size = 0;
+        long weight = 0;
+        for (final Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+                weight += segment.weight;
+            }
+        }
+        return new CacheStatistics(hits.get(),
+                                   misses.get(),
+                                   evictions.get(),
+                                   size,
+                                   weight,
+                                   maxWeight);
+    }
+
+    public void clear() {
+        for (final Segment segment : segments) {
+            synchronized (segment) {
+                segment.entries.clear();
+                segment.weight = 0;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(final Key key,
+                      final Loader<T> loader,
+                      final int weight) throws IOException {
+        final Segment segment = segments[(key.hashCode() & Integer.MAX_VALUE) % SEGMENTS];
+        synchronized (segment) {
+            final Entry entry = segment.entries.get(key);
+            if (entry != null) {
+                hits.incrementAndGet();
+                return (T) entry.value;
+            }
+        }
+        misses.incrementAndGet();
+
+        // loaded outside the segment lock; concurrent misses on the same key compute the same value
+        final T value = loader.load();
+        final int entryWeight = weight > 0 ? weight : 1 + ((List<?>) value).size();
+        synchronized (segment) {
+            final Entry previous = segment.entries.put(key,
+                                                       new Entry(value,
+                                                                 entryWeight));
+            segment.weight += entryWeight - (previous != null ? previous.weight : 0);
+            evictions.addAndGet(segment.evict());
+        }
+        return value;
+    }
+
+    private static class Segment {
+
+        private final long maxWeight;
+        private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16,
+                                                                              0.75f,
+                                                                              true);
+        private long weight = 0;
+
+        Segment(final long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+
+        int evict() {
+            int evicted = 0;
+            final Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+            while (weight > maxWeight && iterator.hasNext()) {
+                weight -= iterator.next().getValue().weight;
+                iterator.remove();
+                evicted++;
+            }
+            return evicted;
+        }
+    }
+
+    private static class Entry {
+
+        private final Object value;
+        private final int weight;
+
+        Entry(final Object value,
+              final int weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private static class Key {
+
+        private final ObjectId tree;
+        private final String path;
+        private final boolean listing;
+        private final int hash;
+
+        Key(final ObjectId tree,
+            final String path,
+            final boolean listing) {
+            this.tree = tree.copy();
+            this.path = path;
+            this.listing = listing;
+            this.hash = 31 * (31 * this.tree.hashCode() + path.hashCode()) + (listing ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return listing == other.listing &&
+                    tree.equals(other.tree) &&
+                    path.equals(other.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
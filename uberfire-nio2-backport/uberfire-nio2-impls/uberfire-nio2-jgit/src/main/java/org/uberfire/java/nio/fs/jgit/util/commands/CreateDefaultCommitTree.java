@@ -16,8 +16,6 @@
 
 package org.uberfire.java.nio.fs.jgit.util.commands;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -36,6 +34,7 @@ import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
 import org.uberfire.commons.data.Pair;
 import org.uberfire.java.nio.fs.jgit.util.Git;
+import org.uberfire.java.nio.fs.jgit.util.model.BlobContent;
 import org.uberfire.java.nio.fs.jgit.util.model.DefaultCommitContent;
 
 import static org.eclipse.jgit.lib.FileMode.REGULAR_FILE;
@@ -53,14 +52,14 @@ public class CreateDefaultCommitTree extends BaseCreateCommitTree<DefaultCommitC
     }
 
     public Optional<ObjectId> execute() {
-        final Map<String, File> content = commitContent.getContent();
-        final Map<String, Pair<File, ObjectId>> paths = new HashMap<>(content.size());
+        final Map<String, BlobContent> content = commitContent.getBlobs();
+        final Map<String, Pair<BlobContent, ObjectId>> paths = new HashMap<>(content.size());
         final Set<String> path2delete = new HashSet<>();
 
         final DirCacheEditor editor = DirCache.newInCore().editor();
 
         try {
-            for (final Map.Entry<String, File> pathAndContent : content.entrySet()) {
+            for (final Map.Entry<String, BlobContent> pathAndContent : content.entrySet()) {
                 final String gPath = PathUtil.normalize(pathAndContent.getKey());
                 if (pathAndContent.getValue() == null) {
                     path2delete.addAll(searchPathsToDelete(git,
@@ -115,11 +114,11 @@ public class CreateDefaultCommitTree extends BaseCreateCommitTree<DefaultCommitC
         return buildTree(editor);
     }
 
-    private static Map<String, Pair<File, ObjectId>> storePathsIntoHashMap(final ObjectInserter inserter,
-                                                                           final Map.Entry<String, File> pathAndContent,
-                                                                           final String gPath) {
-        try (final InputStream inputStream = new FileInputStream(pathAndContent.getValue())) {
-            final Map<String, Pair<File, ObjectId>> paths = new HashMap<>();
+    private static Map<String, Pair<BlobContent, ObjectId>> storePathsIntoHashMap(final ObjectInserter inserter,
+                                                                                  final Map.Entry<String, BlobContent> pathAndContent,
+                                                                                  final String gPath) {
+        try (final InputStream inputStream = pathAndContent.getValue().openStream()) {
+            final Map<String, Pair<BlobContent, ObjectId>> paths = new HashMap<>();
             final ObjectId objectId = inserter.insert(Constants.OBJ_BLOB,
                                                       pathAndContent.getValue().length(),
                                                       inputStream);
@@ -16,12 +16,20 @@
 
 package org.uberfire.java.nio.fs.jgit.util.commands;
 
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Collections;
+
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.internal.storage.file.GC;
 import org.eclipse.jgit.internal.storage.reftree.RefTreeDatabase;
 import org.uberfire.java.nio.fs.jgit.util.GitImpl;
 
 /**
- * TODO: update me
+ * Runs git gc on a repository. Besides the all-in-one {@link #execute()}, ref packing and object
+ * repacking can run as separate steps, so callers can hold their locks only while refs are packed.
+ * Repositories backed by a RefTree database are never collected.
  */
 public class GarbageCollector {
 
@@ -40,4 +48,61 @@ public class GarbageCollector {
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Returns true when the repository has at least <code>looseObjectsLimit</code> loose objects or
+     * <code>packFilesLimit</code> pack files.
+     */
+    public boolean isNeeded(final long looseObjectsLimit,
+                            final long packFilesLimit) {
+        final GC gc = newGC();
+        if (gc == null) {
+            return false;
+        }
+        try {
+            final GC.RepoStatistics statistics = gc.getStatistics();
+            return statistics.numberOfLooseObjects >= looseObjectsLimit ||
+                    statistics.numberOfPackFiles >= packFilesLimit;
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void packRefs() {
+        final GC gc = newGC();
+        if (gc == null) {
+            return;
+        }
+        try {
+            gc.packRefs();
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Repacks all reachable objects and prunes expired unreachable loose objects. Safe to run
+     * concurrently with writers: new objects are loose until they expire, and old packs are only
+     * removed once the new ones are in place.
+     */
+    public void repack() {
+        final GC gc = newGC();
+        if (gc == null) {
+            return;
+        }
+        try {
+            gc.repack();
+            gc.prune(Collections.emptySet());
+        } catch (final IOException | ParseException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private GC newGC() {
+        if (!(git.getRepository() instanceof FileRepository) ||
+                git.getRepository().getRefDatabase() instanceof RefTreeDatabase) {
+            return null;
+        }
+        return new GC((FileRepository) git.getRepository());
+    }
 }
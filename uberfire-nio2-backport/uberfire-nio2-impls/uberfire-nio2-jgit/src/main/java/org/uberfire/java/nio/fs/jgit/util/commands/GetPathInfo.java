@@ -23,6 +23,7 @@ import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
 import org.uberfire.java.nio.fs.jgit.util.Git;
+import org.uberfire.java.nio.fs.jgit.util.TreeLookupCache;
 import org.uberfire.java.nio.fs.jgit.util.model.PathInfo;
 import org.uberfire.java.nio.fs.jgit.util.model.PathType;
 
@@ -33,13 +34,25 @@ public class GetPathInfo {
     private final Git git;
     private final String branchName;
     private final String path;
+    private final TreeLookupCache cache;
 
     public GetPathInfo(final Git git,
                        final String branchName,
                        final String path) {
+        this(git,
+             branchName,
+             path,
+             null);
+    }
+
+    public GetPathInfo(final Git git,
+                       final String branchName,
+                       final String path,
+                       final TreeLookupCache cache) {
         this.git = git;
         this.branchName = branchName;
         this.path = path;
+        this.cache = cache;
     }
 
     public PathInfo execute() throws IOException {
@@ -58,6 +71,18 @@ public class GetPathInfo {
                                 gitPath,
                                 PathType.NOT_FOUND);
         }
+        if (cache != null) {
+            return cache.getPathInfo(tree,
+                                     gitPath,
+                                     () -> lookup(tree,
+                                                  gitPath));
+        }
+        return lookup(tree,
+                      gitPath);
+    }
+
+    private PathInfo lookup(final ObjectId tree,
+                            final String gitPath) throws IOException {
         try (final TreeWalk tw = new TreeWalk(git.getRepository())) {
             tw.setFilter(PathFilter.create(gitPath));
             tw.reset(tree);
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.java.nio.fs.jgit.util.commands;
+
+import java.io.IOException;
+
+import org.eclipse.jgit.api.errors.InvalidRemoteException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.RefSpec;
+import org.uberfire.commons.data.Pair;
+import org.uberfire.java.nio.fs.jgit.util.GitImpl;
+
+import static java.util.Collections.singletonList;
+import static org.eclipse.jgit.lib.Constants.R_HEADS;
+import static org.eclipse.jgit.lib.Constants.R_REMOTES;
+
+/**
+ * Moves a single branch to a commit of a remote, fetching just that branch and only if the commit is missing. When
+ * fetched, the branch is moved to the remote one if it contains the commit already, catching up with later changes.
+ * Requests for commits the branch already contains (e.g. received out of order) are ignored; otherwise the branch is
+ * moved even if it doesn't fast-forward, as {@link SyncRemote} does.
+ */
+public class SyncBranch {
+
+    private final GitImpl git;
+    private final CredentialsProvider credentialsProvider;
+    private final Pair<String, String> remote;
+    private final String branch;
+    private final ObjectId commitId;
+
+    public SyncBranch(final GitImpl git,
+                      final CredentialsProvider credentialsProvider,
+                      final Pair<String, String> remote,
+                      final String branch,
+                      final ObjectId commitId) {
+        this.git = git;
+        this.credentialsProvider = credentialsProvider;
+        this.remote = remote;
+        this.branch = branch;
+        this.commitId = commitId;
+    }
+
+    public boolean execute() throws InvalidRemoteException {
+        try {
+            final Ref ref = git.getRepository().exactRef(R_HEADS + branch);
+            final ObjectId currentId = ref == null ? null : ref.getObjectId();
+            if (commitId.equals(currentId)) {
+                return false;
+            }
+
+            ObjectId targetId = commitId;
+            if (!git.getRepository().hasObject(commitId)) {
+                final String remoteBranch = R_REMOTES + remote.getK1() + "/" + branch;
+                git.fetch(credentialsProvider,
+                          remote,
+                          singletonList(new RefSpec("+" + R_HEADS + branch + ":" + remoteBranch)));
+                if (!git.getRepository().hasObject(commitId)) {
+                    throw new IllegalStateException("Commit " + commitId.name() + " of branch " + branch + " not found on " + remote.getK2());
+                }
+                final Ref fetched = git.getRepository().exactRef(remoteBranch);
+                if (fetched != null && isMergedInto(commitId,
+                                                    fetched.getObjectId())) {
+                    targetId = fetched.getObjectId();
+                }
+            }
+
+            if (targetId.equals(currentId) || (currentId != null && isMergedInto(targetId,
+                                                                                  currentId))) {
+                return false;
+            }
+
+            git.refUpdate(branch,
+                          git.resolveRevCommit(targetId));
+            return true;
+        } catch (final InvalidRemoteException e) {
+            throw e;
+        } catch (final Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private boolean isMergedInto(final ObjectId base,
+                                 final ObjectId tip) throws IOException {
+        try (final RevWalk revWalk = new RevWalk(git.getRepository())) {
+            return revWalk.isMergedInto(revWalk.parseCommit(base),
+                                        revWalk.parseCommit(tip));
+        }
+    }
+}
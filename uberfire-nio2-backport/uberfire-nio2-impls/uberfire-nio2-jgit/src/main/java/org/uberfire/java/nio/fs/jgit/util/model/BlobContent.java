@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.java.nio.fs.jgit.util.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Content of a file to be committed, either in memory or on disk.
+ */
+public interface BlobContent {
+
+    long length();
+
+    long lastModified();
+
+    InputStream openStream() throws IOException;
+
+    static BlobContent of(final File file) {
+        return new BlobContent() {
+            @Override
+            public long length() {
+                return file.length();
+            }
+
+            @Override
+            public long lastModified() {
+                return file.lastModified();
+            }
+
+            @Override
+            public InputStream openStream() throws IOException {
+                return new FileInputStream(file);
+            }
+        };
+    }
+
+    static BlobContent of(final byte[] bytes) {
+        final long lastModified = System.currentTimeMillis();
+        return new BlobContent() {
+            @Override
+            public long length() {
+                return bytes.length;
+            }
+
+            @Override
+            public long lastModified() {
+                return lastModified;
+            }
+
+            @Override
+            public InputStream openStream() {
+                return new ByteArrayInputStream(bytes);
+            }
+        };
+    }
+}
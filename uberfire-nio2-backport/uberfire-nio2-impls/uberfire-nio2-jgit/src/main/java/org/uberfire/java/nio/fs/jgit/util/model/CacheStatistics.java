@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.java.nio.fs.jgit.util.model;
+
+/**
+ * Immutable snapshot of the counters of a cache. Weight is the number of {@link PathInfo}s held.
+ */
+public class CacheStatistics {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long size;
+    private final long weight;
+    private final long maxWeight;
+
+    public CacheStatistics(final long hits,
+                           final long misses,
+                           final long evictions,
+                           final long size,
+                           final long weight,
+                           final long maxWeight) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+        this.weight = weight;
+        this.maxWeight = maxWeight;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getWeight() {
+        return weight;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatistics{" +
+                "hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                ", size=" + size +
+                ", weight=" + weight +
+                ", maxWeight=" + maxWeight +
+                '}';
+    }
+}
@@ -17,17 +17,78 @@
 package org.uberfire.java.nio.fs.jgit.util.model;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Files to write (or delete, when mapped to null) in a commit, keyed by path.
+ */
 public class DefaultCommitContent implements CommitContent {
 
-    private final Map<String, File> content;
+    private final Map<String, BlobContent> blobs;
+    private Map<String, File> files;
 
     public DefaultCommitContent(final Map<String, File> content) {
-        this.content = content;
+        this.blobs = new HashMap<>(content.size());
+        for (final Map.Entry<String, File> entry : content.entrySet()) {
+            this.blobs.put(entry.getKey(),
+                           entry.getValue() == null ? null : BlobContent.of(entry.getValue()));
+        }
+        this.files = content;
+    }
+
+    private DefaultCommitContent(final HashMap<String, BlobContent> blobs) {
+        this.blobs = blobs;
+        this.files = null;
+    }
+
+    public static DefaultCommitContent fromBlobs(final Map<String, BlobContent> content) {
+        return new DefaultCommitContent(new HashMap<String, BlobContent>(content));
+    }
+
+    /**
+     * @return the files this content was created with. Content created from blobs is copied to temporary files the
+     * first time it's asked for.
+     * @deprecated use {@link #getBlobs()}, which doesn't copy anything.
+     */
+    @Deprecated
+    public synchronized Map<String, File> getContent() {
+        if (files == null) {
+            files = toFiles(blobs);
+        }
+        return files;
+    }
+
+    public Map<String, BlobContent> getBlobs() {
+        return blobs;
+    }
+
+    private static Map<String, File> toFiles(final Map<String, BlobContent> blobs) {
+        final Map<String, File> files = new HashMap<>(blobs.size());
+        for (final Map.Entry<String, BlobContent> entry : blobs.entrySet()) {
+            files.put(entry.getKey(),
+                      entry.getValue() == null ? null : toFile(entry.getValue()));
+        }
+        return files;
     }
 
-    public Map<String, File> getContent() {
-        return content;
+    private static File toFile(final BlobContent blob) {
+        try {
+            final File file = File.createTempFile("git",
+                                                  "temp");
+            file.deleteOnExit();
+            try (final InputStream in = blob.openStream()) {
+                Files.copy(in,
+                           file.toPath(),
+                           StandardCopyOption.REPLACE_EXISTING);
+            }
+            return file;
+        } catch (final IOException ex) {
+            throw new org.uberfire.java.nio.IOException(ex);
+        }
     }
 }
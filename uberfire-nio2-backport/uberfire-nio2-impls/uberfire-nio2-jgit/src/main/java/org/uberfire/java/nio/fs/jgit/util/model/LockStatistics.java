@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.java.nio.fs.jgit.util.model;
+
+/**
+ * Immutable snapshot of the contention counters of a single lock. All times are in nanoseconds.
+ */
+public class LockStatistics {
+
+    private final String name;
+    private final long acquisitions;
+    private final long totalWaitTime;
+    private final long maxWaitTime;
+    private final long totalHoldTime;
+    private final long maxHoldTime;
+
+    public LockStatistics(final String name,
+                          final long acquisitions,
+                          final long totalWaitTime,
+                          final long maxWaitTime,
+                          final long totalHoldTime,
+                          final long maxHoldTime) {
+        this.name = name;
+        this.acquisitions = acquisitions;
+        this.totalWaitTime = totalWaitTime;
+        this.maxWaitTime = maxWaitTime;
+        this.totalHoldTime = totalHoldTime;
+        this.maxHoldTime = maxHoldTime;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getAcquisitions() {
+        return acquisitions;
+    }
+
+    public long getTotalWaitTime() {
+        return totalWaitTime;
+    }
+
+    public long getMaxWaitTime() {
+        return maxWaitTime;
+    }
+
+    public long getTotalHoldTime() {
+        return totalHoldTime;
+    }
+
+    public long getMaxHoldTime() {
+        return maxHoldTime;
+    }
+
+    @Override
+    public String toString() {
+        return "LockStatistics{" +
+                "name='" + name + '\'' +
+                ", acquisitions=" + acquisitions +
+                ", totalWaitTime=" + totalWaitTime +
+                ", maxWaitTime=" + maxWaitTime +
+                ", totalHoldTime=" + totalHoldTime +
+                ", maxHoldTime=" + maxHoldTime +
+                '}';
+    }
+}
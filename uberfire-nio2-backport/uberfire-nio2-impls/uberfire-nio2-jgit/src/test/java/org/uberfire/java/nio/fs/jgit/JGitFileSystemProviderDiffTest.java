@@ -197,4 +197,72 @@ public class JGitFileSystemProviderDiffTest extends AbstractTestInfra {
 
         assertThat(diffs.size()).isEqualTo(0);
     }
+
+    @Test
+    public void testChangesSinceCommit() throws IOException {
+        final File parentFolder = createTempDirectory();
+
+        final File gitSource = new File(parentFolder,
+                                        "repo.git");
+        final Git origin = new CreateRepository(gitSource).execute().get();
+
+        new Commit(origin,
+                   "master",
+                   "name",
+                   "name@example.com",
+                   "master-1",
+                   null,
+                   null,
+                   false,
+                   new HashMap<String, File>() {{
+                       put("file1.txt",
+                           tempFile("temp1"));
+                       put("file2.txt",
+                           tempFile("temp2"));
+                       put("file3.txt",
+                           tempFile("temp3"));
+                   }}).execute();
+        final String indexedCommit = origin.getLastCommit("master").getName();
+
+        new Commit(origin,
+                   "master",
+                   "name",
+                   "name@example.com",
+                   "master-2",
+                   null,
+                   null,
+                   false,
+                   new HashMap<String, File>() {{
+                       put("file1.txt",
+                           tempFile("temp1 modified"));
+                       put("file2.txt",
+                           null);
+                       put("dir/file4.txt",
+                           tempFile("temp4"));
+                   }}).execute();
+
+        final URI newRepo = URI.create("git://changes-repo");
+
+        final Map<String, Object> env = new HashMap<String, Object>() {{
+            put(JGitFileSystemProvider.GIT_ENV_KEY_DEFAULT_REMOTE_NAME,
+                origin.getRepository().getDirectory().toString());
+        }};
+
+        provider.newFileSystem(newRepo,
+                               env);
+
+        final Path path = provider.getPath(URI.create("git://master@changes-repo/"));
+        final Map<String, Object> changes = provider.readAttributes(path,
+                                                                    "changes:" + indexedCommit);
+
+        assertThat(changes.get("id")).isEqualTo(origin.getLastCommit("master").getName());
+        assertThat((List<String>) changes.get("modified")).containsOnly("/file1.txt",
+                                                                        "/dir/file4.txt");
+        assertThat((List<String>) changes.get("deleted")).containsOnly("/file2.txt");
+
+        final Map<String, Object> unknown = provider.readAttributes(path,
+                                                                    "changes:0000000000000000000000000000000000000000");
+        assertThat(unknown.get("id")).isEqualTo(changes.get("id"));
+        assertThat(unknown.containsKey("modified")).isFalse();
+    }
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.java.nio.fs.jgit;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.uberfire.java.nio.file.FileSystem;
+import org.uberfire.java.nio.file.FileSystemAlreadyExistsException;
+import org.uberfire.java.nio.file.Path;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class JGitFileSystemProviderLazyTest extends AbstractTestInfra {
+
+    @Test
+    public void existingRepositoriesAreOpenedOnFirstAccess() throws IOException {
+        provider.newFileSystem(URI.create("git://lazy-repo"),
+                               EMPTY_ENV);
+        write(provider,
+              "git://lazy-repo/file.txt",
+              "content");
+        provider.shutdown();
+
+        final JGitFileSystemProvider newProvider = new JGitFileSystemProvider(getGitPreferences());
+        try {
+            assertThat(newProvider.getOpenFileSystems()).isEmpty();
+
+            final FileSystem fs = newProvider.getFileSystem(URI.create("git://lazy-repo"));
+
+            assertThat(fs).isNotNull();
+            assertThat(newProvider.getOpenFileSystems()).containsOnly((JGitFileSystem) fs);
+            assertThat(read(newProvider,
+                            "git://lazy-repo/file.txt")).isEqualTo("content");
+        } finally {
+            newProvider.dispose();
+        }
+    }
+
+    @Test(expected = FileSystemAlreadyExistsException.class)
+    public void existingRepositoryCannotBeCreatedAgainBeforeBeingOpened() {
+        provider.newFileSystem(URI.create("git://lazy-existing-repo"),
+                               EMPTY_ENV);
+        provider.shutdown();
+
+        final JGitFileSystemProvider newProvider = new JGitFileSystemProvider(getGitPreferences());
+        try {
+            newProvider.newFileSystem(URI.create("git://lazy-existing-repo"),
+                                      EMPTY_ENV);
+        } finally {
+            newProvider.dispose();
+        }
+    }
+
+    @Test
+    public void hotRepositoriesAreOpenedAtStartup() {
+        provider.newFileSystem(URI.create("git://hot-repo"),
+                               EMPTY_ENV);
+        provider.newFileSystem(URI.create("git://cold-repo"),
+                               EMPTY_ENV);
+        provider.shutdown();
+
+        final Map<String, String> gitPrefs = getGitPreferences();
+        gitPrefs.put("org.uberfire.nio.git.warmup",
+                     "hot-repo, missing-repo");
+        final JGitFileSystemProvider newProvider = new JGitFileSystemProvider(gitPrefs);
+        try {
+            assertThat(newProvider.getOpenFileSystems()).hasSize(1);
+            assertThat(newProvider.getOpenFileSystems().iterator().next().getName()).isEqualTo("hot-repo");
+        } finally {
+            newProvider.dispose();
+        }
+    }
+
+    @Test
+    public void daemonKeepsRunningWhileUnopenedRepositoriesRemain() throws IOException {
+        provider.newFileSystem(URI.create("git://opened-repo"),
+                               EMPTY_ENV);
+        provider.newFileSystem(URI.create("git://unopened-repo"),
+                               EMPTY_ENV);
+        provider.shutdown();
+
+        final Map<String, String> gitPrefs = getGitPreferences();
+        final int daemonPort = findFreePort();
+        gitPrefs.put("org.uberfire.nio.git.daemon.enabled",
+                     "true");
+        gitPrefs.put("org.uberfire.nio.git.daemon.port",
+                     String.valueOf(daemonPort));
+        final JGitFileSystemProvider newProvider = new JGitFileSystemProvider(gitPrefs);
+        try {
+            newProvider.getFileSystem(URI.create("git://opened-repo")).close();
+
+            assertThat(newProvider.getOpenFileSystems()).isEmpty();
+            try (Socket socket = new Socket("localhost",
+                                            daemonPort)) {
+                assertThat(socket.isConnected()).isTrue();
+            }
+        } finally {
+            newProvider.dispose();
+        }
+    }
+
+    @Test
+    public void idleRepositoriesReleaseResources() throws IOException {
+        final JGitFileSystem fs = (JGitFileSystem) provider.newFileSystem(URI.create("git://idle-repo"),
+                                                                          EMPTY_ENV);
+        write(provider,
+              "git://idle-repo/file.txt",
+              "content");
+        fs.getGit().repack();
+
+        assertThat(fs.releaseIfIdle(60000)).isFalse();
+        assertThat(fs.releaseIfIdle(0)).isTrue();
+        assertThat(fs.releaseIfIdle(0)).isFalse();
+        assertThat(fs.isOpen()).isTrue();
+
+        assertThat(read(provider,
+                        "git://idle-repo/file.txt")).isEqualTo("content");
+        write(provider,
+              "git://idle-repo/other.txt",
+              "other");
+        assertThat(read(provider,
+                        "git://idle-repo/other.txt")).isEqualTo("other");
+    }
+
+    private void write(final JGitFileSystemProvider provider,
+                       final String uri,
+                       final String content) throws IOException {
+        final Path path = provider.getPath(URI.create(uri));
+        final OutputStream outStream = provider.newOutputStream(path);
+        outStream.write(content.getBytes());
+        outStream.close();
+    }
+
+    private String read(final JGitFileSystemProvider provider,
+                        final String uri) throws IOException {
+        try (InputStream inStream = provider.newInputStream(provider.getPath(URI.create(uri)))) {
+            return IOUtils.toString(inStream);
+        }
+    }
+}
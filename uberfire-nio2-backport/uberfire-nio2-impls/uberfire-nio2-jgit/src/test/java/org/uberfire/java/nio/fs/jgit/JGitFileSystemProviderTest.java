@@ -282,6 +282,76 @@ public class JGitFileSystemProviderTest extends AbstractTestInfra {
                                                null)).isNotEmpty().hasSize(3);
     }
 
+    @Test
+    public void testSyncChangedBranchesOnly() throws IOException {
+        final JGitFileSystem origin = (JGitFileSystem) provider.newFileSystem(URI.create("git://my-sync-branches-origin"),
+                                                                              Collections.emptyMap());
+        commitFile(origin,
+                   "master",
+                   "file.txt");
+        commitFile(origin,
+                   "dev",
+                   "dev.txt");
+
+        final JGitFileSystem fs = (JGitFileSystem) provider.newFileSystem(URI.create("git://my-sync-branches"),
+                                                                          new HashMap<String, Object>() {{
+                                                                              put(JGitFileSystemProvider.GIT_ENV_KEY_DEFAULT_REMOTE_NAME,
+                                                                                  "git://localhost:" + gitDaemonPort + "/my-sync-branches-origin");
+                                                                          }});
+        final String oldMaster = origin.getRefs().get("master");
+        assertThat(fs.getRefs()).isEqualTo(origin.getRefs());
+
+        commitFile(origin,
+                   "master",
+                   "file2.txt");
+        commitFile(origin,
+                   "dev",
+                   "dev2.txt");
+        final String newMaster = origin.getRefs().get("master");
+        final String syncUri = "git://my-sync-branches?sync=git://localhost:" + gitDaemonPort + "/my-sync-branches-origin&force&refs=";
+
+        provider.getFileSystem(URI.create(syncUri + "master:" + newMaster));
+
+        assertThat(fs.getRefs().get("master")).isEqualTo(newMaster);
+        assertThat(fs.getRefs().get("dev")).isNotEqualTo(origin.getRefs().get("dev"));
+        assertThat(fs.getPath("file2.txt").toFile()).exists();
+
+        // late message of an older commit
+        provider.getFileSystem(URI.create(syncUri + "master:" + oldMaster));
+
+        assertThat(fs.getRefs().get("master")).isEqualTo(newMaster);
+
+        // fetching catches up with the commits that followed
+        commitFile(origin,
+                   "master",
+                   "file3.txt");
+        final String firstCommit = origin.getRefs().get("master");
+        commitFile(origin,
+                   "master",
+                   "file4.txt");
+
+        provider.getFileSystem(URI.create(syncUri + "master:" + firstCommit));
+
+        assertThat(fs.getRefs().get("master")).isEqualTo(origin.getRefs().get("master"));
+    }
+
+    private void commitFile(final JGitFileSystem fs,
+                            final String branch,
+                            final String fileName) throws IOException {
+        new Commit(fs.getGit(),
+                   branch,
+                   "user1",
+                   "user1@example.com",
+                   "commitx",
+                   null,
+                   null,
+                   false,
+                   new HashMap<String, File>() {{
+                       put(fileName,
+                           tempFile("temp"));
+                   }}).execute();
+    }
+
     @Test
     public void testNewFileSystemCloneAndPush() throws IOException {
 
@@ -1648,6 +1718,49 @@ public class JGitFileSystemProviderTest extends AbstractTestInfra {
         assertThat(attrs.readAttributes().history().records().size()).isEqualTo(5);
     }
 
+    @Test
+    public void testBatchWithCommentedOption() throws Exception {
+        final URI newRepo = URI.create("git://batch-option-test-repo");
+        provider.newFileSystem(newRepo,
+                               EMPTY_ENV);
+
+        final Path path = provider.getPath(URI.create("git://master@batch-option-test-repo/some/path/myfile.txt"));
+        provider.setAttribute(path.getRoot(),
+                              FileSystemState.FILE_SYSTEM_STATE_ATTR,
+                              FileSystemState.BATCH);
+        provider.setAttribute(path.getRoot(),
+                              FileSystemState.FILE_SYSTEM_STATE_ATTR,
+                              new CommentedOption("User Tester",
+                                                  "user.tester@example.com",
+                                                  "batch message"));
+
+        final OutputStream outStream = provider.newOutputStream(path);
+        outStream.write("my cool content".getBytes());
+        outStream.close();
+
+        provider.setAttribute(path.getRoot(),
+                              FileSystemState.FILE_SYSTEM_STATE_ATTR,
+                              FileSystemState.NORMAL);
+
+        // the file system lock was released, so other threads can write
+        final Thread writer = new Thread(() -> {
+            final OutputStream otherStream = provider.newOutputStream(provider.getPath(URI.create("git://master@batch-option-test-repo/other.txt")));
+            try {
+                otherStream.write("other content".getBytes());
+                otherStream.close();
+            } catch (final java.io.IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+        writer.start();
+        writer.join(10000);
+        assertThat(writer.isAlive()).isFalse();
+
+        final JGitVersionAttributeView attrs = provider.getFileAttributeView(path,
+                                                                             JGitVersionAttributeView.class);
+        assertThat(attrs.readAttributes().history().records().get(0).author()).isEqualTo("User Tester");
+    }
+
     @Test
     public void accessOldVersions() throws Exception {
 
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.java.nio.fs.jgit;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Map;
+
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.internal.storage.file.GC;
+import org.junit.Test;
+import org.uberfire.java.nio.file.Path;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class JGitGarbageCollectorSchedulerTest extends AbstractTestInfra {
+
+    @Override
+    public Map<String, String> getGitPreferences() {
+        final Map<String, String> gitPrefs = super.getGitPreferences();
+        gitPrefs.put("org.uberfire.nio.git.gc.limit",
+                     "5");
+        gitPrefs.put("org.uberfire.nio.git.gc.debounce",
+                     "200");
+        gitPrefs.put("org.uberfire.nio.git.gc.loose.objects",
+                     "10");
+        return gitPrefs;
+    }
+
+    @Test
+    public void gcRunsInBackgroundOnceLimitsAreReached() throws Exception {
+        final JGitFileSystem fs = (JGitFileSystem) provider.newFileSystem(URI.create("git://bg-gc-repo"),
+                                                                          EMPTY_ENV);
+        final JGitGarbageCollectorScheduler scheduler = provider.getGCScheduler();
+
+        for (int i = 0; i < 5; i++) {
+            write("git://bg-gc-repo/path/to/file" + i + ".txt",
+                  "content " + i);
+        }
+
+        assertThat(fs.getNumberOfCommitsSinceLastGC()).isEqualTo(0);
+        assertThat(scheduler.isPending(fs)).isTrue();
+        assertThat(looseObjects(fs)).isGreaterThanOrEqualTo(10);
+
+        waitForGC(scheduler,
+                  1);
+
+        assertThat(scheduler.isPending(fs)).isFalse();
+        assertThat(looseObjects(fs)).isEqualTo(0);
+        assertThat(packFiles(fs)).isEqualTo(1);
+    }
+
+    @Test
+    public void gcIsSkippedBelowLimits() throws Exception {
+        final JGitFileSystem fs = (JGitFileSystem) provider.newFileSystem(URI.create("git://small-gc-repo"),
+                                                                          EMPTY_ENV);
+        final JGitGarbageCollectorScheduler scheduler = provider.getGCScheduler();
+
+        for (int i = 0; i < 5; i++) {
+            write("git://small-gc-repo/file" + i + ".txt",
+                  "content " + i);
+        }
+        assertThat(scheduler.isPending(fs)).isTrue();
+
+        fs.getGit().repack();
+        assertThat(looseObjects(fs)).isEqualTo(0);
+
+        Thread.sleep(1000);
+
+        assertThat(scheduler.isPending(fs)).isFalse();
+        assertThat(scheduler.getExecutions()).isEqualTo(0);
+    }
+
+    @Test
+    public void runsWithoutDelayDontStayPending() throws Exception {
+        final JGitFileSystem fs = (JGitFileSystem) provider.newFileSystem(URI.create("git://eager-gc-repo"),
+                                                                          EMPTY_ENV);
+        final JGitGarbageCollectorScheduler scheduler = new JGitGarbageCollectorScheduler(1,
+                                                                                          0,
+                                                                                          0,
+                                                                                          1000,
+                                                                                          1000,
+                                                                                          100);
+        try {
+            for (int i = 0; i < 200; i++) {
+                scheduler.schedule(fs);
+                for (int j = 0; j < 500 && scheduler.isPending(fs); j++) {
+                    Thread.sleep(10);
+                }
+                assertThat(scheduler.isPending(fs)).isFalse();
+            }
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private void write(final String uri,
+                       final String content) throws IOException {
+        final Path path = provider.getPath(URI.create(uri));
+        final OutputStream outStream = provider.newOutputStream(path);
+        outStream.write(content.getBytes());
+        outStream.close();
+    }
+
+    private void waitForGC(final JGitGarbageCollectorScheduler scheduler,
+                           final int executions) throws InterruptedException {
+        for (int i = 0; i < 100 && scheduler.getExecutions() < executions; i++) {
+            Thread.sleep(100);
+        }
+        assertThat(scheduler.getExecutions()).isEqualTo(executions);
+    }
+
+    private long looseObjects(final JGitFileSystem fs) throws IOException {
+        return new GC((FileRepository) fs.getGit().getRepository()).getStatistics().numberOfLooseObjects;
+    }
+
+    private long packFiles(final JGitFileSystem fs) throws IOException {
+        return new GC((FileRepository) fs.getGit().getRepository()).getStatistics().numberOfPackFiles;
+    }
+}
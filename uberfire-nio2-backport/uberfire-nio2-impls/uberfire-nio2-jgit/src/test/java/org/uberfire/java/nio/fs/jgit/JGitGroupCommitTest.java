@@ -0,0 +1,235 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.java.nio.fs.jgit;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Test;
+import org.uberfire.java.nio.base.options.CommentedOption;
+import org.uberfire.java.nio.file.Path;
+import org.uberfire.java.nio.fs.jgit.util.model.CommitInfo;
+import org.uberfire.java.nio.fs.jgit.util.model.DefaultCommitContent;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class JGitGroupCommitTest extends AbstractTestInfra {
+
+    private static final int WRITERS = 8;
+
+    @Override
+    public Map<String, String> getGitPreferences() {
+        final Map<String, String> gitPrefs = super.getGitPreferences();
+        gitPrefs.put("org.uberfire.nio.git.commit.group.enabled",
+                     "true");
+        gitPrefs.put("org.uberfire.nio.git.commit.group.window",
+                     "500");
+        return gitPrefs;
+    }
+
+    @Test
+    public void concurrentWritesShareCommits() throws Exception {
+        final JGitFileSystem fs = (JGitFileSystem) provider.newFileSystem(URI.create("git://group-commit-repo"),
+                                                                          EMPTY_ENV);
+        final int initialCommits = countCommits(fs);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<?>> writes = new ArrayList<>();
+            for (int i = 0; i < WRITERS; i++) {
+                final int writer = i;
+                writes.add(executor.submit(() -> {
+                    start.await();
+                    write("git://group-commit-repo/file" + writer + ".txt",
+                          "content " + writer,
+                          new CommentedOption("session" + writer,
+                                              "user" + writer,
+                                              "user" + writer + "@example.com",
+                                              "save " + writer));
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (final Future<?> write : writes) {
+                write.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final GroupCommitter groupCommitter = provider.getGroupCommitter();
+        assertThat(groupCommitter.getWrites()).isEqualTo(WRITERS);
+        assertThat(groupCommitter.getGroups()).isLessThan(WRITERS);
+        assertThat(countCommits(fs) - initialCommits).isEqualTo((int) groupCommitter.getGroups());
+
+        for (int i = 0; i < WRITERS; i++) {
+            assertThat(read("git://group-commit-repo/file" + i + ".txt")).isEqualTo("content " + i);
+        }
+
+        boolean hasTrailers = false;
+        for (final RevCommit commit : new Git(fs.getGit().getRepository()).log().call()) {
+            hasTrailers |= commit.getFullMessage().contains("Co-authored-by: user");
+        }
+        assertThat(hasTrailers).isTrue();
+    }
+
+    @Test
+    public void conflictingWritesAreCommittedSeparately() throws Exception {
+        final JGitFileSystem fs = (JGitFileSystem) provider.newFileSystem(URI.create("git://group-conflict-repo"),
+                                                                          EMPTY_ENV);
+        final int initialCommits = countCommits(fs);
+
+        final Thread other = new Thread(() -> {
+            try {
+                write("git://group-conflict-repo/file.txt",
+                      "first",
+                      new CommentedOption("user1",
+                                          "first"));
+            } catch (final Exception ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+        other.start();
+        write("git://group-conflict-repo/file.txt",
+              "second",
+              new CommentedOption("user2",
+                                  "second"));
+        other.join();
+
+        assertThat(countCommits(fs) - initialCommits).isEqualTo(2);
+        assertThat(provider.getGroupCommitter().getGroups()).isEqualTo(2);
+    }
+
+    @Test
+    public void loneWriterDoesNotWaitForTheWindow() throws Exception {
+        provider.newFileSystem(URI.create("git://group-lone-repo"),
+                               EMPTY_ENV);
+        final List<String> committed = Collections.synchronizedList(new ArrayList<>());
+        final GroupCommitter groupCommitter = new GroupCommitter(60000,
+                                                                 10,
+                                                                 requests -> committed.add(requests.get(0).commitInfo.getName()));
+
+        final long start = System.currentTimeMillis();
+        commit(groupCommitter,
+               "git://group-lone-repo/file.txt",
+               "user1");
+
+        assertThat(System.currentTimeMillis() - start).isLessThan(10000);
+        assertThat(committed).containsExactly("user1");
+    }
+
+    @Test
+    public void groupsOfTheSameBranchCommitInOrder() throws Exception {
+        provider.newFileSystem(URI.create("git://group-order-repo"),
+                               EMPTY_ENV);
+        final List<String> committed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch firstStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirst = new CountDownLatch(1);
+        final GroupCommitter groupCommitter = new GroupCommitter(100,
+                                                                 10,
+                                                                 requests -> {
+                                                                     final String name = requests.get(0).commitInfo.getName();
+                                                                     if (name.equals("user1")) {
+                                                                         firstStarted.countDown();
+                                                                         try {
+                                                                             releaseFirst.await();
+                                                                         } catch (final InterruptedException ex) {
+                                                                             throw new RuntimeException(ex);
+                                                                         }
+                                                                     }
+                                                                     committed.add(name);
+                                                                 });
+
+        final Thread first = new Thread(() -> commit(groupCommitter,
+                                                     "git://group-order-repo/file.txt",
+                                                     "user1"));
+        first.start();
+        firstStarted.await();
+
+        final Thread second = new Thread(() -> commit(groupCommitter,
+                                                      "git://group-order-repo/file.txt",
+                                                      "user2"));
+        second.start();
+        // well past the window of the second group
+        Thread.sleep(500);
+        releaseFirst.countDown();
+        first.join();
+        second.join();
+
+        assertThat(committed).containsExactly("user1",
+                                              "user2");
+    }
+
+    private void commit(final GroupCommitter groupCommitter,
+                        final String uri,
+                        final String name) {
+        final JGitPathImpl path = (JGitPathImpl) provider.getPath(URI.create(uri));
+        final Map<String, File> content = new HashMap<>();
+        content.put(path.getPath(),
+                    null);
+        groupCommitter.commit(path,
+                              new CommitInfo(null,
+                                             name,
+                                             null,
+                                             "commit",
+                                             null,
+                                             null),
+                              new DefaultCommitContent(content));
+    }
+
+    private void write(final String uri,
+                       final String content,
+                       final CommentedOption option) throws Exception {
+        final Path path = provider.getPath(URI.create(uri));
+        try (final OutputStream outStream = provider.newOutputStream(path,
+                                                                     option)) {
+            outStream.write(content.getBytes());
+        }
+    }
+
+    private String read(final String uri) throws Exception {
+        try (final InputStream inStream = provider.newInputStream(provider.getPath(URI.create(uri)))) {
+            return IOUtils.toString(inStream);
+        }
+    }
+
+    private int countCommits(final JGitFileSystem fs) throws Exception {
+        if (fs.getGit().getLastCommit("master") == null) {
+            return 0;
+        }
+        int count = 0;
+        for (final RevCommit ignored : new Git(fs.getGit().getRepository()).log().call()) {
+            count++;
+        }
+        return count;
+    }
+}
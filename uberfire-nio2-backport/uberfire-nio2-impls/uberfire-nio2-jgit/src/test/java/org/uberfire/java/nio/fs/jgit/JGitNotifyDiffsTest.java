@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.java.nio.fs.jgit;
+
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.uberfire.java.nio.base.FileSystemState;
+import org.uberfire.java.nio.base.WatchContext;
+import org.uberfire.java.nio.file.Path;
+import org.uberfire.java.nio.file.StandardWatchEventKind;
+import org.uberfire.java.nio.file.WatchEvent;
+import org.uberfire.java.nio.file.WatchKey;
+import org.uberfire.java.nio.file.WatchService;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class JGitNotifyDiffsTest extends AbstractTestInfra {
+
+    @Override
+    public Map<String, String> getGitPreferences() {
+        final Map<String, String> gitPrefs = super.getGitPreferences();
+        gitPrefs.put("org.uberfire.nio.git.watch.chunk.size",
+                     "2");
+        return gitPrefs;
+    }
+
+    @Test
+    public void diffEventsArePublishedInChunks() throws Exception {
+        final JGitFileSystem fs = (JGitFileSystem) provider.newFileSystem(URI.create("git://notify-chunks-repo"),
+                                                                          EMPTY_ENV);
+        final WatchService ws = fs.newWatchService();
+
+        final Path root = provider.getPath(URI.create("git://notify-chunks-repo/"));
+        provider.setAttribute(root,
+                              FileSystemState.FILE_SYSTEM_STATE_ATTR,
+                              FileSystemState.BATCH);
+        for (int i = 0; i < 5; i++) {
+            final Path path = provider.getPath(URI.create("git://notify-chunks-repo/dir/file" + i + ".txt"));
+            try (final OutputStream outStream = provider.newOutputStream(path)) {
+                outStream.write(("content " + i).getBytes());
+            }
+        }
+        provider.setAttribute(root,
+                              FileSystemState.FILE_SYSTEM_STATE_ATTR,
+                              FileSystemState.NORMAL);
+
+        final List<Integer> chunks = new ArrayList<>();
+        final List<String> paths = new ArrayList<>();
+        WatchKey key;
+        while ((key = ws.poll()) != null) {
+            final List<WatchEvent<?>> events = key.pollEvents();
+            chunks.add(events.size());
+            for (final WatchEvent<?> event : events) {
+                assertThat((Object) event.kind()).isEqualTo(StandardWatchEventKind.ENTRY_CREATE);
+                final WatchContext context = (WatchContext) event.context();
+                assertThat(context.getOldPath()).isNull();
+                paths.add(context.getPath().toString());
+            }
+        }
+
+        assertThat(chunks).containsExactly(2,
+                                           2,
+                                           1);
+        assertThat(paths).containsExactly("/dir/file0.txt",
+                                          "/dir/file1.txt",
+                                          "/dir/file2.txt",
+                                          "/dir/file3.txt",
+                                          "/dir/file4.txt");
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.java.nio.fs.jgit;
+
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.uberfire.java.nio.base.WatchContext;
+import org.uberfire.java.nio.file.ClosedWatchServiceException;
+import org.uberfire.java.nio.file.Path;
+import org.uberfire.java.nio.file.StandardWatchEventKind;
+import org.uberfire.java.nio.file.WatchEvent;
+import org.uberfire.java.nio.file.WatchKey;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class JGitWatchServiceTest extends AbstractTestInfra {
+
+    @Override
+    public Map<String, String> getGitPreferences() {
+        final Map<String, String> gitPrefs = super.getGitPreferences();
+        gitPrefs.put("org.uberfire.nio.git.watch.queue.size",
+                     "2");
+        return gitPrefs;
+    }
+
+    @Test
+    public void pollHonorsTimeout() throws Exception {
+        final JGitFileSystem fs = (JGitFileSystem) provider.newFileSystem(URI.create("git://watch-poll-repo"),
+                                                                          EMPTY_ENV);
+        final JGitWatchService ws = (JGitWatchService) fs.newWatchService();
+
+        final long start = System.nanoTime();
+        assertThat(ws.poll(200,
+                           TimeUnit.MILLISECONDS)).isNull();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(190);
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+                write("git://watch-poll-repo/file.txt");
+            } catch (final Exception ex) {
+                throw new RuntimeException(ex);
+            }
+        }).start();
+        final WatchKey key = ws.poll(10,
+                                     TimeUnit.SECONDS);
+        assertThat(key).isNotNull();
+        assertThat((Object) key.pollEvents().get(0).kind()).isEqualTo(StandardWatchEventKind.ENTRY_CREATE);
+
+        ws.close();
+        assertThat(fs.getWatchServices()).isEmpty();
+        try {
+            ws.poll(1,
+                    TimeUnit.SECONDS);
+            fail("watch service is closed");
+        } catch (final ClosedWatchServiceException ignored) {
+        }
+    }
+
+    @Test
+    public void fullQueueCoalescesEventsPerPath() throws Exception {
+        final JGitFileSystem fs = (JGitFileSystem) provider.newFileSystem(URI.create("git://watch-coalesce-repo"),
+                                                                          EMPTY_ENV);
+        final JGitWatchService ws = (JGitWatchService) fs.newWatchService();
+
+        write("git://watch-coalesce-repo/a.txt");
+        write("git://watch-coalesce-repo/b.txt");
+        assertThat(ws.getQueueDepth()).isEqualTo(2);
+        write("git://watch-coalesce-repo/a.txt");
+        write("git://watch-coalesce-repo/c.txt");
+
+        assertThat(ws.getOverflowCount()).isEqualTo(1);
+        assertThat(ws.getQueueDepth()).isEqualTo(2);
+        assertThat(ws.getQueueLag()).isGreaterThanOrEqualTo(0);
+
+        final List<String> paths = new ArrayList<>();
+        final List<WatchEvent.Kind<?>> kinds = new ArrayList<>();
+        WatchKey key;
+        while ((key = ws.poll()) != null) {
+            for (final WatchEvent<?> event : key.pollEvents()) {
+                paths.add(((WatchContext) event.context()).getPath().toString());
+                kinds.add(event.kind());
+            }
+        }
+        assertThat(paths).containsExactly("/b.txt",
+                                          "/a.txt",
+                                          "/c.txt");
+        assertThat(kinds).containsExactly(StandardWatchEventKind.ENTRY_CREATE,
+                                          StandardWatchEventKind.ENTRY_MODIFY,
+                                          StandardWatchEventKind.ENTRY_CREATE);
+        assertThat(ws.getQueueDepth()).isEqualTo(0);
+        assertThat(ws.getQueueLag()).isEqualTo(0);
+    }
+
+    @Test
+    public void coalescingKeepsRenames() throws Exception {
+        final JGitFileSystem fs = (JGitFileSystem) provider.newFileSystem(URI.create("git://watch-rename-repo"),
+                                                                          EMPTY_ENV);
+        final JGitWatchService ws = (JGitWatchService) fs.newWatchService();
+
+        write("git://watch-rename-repo/a.txt");
+        write("git://watch-rename-repo/b.txt");
+        provider.move(provider.getPath(URI.create("git://watch-rename-repo/a.txt")),
+                      provider.getPath(URI.create("git://watch-rename-repo/c.txt")));
+        write("git://watch-rename-repo/c.txt");
+        write("git://watch-rename-repo/d.txt");
+        assertThat(ws.getOverflowCount()).isEqualTo(2);
+
+        final List<String> renames = new ArrayList<>();
+        final List<String> paths = new ArrayList<>();
+        WatchKey key;
+        while ((key = ws.poll()) != null) {
+            for (final WatchEvent<?> event : key.pollEvents()) {
+                final WatchContext context = (WatchContext) event.context();
+                if (StandardWatchEventKind.ENTRY_RENAME.equals(event.kind())) {
+                    renames.add(context.getOldPath() + "->" + context.getPath());
+                } else {
+                    paths.add(context.getPath().toString());
+                }
+            }
+        }
+        assertThat(renames).containsExactly("/a.txt->/c.txt");
+        assertThat(paths).containsExactly("/a.txt",
+                                          "/b.txt",
+                                          "/c.txt",
+                                          "/d.txt");
+    }
+
+    @Test
+    public void fullQueueEmitsOverflow() throws Exception {
+        final JGitFileSystem fs = (JGitFileSystem) provider.newFileSystem(URI.create("git://watch-overflow-repo"),
+                                                                          EMPTY_ENV);
+        final JGitWatchService ws = new JGitWatchService(fs,
+                                                         1,
+                                                         JGitWatchService.OverflowPolicy.OVERFLOW);
+        final WatchKey first = JGitWatchService.newWatchKey(fs,
+                                                            fs.getPath("/"),
+                                                            new ArrayList<>());
+        ws.publish(first);
+        ws.publish(first);
+
+        assertThat(ws.getOverflowCount()).isEqualTo(1);
+        assertThat(ws.getQueueDepth()).isEqualTo(1);
+        final List<WatchEvent<?>> events = ws.take().pollEvents();
+        assertThat(events).hasSize(1);
+        assertThat((Object) events.get(0).kind()).isEqualTo(StandardWatchEventKind.OVERFLOW);
+        final WatchContext context = (WatchContext) events.get(0).context();
+        assertThat(context.getPath()).isNull();
+        assertThat(context.getOldPath()).isNull();
+    }
+
+    @Test
+    public void listenerIsToldAboutNewKeys() throws Exception {
+        final JGitFileSystem fs = (JGitFileSystem) provider.newFileSystem(URI.create("git://watch-listener-repo"),
+                                                                          EMPTY_ENV);
+        final JGitWatchService ws = (JGitWatchService) fs.newWatchService();
+        final AtomicInteger notified = new AtomicInteger();
+        ws.setKeysAvailableListener(notified::incrementAndGet);
+
+        write("git://watch-listener-repo/a.txt");
+        assertThat(notified.get()).isEqualTo(1);
+        assertThat(ws.poll()).isNotNull();
+
+        ws.setKeysAvailableListener(null);
+        write("git://watch-listener-repo/b.txt");
+        assertThat(notified.get()).isEqualTo(1);
+        assertThat(ws.getQueueDepth()).isEqualTo(1);
+
+        ws.setKeysAvailableListener(notified::incrementAndGet);
+        ws.close();
+        ws.publish(JGitWatchService.newWatchKey(fs,
+                                                fs.getPath("/"),
+                                                new ArrayList<>()));
+        assertThat(notified.get()).isEqualTo(1);
+    }
+
+    private void write(final String uri) throws Exception {
+        final Path path = provider.getPath(URI.create(uri));
+        try (final OutputStream outStream = provider.newOutputStream(path)) {
+            outStream.write(("content of " + uri + System.nanoTime()).getBytes());
+        }
+    }
+}
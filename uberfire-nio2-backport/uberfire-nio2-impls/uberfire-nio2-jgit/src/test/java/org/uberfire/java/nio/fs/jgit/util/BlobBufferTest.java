@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.java.nio.fs.jgit.util;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.uberfire.java.nio.channels.SeekableByteChannel;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class BlobBufferTest {
+
+    @Test
+    public void smallContentStaysInMemory() throws Exception {
+        final BlobBuffer buffer = new BlobBuffer(16);
+        try (final OutputStream out = buffer.newOutputStream()) {
+            out.write("hello".getBytes());
+            out.write(' ');
+            out.write("world".getBytes());
+        }
+
+        assertThat(buffer.isInMemory()).isTrue();
+        assertThat(buffer.length()).isEqualTo(11);
+        assertThat(read(buffer)).isEqualTo("hello world");
+    }
+
+    @Test
+    public void largeContentSpillsToDisk() throws Exception {
+        final BlobBuffer buffer = new BlobBuffer(8);
+        try (final OutputStream out = buffer.newOutputStream()) {
+            out.write("hello".getBytes());
+            assertThat(buffer.isInMemory()).isTrue();
+            out.write(" world".getBytes());
+        }
+
+        assertThat(buffer.isInMemory()).isFalse();
+        assertThat(buffer.length()).isEqualTo(11);
+        assertThat(read(buffer)).isEqualTo("hello world");
+
+        buffer.dispose();
+        assertThat(buffer.isInMemory()).isTrue();
+        assertThat(buffer.length()).isEqualTo(0);
+    }
+
+    @Test
+    public void channelSupportsRandomAccess() throws Exception {
+        for (final int threshold : new int[]{1024, 4}) {
+            final BlobBuffer buffer = new BlobBuffer(threshold);
+            final SeekableByteChannel channel = buffer.newByteChannel();
+
+            channel.write(ByteBuffer.wrap("hello world".getBytes()));
+            channel.position(6);
+            channel.write(ByteBuffer.wrap("there".getBytes()));
+            assertThat(read(buffer)).isEqualTo("hello there");
+
+            channel.truncate(5);
+            assertThat(channel.position()).isEqualTo(5);
+            channel.position(7);
+            channel.write(ByteBuffer.wrap("!".getBytes()));
+            assertThat(read(buffer)).isEqualTo("hello\0\0!");
+
+            final ByteBuffer dst = ByteBuffer.allocate(3);
+            channel.position(1);
+            assertThat(channel.read(dst)).isEqualTo(3);
+            assertThat(new String(dst.array())).isEqualTo("ell");
+            channel.position(8);
+            assertThat(channel.read(dst)).isEqualTo(-1);
+
+            buffer.dispose();
+        }
+    }
+
+    private String read(final BlobBuffer buffer) throws Exception {
+        try (final InputStream in = buffer.openStream()) {
+            return IOUtils.toString(in);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.java.nio.fs.jgit.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.uberfire.java.nio.fs.jgit.util.model.LockStatistics;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class BranchLockManagerTest {
+
+    private final BranchLockManager locks = new BranchLockManager();
+
+    @Test
+    public void writesOnDifferentBranchesDoNotBlockEachOther() throws Exception {
+        locks.lockBranch("master");
+        try {
+            final CountDownLatch acquired = new CountDownLatch(1);
+            final Thread other = new Thread(() -> {
+                locks.lockBranch("dev");
+                acquired.countDown();
+                locks.unlockBranch("dev");
+            });
+            other.start();
+
+            assertThat(acquired.await(5,
+                                      TimeUnit.SECONDS)).isTrue();
+            other.join();
+        } finally {
+            locks.unlockBranch("master");
+        }
+    }
+
+    @Test
+    public void writesOnSameBranchAreSerialized() throws Exception {
+        locks.lockBranch("master");
+        final CountDownLatch acquired = new CountDownLatch(1);
+        final Thread other = new Thread(() -> {
+            locks.lockBranch("refs/heads/master");
+            acquired.countDown();
+            locks.unlockBranch("refs/heads/master");
+        });
+        try {
+            other.start();
+            assertThat(acquired.await(200,
+                                      TimeUnit.MILLISECONDS)).isFalse();
+        } finally {
+            locks.unlockBranch("master");
+        }
+
+        assertThat(acquired.await(5,
+                                  TimeUnit.SECONDS)).isTrue();
+        other.join();
+    }
+
+    @Test
+    public void exclusiveLockWaitsForBranchWriters() throws Exception {
+        locks.lockBranch("master");
+        final AtomicBoolean exclusive = new AtomicBoolean(false);
+        final CountDownLatch acquired = new CountDownLatch(1);
+        final Thread other = new Thread(() -> {
+            locks.lockExclusive();
+            exclusive.set(true);
+            acquired.countDown();
+            locks.unlockExclusive();
+        });
+        try {
+            other.start();
+            assertThat(acquired.await(200,
+                                      TimeUnit.MILLISECONDS)).isFalse();
+            assertThat(exclusive.get()).isFalse();
+        } finally {
+            locks.unlockBranch("master");
+        }
+
+        assertThat(acquired.await(5,
+                                  TimeUnit.SECONDS)).isTrue();
+        other.join();
+    }
+
+    @Test
+    public void locksAreReentrant() {
+        locks.lockExclusive();
+        locks.lockBranch("master");
+        locks.lockBranch("master");
+        assertThat(locks.isBranchLockedByCurrentThread("master")).isTrue();
+        locks.unlockBranch("master");
+        locks.unlockBranch("master");
+        locks.unlockExclusive();
+
+        assertThat(locks.isBranchLockedByCurrentThread("master")).isFalse();
+        assertThat(locks.isExclusivelyLockedByCurrentThread()).isFalse();
+    }
+
+    @Test
+    public void multipleBranchesAreLockedAndReleased() {
+        locks.lockBranches(Arrays.asList("refs/heads/master",
+                                         "dev"));
+        assertThat(locks.isBranchLockedByCurrentThread("master")).isTrue();
+        assertThat(locks.isBranchLockedByCurrentThread("refs/heads/dev")).isTrue();
+
+        locks.unlockBranches(Arrays.asList("refs/heads/master",
+                                           "dev"));
+        assertThat(locks.isBranchLockedByCurrentThread("master")).isFalse();
+        assertThat(locks.isBranchLockedByCurrentThread("dev")).isFalse();
+    }
+
+    @Test
+    public void statisticsArePerBranch() throws Exception {
+        locks.lockBranch("master");
+        Thread.sleep(20);
+        locks.unlockBranch("master");
+        locks.lockBranch("dev");
+        locks.unlockBranch("dev");
+        locks.lockBranch("refs/heads/dev");
+        locks.unlockBranch("refs/heads/dev");
+
+        final Map<String, LockStatistics> statistics = locks.getStatistics();
+
+        assertThat(statistics).hasSize(3);
+        assertThat(statistics.get("master").getAcquisitions()).isEqualTo(1);
+        assertThat(statistics.get("master").getMaxHoldTime()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+        assertThat(statistics.get("dev").getAcquisitions()).isEqualTo(2);
+        assertThat(statistics.get(BranchLockManager.EXCLUSIVE_LOCK_NAME).getAcquisitions()).isEqualTo(0);
+    }
+}
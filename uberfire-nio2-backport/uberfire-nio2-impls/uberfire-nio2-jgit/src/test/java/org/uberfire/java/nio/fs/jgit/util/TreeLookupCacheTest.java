@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.java.nio.fs.jgit.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Test;
+import org.uberfire.java.nio.fs.jgit.util.model.CacheStatistics;
+import org.uberfire.java.nio.fs.jgit.util.model.PathInfo;
+import org.uberfire.java.nio.fs.jgit.util.model.PathType;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class TreeLookupCacheTest {
+
+    private static final ObjectId TREE = ObjectId.fromString("4b825dc642cb6eb9a060e54bf8d69288fbee4904");
+    private static final ObjectId OTHER_TREE = ObjectId.fromString("9daeafb9864cf43055ae93beb0afd6c7d144bfa4");
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void lookupsAreCachedPerTreeAndPath() throws Exception {
+        final TreeLookupCache cache = new TreeLookupCache(100);
+
+        final PathInfo first = cache.getPathInfo(TREE,
+                                                 "file.txt",
+                                                 () -> load("file.txt"));
+        final PathInfo second = cache.getPathInfo(TREE,
+                                                  "file.txt",
+                                                  () -> load("file.txt"));
+        cache.getPathInfo(OTHER_TREE,
+                          "file.txt",
+                          () -> load("file.txt"));
+        cache.listPathContent(TREE,
+                              "file.txt",
+                              () -> Arrays.asList(load("file.txt")));
+
+        assertThat(second).isSameAs(first);
+        assertThat(loads.get()).isEqualTo(3);
+
+        final CacheStatistics statistics = cache.getStatistics();
+        assertThat(statistics.getHits()).isEqualTo(1);
+        assertThat(statistics.getMisses()).isEqualTo(3);
+        assertThat(statistics.getSize()).isEqualTo(3);
+        assertThat(statistics.getWeight()).isEqualTo(4);
+    }
+
+    @Test
+    public void weightIsBounded() throws Exception {
+        final TreeLookupCache cache = new TreeLookupCache(32);
+
+        for (int i = 0; i < 1000; i++) {
+            final String path = "file" + i + ".txt";
+            cache.getPathInfo(TREE,
+                              path,
+                              () -> load(path));
+        }
+
+        final CacheStatistics statistics = cache.getStatistics();
+        assertThat(statistics.getWeight()).isLessThanOrEqualTo(32);
+        assertThat(statistics.getEvictions()).isEqualTo(1000 - statistics.getSize());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void cachedListingsAreReadOnly() throws Exception {
+        final TreeLookupCache cache = new TreeLookupCache(100);
+
+        final List<PathInfo> content = cache.listPathContent(TREE,
+                                                             "",
+                                                             () -> Arrays.asList(load("a.txt"),
+                                                                                 load("b.txt")));
+        content.clear();
+    }
+
+    private PathInfo load(final String path) {
+        loads.incrementAndGet();
+        return new PathInfo(TREE,
+                            path,
+                            PathType.FILE);
+    }
+}
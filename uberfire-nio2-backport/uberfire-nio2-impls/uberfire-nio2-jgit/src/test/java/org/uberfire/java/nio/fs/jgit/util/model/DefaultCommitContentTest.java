@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.uberfire.java.nio.fs.jgit.util.model;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class DefaultCommitContentTest {
+
+    @Test
+    public void contentOfBlobsIsCopiedToFiles() throws Exception {
+        final Map<String, BlobContent> blobs = new HashMap<>();
+        blobs.put("path/to/file.txt",
+                  BlobContent.of("content".getBytes()));
+        blobs.put("path/to/deleted.txt",
+                  null);
+
+        final DefaultCommitContent commitContent = DefaultCommitContent.fromBlobs(blobs);
+        final Map<String, File> content = commitContent.getContent();
+
+        assertThat(content).hasSize(2);
+        assertThat(content.get("path/to/deleted.txt")).isNull();
+        assertThat(new String(Files.readAllBytes(content.get("path/to/file.txt").toPath()))).isEqualTo("content");
+        assertThat(commitContent.getContent()).isSameAs(content);
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.java.nio.base;
+
+import org.uberfire.java.nio.file.WatchService;
+
+/**
+ * Watch service telling when new watch keys are queued, so its keys can be dispatched without a thread blocked in
+ * {@link #take()}.
+ */
+public interface ListenableWatchService extends WatchService {
+
+    /**
+     * Sets the listener invoked, on the publishing thread, every time a watch key is queued. Listeners must not block
+     * and should just schedule a later {@link #poll()} of the queued keys.
+     * @param listener The listener, or null to remove it.
+     */
+    void setKeysAvailableListener(Runnable listener);
+}
@@ -28,6 +28,11 @@ public final class StandardWatchEventKind {
                                                                                          Path.class);
     public static final WatchEvent.Kind<Pair> ENTRY_RENAME = new StdWatchEventKind<Pair>("ENTRY_RENAME",
                                                                                          Pair.class);
+    /**
+     * Events were lost (the watch queue was full); watchers should resync their state.
+     */
+    public static final WatchEvent.Kind<Object> OVERFLOW = new StdWatchEventKind<Object>("OVERFLOW",
+                                                                                         Object.class);
 
     private StandardWatchEventKind() {
     }
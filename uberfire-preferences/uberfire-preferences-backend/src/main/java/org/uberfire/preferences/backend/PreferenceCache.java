@@ -0,0 +1,226 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.preferences.backend;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.kie.soup.commons.validation.PortablePreconditions.checkNotNull;
+
+/**
+ * Bounded read-through cache of the stored preferences, keyed by their scoped preference path.
+ * <p>
+ * Missing preferences are cached as well, as most of the scopes of a resolution strategy don't hold a given
+ * preference. Immutable values (strings, numbers, booleans, enums) are shared; any other value is kept in its
+ * marshalled form and unmarshalled again on every read, so callers can't modify the cached copy.
+ * <p>
+ * Values loaded while a preference is being invalidated are not cached, so a read racing with a write never
+ * caches the old value.
+ */
+public class PreferenceCache {
+
+    private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.asList(String.class,
+                                                                                     Boolean.class,
+                                                                                     Character.class,
+                                                                                     Byte.class,
+                                                                                     Short.class,
+                                                                                     Integer.class,
+                                                                                     Long.class,
+                                                                                     Float.class,
+                                                                                     Double.class,
+                                                                                     BigInteger.class,
+                                                                                     BigDecimal.class));
+
+    private final int maxSize;
+    private final Function<Object, String> marshaller;
+    private final Function<String, Object> unmarshaller;
+    private final Map<String, Entry> entries;
+    private final Entry missing = new Entry(null,
+                                            null);
+
+    private long invalidations = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    /**
+     * @param maxSize Max number of cached preferences; zero or less disables the cache.
+     * @param marshaller Converts mutable values into their stored form.
+     * @param unmarshaller Creates a copy of a mutable value from its stored form.
+     */
+    public PreferenceCache(final int maxSize,
+                           final Function<Object, String> marshaller,
+                           final Function<String, Object> unmarshaller) {
+        this.maxSize = maxSize;
+        this.marshaller = checkNotNull("marshaller",
+                                       marshaller);
+        this.unmarshaller = checkNotNull("unmarshaller",
+                                         unmarshaller);
+        this.entries = new LinkedHashMap<String, Entry>(16,
+                                                        0.75f,
+                                                        true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                return size() > PreferenceCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Gets the preference stored at the given path, loading it on cache misses.
+     * @param path Scoped preference path.
+     * @param loader Reads the preference from the storage, returning null if it doesn't exist.
+     * @return The preference value, or null if it doesn't exist.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T read(final String path,
+                      final Supplier<T> loader) {
+        if (!isEnabled()) {
+            return loader.get();
+        }
+        final Entry entry;
+        final long stamp;
+        synchronized (this) {
+            entry = entries.get(path);
+            if (entry != null) {
+                hitCount++;
+            } else {
+                missCount++;
+            }
+            stamp = invalidations;
+        }
+        if (entry != null) {
+            // unmarshalling out of the lock
+            return (T) entry.value();
+        }
+        final T value = loader.get();
+        cache(path,
+              stamp,
+              value == null ? missing : newEntry(value));
+        return value;
+    }
+
+    /**
+     * Checks whether a preference exists at the given path. Only missing preferences are cached by this method, as
+     * knowing an existing preference doesn't tell its value.
+     * @param path Scoped preference path.
+     * @param check Checks the storage for the preference.
+     * @return true if the preference exists.
+     */
+    public boolean exists(final String path,
+                          final BooleanSupplier check) {
+        if (!isEnabled()) {
+            return check.getAsBoolean();
+        }
+        final long stamp;
+        synchronized (this) {
+            final Entry entry = entries.get(path);
+            if (entry != null) {
+                hitCount++;
+                return entry != missing;
+            }
+            missCount++;
+            stamp = invalidations;
+        }
+        final boolean exists = check.getAsBoolean();
+        if (!exists) {
+            cache(path,
+                  stamp,
+                  missing);
+        }
+        return exists;
+    }
+
+    public synchronized void invalidate(final String path) {
+        invalidations++;
+        entries.remove(path);
+    }
+
+    public synchronized void invalidateAll() {
+        invalidations++;
+        entries.clear();
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Ratio of lookups answered by the cache, between 0 and 1.
+     */
+    public synchronized double getHitRate() {
+        final long lookups = hitCount + missCount;
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    private synchronized void cache(final String path,
+                                    final long stamp,
+                                    final Entry entry) {
+        if (stamp == invalidations) {
+            entries.put(path,
+                        entry);
+        }
+    }
+
+    private Entry newEntry(final Object value) {
+        if (value instanceof Enum || IMMUTABLE_TYPES.contains(value.getClass())) {
+            return new Entry(value,
+                             null);
+        }
+        return new Entry(null,
+                         marshaller.apply(value));
+    }
+
+    private class Entry {
+
+        private final Object value;
+        private final String marshalledValue;
+
+        Entry(final Object value,
+              final String marshalledValue) {
+            this.value = value;
+            this.marshalledValue = marshalledValue;
+        }
+
+        Object value() {
+            return marshalledValue != null ? unmarshaller.apply(marshalledValue) : value;
+        }
+    }
+}
@@ -20,21 +20,31 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.jboss.errai.marshalling.server.ServerMarshalling;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.uberfire.annotations.Customizable;
 import org.uberfire.backend.server.io.object.ObjectStorage;
+import org.uberfire.commons.concurrent.Managed;
 import org.uberfire.io.IOService;
 import org.uberfire.java.nio.IOException;
+import org.uberfire.java.nio.base.WatchContext;
 import org.uberfire.java.nio.file.FileVisitResult;
 import org.uberfire.java.nio.file.Path;
 import org.uberfire.java.nio.file.SimpleFileVisitor;
+import org.uberfire.java.nio.file.StandardWatchEventKind;
+import org.uberfire.java.nio.file.WatchEvent;
+import org.uberfire.java.nio.file.WatchKey;
+import org.uberfire.java.nio.file.WatchService;
 import org.uberfire.java.nio.file.attribute.BasicFileAttributes;
 import org.uberfire.preferences.shared.PreferenceScope;
 import org.uberfire.preferences.shared.PreferenceScopeFactory;
@@ -53,6 +63,8 @@ public class PreferenceStorageImpl implements PreferenceStorage {
 
     public static final String FILE_FORMAT = ".preferences";
     public static final int FILE_FORMAT_SIZE = FILE_FORMAT.length();
+    public static final String CACHE_SIZE_PROPERTY = "org.uberfire.preferences.cache.size";
+    public static final int DEFAULT_CACHE_SIZE = 10000;
     private static final Logger logger = LoggerFactory.getLogger(PreferenceStorageImpl.class);
     private IOService ioService;
 
@@ -64,6 +76,16 @@ public class PreferenceStorageImpl implements PreferenceStorage {
 
     private ObjectStorage objectStorage;
 
+    private PreferenceCache cache;
+
+    private WatchService watchService;
+
+    private ExecutorService executorService;
+
+    private Future<?> watchTask;
+
+    private volatile boolean watching;
+
     protected PreferenceStorageImpl() {
     }
 
@@ -72,25 +94,110 @@ public class PreferenceStorageImpl implements PreferenceStorage {
                                  final SessionInfo sessionInfo,
                                  @Customizable final PreferenceScopeTypes scopeTypes,
                                  final PreferenceScopeFactory scopeFactory,
-                                 final ObjectStorage objectStorage) {
+                                 final ObjectStorage objectStorage,
+                                 @Managed final ExecutorService executorService) {
         this.ioService = ioService;
         this.sessionInfo = sessionInfo;
         this.scopeTypes = scopeTypes;
         this.scopeFactory = scopeFactory;
         this.objectStorage = objectStorage;
+        this.executorService = executorService;
+        this.cache = new PreferenceCache(Integer.getInteger(CACHE_SIZE_PROPERTY,
+                                                            DEFAULT_CACHE_SIZE),
+                                         ServerMarshalling::toJSON,
+                                         ServerMarshalling::fromJSON);
     }
 
     @PostConstruct
     public void init() {
         final String rootPath = "git://preferences";
         objectStorage.init(rootPath);
+        if (cache.isEnabled()) {
+            try {
+                watchChanges();
+            } catch (final Exception ex) {
+                logger.warn("Can't watch the preferences file system, preferences won't be cached.",
+                            ex);
+                cache = new PreferenceCache(0,
+                                            ServerMarshalling::toJSON,
+                                            ServerMarshalling::fromJSON);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        watching = false;
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (watchTask != null) {
+            watchTask.cancel(true);
+        }
+    }
+
+    /**
+     * Preferences may also be changed by other cluster nodes or by anyone writing to the preferences file system,
+     * so cached preferences are invalidated from its watch events as well as from the writes done here.
+     */
+    private void watchChanges() {
+        watchService = objectStorage.getPath("/").getFileSystem().newWatchService();
+        watching = true;
+        watchTask = executorService.submit(this::invalidateChanges);
+    }
+
+    private void invalidateChanges() {
+        while (watching) {
+            final WatchKey wk;
+            try {
+                wk = watchService.take();
+            } catch (final Exception ex) {
+                break;
+            }
+            try {
+                for (final WatchEvent<?> event : wk.pollEvents()) {
+                    // dropped events don't tell what changed
+                    if (StandardWatchEventKind.OVERFLOW.equals(event.kind()) || !(event.context() instanceof WatchContext)) {
+                        cache.invalidateAll();
+                        continue;
+                    }
+                    final WatchContext context = (WatchContext) event.context();
+                    invalidate(context.getPath());
+                    invalidate(context.getOldPath());
+                }
+            } catch (final Exception ex) {
+                logger.error("Error invalidating changed preferences, clearing the preferences cache.",
+                             ex);
+                cache.invalidateAll();
+            }
+            if (!wk.reset()) {
+                break;
+            }
+        }
+        // without events the cache would get stale
+        cache.invalidateAll();
+    }
+
+    private void invalidate(final Path path) {
+        if (path != null) {
+            cache.invalidate(path.toString());
+        }
+    }
+
+    /**
+     * Cache of the preferences read by this storage, exposing its hit counts.
+     */
+    public PreferenceCache getCache() {
+        return cache;
     }
 
     @Override
     public boolean exists(final PreferenceScope preferenceScope,
                           final String key) {
-        return objectStorage.exists(buildScopedPreferencePath(preferenceScope,
-                                                              key));
+        final String path = buildScopedPreferencePath(preferenceScope,
+                                                      key);
+        return cache.exists(path,
+                            () -> objectStorage.exists(path));
     }
 
     @Override
@@ -112,7 +219,8 @@ public class PreferenceStorageImpl implements PreferenceStorage {
                       final String key) {
         final String path = buildScopedPreferencePath(preferenceScope,
                                                       key);
-        return objectStorage.read(path);
+        return cache.read(path,
+                          () -> objectStorage.read(path));
     }
 
     @Override
@@ -148,16 +256,26 @@ public class PreferenceStorageImpl implements PreferenceStorage {
     public void write(final PreferenceScope preferenceScope,
                       final String key,
                       final Object value) {
-        objectStorage.write(buildScopedPreferencePath(preferenceScope,
-                                                      key),
-                            value);
+        final String path = buildScopedPreferencePath(preferenceScope,
+                                                      key);
+        try {
+            objectStorage.write(path,
+                                value);
+        } finally {
+            cache.invalidate(path);
+        }
     }
 
     @Override
     public void delete(final PreferenceScope preferenceScope,
                        final String key) {
-        objectStorage.delete(buildScopedPreferencePath(preferenceScope,
-                                                       key));
+        final String path = buildScopedPreferencePath(preferenceScope,
+                                                      key);
+        try {
+            objectStorage.delete(path);
+        } finally {
+            cache.invalidate(path);
+        }
     }
 
     @Override
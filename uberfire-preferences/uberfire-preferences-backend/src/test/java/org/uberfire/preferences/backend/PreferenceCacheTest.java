@@ -0,0 +1,185 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.preferences.backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PreferenceCacheTest {
+
+    private AtomicInteger loads;
+
+    private PreferenceCache cache;
+
+    @Before
+    public void setup() {
+        loads = new AtomicInteger();
+        cache = newCache(3);
+    }
+
+    @Test
+    public void valuesAndMissingPreferencesAreCachedTest() {
+        assertEquals("value",
+                     read("/a",
+                          "value"));
+        assertEquals("value",
+                     read("/a",
+                          "other"));
+        assertNull(read("/b",
+                        null));
+        assertNull(read("/b",
+                        "other"));
+        assertFalse(cache.exists("/b",
+                                 () -> true));
+
+        assertEquals(2,
+                     loads.get());
+        assertEquals(3,
+                     cache.getHitCount());
+        assertEquals(2,
+                     cache.getMissCount());
+        assertEquals(0.6,
+                     cache.getHitRate(),
+                     0.001);
+    }
+
+    @Test
+    public void existingPreferencesAreNotCachedByExistsTest() {
+        assertTrue(cache.exists("/a",
+                                () -> true));
+        assertEquals("value",
+                     read("/a",
+                          "value"));
+        assertEquals(1,
+                     loads.get());
+    }
+
+    @Test
+    public void mutableValuesAreCopiedOnReadTest() {
+        final List<String> value = new ArrayList<>();
+        value.add("one");
+
+        final List<String> first = read("/a",
+                                        value);
+        first.add("two");
+        final List<String> second = read("/a",
+                                         null);
+        final List<String> third = read("/a",
+                                        null);
+
+        assertNotSame(second,
+                      third);
+        assertEquals(1,
+                     second.size());
+        assertEquals(1,
+                     loads.get());
+    }
+
+    @Test
+    public void invalidateTest() {
+        read("/a",
+             "value");
+        read("/b",
+             "value");
+        cache.invalidate("/a");
+        assertEquals("new",
+                     read("/a",
+                          "new"));
+        assertEquals("value",
+                     read("/b",
+                          "new"));
+
+        cache.invalidateAll();
+        assertEquals(0,
+                     cache.size());
+        assertEquals("new",
+                     read("/b",
+                          "new"));
+    }
+
+    @Test
+    public void valuesLoadedDuringAnInvalidationAreNotCachedTest() {
+        assertEquals("old",
+                     cache.read("/a",
+                                () -> {
+                                    cache.invalidate("/a");
+                                    return "old";
+                                }));
+        assertEquals("new",
+                     read("/a",
+                          "new"));
+    }
+
+    @Test
+    public void leastRecentlyUsedPreferencesAreEvictedTest() {
+        read("/a",
+             "a");
+        read("/b",
+             "b");
+        read("/c",
+             "c");
+        read("/a",
+             null);
+        read("/d",
+             "d");
+
+        assertEquals(3,
+                     cache.size());
+        assertEquals("a",
+                     read("/a",
+                          null));
+        assertNull(read("/b",
+                        null));
+    }
+
+    @Test
+    public void disabledCacheTest() {
+        cache = newCache(0);
+        read("/a",
+             "value");
+        read("/a",
+             "value");
+        assertEquals(2,
+                     loads.get());
+        assertEquals(0,
+                     cache.size());
+    }
+
+    private <T> T read(final String path,
+                       final T storedValue) {
+        return cache.read(path,
+                          () -> {
+                              loads.incrementAndGet();
+                              return storedValue;
+                          });
+    }
+
+    // copies lists the way unmarshalling does
+    private PreferenceCache newCache(final int maxSize) {
+        return new PreferenceCache(maxSize,
+                                   value -> String.join(",",
+                                                        (List<String>) value),
+                                   json -> new ArrayList<>(Arrays.asList(json.split(","))));
+    }
+}
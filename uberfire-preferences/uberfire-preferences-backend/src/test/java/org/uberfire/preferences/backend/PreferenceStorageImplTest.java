@@ -19,6 +19,8 @@ package org.uberfire.preferences.backend;
 import java.io.IOException;
 import java.net.URI;
 import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.jboss.errai.marshalling.server.MappingContextSingleton;
 import org.junit.After;
@@ -68,22 +70,27 @@ public class PreferenceStorageImplTest {
 
     private PreferenceStorageImpl preferenceStorageServiceBackendImpl;
 
+    private ExecutorService executorService;
+
     private PreferenceScopeResolutionStrategyInfo scopeResolutionStrategyInfo;
 
     private PreferenceScopeFactoryImpl scopeFactory;
 
     private PreferenceScopeTypes scopeTypes;
 
+    private ObjectStorage objectStorage;
+
     @Before
     public void setup() throws IOException {
         MappingContextSingleton.get();
         fileSystemTestingUtils.setup();
+        executorService = Executors.newCachedThreadPool();
 
         final SessionInfo sessionInfo = mockSessionInfo();
         final FileSystem fileSystem = mockFileSystem();
         final IOService ioService = mockIoService(fileSystem);
 
-        ObjectStorage objectStorage = new ObjectStorageImpl(ioService);
+        objectStorage = new ObjectStorageImpl(ioService);
 
         scopeTypes = new DefaultPreferenceScopeTypes(new ServerUsernameProvider(sessionInfo));
         scopeFactory = new PreferenceScopeFactoryImpl(scopeTypes);
@@ -93,7 +100,8 @@ public class PreferenceStorageImplTest {
                                                                         sessionInfo,
                                                                         scopeTypes,
                                                                         scopeFactory,
-                                                                        objectStorage);
+                                                                        objectStorage,
+                                                                        executorService);
         preferenceStorageServiceBackendImpl.init();
 
         userEntireApplicationScope = scopeFactory.createScope(userScope,
@@ -104,6 +112,8 @@ public class PreferenceStorageImplTest {
 
     @After
     public void cleanupFileSystem() {
+        preferenceStorageServiceBackendImpl.destroy();
+        executorService.shutdownNow();
         fileSystemTestingUtils.cleanup();
     }
 
@@ -446,6 +456,93 @@ public class PreferenceStorageImplTest {
                      keys.size());
     }
 
+    @Test
+    public void readsAreCachedTest() {
+        final PreferenceCache cache = preferenceStorageServiceBackendImpl.getCache();
+
+        assertNull(preferenceStorageServiceBackendImpl.read(scopeResolutionStrategyInfo,
+                                                            "my.preference.key"));
+        final long missCount = cache.getMissCount();
+        final long hitCount = cache.getHitCount();
+        assertNull(preferenceStorageServiceBackendImpl.read(scopeResolutionStrategyInfo,
+                                                            "my.preference.key"));
+        assertFalse(preferenceStorageServiceBackendImpl.exists(scopeResolutionStrategyInfo,
+                                                               "my.preference.key"));
+
+        assertTrue(missCount > 0);
+        assertEquals(missCount,
+                     cache.getMissCount());
+        assertEquals(hitCount + 2 * missCount,
+                     cache.getHitCount());
+    }
+
+    @Test
+    public void writesInvalidateCachedPreferencesTest() {
+        final PreferenceScope scope = userEntireApplicationScope;
+        assertNull(preferenceStorageServiceBackendImpl.read(scope,
+                                                            "my.preference.key"));
+        assertFalse(preferenceStorageServiceBackendImpl.exists(scope,
+                                                               "my.preference.key"));
+
+        preferenceStorageServiceBackendImpl.write(scope,
+                                                  "my.preference.key",
+                                                  "text");
+        assertEquals("text",
+                     preferenceStorageServiceBackendImpl.read(scope,
+                                                              "my.preference.key"));
+        assertTrue(preferenceStorageServiceBackendImpl.exists(scope,
+                                                              "my.preference.key"));
+
+        preferenceStorageServiceBackendImpl.delete(scope,
+                                                   "my.preference.key");
+        assertNull(preferenceStorageServiceBackendImpl.read(scope,
+                                                            "my.preference.key"));
+    }
+
+    @Test
+    public void externalChangesInvalidateCachedPreferencesTest() throws InterruptedException {
+        final PreferenceScope scope = userEntireApplicationScope;
+        assertNull(preferenceStorageServiceBackendImpl.read(scope,
+                                                            "my.preference.key"));
+
+        // written without going through the preference storage, as another cluster node would do
+        objectStorage.write(preferenceStorageServiceBackendImpl.buildScopedPreferencePath(scope,
+                                                                                          "my.preference.key"),
+                            "text");
+
+        final long deadline = System.currentTimeMillis() + 10000;
+        String value = null;
+        while (value == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            value = preferenceStorageServiceBackendImpl.read(scope,
+                                                             "my.preference.key");
+        }
+        assertEquals("text",
+                     value);
+    }
+
+    @Test
+    public void cachedBeansAreCopiedOnReadTest() {
+        final PreferenceScope scope = userEntireApplicationScope;
+        preferenceStorageServiceBackendImpl.write(scope,
+                                                  "my.preference.key",
+                                                  new CustomObject(1L,
+                                                                   "text"));
+
+        final CustomObject value1 = preferenceStorageServiceBackendImpl.read(scope,
+                                                                             "my.preference.key");
+        final CustomObject value2 = preferenceStorageServiceBackendImpl.read(scope,
+                                                                             "my.preference.key");
+
+        value1.text = "changed";
+        assertNotSame(value1,
+                      value2);
+        assertEquals(Long.valueOf(1L),
+                     value2.id);
+        assertEquals("text",
+                     value2.text);
+    }
+
     @Test
     public void buildScopePathForAllUsersEntireApplicationScope() {
         final String path = preferenceStorageServiceBackendImpl.buildScopePath(allUsersEntireApplicationScope);
@@ -22,6 +22,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.jboss.errai.marshalling.server.MappingContextSingleton;
 import org.junit.After;
@@ -92,6 +94,8 @@ public class PreferenceStoreImplTest {
 
     private PreferenceStorageImpl storage;
 
+    private ExecutorService executorService;
+
     private PreferenceScopeResolutionStrategy preferenceScopeResolutionStrategy;
 
     private PreferenceScopeResolutionStrategyInfo preferenceScopeResolutionStrategyInfo;
@@ -102,6 +106,7 @@ public class PreferenceStoreImplTest {
     public void setup() throws IOException {
         MappingContextSingleton.get();
         fileSystemTestingUtils.setup();
+        executorService = Executors.newCachedThreadPool();
 
         callback = (ParameterizedCommand<String>) mock(ParameterizedCommand.class);
 
@@ -120,7 +125,8 @@ public class PreferenceStoreImplTest {
                                                 sessionInfo,
                                                 scopeTypes,
                                                 scopeFactory,
-                                                objectStorage));
+                                                objectStorage,
+                                                executorService));
         storage.init();
 
         preferenceStore = spy(new PreferenceStoreImpl(storage,
@@ -135,6 +141,8 @@ public class PreferenceStoreImplTest {
 
     @After
     public void cleanupFileSystem() {
+        storage.destroy();
+        executorService.shutdownNow();
         fileSystemTestingUtils.cleanup();
     }
 
@@ -174,4 +174,19 @@ public interface AuthorizationPolicy {
      * @return The permission collection
      */
     PermissionCollection getPermissions();
+
+    /**
+     * Get the version of this policy.
+     * <p>
+     * <p>The version changes every time the priorities or the permissions of the policy are modified through this
+     * interface, so that any authorization result computed against a previous version can be discarded. Policy
+     * instances created later always have a greater version than the ones created before.</p>
+     * <p>
+     * <p>Policies not tracking their changes keep the default version, 0. The permission manager then versions them
+     * itself every time a policy is set, so their changes only show up once the policy is set again.</p>
+     * @return A number that is increased on every change, or 0 if changes aren't tracked
+     */
+    default long getVersion() {
+        return 0;
+    }
 }
@@ -29,12 +29,19 @@ import org.uberfire.security.authz.PermissionCollection;
 @Portable
 public class DefaultAuthorizationPolicy implements AuthorizationPolicy {
 
+    private static long lastVersion = 0;
+
     DefaultAuthorizationEntry defaultEntry = new DefaultAuthorizationEntry();
     private Set<DefaultAuthorizationEntry> entrySet = new HashSet<>();
+    private transient volatile long version = nextVersion();
 
     public DefaultAuthorizationPolicy() {
     }
 
+    static synchronized long nextVersion() {
+        return ++lastVersion;
+    }
+
     protected DefaultAuthorizationEntry registerAuthzEntry(DefaultAuthorizationEntry entry) {
         entrySet.add(entry);
         return entry;
@@ -129,6 +136,7 @@ public class DefaultAuthorizationPolicy implements AuthorizationPolicy {
                             int priority) {
         DefaultAuthorizationEntry entry = getAuthzEntry(role);
         entry.setPriority(priority);
+        version = nextVersion();
     }
 
     @Override
@@ -136,6 +144,7 @@ public class DefaultAuthorizationPolicy implements AuthorizationPolicy {
                             int priority) {
         DefaultAuthorizationEntry entry = getAuthzEntry(group);
         entry.setPriority(priority);
+        version = nextVersion();
     }
 
     @Override
@@ -152,30 +161,35 @@ public class DefaultAuthorizationPolicy implements AuthorizationPolicy {
 
     public void addPermission(Permission permission) {
         defaultEntry.getPermissions().add(permission);
+        version = nextVersion();
     }
 
     public void addPermission(Role role,
                               Permission permission) {
         DefaultAuthorizationEntry entry = getAuthzEntry(role);
         entry.getPermissions().add(permission);
+        version = nextVersion();
     }
 
     public void addPermission(Group group,
                               Permission permission) {
         DefaultAuthorizationEntry entry = getAuthzEntry(group);
         entry.getPermissions().add(permission);
+        version = nextVersion();
     }
 
     public void setPermissions(Role role,
                                PermissionCollection collection) {
         DefaultAuthorizationEntry entry = getAuthzEntry(role);
         entry.setPermissions(collection);
+        version = nextVersion();
     }
 
     public void setPermissions(Group group,
                                PermissionCollection collection) {
         DefaultAuthorizationEntry entry = getAuthzEntry(group);
         entry.setPermissions(collection);
+        version = nextVersion();
     }
 
     @Override
@@ -250,4 +264,9 @@ public class DefaultAuthorizationPolicy implements AuthorizationPolicy {
     public PermissionCollection getPermissions() {
         return defaultEntry.getPermissions();
     }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
 }
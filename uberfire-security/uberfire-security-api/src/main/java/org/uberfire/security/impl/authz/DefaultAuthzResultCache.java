@@ -15,53 +15,277 @@
  */
 package org.uberfire.security.impl.authz;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jboss.errai.security.shared.api.identity.User;
+import org.uberfire.security.authz.AuthorizationPolicy;
 import org.uberfire.security.authz.AuthorizationResult;
 import org.uberfire.security.authz.Permission;
 
+import static org.uberfire.security.authz.AuthorizationResult.ACCESS_ABSTAIN;
+
+/**
+ * Bounded cache of authorization results keyed by user identifier and permission.
+ * <p>
+ * <p>Once the cache is full, the least recently used results are evicted, approximately: every lookup stamps the
+ * result with a tick, and a single thread at a time drops the results with the oldest ticks, leaving some room so
+ * evictions don't run on every put. Results older than the time to live (if any) are discarded on lookup. Every
+ * result is tagged with the {@link AuthorizationPolicy#getVersion()} it was computed for: when a newer policy version
+ * shows up the older results just stop matching and get evicted over time, so the cache never has to be cleared
+ * while it's being used. Lookups and puts don't lock, as the cache is shared by every thread checking
+ * permissions.</p>
+ */
 public class DefaultAuthzResultCache {
 
-    final Map<Permission, Map<String, AuthorizationResult>> internal = new HashMap<>();
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    private final int maxSize;
+    private final long timeToLive;
+    private final Map<Key, Entry> internal = new ConcurrentHashMap<Key, Entry>();
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private volatile long policyVersion = 0;
+    private volatile long generation = 0;
+
+    public DefaultAuthzResultCache() {
+        this(DEFAULT_MAX_SIZE,
+             0);
+    }
+
+    /**
+     * @param maxSize The maximum number of results kept
+     * @param timeToLive How long a result is kept, in milliseconds. Zero or less means forever.
+     */
+    public DefaultAuthzResultCache(final int maxSize,
+                                   final long timeToLive) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+    }
 
     public AuthorizationResult get(final User user,
                                    final Permission permission) {
-        Map<String, AuthorizationResult> result = internal.get(permission);
-        if (result == null) {
+        return get(user,
+                   permission,
+                   policyVersion);
+    }
+
+    /**
+     * Get the result cached for the given policy version. Asking for a newer version invalidates every result cached
+     * so far.
+     */
+    public AuthorizationResult get(final User user,
+                                   final Permission permission,
+                                   final long policyVersion) {
+        setPolicyVersion(policyVersion);
+        final Key key = new Key(user,
+                                permission);
+        final Entry entry = internal.get(key);
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        if (!isValid(entry)) {
+            internal.remove(key,
+                            entry);
+            missCount.incrementAndGet();
             return null;
         }
-        AuthorizationResult decision = result.get(user.getIdentifier());
-        return decision == null ? null : decision;
+        entry.lastUsed = ticks.incrementAndGet();
+        hitCount.incrementAndGet();
+        return entry.result;
     }
 
     public void put(final User user,
                     final Permission permission,
                     final AuthorizationResult authzResult) {
-        if (!internal.containsKey(permission)) {
-            internal.put(permission,
-                         new HashMap<>());
+        put(user,
+            permission,
+            authzResult,
+            policyVersion);
+    }
+
+    /**
+     * Cache a result computed for the given policy version. Results computed for a version other than the current
+     * one are ignored, as the policy changed while they were being computed.
+     */
+    public void put(final User user,
+                    final Permission permission,
+                    final AuthorizationResult authzResult,
+                    final long policyVersion) {
+        setPolicyVersion(policyVersion);
+        if (policyVersion != this.policyVersion) {
+            return;
         }
-        final Map<String, AuthorizationResult> result = internal.get(permission);
-        AuthorizationResult knowValue = result.get(user.getIdentifier());
-        if (!(result.containsKey(user.getIdentifier()) && authzResult.equals(knowValue))) {
-            result.put(user.getIdentifier(),
-                       authzResult);
+        internal.put(new Key(user,
+                             permission),
+                     new Entry(authzResult,
+                               generation,
+                               timeToLive > 0 ? currentTimeMillis() + timeToLive : 0,
+                               ticks.incrementAndGet()));
+        if (internal.size() > maxSize) {
+            evict();
         }
     }
 
+    /**
+     * Invalidate all the results cached so far without clearing the cache.
+     */
+    public synchronized void invalidate() {
+        generation++;
+    }
+
     public int size(User user) {
         int count = 0;
-        for (Map<String, AuthorizationResult> userCache : internal.values()) {
-            if (userCache.containsKey(user.getIdentifier())) {
+        for (Map.Entry<Key, Entry> e : internal.entrySet()) {
+            if (Key.equals(e.getKey().userId,
+                           user.getIdentifier()) && isValid(e.getValue())) {
                 count++;
             }
         }
         return count;
     }
 
+    public int size() {
+        return internal.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getPolicyVersion() {
+        return policyVersion;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
     public void clear() {
         internal.clear();
     }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private void setPolicyVersion(final long policyVersion) {
+        if (policyVersion > this.policyVersion) {
+            synchronized (this) {
+                if (policyVersion > this.policyVersion) {
+                    this.policyVersion = policyVersion;
+                    generation++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop the least recently used results down to 90% of the max size. Threads finding an eviction in progress
+     * don't wait for it, the evicting thread checks the size again once done.
+     */
+    private void evict() {
+        if (!evicting.compareAndSet(false,
+                                    true)) {
+            return;
+        }
+        try {
+            final List<Map.Entry<Key, Entry>> entries = new ArrayList<Map.Entry<Key, Entry>>(internal.entrySet());
+            final int target = maxSize - maxSize / 10;
+            if (entries.size() <= target) {
+                return;
+            }
+            entries.sort(Comparator.comparingLong(e -> e.getValue().lastUsed));
+            for (int i = 0; i < entries.size() - target; i++) {
+                internal.remove(entries.get(i).getKey(),
+                                entries.get(i).getValue());
+            }
+        } finally {
+            evicting.set(false);
+        }
+        if (internal.size() > maxSize) {
+            evict();
+        }
+    }
+
+    private boolean isValid(final Entry entry) {
+        return entry.generation == generation && (timeToLive <= 0 || entry.expiresAt > currentTimeMillis());
+    }
+
+    private static class Key {
+
+        private final String userId;
+        private final String permissionName;
+        private final AuthorizationResult permissionResult;
+
+        Key(final User user,
+            final Permission permission) {
+            this.userId = user.getIdentifier();
+            this.permissionName = permission.getName();
+            // Same as the permission's equals: no result means abstain
+            this.permissionResult = permission.getResult() == null ? ACCESS_ABSTAIN : permission.getResult();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return equals(userId,
+                          other.userId)
+                    && equals(permissionName,
+                              other.permissionName)
+                    && permissionResult == other.permissionResult;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = userId != null ? userId.hashCode() : 0;
+            result = 31 * result + (permissionName != null ? permissionName.hashCode() : 0);
+            result = 31 * result + permissionResult.hashCode();
+            return result;
+        }
+
+        private static boolean equals(final String s1,
+                                      final String s2) {
+            return s1 == null ? s2 == null : s1.equals(s2);
+        }
+    }
+
+    private static class Entry {
+
+        private final AuthorizationResult result;
+        private final long generation;
+        private final long expiresAt;
+        private volatile long lastUsed;
+
+        Entry(final AuthorizationResult result,
+              final long generation,
+              final long expiresAt,
+              final long lastUsed) {
+            this.result = result;
+            this.generation = generation;
+            this.expiresAt = expiresAt;
+            this.lastUsed = lastUsed;
+        }
+    }
 }
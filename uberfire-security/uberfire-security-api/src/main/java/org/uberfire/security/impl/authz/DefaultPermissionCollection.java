@@ -15,8 +15,13 @@
  */
 package org.uberfire.security.impl.authz;
 
+import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.TreeSet;
 
 import org.jboss.errai.common.client.api.annotations.Portable;
@@ -27,18 +32,28 @@ import static org.uberfire.security.authz.AuthorizationResult.ACCESS_GRANTED;
 
 /**
  * A collection where the permissions are ordered by name.
+ * <p>
+ * Lookups don't scan the whole collection: a {@link DotNamedPermission} only implies permissions with its
+ * same name or one segment longer (see {@link DotNamedPermission#impliesName(Permission)}), so the candidates
+ * are found by name and by parent name. Collections holding other permission implementations fall back to
+ * scanning.
  */
 @Portable
 public class DefaultPermissionCollection implements PermissionCollection {
 
     private TreeSet<Permission> permissionSet = new TreeSet<>();
 
+    // Index over permissionSet, not marshalled but (re)built on first use. It's built aside and then published whole,
+    // so threads reading an unmodified collection at once never see it half built. Changes, which need exclusive
+    // access as for the set itself, keep it up to date or drop it.
+    private transient volatile PermissionIndex index;
+
     public DefaultPermissionCollection() {
     }
 
     @Override
     public Collection<Permission> collection() {
-        return permissionSet;
+        return new PermissionSetView();
     }
 
     @Override
@@ -52,7 +67,10 @@ public class DefaultPermissionCollection implements PermissionCollection {
             }
             // Avoid redundancy
             if (!implies(p)) {
-                permissionSet.add(p);
+                PermissionIndex current = index;
+                if (permissionSet.add(p) && current != null) {
+                    current.index(p);
+                }
             }
         }
         return this;
@@ -61,13 +79,25 @@ public class DefaultPermissionCollection implements PermissionCollection {
     @Override
     public PermissionCollection remove(Permission... permissions) {
         for (Permission p : permissions) {
-            permissionSet.remove(p);
+            PermissionIndex current = index();
+            Permission existing = current.indexable && isIndexable(p) ? current.byName.get(p.getName()) : null;
+            if (permissionSet.remove(p)) {
+                if (existing != null) {
+                    current.unindex(existing);
+                } else {
+                    invalidateIndex();
+                }
+            }
         }
         return this;
     }
 
     @Override
     public Permission get(String name) {
+        PermissionIndex current = index();
+        if (current.indexable) {
+            return current.byName.get(name);
+        }
         for (Permission p : permissionSet) {
             if (equalsName(name,
                            p.getName())) {
@@ -84,7 +114,8 @@ public class DefaultPermissionCollection implements PermissionCollection {
 
     @Override
     public boolean implies(Permission permission) {
-        for (Permission p : permissionSet) {
+        PermissionIndex current = index();
+        for (Permission p : current.indexable ? current.impliedByCandidates(permission) : permissionSet) {
             if (p.implies(permission)) {
                 return true;
             }
@@ -94,7 +125,8 @@ public class DefaultPermissionCollection implements PermissionCollection {
 
     @Override
     public boolean impliesName(Permission permission) {
-        for (Permission p : permissionSet) {
+        PermissionIndex current = index();
+        for (Permission p : current.indexable ? current.impliedByCandidates(permission) : permissionSet) {
             if (p.impliesName(permission)) {
                 return true;
             }
@@ -137,17 +169,29 @@ public class DefaultPermissionCollection implements PermissionCollection {
         if (existing == null && !result.impliesName(p)) {
             result.add(p);
         } else if (grantedWins && ACCESS_GRANTED.equals(p.getResult())) {
-            Iterator<Permission> it = result.collection().iterator();
-            while (it.hasNext()) {
-                Permission next = it.next();
-                if (p.impliesName(next)) {
-                    it.remove();
+            if (result instanceof DefaultPermissionCollection) {
+                ((DefaultPermissionCollection) result).removeImpliedByName(p);
+            } else {
+                Iterator<Permission> it = result.collection().iterator();
+                while (it.hasNext()) {
+                    Permission next = it.next();
+                    if (p.impliesName(next)) {
+                        it.remove();
+                    }
                 }
             }
             result.add(p);
         }
     }
 
+    private void removeImpliedByName(Permission target) {
+        for (Permission p : impliedCandidates(target)) {
+            if (target.impliesName(p)) {
+                removeExisting(p);
+            }
+        }
+    }
+
     public DefaultPermissionCollection clone() {
         DefaultPermissionCollection clone = new DefaultPermissionCollection();
         for (Permission p : permissionSet) {
@@ -160,14 +204,80 @@ public class DefaultPermissionCollection implements PermissionCollection {
         target.setResult(target.getResult().invert());
 
         // After inverting the permission ensure no implied permissions are left
+        for (Permission p : impliedCandidates(target)) {
+            if (!target.equals(p) && target.implies(p)) {
+                removeExisting(p);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * A copy of the permissions of this collection which may be implied by the given one.
+     */
+    private Collection<Permission> impliedCandidates(Permission permission) {
+        PermissionIndex current = index();
+        if (!current.indexable || !isIndexable(permission)) {
+            return new ArrayList<>(permissionSet);
+        }
+        List<Permission> candidates = new ArrayList<>();
+        Permission sameName = current.byName.get(permission.getName());
+        if (sameName != null) {
+            candidates.add(sameName);
+        }
+        Map<String, Permission> children = current.byParentName.get(permission.getName());
+        if (children != null) {
+            candidates.addAll(children.values());
+        }
+        return candidates;
+    }
+
+    private void removeExisting(Permission p) {
+        PermissionIndex current = index();
+        if (current.indexable) {
+            permissionSet.remove(p);
+            current.unindex(p);
+            return;
+        }
         Iterator<Permission> it = permissionSet.iterator();
         while (it.hasNext()) {
-            Permission p = it.next();
-            if (!target.equals(p) && target.implies(p)) {
+            if (it.next() == p) {
                 it.remove();
+                invalidateIndex();
+                return;
             }
         }
-        return this;
+    }
+
+    /**
+     * Builds the lookup indexes right away. A collection no longer modified after this call can be read from several
+     * threads at once.
+     */
+    void buildIndexes() {
+        index();
+    }
+
+    private PermissionIndex index() {
+        PermissionIndex current = index;
+        if (current == null) {
+            current = new PermissionIndex(permissionSet);
+            index = current;
+        }
+        return current;
+    }
+
+    private static boolean isIndexable(Permission p) {
+        return p.getClass() == DotNamedPermission.class;
+    }
+
+    private void invalidateIndex() {
+        index = null;
+    }
+
+    private static String parentName(String name) {
+        int lastDot = name != null ? name.lastIndexOf('.') : -1;
+        return lastDot < 0 ? null : name.substring(0,
+                                                   lastDot);
     }
 
     @Override
@@ -180,4 +290,133 @@ public class DefaultPermissionCollection implements PermissionCollection {
         }
         return out.toString();
     }
+
+    /**
+     * Permissions by name and by parent name.
+     */
+    private static class PermissionIndex {
+
+        private final Map<String, Permission> byName = new HashMap<>();
+        private final Map<String, Map<String, Permission>> byParentName = new HashMap<>();
+        // false if some permission may imply others than those with its same name or one segment longer
+        private boolean indexable = true;
+
+        PermissionIndex(Collection<Permission> permissions) {
+            for (Permission p : permissions) {
+                index(p);
+            }
+        }
+
+        /**
+         * The indexed permissions which may imply the given one.
+         */
+        Collection<Permission> impliedByCandidates(Permission permission) {
+            List<Permission> candidates = new ArrayList<>(2);
+            Permission sameName = byName.get(permission.getName());
+            if (sameName != null) {
+                candidates.add(sameName);
+            }
+            String parentName = parentName(permission.getName());
+            if (parentName != null) {
+                Permission parent = byName.get(parentName);
+                if (parent != null) {
+                    candidates.add(parent);
+                }
+            }
+            return candidates;
+        }
+
+        void index(Permission p) {
+            indexable &= isIndexable(p);
+            byName.put(p.getName(),
+                       p);
+            String parentName = parentName(p.getName());
+            if (parentName != null) {
+                Map<String, Permission> children = byParentName.get(parentName);
+                if (children == null) {
+                    children = new HashMap<>();
+                    byParentName.put(parentName,
+                                     children);
+                }
+                children.put(p.getName(),
+                             p);
+            }
+        }
+
+        void unindex(Permission p) {
+            byName.remove(p.getName());
+            String parentName = parentName(p.getName());
+            if (parentName != null) {
+                Map<String, Permission> children = byParentName.get(parentName);
+                if (children != null) {
+                    children.remove(p.getName());
+                    if (children.isEmpty()) {
+                        byParentName.remove(parentName);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Live view of the permissions; changes made through it are reflected in the indexes.
+     */
+    private class PermissionSetView extends AbstractSet<Permission> {
+
+        @Override
+        public Iterator<Permission> iterator() {
+            final Iterator<Permission> it = permissionSet.iterator();
+            return new Iterator<Permission>() {
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public Permission next() {
+                    return it.next();
+                }
+
+                @Override
+                public void remove() {
+                    it.remove();
+                    invalidateIndex();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return permissionSet.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return permissionSet.contains(o);
+        }
+
+        @Override
+        public boolean add(Permission p) {
+            if (permissionSet.add(p)) {
+                invalidateIndex();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (permissionSet.remove(o)) {
+                invalidateIndex();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void clear() {
+            permissionSet.clear();
+            invalidateIndex();
+        }
+    }
 }
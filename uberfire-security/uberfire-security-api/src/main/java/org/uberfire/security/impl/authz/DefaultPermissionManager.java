@@ -17,8 +17,10 @@ package org.uberfire.security.impl.authz;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
@@ -45,11 +47,28 @@ import static org.uberfire.security.authz.AuthorizationResult.ACCESS_GRANTED;
 @ApplicationScoped
 public class DefaultPermissionManager implements PermissionManager {
 
+    /**
+     * Max number of distinct role/group combinations whose effective permissions are kept
+     */
+    public static final int MAX_PERMISSION_SNAPSHOTS = 1000;
+
     private PermissionTypeRegistry permissionTypeRegistry;
-    private AuthorizationPolicy authorizationPolicy = new DefaultAuthorizationPolicy();
+    private volatile AuthorizationPolicy authorizationPolicy = new DefaultAuthorizationPolicy();
+    // Version of the current policy if it doesn't track its changes, renewed every time a policy is set
+    private volatile long untrackedPolicyVersion = DefaultAuthorizationPolicy.nextVersion();
     private DefaultAuthzResultCache cache;
     private VotingStrategy defaultVotingStrategy = VotingStrategy.PRIORITY;
     private Map<VotingStrategy, VotingAlgorithm> votingAlgorithmMap = new HashMap<>();
+    private final Map<String, PermissionCollection> permissionSnapshots = new LinkedHashMap<String, PermissionCollection>(16,
+                                                                                                                        0.75f,
+                                                                                                                        true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PermissionCollection> eldest) {
+            return size() > MAX_PERMISSION_SNAPSHOTS;
+        }
+    };
+    private AuthorizationPolicy snapshotsPolicy;
+    private long snapshotsPolicyVersion;
 
     @Inject
     public DefaultPermissionManager(PermissionTypeRegistry permissionTypeRegistry) {
@@ -80,7 +99,22 @@ public class DefaultPermissionManager implements PermissionManager {
 
     public void setAuthorizationPolicy(AuthorizationPolicy authorizationPolicy) {
         this.authorizationPolicy = authorizationPolicy != null ? authorizationPolicy : new DefaultAuthorizationPolicy();
-        this.cache.clear();
+        // Renewed after the policy changed and read before it, see getPolicyVersion
+        this.untrackedPolicyVersion = DefaultAuthorizationPolicy.nextVersion();
+        this.cache.invalidate();
+    }
+
+    /**
+     * Get the version results computed against the given policy are cached for. Policies not tracking their changes
+     * are versioned by this manager every time a policy is set.
+     * @param policy The current policy
+     * @param untrackedPolicyVersion The {@link #untrackedPolicyVersion} read before the policy, so a newer policy is
+     * never tagged with a version set for an older one
+     */
+    private long getPolicyVersion(AuthorizationPolicy policy,
+                                  long untrackedPolicyVersion) {
+        final long policyVersion = policy.getVersion();
+        return policyVersion != 0 ? policyVersion : untrackedPolicyVersion;
     }
 
     @Override
@@ -158,18 +192,25 @@ public class DefaultPermissionManager implements PermissionManager {
                                                User user,
                                                VotingStrategy votingStrategy) {
 
-        if (authorizationPolicy == null || permission == null) {
+        final long untrackedVersion = untrackedPolicyVersion;
+        final AuthorizationPolicy policy = authorizationPolicy;
+        if (policy == null || permission == null) {
             return ACCESS_ABSTAIN;
         }
+        // Results computed while the policy changes are tagged with the old version, so the cache drops them
+        final long policyVersion = getPolicyVersion(policy,
+                                                    untrackedVersion);
         AuthorizationResult result = cache.get(user,
-                                               permission);
+                                               permission,
+                                               policyVersion);
         if (result == null) {
             result = _checkPermission(permission,
                                       user,
                                       votingStrategy == null ? defaultVotingStrategy : votingStrategy);
             cache.put(user,
                       permission,
-                      result);
+                      result,
+                      policyVersion);
         }
         return result;
     }
@@ -179,8 +220,7 @@ public class DefaultPermissionManager implements PermissionManager {
                                                    VotingStrategy votingStrategy) {
 
         if (VotingStrategy.PRIORITY.equals(votingStrategy)) {
-            PermissionCollection userPermissions = resolvePermissions(user,
-                                                                      VotingStrategy.PRIORITY);
+            PermissionCollection userPermissions = user == null ? null : resolveSharedPermissions(user);
             return _checkPermission(permission,
                                     userPermissions);
         } else {
@@ -253,7 +293,9 @@ public class DefaultPermissionManager implements PermissionManager {
             case UNANIMOUS:
                 return resolvePermissionsUnanimous(user);
             default:
-                return resolvePermissionsPriority(user);
+                // Snapshots are shared, callers get their own copy
+                final PermissionCollection permissions = resolveSharedPermissions(user);
+                return permissions != null ? permissions.clone() : null;
         }
     }
 
@@ -275,26 +317,118 @@ public class DefaultPermissionManager implements PermissionManager {
         return result;
     }
 
+    /**
+     * Get the permissions resolved by {@link #resolvePermissionsPriority(User, AuthorizationPolicy)}.
+     * <p>
+     * <p>They only depend on the user's roles and groups, so they are computed once per policy version and role/group
+     * combination and then shared, as a {@link ReadOnlyPermissionCollection}, by all the users with the same
+     * memberships.</p>
+     * @param user The target user
+     * @return An immutable permission collection
+     */
+    protected PermissionCollection resolveSharedPermissions(User user) {
+        final long untrackedVersion = untrackedPolicyVersion;
+        final AuthorizationPolicy policy = authorizationPolicy;
+        if (policy == null) {
+            return null;
+        }
+        final long policyVersion = getPolicyVersion(policy,
+                                                    untrackedVersion);
+        final String key = membershipKey(user);
+        PermissionCollection snapshot = getPermissionSnapshot(policy,
+                                                              policyVersion,
+                                                              key);
+        if (snapshot == null) {
+            final PermissionCollection result = resolvePermissionsPriority(user,
+                                                                           policy);
+            if (!(result instanceof DefaultPermissionCollection)) {
+                return result;
+            }
+            // The default permissions are returned as is to users with no roles/groups
+            DefaultPermissionCollection collection = (DefaultPermissionCollection) result;
+            if (result == policy.getPermissions()) {
+                collection = collection.clone();
+            }
+            snapshot = new ReadOnlyPermissionCollection(collection);
+            putPermissionSnapshot(policy,
+                                  policyVersion,
+                                  key,
+                                  snapshot);
+        }
+        return snapshot;
+    }
+
+    private synchronized PermissionCollection getPermissionSnapshot(AuthorizationPolicy policy,
+                                                                    long policyVersion,
+                                                                    String key) {
+        if (policy != snapshotsPolicy || policyVersion != snapshotsPolicyVersion) {
+            permissionSnapshots.clear();
+            snapshotsPolicy = policy;
+            snapshotsPolicyVersion = policyVersion;
+            return null;
+        }
+        return permissionSnapshots.get(key);
+    }
+
+    private synchronized void putPermissionSnapshot(AuthorizationPolicy policy,
+                                                    long policyVersion,
+                                                    String key,
+                                                    PermissionCollection snapshot) {
+        // Skip snapshots computed while the policy changed
+        if (policy == snapshotsPolicy && policyVersion == snapshotsPolicyVersion) {
+            permissionSnapshots.put(key,
+                                    snapshot);
+        }
+    }
+
+    /**
+     * A key identifying the user's role/group combination
+     */
+    private String membershipKey(User user) {
+        StringBuilder key = new StringBuilder();
+        if (user.getRoles() != null) {
+            TreeSet<String> roles = new TreeSet<>();
+            for (Role role : user.getRoles()) {
+                roles.add(role.getName());
+            }
+            for (String role : roles) {
+                key.append(role).append('\u0000');
+            }
+        }
+        key.append('\u0001');
+        if (user.getGroups() != null) {
+            TreeSet<String> groups = new TreeSet<>();
+            for (Group group : user.getGroups()) {
+                groups.add(group.getName());
+            }
+            for (String group : groups) {
+                key.append(group).append('\u0000');
+            }
+        }
+        return key.toString();
+    }
+
     /**
      * Get all the permissions assigned to any of the user's roles/groups plus the default permissions
      * ({@link AuthorizationPolicy#getPermissions()}) and it creates a single permission collection where
      * the permission are added by priority.
      * @param user The target user
+     * @param authorizationPolicy The policy to resolve the permissions from
      * @return An unified permission collection
      */
-    private PermissionCollection resolvePermissionsPriority(User user) {
-        if (authorizationPolicy == null) {
-            return null;
-        }
+    private PermissionCollection resolvePermissionsPriority(User user,
+                                                            AuthorizationPolicy authorizationPolicy) {
         // Get the default permissions as lowest priority
         PermissionCollection result = authorizationPolicy.getPermissions();
         int[] priority = new int[]{Integer.MIN_VALUE};
 
         // Overwrite the default permissions with those defined for the user's roles & groups
         result = mergeRolePermissions(user,
+                                      authorizationPolicy,
                                       result,
                                       priority);
         result = mergeGroupPermissions(user,
+                                       authorizationPolicy,
                                        result,
                                        priority);
         return result;
@@ -304,6 +438,7 @@ public class DefaultPermissionManager implements PermissionManager {
      * Merge the target collection with the permissions assigned to the given user's roles
      */
     private PermissionCollection mergeRolePermissions(User user,
+                                                      AuthorizationPolicy authorizationPolicy,
                                                       PermissionCollection target,
                                                       int[] lastPriority) {
         PermissionCollection result = target;
@@ -327,6 +462,7 @@ public class DefaultPermissionManager implements PermissionManager {
      * Merge the target collection with the permissions assigned to the given user's groups
      */
     private PermissionCollection mergeGroupPermissions(User user,
+                                                       AuthorizationPolicy authorizationPolicy,
                                                        PermissionCollection target,
                                                        int[] lastPriority) {
         PermissionCollection result = target;
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.uberfire.security.impl.authz;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.uberfire.security.authz.Permission;
+import org.uberfire.security.authz.PermissionCollection;
+
+/**
+ * An immutable view of a permission collection which is no longer modified, so it can be shared by several users
+ * and threads. Use {@link #clone()} to get a modifiable copy.
+ */
+public class ReadOnlyPermissionCollection implements PermissionCollection {
+
+    private final DefaultPermissionCollection delegate;
+
+    public ReadOnlyPermissionCollection(DefaultPermissionCollection delegate) {
+        this.delegate = delegate;
+        this.delegate.buildIndexes();
+    }
+
+    @Override
+    public PermissionCollection add(Permission... permissions) {
+        throw new UnsupportedOperationException("Read only permission collection");
+    }
+
+    @Override
+    public PermissionCollection remove(Permission... permissions) {
+        throw new UnsupportedOperationException("Read only permission collection");
+    }
+
+    @Override
+    public Permission get(String name) {
+        return delegate.get(name);
+    }
+
+    @Override
+    public Collection<Permission> collection() {
+        return Collections.unmodifiableCollection(delegate.collection());
+    }
+
+    @Override
+    public boolean implies(Permission permission) {
+        return delegate.implies(permission);
+    }
+
+    @Override
+    public boolean impliesName(Permission permission) {
+        return delegate.impliesName(permission);
+    }
+
+    @Override
+    public PermissionCollection merge(PermissionCollection other,
+                                      int priority) {
+        PermissionCollection result = delegate.merge(other,
+                                                     priority);
+        return result == delegate ? this : result;
+    }
+
+    @Override
+    public PermissionCollection clone() {
+        return delegate.clone();
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
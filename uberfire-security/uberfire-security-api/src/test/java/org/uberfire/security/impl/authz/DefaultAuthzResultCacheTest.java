@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.uberfire.security.impl.authz;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.errai.security.shared.api.identity.User;
+import org.jboss.errai.security.shared.api.identity.UserImpl;
+import org.junit.Test;
+import org.uberfire.security.authz.Permission;
+
+import static org.junit.Assert.*;
+import static org.uberfire.security.authz.AuthorizationResult.ACCESS_DENIED;
+import static org.uberfire.security.authz.AuthorizationResult.ACCESS_GRANTED;
+
+public class DefaultAuthzResultCacheTest {
+
+    User user = new UserImpl("user");
+    Permission view1 = new DotNamedPermission("resource.read.1",
+                                              true);
+    Permission noView1 = new DotNamedPermission("resource.read.1",
+                                                false);
+    Permission view2 = new DotNamedPermission("resource.read.2",
+                                              true);
+    Permission view3 = new DotNamedPermission("resource.read.3",
+                                              true);
+
+    @Test
+    public void testKeyedByPermissionNameAndResult() {
+        DefaultAuthzResultCache cache = new DefaultAuthzResultCache();
+        cache.put(user,
+                  view1,
+                  ACCESS_GRANTED);
+        cache.put(user,
+                  noView1,
+                  ACCESS_DENIED);
+        assertEquals(ACCESS_GRANTED,
+                     cache.get(user,
+                               new DotNamedPermission("resource.read.1",
+                                                      true)));
+        assertEquals(ACCESS_DENIED,
+                     cache.get(user,
+                               noView1));
+        assertNull(cache.get(new UserImpl("other"),
+                             view1));
+        assertEquals(2,
+                     cache.getHitCount());
+        assertEquals(1,
+                     cache.getMissCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        DefaultAuthzResultCache cache = new DefaultAuthzResultCache(2,
+                                                                    0);
+        cache.put(user,
+                  view1,
+                  ACCESS_GRANTED);
+        cache.put(user,
+                  view2,
+                  ACCESS_GRANTED);
+        cache.get(user,
+                  view1);
+        cache.put(user,
+                  view3,
+                  ACCESS_GRANTED);
+
+        assertEquals(2,
+                     cache.size());
+        assertNotNull(cache.get(user,
+                                view1));
+        assertNull(cache.get(user,
+                             view2));
+        assertNotNull(cache.get(user,
+                                view3));
+    }
+
+    @Test
+    public void testConcurrentAccessStaysBounded() throws Exception {
+        DefaultAuthzResultCache cache = new DefaultAuthzResultCache(100,
+                                                                    0);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        Permission permission = new DotNamedPermission("resource.read." + thread + "." + i,
+                                                                       true);
+                        cache.put(user,
+                                  permission,
+                                  ACCESS_GRANTED);
+                        cache.get(user,
+                                  permission);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30,
+                           TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(cache.size() <= cache.getMaxSize());
+        assertEquals(4000,
+                     cache.getHitCount() + cache.getMissCount());
+    }
+
+    @Test
+    public void testTimeToLive() {
+        long[] now = {1000};
+        DefaultAuthzResultCache cache = new DefaultAuthzResultCache(10,
+                                                                    100) {
+            @Override
+            long currentTimeMillis() {
+                return now[0];
+            }
+        };
+        cache.put(user,
+                  view1,
+                  ACCESS_GRANTED);
+        now[0] += 99;
+        assertEquals(ACCESS_GRANTED,
+                     cache.get(user,
+                               view1));
+        now[0] += 1;
+        assertNull(cache.get(user,
+                             view1));
+        assertEquals(0,
+                     cache.size());
+    }
+
+    @Test
+    public void testPolicyVersion() {
+        DefaultAuthzResultCache cache = new DefaultAuthzResultCache();
+        cache.put(user,
+                  view1,
+                  ACCESS_GRANTED,
+                  1);
+        assertEquals(ACCESS_GRANTED,
+                     cache.get(user,
+                               view1,
+                               1));
+
+        // A newer version invalidates the results cached so far
+        assertNull(cache.get(user,
+                             view1,
+                             2));
+        assertEquals(2,
+                     cache.getPolicyVersion());
+
+        // Results computed for a previous version are not cached
+        cache.put(user,
+                  view1,
+                  ACCESS_GRANTED,
+                  1);
+        assertNull(cache.get(user,
+                             view1,
+                             2));
+        assertEquals(0,
+                     cache.size(user));
+
+        cache.put(user,
+                  view1,
+                  ACCESS_DENIED,
+                  2);
+        assertEquals(ACCESS_DENIED,
+                     cache.get(user,
+                               view1,
+                               2));
+
+        cache.invalidate();
+        assertNull(cache.get(user,
+                             view1,
+                             2));
+    }
+}
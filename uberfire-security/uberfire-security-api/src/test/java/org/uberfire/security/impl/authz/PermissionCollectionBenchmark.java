@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.uberfire.security.impl.authz;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.uberfire.security.authz.Permission;
+import org.uberfire.security.authz.PermissionCollection;
+
+/**
+ * Compares the lookups of {@link DefaultPermissionCollection} with the linear scans it used before, on a
+ * policy with per project and per repository permissions. Run it from the test classpath through its
+ * {@code main} method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermissionCollectionBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int permissions;
+
+    private PermissionCollection indexed;
+    private PermissionCollection linear;
+    private Permission[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final Random random = new Random(42);
+        indexed = new DefaultPermissionCollection();
+        linear = new LinearPermissionCollection();
+        for (int i = 0; i < permissions; i++) {
+            final Permission p = new DotNamedPermission(randomName(random,
+                                                                   permissions),
+                                                        random.nextBoolean());
+            indexed.add(p);
+            linear.add(p.clone());
+        }
+        queries = new Permission[1024];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = new DotNamedPermission(randomName(random,
+                                                           permissions),
+                                                true);
+        }
+    }
+
+    @Benchmark
+    public void indexed(final Blackhole blackhole) {
+        check(indexed,
+              blackhole);
+    }
+
+    @Benchmark
+    public void linear(final Blackhole blackhole) {
+        check(linear,
+              blackhole);
+    }
+
+    // The lookups of DefaultPermissionManager._checkPermission
+    private void check(final PermissionCollection collection,
+                       final Blackhole blackhole) {
+        final Permission query = queries[next++ & (queries.length - 1)];
+        blackhole.consume(collection.get(query.getName()));
+        blackhole.consume(collection.implies(query));
+        blackhole.consume(collection.impliesName(query));
+    }
+
+    private static String randomName(final Random random,
+                                     final int permissions) {
+        final String type = random.nextBoolean() ? "project" : "repository";
+        final String action = random.nextBoolean() ? "read" : "update";
+        return random.nextInt(10) == 0 ? type + "." + action : type + "." + action + "." + random.nextInt(permissions);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PermissionCollectionBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * The previous implementation, scanning every permission on each lookup.
+     */
+    static class LinearPermissionCollection extends DefaultPermissionCollection {
+
+        @Override
+        public Permission get(final String name) {
+            for (final Permission p : collection()) {
+                if (equalsName(name,
+                               p.getName())) {
+                    return p;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean implies(final Permission permission) {
+            for (final Permission p : collection()) {
+                if (p.implies(permission)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean impliesName(final Permission permission) {
+            for (final Permission p : collection()) {
+                if (p.impliesName(permission)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
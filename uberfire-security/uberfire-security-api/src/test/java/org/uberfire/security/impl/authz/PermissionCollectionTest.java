@@ -15,6 +15,12 @@
  */
 package org.uberfire.security.impl.authz;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Test;
 import org.uberfire.security.authz.AuthorizationResult;
 import org.uberfire.security.authz.Permission;
@@ -285,4 +291,109 @@ public class PermissionCollectionTest {
         assertEquals(pc.get("resource.read").getResult(),
                      AuthorizationResult.ACCESS_DENIED);
     }
+
+    @Test
+    public void testLookupsMatchLinearScan() {
+        Random random = new Random(7);
+        DefaultPermissionCollection indexed = new DefaultPermissionCollection();
+        DefaultPermissionCollection linear = new PermissionCollectionBenchmark.LinearPermissionCollection();
+
+        for (int i = 0; i < 2000; i++) {
+            DotNamedPermission p = new DotNamedPermission(randomName(random),
+                                                          randomResult(random));
+            switch (random.nextInt(6)) {
+                case 0:
+                    indexed.remove(p);
+                    linear.remove(p);
+                    break;
+                case 1:
+                    Permission existing = indexed.get(p.getName());
+                    if (existing != null) {
+                        indexed.invert(existing);
+                        linear.invert(linear.get(p.getName()));
+                    }
+                    break;
+                case 2:
+                    // changes through the collection view
+                    Iterator<Permission> it = indexed.collection().iterator();
+                    while (it.hasNext()) {
+                        if (it.next().getName().equals(p.getName())) {
+                            it.remove();
+                        }
+                    }
+                    linear.remove(p);
+                    break;
+                default:
+                    indexed.add(p);
+                    linear.add(p.clone());
+            }
+            assertEquals(linear.toString(),
+                         indexed.toString());
+
+            DotNamedPermission query = new DotNamedPermission(randomName(random),
+                                                              randomResult(random));
+            assertEquals(linear.get(query.getName()),
+                         indexed.get(query.getName()));
+            assertEquals(linear.implies(query),
+                         indexed.implies(query));
+            assertEquals(linear.impliesName(query),
+                         indexed.impliesName(query));
+        }
+
+        PermissionCollection other = new DefaultPermissionCollection();
+        for (int i = 0; i < 200; i++) {
+            other.add(new DotNamedPermission(randomName(random),
+                                             randomResult(random)));
+        }
+        for (int priority = -1; priority <= 1; priority++) {
+            assertEquals(linear.merge(other,
+                                      priority).toString(),
+                         indexed.merge(other,
+                                       priority).toString());
+        }
+    }
+
+    @Test
+    public void testConcurrentLookupsOnUnindexedCollection() throws Exception {
+        DefaultPermissionCollection pc = new DefaultPermissionCollection();
+        for (int i = 0; i < 1000; i++) {
+            pc.add(new DotNamedPermission("resource.read.id" + i,
+                                          true));
+        }
+        // changes made through the view drop the index, so the readers below race to build it
+        pc.collection().add(new DotNamedPermission("perspective.read",
+                                                   true));
+
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread reader = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    if (pc.get("resource.read.id" + i) == null) {
+                        errors.add("resource.read.id" + i);
+                    }
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertTrue(errors.toString(),
+                   errors.isEmpty());
+    }
+
+    private String randomName(Random random) {
+        StringBuilder name = new StringBuilder("r");
+        int depth = random.nextInt(4);
+        for (int i = 0; i < depth; i++) {
+            name.append('.').append(random.nextInt(4));
+        }
+        return name.toString();
+    }
+
+    private AuthorizationResult randomResult(Random random) {
+        return AuthorizationResult.values()[random.nextInt(AuthorizationResult.values().length)];
+    }
 }
@@ -358,22 +358,123 @@ public class PermissionManagerTest {
                                           user);
         permissionManager.checkPermission(viewAll,
                                           user);
-        verify(permissionManager,
-               times(1)).resolvePermissions(user,
-                                            VotingStrategy.PRIORITY);
+        ((DefaultPermissionManager) verify(permissionManager,
+                                               times(1))).resolveSharedPermissions(user);
         verify(authzResultCache,
-               times(1)).put(user,
-                             viewAll,
-                             AuthorizationResult.ACCESS_GRANTED);
+               times(1)).put(eq(user),
+                             eq(viewAll),
+                             eq(AuthorizationResult.ACCESS_GRANTED),
+                             anyLong());
         verify(authzResultCache,
-               times(4)).get(user,
-                             viewAll);
+               times(4)).get(eq(user),
+                             eq(viewAll),
+                             anyLong());
+        assertEquals(authzResultCache.getHitCount(),
+                     3);
+        assertEquals(authzResultCache.getMissCount(),
+                     1);
         assertEquals(authzResultCache.size(user),
                      1);
         assertEquals(authzResultCache.size(createUserMock()),
                      0);
     }
 
+    @Test
+    public void testCacheInvalidatedOnPolicyChange() {
+        User user = createUserMock("viewAll");
+        assertEquals(permissionManager.checkPermission(viewAll,
+                                                       user),
+                     ACCESS_GRANTED);
+
+        ((DefaultAuthorizationPolicy) authorizationPolicy).addPermission(new RoleImpl("viewAll"),
+                                                                         denyAll);
+        assertEquals(permissionManager.checkPermission(viewAll,
+                                                       user),
+                     ACCESS_DENIED);
+
+        permissionManager.setAuthorizationPolicy(permissionManager.newAuthorizationPolicy()
+                                                         .role("viewAll").permission("resource.read",
+                                                                                     true)
+                                                         .build());
+        assertEquals(permissionManager.checkPermission(viewAll,
+                                                       user),
+                     ACCESS_GRANTED);
+        ((DefaultPermissionManager) verify(permissionManager,
+                                               times(3))).resolveSharedPermissions(user);
+    }
+
+    @Test
+    public void testUntrackedPolicyCachedUntilSetAgain() {
+        AuthorizationPolicy untracked = spy(permissionManager.newAuthorizationPolicy()
+                                                    .role("viewAll").permission("resource.read",
+                                                                                true)
+                                                    .build());
+        doReturn(0L).when(untracked).getVersion();
+        permissionManager.setAuthorizationPolicy(untracked);
+
+        User user = createUserMock("viewAll");
+        assertEquals(permissionManager.checkPermission(viewAll,
+                                                       user),
+                     ACCESS_GRANTED);
+        assertEquals(permissionManager.checkPermission(viewAll,
+                                                       user),
+                     ACCESS_GRANTED);
+        ((DefaultPermissionManager) verify(permissionManager,
+                                               times(1))).resolveSharedPermissions(user);
+
+        permissionManager.setAuthorizationPolicy(untracked);
+        assertEquals(permissionManager.checkPermission(viewAll,
+                                                       user),
+                     ACCESS_GRANTED);
+        ((DefaultPermissionManager) verify(permissionManager,
+                                               times(2))).resolveSharedPermissions(user);
+    }
+
+    @Test
+    public void testPermissionSnapshotsSharedByMemberships() {
+        DefaultPermissionManager manager = (DefaultPermissionManager) permissionManager;
+        PermissionCollection pc1 = manager.resolveSharedPermissions(createUserMock("viewAll",
+                                                                                   "noView1"));
+        PermissionCollection pc2 = manager.resolveSharedPermissions(createUserMock("noView1",
+                                                                                   "viewAll"));
+        PermissionCollection pc3 = manager.resolveSharedPermissions(createUserMock("viewAll"));
+        assertSame(pc1,
+                   pc2);
+        assertNotSame(pc1,
+                      pc3);
+        assertEquals(pc3.get("resource.read").getResult(),
+                     ACCESS_GRANTED);
+
+        Permission other = new DotNamedPermission("other.read",
+                                                  true);
+        try {
+            pc1.add(other);
+            fail("Snapshots must be read only");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+
+        // Callers get their own copy
+        PermissionCollection copy = permissionManager.resolvePermissions(createUserMock("viewAll",
+                                                                                        "noView1"),
+                                                                         VotingStrategy.PRIORITY);
+        assertNotSame(pc1,
+                      copy);
+        copy.add(other);
+        copy.remove(copy.get("resource.read"));
+        assertNotNull(copy.get("other.read"));
+        assertNull(pc1.get("other.read"));
+        assertNotNull(pc1.get("resource.read"));
+
+        ((DefaultAuthorizationPolicy) authorizationPolicy).addPermission(new RoleImpl("viewAll"),
+                                                                         denyAll);
+        PermissionCollection pc4 = manager.resolveSharedPermissions(createUserMock("viewAll"));
+        assertNotSame(pc3,
+                      pc4);
+        assertEquals(pc4.get("resource.read").getResult(),
+                     ACCESS_DENIED);
+    }
+
     @Test
     public void testDefaultVotingStrategy() {
         User user = createUserMock("role1");